@@ -33,6 +33,8 @@ import org.apache.flink.api.java.utils.ParameterTool;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.RestOptions;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.streaming.connectors.kafka.FlinkKafkaConsumer;
@@ -83,6 +85,10 @@ public class StreamingJob implements Serializable {
 		Long inactiveTrajDeletionThreshold = Long.parseLong(parameters.get("trajDeletionThreshold"));
 		int allowedLateness = Integer.parseInt(parameters.get("outOfOrderAllowedLateness"));
 		int omegaJoinDurationSeconds = Integer.parseInt(parameters.get("omegaJoinDuration"));
+		int hotCellSubKeys = parameters.getInt("hotCellSubKeys", 1); // Hot cells are salted over hotCellSubKeys sub-keys (Default = 1, i.e., no salting)
+		long hotCellThreshold = parameters.getLong("hotCellThreshold", Long.MAX_VALUE); // Cell arrivals per window slide step above which a cell is hot
+		String spaceFillingCurve = parameters.get("spaceFillingCurve", "NONE"); // "NONE", "ZORDER", "HILBERT" (Default = NONE)
+		boolean eventTime = parameters.getBoolean("eventTime", false); // Event time windows for options 1, 2 and 4, timestamps parsed with dateFormat (Default = false)
 
 		double gridMinX = Double.parseDouble(parameters.get("gridMinX"));
 		double gridMaxX = Double.parseDouble(parameters.get("gridMaxX"));
@@ -128,6 +134,9 @@ public class StreamingJob implements Serializable {
 			 */
 		}
 		//env.setParallelism(30);
+		if (eventTime) {
+			env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime); // periodic watermarks
+		}
 
 		double minX;
 		double maxX;
@@ -219,7 +228,7 @@ public class StreamingJob implements Serializable {
 		Polygon queryPoly;
 		LineString queryLineString;
 
-		uGrid = new UniformGrid(uniformGridSize, gridMinX, gridMaxX, gridMinY, gridMaxY);
+		uGrid = new UniformGrid(uniformGridSize, gridMinX, gridMaxX, gridMinY, gridMaxY, spaceFillingCurve);
 		String[] trajID = trajIDSet.split("\\s*,\\s*");
 		trajIDs = Stream.of(trajID).collect(Collectors.toSet());
 		qPoint = new Point(queryPointCoordinates.get(0).x, queryPointCoordinates.get(0).y, uGrid);
@@ -354,18 +363,30 @@ public class StreamingJob implements Serializable {
 			case 1: { // Range Query (Grid-based)
 				DataStream geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
 				// Converting GeoJSON,CSV stream to point spatial data stream
-				DataStream<Point> spatialPointStream = SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
+				DataStream<Point> spatialPointStream = eventTime ? SpatialStream.TrajectoryStream(geoJSONStream, inputFormat, inputDateFormat, uGrid) : SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
 
 				//DataStream<Point> spatialPointStream = SpatialStream.PointStream(csvStream, "CSV", uGrid);
-				DataStream<Point> rNeighbors= RangeQuery.SpatialRangeQuery(spatialPointStream, qPoint, radius, windowSize, windowSlideStep, uGrid);  // better than equivalent GB approach
+				DataStream<Point> rNeighbors;
+				if(eventTime)
+					rNeighbors = RangeQuery.SpatialRangeQuery(spatialPointStream, qPoint, radius, windowSize, windowSlideStep, allowedLateness, uGrid);
+				else if(hotCellSubKeys > 1)
+					rNeighbors = RangeQuery.SpatialRangeQuery(spatialPointStream, qPoint, radius, windowSize, windowSlideStep, uGrid, hotCellSubKeys, hotCellThreshold);
+				else
+					rNeighbors= RangeQuery.SpatialRangeQuery(spatialPointStream, qPoint, radius, windowSize, windowSlideStep, uGrid);  // better than equivalent GB approach
 				rNeighbors.print();
 				break;}
 			case 2: { // KNN (Grid based - fixed radius)
 				DataStream geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
 				// Converting GeoJSON,CSV stream to point spatial data stream
-				DataStream<Point> spatialPointStream = SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
+				DataStream<Point> spatialPointStream = eventTime ? SpatialStream.TrajectoryStream(geoJSONStream, inputFormat, inputDateFormat, uGrid) : SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
 				//DataStream<Point> spatialPointStream = SpatialStream.PointStream(csvStream, "CSV", uGrid);
-				DataStream < Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> kNNPQStream = KNNQuery.SpatialKNNQuery(spatialPointStream, qPoint, radius, k, windowSize, windowSlideStep, uGrid);
+				DataStream < Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> kNNPQStream;
+				if(eventTime)
+					kNNPQStream = KNNQuery.SpatialKNNQuery(spatialPointStream, qPoint, radius, k, windowSize, windowSlideStep, allowedLateness, uGrid);
+				else if(hotCellSubKeys > 1)
+					kNNPQStream = KNNQuery.SpatialKNNQuery(spatialPointStream, qPoint, radius, k, windowSize, windowSlideStep, uGrid, hotCellSubKeys, hotCellThreshold);
+				else
+					kNNPQStream = KNNQuery.SpatialKNNQuery(spatialPointStream, qPoint, radius, k, windowSize, windowSlideStep, uGrid);
 				kNNPQStream.print();
 				break;}
 			case 3: { // KNN (Grid based - Iterative approach)
@@ -379,12 +400,12 @@ public class StreamingJob implements Serializable {
 			case 4: { // Spatial Join (Grid-based)
 				DataStream geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
 				// Converting GeoJSON,CSV stream to point spatial data stream
-				DataStream<Point> spatialPointStream = SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
+				DataStream<Point> spatialPointStream = eventTime ? SpatialStream.TrajectoryStream(geoJSONStream, inputFormat, inputDateFormat, uGrid) : SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
 				//DataStream<Point> spatialPointStream = SpatialStream.PointStream(csvStream, "CSV", uGrid);
 				//Generating query stream
 				DataStream geoJSONQueryStream  = env.addSource(new FlinkKafkaConsumer<>(queryTopicName, new JSONKeyValueDeserializationSchema(false),kafkaProperties).setStartFromLatest());
-				DataStream<Point> queryStream = SpatialStream.PointStream(geoJSONQueryStream, inputFormat, uGrid);
-				DataStream<Tuple2<String, String>> spatialJoinStream = JoinQuery.SpatialJoinQuery(spatialPointStream, queryStream, radius, windowSize, windowSlideStep, uGrid);
+				DataStream<Point> queryStream = eventTime ? SpatialStream.TrajectoryStream(geoJSONQueryStream, inputFormat, inputDateFormat, uGrid) : SpatialStream.PointStream(geoJSONQueryStream, inputFormat, uGrid);
+				DataStream<Tuple2<Long, Long>> spatialJoinStream = eventTime ? JoinQuery.SpatialJoinQuery(spatialPointStream, queryStream, radius, windowSize, windowSlideStep, allowedLateness, uGrid) : JoinQuery.SpatialJoinQuery(spatialPointStream, queryStream, radius, windowSize, windowSlideStep, uGrid);
 				spatialJoinStream.print();
 				break;}
 			case 5:{ // Range Query (Point-Polygon)
@@ -437,11 +458,11 @@ public class StreamingJob implements Serializable {
 				//geoJSONQueryPointStream.print();
 
 				//---Spatial Join using Neighboring Layers---
-//				DataStream<Tuple2<String, String>> spatialJoinStream = JoinQuery.SpatialJoinQuery(spatialPolygonStream, queryPointStream, radius, uGrid, windowSize, windowSlideStep);
+//				DataStream<Tuple2<Long, Long>> spatialJoinStream = JoinQuery.SpatialJoinQuery(spatialPolygonStream, queryPointStream, radius, uGrid, windowSize, windowSlideStep);
 //				spatialJoinStream.print();
 
 				//----Optimized Spatial Join using Candidate and Guaranteed Neighbors---
-//				DataStream<Tuple2<String, String>> spatialJoinStreamOptimized = JoinQuery.SpatialJoinQueryOptimized(spatialPolygonStream, queryPointStream, radius, uGrid, windowSize, windowSlideStep);
+//				DataStream<Tuple2<Long, Long>> spatialJoinStreamOptimized = JoinQuery.SpatialJoinQueryOptimized(spatialPolygonStream, queryPointStream, radius, uGrid, windowSize, windowSlideStep);
 //				spatialJoinStreamOptimized.print();
 				break;
 			}
@@ -458,14 +479,42 @@ public class StreamingJob implements Serializable {
 				//queryPolygonStream.print();
 
 				//---Spatial Join using Neighboring Layers----
-//				DataStream<Tuple2<String, String>> spatialJoinStream = JoinQuery.SpatialJoinQuery(spatialPolygonStream, queryPolygonStream,  windowSlideStep, windowSize, radius, uGrid);
+//				DataStream<Tuple2<Long, Long>> spatialJoinStream = JoinQuery.SpatialJoinQuery(spatialPolygonStream, queryPolygonStream,  windowSlideStep, windowSize, radius, uGrid);
 //				spatialJoinStream.print();
 
 				//----Optimized Spatial Join using Candidate and Guaranteed Neighbors---
-//				DataStream<Tuple2<String, String>> spatialJoinStreamOptimized = JoinQuery.SpatialJoinQueryOptimized(spatialPolygonStream, queryPolygonStream,  windowSlideStep, windowSize, radius, uGrid);
+//				DataStream<Tuple2<Long, Long>> spatialJoinStreamOptimized = JoinQuery.SpatialJoinQueryOptimized(spatialPolygonStream, queryPolygonStream,  windowSlideStep, windowSize, radius, uGrid);
 //				spatialJoinStreamOptimized.print();
 				break;
 			}
+			case 11:{ // Range Query (Dynamic queries)
+				DataStream<ObjectNode> geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<Point> spatialPointStream = SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
+				// Queries are added, updated and removed through the query topic, read from the earliest offset to replay all the query definitions
+				DataStream<ObjectNode> geoJSONQueryUpdateStream  = env.addSource(new FlinkKafkaConsumer<>(queryTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<QueryUpdate> queryUpdateStream = SpatialStream.QueryUpdateStream(geoJSONQueryUpdateStream, uGrid);
+				DataStream<Tuple2<String, Point>> rNeighbors = RangeQuery.SpatialRangeQuery(spatialPointStream, queryUpdateStream, windowSize, windowSlideStep, uGrid);
+				rNeighbors.print();
+				break;
+			}
+			case 12:{ // Range Query (Polygon, Dynamic queries)
+				DataStream<ObjectNode> geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<Polygon> spatialPolygonStream = SpatialStream.PolygonStream(geoJSONStream, inputFormat, uGrid);
+				DataStream<ObjectNode> geoJSONQueryUpdateStream  = env.addSource(new FlinkKafkaConsumer<>(queryTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<QueryUpdate> queryUpdateStream = SpatialStream.QueryUpdateStream(geoJSONQueryUpdateStream, uGrid);
+				DataStream<Tuple2<String, Polygon>> rNeighbors = RangeQuery.SpatialRangeQuery(spatialPolygonStream, queryUpdateStream, uGrid, windowSize, windowSlideStep);
+				rNeighbors.print();
+				break;
+			}
+			case 13:{ // KNN (Dynamic queries)
+				DataStream<ObjectNode> geoJSONStream  = env.addSource(new FlinkKafkaConsumer<>(inputTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<Point> spatialPointStream = SpatialStream.PointStream(geoJSONStream, inputFormat, uGrid);
+				DataStream<ObjectNode> geoJSONQueryUpdateStream  = env.addSource(new FlinkKafkaConsumer<>(queryTopicName, new JSONKeyValueDeserializationSchema(false), kafkaProperties).setStartFromEarliest());
+				DataStream<QueryUpdate> queryUpdateStream = SpatialStream.QueryUpdateStream(geoJSONQueryUpdateStream, uGrid);
+				DataStream<Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>> kNNPQStream = KNNQuery.SpatialKNNQuery(spatialPointStream, queryUpdateStream, windowSize, windowSlideStep, uGrid);
+				kNNPQStream.print();
+				break;
+			}
 			case 21:{ // TFilterQuery Real-time
 				DataStream<Point> spatialTrajectoryStream = SpatialStream.TrajectoryStream(inputStream, inputFormat, inputDateFormat, uGrid);
 				DataStream<Point> outputStream = TFilterQuery.TIDSpatialFilterQuery(spatialTrajectoryStream, trajIDs);
@@ -507,7 +556,7 @@ public class StreamingJob implements Serializable {
 			}
 			case 27:{ // TSpatialHeatmapAggregateQuery Real-time
 				DataStream<Point> spatialTrajectoryStream = SpatialStream.TrajectoryStream(inputStream, inputFormat, inputDateFormat, uGrid);
-				DataStream<Tuple4<String, Integer, HashMap<String, Long>, Long>> outputStream = TAggregateQuery.TSpatialHeatmapAggregateQuery(spatialTrajectoryStream, aggregateFunction, inactiveTrajDeletionThreshold);
+				DataStream<Tuple4<Long, Integer, HashMap<String, Long>, Long>> outputStream = TAggregateQuery.TSpatialHeatmapAggregateQuery(spatialTrajectoryStream, aggregateFunction, inactiveTrajDeletionThreshold);
 				//outputStream.print();
 				outputStream.addSink(new FlinkKafkaProducer<>(outputTopicName, new HelperClass.LatencySinkTuple4(queryOption, outputTopicName), kafkaProperties, FlinkKafkaProducer.Semantic.EXACTLY_ONCE));
 				break;
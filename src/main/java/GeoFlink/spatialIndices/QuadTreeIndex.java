@@ -0,0 +1,491 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialIndices;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.HelperClass;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.Serializable;
+import java.util.*;
+
+/*
+QuadTreeIndex: an adaptive alternative to the UniformGrid
+The tree is built over a sample of the stream (e.g., the points received during a bootstrap period), and the nodes are split
+until they contain at most maxPointsPerLeaf sample points, hence the dense regions are divided into more (and smaller) cells.
+The cells of the index are the leaves of the tree. A leaf is identified by the packed key of its bottom-left cell in the finest
+grid (2^maxDepth x 2^maxDepth), which is unique since the leaves do not overlap.
+Since it extends UniformGrid, it can be passed to all the operators expecting a UniformGrid.
+*/
+public class QuadTreeIndex extends UniformGrid {
+
+    private final int maxPointsPerLeaf;
+    private final int maxDepth;
+    private final QuadTreeNode root;
+    private final HashMap<Long, QuadTreeNode> leaves = new HashMap<Long, QuadTreeNode>();
+
+    //ctor
+    public QuadTreeIndex(List<Coordinate> samplePoints, int maxPointsPerLeaf, int maxDepth, double minX, double maxX, double minY, double maxY)
+    {
+        // The finest grid is a uniform grid of 2^maxDepth rows, maxDepth is checked before the grid is built
+        super(checkedRows(maxDepth), minX, maxX, minY, maxY);
+
+        if(maxPointsPerLeaf <= 0)
+        {
+            throw new IllegalArgumentException("maxPointsPerLeaf must be greater than 0");
+        }
+
+        this.maxPointsPerLeaf = maxPointsPerLeaf;
+        this.maxDepth = maxDepth;
+
+        // Sample points are converted to the finest grid cell indices, points outside the grid are ignored
+        int[] xCellIndices = new int[samplePoints.size()];
+        int[] yCellIndices = new int[samplePoints.size()];
+        int numSamplePoints = 0;
+        for (Coordinate coordinate : samplePoints) {
+            long cellKey = super.assignGridCellID(coordinate.getX(), coordinate.getY());
+            int x = HelperClass.getXCellIndex(cellKey);
+            int y = HelperClass.getYCellIndex(cellKey);
+            if (validKey(x, y)) {
+                xCellIndices[numSamplePoints] = x;
+                yCellIndices[numSamplePoints] = y;
+                numSamplePoints++;
+            }
+        }
+
+        this.root = new QuadTreeNode(0, 0, numGridPartitions);
+        buildTree(root, xCellIndices, yCellIndices, numSamplePoints);
+        System.out.println("QuadTreeIndex number of leaves: " + leaves.size());
+    }
+
+    // Number of rows of the finest grid
+    private static int checkedRows(int maxDepth)
+    {
+        if(maxDepth < 0 || maxDepth > 15)
+        {
+            throw new IllegalArgumentException("maxDepth must be in the range [0, 15]");
+        }
+        return 1 << maxDepth;
+    }
+
+    // Splits the node recursively until it contains at most maxPointsPerLeaf points or reaches the finest grid resolution
+    private void buildTree(QuadTreeNode node, int[] xCellIndices, int[] yCellIndices, int numPoints)
+    {
+        if(numPoints <= maxPointsPerLeaf || node.size == 1)
+        {
+            leaves.put(node.getCellKey(), node);
+            return;
+        }
+
+        int halfSize = node.size / 2;
+        node.children = new QuadTreeNode[4];
+
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            QuadTreeNode child = new QuadTreeNode(node.x0 + (quadrant & 1) * halfSize, node.y0 + (quadrant >> 1) * halfSize, halfSize);
+
+            // Sample points lying in the child quadrant
+            int[] childXCellIndices = new int[numPoints];
+            int[] childYCellIndices = new int[numPoints];
+            int numChildPoints = 0;
+            for (int i = 0; i < numPoints; i++) {
+                if (child.containsCell(xCellIndices[i], yCellIndices[i])) {
+                    childXCellIndices[numChildPoints] = xCellIndices[i];
+                    childYCellIndices[numChildPoints] = yCellIndices[i];
+                    numChildPoints++;
+                }
+            }
+
+            node.children[quadrant] = child;
+            buildTree(child, childXCellIndices, childYCellIndices, numChildPoints);
+        }
+    }
+
+    public int getMaxPointsPerLeaf() {return maxPointsPerLeaf;}
+    public int getMaxDepth() {return maxDepth;}
+    public int getNumLeaves() {return leaves.size();}
+
+    @Override
+    public Set<Long> getGirdCellsSet() {return Collections.unmodifiableSet(leaves.keySet());}
+
+    // Returns the leaf containing the given finest grid cell, null if the cell lies outside the grid
+    private QuadTreeNode getLeaf(int x, int y)
+    {
+        if(!validKey(x, y)) {
+            return null;
+        }
+
+        QuadTreeNode node = root;
+        while (node.children != null) {
+            int halfSize = node.size / 2;
+            int quadrant = (x >= node.x0 + halfSize ? 1 : 0) + (y >= node.y0 + halfSize ? 2 : 0);
+            node = node.children[quadrant];
+        }
+        return node;
+    }
+
+    // Returns the leaf with the given key, a cell outside the grid is treated as a leaf of the finest grid
+    private QuadTreeNode getLeaf(long cellKey)
+    {
+        QuadTreeNode leaf = leaves.get(cellKey);
+        if(leaf == null) {
+            leaf = new QuadTreeNode(HelperClass.getXCellIndex(cellKey), HelperClass.getYCellIndex(cellKey), 1);
+        }
+        return leaf;
+    }
+
+    // assigning grid cell ID
+    @Override
+    public long assignGridCellID(double x, double y) {
+
+        long finestCellKey = super.assignGridCellID(x, y);
+        QuadTreeNode leaf = getLeaf(HelperClass.getXCellIndex(finestCellKey), HelperClass.getYCellIndex(finestCellKey));
+
+        // Points outside the grid keep the finest grid cell key, same as the UniformGrid
+        if(leaf == null) {
+            return finestCellKey;
+        }
+        return leaf.getCellKey();
+    }
+
+    // assigning grid cell ID - BoundingBox
+    @Override
+    public HashSet<Long> assignGridCellID(Tuple2<Coordinate, Coordinate> bBox) {
+
+        HashSet<Long> gridCellIDs = new HashSet<Long>();
+
+        long minCellKey = super.assignGridCellID(bBox.f0.getX(), bBox.f0.getY());
+        long maxCellKey = super.assignGridCellID(bBox.f1.getX(), bBox.f1.getY());
+
+        // bottom-left and top-right finest grid cells
+        getIntersectingLeaves(root, HelperClass.getXCellIndex(minCellKey), HelperClass.getYCellIndex(minCellKey),
+                HelperClass.getXCellIndex(maxCellKey), HelperClass.getYCellIndex(maxCellKey), gridCellIDs);
+
+        // Bounding box lies completely outside the grid
+        if(gridCellIDs.isEmpty()) {
+            gridCellIDs.add(minCellKey);
+        }
+        return gridCellIDs;
+    }
+
+    // Adds the keys of the leaves intersecting the given range of the finest grid cells (inclusive)
+    private void getIntersectingLeaves(QuadTreeNode node, int x1, int y1, int x2, int y2, HashSet<Long> gridCellIDs)
+    {
+        if(x2 < node.x0 || y2 < node.y0 || x1 >= node.x0 + node.size || y1 >= node.y0 + node.size) {
+            return;
+        }
+
+        if(node.children == null) {
+            gridCellIDs.add(node.getCellKey());
+            return;
+        }
+
+        for (QuadTreeNode child : node.children) {
+            getIntersectingLeaves(child, x1, y1, x2, y2, gridCellIDs);
+        }
+    }
+
+    /*
+    getGuaranteedNeighboringCells: returns the leaves whose every point lies within queryRadius of every point of the query leaf
+    getCandidateNeighboringCells: returns the remaining leaves which lie (partially) within queryRadius of the query leaf
+    The output set of the above two functions are mutually exclusive
+    */
+    @Override
+    public HashSet<Long> getGuaranteedNeighboringCells(double queryRadius, long queryGridCellID)
+    {
+        HashSet<Long> guaranteedNeighboringCellsSet = new HashSet<Long>();
+        QuadTreeNode queryLeaf = getLeaf(queryGridCellID);
+
+        ArrayList<QuadTreeNode> neighboringLeaves = new ArrayList<QuadTreeNode>();
+        getNeighboringLeaves(root, queryLeaf, queryRadius, neighboringLeaves);
+
+        for (QuadTreeNode leaf : neighboringLeaves) {
+            if (getMaxDistance(queryLeaf, leaf) <= queryRadius) {
+                guaranteedNeighboringCellsSet.add(leaf.getCellKey());
+            }
+        }
+        return guaranteedNeighboringCellsSet;
+    }
+
+    @Override
+    public HashSet<Long> getCandidateNeighboringCells(double queryRadius, long queryGridCellID, Set<Long> guaranteedNeighboringCellsSet)
+    {
+        HashSet<Long> candidateNeighboringCellsSet = new HashSet<Long>();
+        QuadTreeNode queryLeaf = getLeaf(queryGridCellID);
+
+        ArrayList<QuadTreeNode> neighboringLeaves = new ArrayList<QuadTreeNode>();
+        getNeighboringLeaves(root, queryLeaf, queryRadius, neighboringLeaves);
+
+        for (QuadTreeNode leaf : neighboringLeaves) {
+            long neighboringCellKey = leaf.getCellKey();
+            if (!guaranteedNeighboringCellsSet.contains(neighboringCellKey)) {
+                candidateNeighboringCellsSet.add(neighboringCellKey);
+            }
+        }
+        return candidateNeighboringCellsSet;
+    }
+
+    // Return all the neighboring cells including candidate cells and guaranteed cells
+    @Override
+    public Set<Long> getNeighboringCells(double queryRadius, Point queryPoint)
+    {
+        // return all the cells in the index
+        if(queryRadius == 0){
+            return getGirdCellsSet();
+        }
+
+        HashSet<Long> neighboringCellsSet = new HashSet<Long>();
+        ArrayList<QuadTreeNode> neighboringLeaves = new ArrayList<QuadTreeNode>();
+        getNeighboringLeaves(root, getLeaf(queryPoint.gridID), queryRadius, neighboringLeaves);
+
+        for (QuadTreeNode leaf : neighboringLeaves) {
+            neighboringCellsSet.add(leaf.getCellKey());
+        }
+        return neighboringCellsSet;
+    }
+
+    /*
+    The layers are measured in finest grid cells between the leaves (see getCellLayer), hence a large leaf may span several layers
+    and some layers may contain no leaf
+    getNeighboringCellsByLayer: returns the leaves up to the given layer of the leaf of p
+    getNeighboringLayerCells: returns the leaves lying on the given layer of the leaf of queryPoint
+    getAllNeighboringLayers: returns the non-empty layers of the leaf of p, in increasing layer order
+    */
+    @Override
+    public HashSet<Long> getNeighboringCellsByLayer(Point p, int numNeighboringLayers)
+    {
+        if(numNeighboringLayers <= 0)
+        {
+            throw new IllegalArgumentException("candidateNeighboringLayers cannot be 0 or less");
+        }
+
+        ArrayList<QuadTreeNode> layerLeaves = new ArrayList<QuadTreeNode>();
+        getLayerLeaves(root, getLeaf(p.gridID), 0, numNeighboringLayers, layerLeaves);
+
+        HashSet<Long> neighboringCellsSet = new HashSet<Long>();
+        for (QuadTreeNode leaf : layerLeaves) {
+            neighboringCellsSet.add(leaf.getCellKey());
+        }
+        return neighboringCellsSet;
+    }
+
+    @Override
+    public HashSet<Long> getNeighboringLayerCells(Point queryPoint, int layerNumber)
+    {
+        ArrayList<QuadTreeNode> layerLeaves = new ArrayList<QuadTreeNode>();
+        getLayerLeaves(root, getLeaf(queryPoint.gridID), layerNumber, layerNumber, layerLeaves);
+
+        HashSet<Long> neighboringLayerCellsSet = new HashSet<Long>();
+        for (QuadTreeNode leaf : layerLeaves) {
+            neighboringLayerCellsSet.add(leaf.getCellKey());
+        }
+        return neighboringLayerCellsSet;
+    }
+
+    @Override
+    public ArrayList<HashSet<Long>> getAllNeighboringLayers(Point p)
+    {
+        QuadTreeNode queryLeaf = getLeaf(p.gridID);
+        TreeMap<Integer, HashSet<Long>> layers = new TreeMap<Integer, HashSet<Long>>();
+        for (QuadTreeNode leaf : leaves.values()) {
+            layers.computeIfAbsent(getLeafLayer(queryLeaf, leaf), layer -> new HashSet<Long>()).add(leaf.getCellKey());
+        }
+        return new ArrayList<HashSet<Long>>(layers.values());
+    }
+
+    // Collects the leaves whose layer w.r.t. the query leaf is in [minLayer, maxLayer], the subtrees beyond maxLayer are pruned
+    private void getLayerLeaves(QuadTreeNode node, QuadTreeNode queryLeaf, int minLayer, int maxLayer, List<QuadTreeNode> layerLeaves)
+    {
+        // the layer of a node is a lower bound of the layers of its leaves
+        int layer = getLeafLayer(queryLeaf, node);
+        if(layer > maxLayer) {
+            return;
+        }
+
+        if(node.children == null) {
+            if(layer >= minLayer) {
+                layerLeaves.add(node);
+            }
+            return;
+        }
+
+        for (QuadTreeNode child : node.children) {
+            getLayerLeaves(child, queryLeaf, minLayer, maxLayer, layerLeaves);
+        }
+    }
+
+    @Override
+    public NeighboringCellsIterator getNeighboringCellsIterator(double queryRadius)
+    {
+        return new QuadTreeNeighboringCellsIterator(this, queryRadius);
+    }
+
+    // Collects the leaves lying within queryRadius of the query leaf, the subtrees farther than queryRadius are pruned
+    private void getNeighboringLeaves(QuadTreeNode node, QuadTreeNode queryLeaf, double queryRadius, List<QuadTreeNode> neighboringLeaves)
+    {
+        if(getMinDistance(queryLeaf, node) > queryRadius) {
+            return;
+        }
+
+        if(node.children == null) {
+            neighboringLeaves.add(node);
+            return;
+        }
+
+        for (QuadTreeNode child : node.children) {
+            getNeighboringLeaves(child, queryLeaf, queryRadius, neighboringLeaves);
+        }
+    }
+
+    // Minimum distance between any two points of the given nodes
+    private double getMinDistance(QuadTreeNode n1, QuadTreeNode n2)
+    {
+        int xGap = Math.max(0, Math.max(n2.x0 - (n1.x0 + n1.size), n1.x0 - (n2.x0 + n2.size)));
+        int yGap = Math.max(0, Math.max(n2.y0 - (n1.y0 + n1.size), n1.y0 - (n2.y0 + n2.size)));
+
+        return Math.sqrt((double) xGap * xGap + (double) yGap * yGap) * cellLength;
+    }
+
+    // Maximum distance between any two points of the given nodes
+    private double getMaxDistance(QuadTreeNode n1, QuadTreeNode n2)
+    {
+        int xSpan = Math.max(n2.x0 + n2.size - n1.x0, n1.x0 + n1.size - n2.x0);
+        int ySpan = Math.max(n2.y0 + n2.size - n1.y0, n1.y0 + n1.size - n2.y0);
+
+        return Math.sqrt((double) xSpan * xSpan + (double) ySpan * ySpan) * cellLength;
+    }
+
+    // Lower bound of the distance between (x, y) and the points of the leaf cellKey, i.e., the distance to the leaf boundary, 0 within the leaf
+    @Override
+    public double getCellMinDistance(long cellKey, double x, double y)
+    {
+        QuadTreeNode leaf = getLeaf(cellKey);
+        double leafMinX = minX + leaf.x0 * cellLength;
+        double leafMinY = minY + leaf.y0 * cellLength;
+        double leafLength = leaf.size * cellLength;
+
+        double dx = Math.max(0, Math.max(leafMinX - x, x - (leafMinX + leafLength)));
+        double dy = Math.max(0, Math.max(leafMinY - y, y - (leafMinY + leafLength)));
+
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Layer of a leaf w.r.t. the query leaf in terms of the finest grid cells, i.e., 0 for the query leaf, 1 for its adjacent leaves and so on
+    private int getLeafLayer(QuadTreeNode queryLeaf, QuadTreeNode leaf)
+    {
+        int xGap = Math.max(0, Math.max(leaf.x0 - (queryLeaf.x0 + queryLeaf.size) + 1, queryLeaf.x0 - (leaf.x0 + leaf.size) + 1));
+        int yGap = Math.max(0, Math.max(leaf.y0 - (queryLeaf.y0 + queryLeaf.size) + 1, queryLeaf.y0 - (leaf.y0 + leaf.size) + 1));
+
+        return Math.max(xGap, yGap);
+    }
+
+    @Override
+    public int getCellLayer(long queryCellKey, long cellKey)
+    {
+        return getLeafLayer(getLeaf(queryCellKey), getLeaf(cellKey));
+    }
+
+
+    // Node of the quadtree, covering size x size cells of the finest grid starting from the cell (x0, y0)
+    private static class QuadTreeNode implements Serializable
+    {
+        private final int x0;
+        private final int y0;
+        private final int size;
+        private QuadTreeNode[] children; // null for the leaves
+
+        //ctor
+        private QuadTreeNode(int x0, int y0, int size)
+        {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.size = size;
+        }
+
+        private boolean containsCell(int x, int y)
+        {
+            return (x >= x0 && y >= y0 && x < x0 + size && y < y0 + size);
+        }
+
+        private long getCellKey()
+        {
+            return HelperClass.getCellKey(x0, y0);
+        }
+    }
+
+    // Iterates over the neighboring leaves of a query leaf, the neighbors are collected into reusable buffers on reset
+    public static class QuadTreeNeighboringCellsIterator extends NeighboringCellsIterator
+    {
+        private final QuadTreeIndex quadTree;
+        private final double queryRadius; // 0 for all the leaves in the index
+
+        private final ArrayList<QuadTreeNode> neighboringLeaves;
+        private QuadTreeNode queryLeaf;
+        private int cursor;
+        private int currentLayer;
+        private boolean currentGuaranteed;
+
+        //ctor
+        public QuadTreeNeighboringCellsIterator(QuadTreeIndex quadTree, double queryRadius)
+        {
+            super(quadTree.getNumGridPartitions(), -1, -1);
+            this.quadTree = quadTree;
+            this.queryRadius = queryRadius;
+            this.neighboringLeaves = new ArrayList<QuadTreeNode>(quadTree.getNumLeaves());
+        }
+
+        @Override
+        public void reset(long queryCellKey)
+        {
+            this.queryLeaf = quadTree.getLeaf(queryCellKey);
+            this.cursor = 0;
+            this.currentLayer = -1;
+            this.currentGuaranteed = false;
+
+            neighboringLeaves.clear();
+            if(queryRadius == 0) {
+                neighboringLeaves.addAll(quadTree.leaves.values());
+            }
+            else {
+                quadTree.getNeighboringLeaves(quadTree.root, queryLeaf, queryRadius, neighboringLeaves);
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return cursor < neighboringLeaves.size();
+        }
+
+        // Must be preceded by hasNext()
+        @Override
+        public long next()
+        {
+            QuadTreeNode leaf = neighboringLeaves.get(cursor);
+            currentLayer = quadTree.getLeafLayer(queryLeaf, leaf);
+            currentGuaranteed = (queryRadius != 0 && quadTree.getMaxDistance(queryLeaf, leaf) <= queryRadius);
+            cursor++;
+            return leaf.getCellKey();
+        }
+
+        @Override
+        public int getCurrentLayer() {return currentLayer;}
+
+        @Override
+        public boolean isGuaranteedNeighbor() {return currentGuaranteed;}
+    }
+}
@@ -0,0 +1,238 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialIndices;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.utils.HelperClass;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple4;
+import org.apache.flink.util.Collector;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+Index of a set of range queries (query point or query polygon, and query radius) by grid cell
+Each query is registered in its guaranteed and candidate neighboring cells, as computed by UniformGrid for a single query;
+a point is only evaluated against the queries registered in its cell, hence the cost per point depends on the number of queries
+covering its cell and not on the total number of queries
+Queries can be added and removed at any time, only the cells of the added or removed query are updated
+The cells of the polygon queries and of the polygon replicas are derived from their bounding boxes, hence a guaranteed cell only
+decides a point query for a point; the other pairs are refined with the exact distance
+A polygon is replicated in all the cells of its bounding box, a (query, polygon) pair is only refined and output by the replica
+in the reference cell of the pair, i.e. the cell of the lower-left corner of the intersection of the query envelope (expanded by
+queryRadius) and of the polygon bounding box
+*/
+public class RangeQueryIndex implements Serializable {
+
+    public static class Query implements Serializable {
+        public final String queryID;
+        public final Point queryPoint; // null for a polygon query
+        public final Polygon queryPolygon; // null for a point query
+        public final double queryRadius;
+        public final int k; // kNN queries only, 0 for a range query
+        private final Envelope queryEnvelope;
+        private long[] cellIDs; // cells the query is registered in
+
+        //ctor
+        private Query(String queryID, Point queryPoint, Polygon queryPolygon, double queryRadius, int k) {
+            this.queryID = queryID;
+            this.queryPoint = queryPoint;
+            this.queryPolygon = queryPolygon;
+            this.queryRadius = queryRadius;
+            this.k = k;
+            this.queryEnvelope = (queryPolygon == null) ? HelperClass.getQueryEnvelope(queryPoint, queryRadius) : HelperClass.getQueryEnvelope(queryPolygon.boundingBox, queryRadius);
+        }
+
+        // Distance computation for the queries registered as candidate in the point cell
+        boolean contains(Point point) {
+            if (queryPolygon == null) {
+                return HelperClass.getPointPointEuclideanDistance(queryPoint.x, queryPoint.y, point.x, point.y) <= queryRadius;
+            }
+            // points whose distance to the polygon bounding box exceeds queryRadius are skipped without distance computation
+            return queryEnvelope.contains(point.x, point.y) && HelperClass.isPointPolygonWithinDistance(point, queryPolygon, queryRadius);
+        }
+
+        boolean contains(Polygon poly) {
+            // polygons whose bounding box lies farther than queryRadius are skipped without distance computation
+            if (!queryEnvelope.intersects(poly.boundingBox.f0, poly.boundingBox.f1)) {
+                return false;
+            }
+            if (queryPolygon == null) {
+                return HelperClass.isPointPolygonWithinDistance(queryPoint, poly, queryRadius);
+            }
+            return HelperClass.isPolygonPolygonWithinDistance(queryPolygon, poly, queryRadius);
+        }
+
+        // Exact distance, or a distance larger than queryRadius for the points out of range
+        public double distance(Point point) {
+            if (queryPolygon == null) {
+                return HelperClass.getPointPointEuclideanDistance(queryPoint.x, queryPoint.y, point.x, point.y);
+            }
+            return HelperClass.getPointPolygonEuclideanDistance(point, queryPolygon, queryRadius);
+        }
+    }
+
+    // Query registered in a cell
+    private static class CellEntry implements Serializable {
+        final Query query;
+        final boolean guaranteed;
+
+        CellEntry(Query query, boolean guaranteed) {
+            this.query = query;
+            this.guaranteed = guaranteed;
+        }
+    }
+
+    private final UniformGrid uGrid;
+    private final HashMap<String, Query> queries = new HashMap<String, Query>();
+    private final HashMap<Long, ArrayList<CellEntry>> cellEntries = new HashMap<Long, ArrayList<CellEntry>>();
+
+    //ctor
+    public RangeQueryIndex(UniformGrid uGrid)
+    {
+        this.uGrid = uGrid;
+    }
+
+    public UniformGrid getGrid() {return uGrid;}
+    public int size() {return queries.size();}
+    public Query getQuery(String queryID) {return queries.get(queryID);}
+    public Set<String> getQueryIDs() {return queries.keySet();}
+
+    //--------------- REGISTRATION -----------------//
+    // A query replaces the registered query with the same ID, if any
+    public void addQuery(String queryID, Point queryPoint, double queryRadius) {
+        addQuery(queryID, queryPoint, queryRadius, 0);
+    }
+
+    public void addQuery(String queryID, Polygon queryPolygon, double queryRadius) {
+        addQuery(queryID, queryPolygon, queryRadius, 0);
+    }
+
+    // kNN queries: the k nearest neighbors are selected among the objects within queryRadius
+    public void addQuery(String queryID, Point queryPoint, double queryRadius, int k) {
+        removeQuery(queryID);
+        Query query = new Query(queryID, queryPoint, null, queryRadius, k);
+        HashSet<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        HashSet<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        register(query, guaranteedNeighboringCells, candidateNeighboringCells);
+    }
+
+    public void addQuery(String queryID, Polygon queryPolygon, double queryRadius, int k) {
+        removeQuery(queryID);
+        Query query = new Query(queryID, null, queryPolygon, queryRadius, k);
+        HashSet<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPolygon);
+        HashSet<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPolygon, guaranteedNeighboringCells);
+        register(query, guaranteedNeighboringCells, candidateNeighboringCells);
+    }
+
+    // Returns false if no query is registered with the ID
+    public boolean removeQuery(String queryID) {
+        Query query = queries.remove(queryID);
+        if (query == null) {
+            return false;
+        }
+        for (long cellID : query.cellIDs) {
+            ArrayList<CellEntry> entries = cellEntries.get(cellID);
+            entries.removeIf(entry -> entry.query == query);
+            if (entries.isEmpty()) {
+                cellEntries.remove(cellID);
+            }
+        }
+        return true;
+    }
+
+    // The guaranteed cells of a polygon query are registered as candidate cells
+    private void register(Query query, Set<Long> guaranteedNeighboringCells, Set<Long> candidateNeighboringCells) {
+        queries.put(query.queryID, query);
+        query.cellIDs = new long[guaranteedNeighboringCells.size() + candidateNeighboringCells.size()];
+        int i = 0;
+        for (Long cellID : guaranteedNeighboringCells) {
+            cellEntries.computeIfAbsent(cellID, k -> new ArrayList<CellEntry>()).add(new CellEntry(query, query.queryPolygon == null));
+            query.cellIDs[i++] = cellID;
+        }
+        for (Long cellID : candidateNeighboringCells) {
+            cellEntries.computeIfAbsent(cellID, k -> new ArrayList<CellEntry>()).add(new CellEntry(query, false));
+            query.cellIDs[i++] = cellID;
+        }
+    }
+
+    //--------------- EVALUATION -----------------//
+    public boolean hasQueries(long cellID) {
+        return cellEntries.containsKey(cellID);
+    }
+
+    // Outputs a (queryID, point) tuple for each query satisfied by the point
+    public void collectMatches(Point point, Collector<Tuple2<String, Point>> out) {
+        ArrayList<CellEntry> entries = cellEntries.get(point.gridID);
+        if (entries == null) {
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            CellEntry entry = entries.get(i);
+            if (entry.guaranteed || entry.query.contains(point)) {
+                out.collect(Tuple2.of(entry.query.queryID, point));
+            }
+        }
+    }
+
+    // Outputs a (queryID, polygon) tuple for each query satisfied by the polygon, evaluated in the cell of the polygon replica
+    // Each pair is output once, by the replica in its reference cell
+    public void collectMatches(Polygon poly, Collector<Tuple2<String, Polygon>> out) {
+        ArrayList<CellEntry> entries = cellEntries.get(poly.gridID);
+        if (entries == null) {
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            CellEntry entry = entries.get(i);
+            if (poly.gridID == getReferenceCellID(entry.query, poly) && entry.query.contains(poly)) {
+                out.collect(Tuple2.of(entry.query.queryID, poly));
+            }
+        }
+    }
+
+    // Cell of the lower-left corner of the intersection of the query envelope and of the polygon bounding box
+    // The corner lies in both, hence in a cell of the query and in a cell of the polygon replicas
+    // The corner is clamped to the grid, as no query is registered in the cells below minX/minY; if both the query and the polygon
+    // reach into the grid, the clamped corner still lies in both
+    private long getReferenceCellID(Query query, Polygon poly) {
+        double x = Math.max(Math.max(query.queryEnvelope.getMinX(), poly.boundingBox.f0.getX()), uGrid.getMinX());
+        double y = Math.max(Math.max(query.queryEnvelope.getMinY(), poly.boundingBox.f0.getY()), uGrid.getMinY());
+        return uGrid.assignGridCellID(x, y);
+    }
+
+    // Outputs a (queryID, k, point, distance) tuple for each query within queryRadius of the point
+    // The distance is needed for the kNN, hence it is computed for the guaranteed cells too
+    public void collectNeighbors(Point point, Collector<Tuple4<String, Integer, Point, Double>> out) {
+        ArrayList<CellEntry> entries = cellEntries.get(point.gridID);
+        if (entries == null) {
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            Query query = entries.get(i).query;
+            double distance = query.distance(point);
+            if (distance <= query.queryRadius) {
+                out.collect(Tuple4.of(query.queryID, query.k, point, distance));
+            }
+        }
+    }
+}
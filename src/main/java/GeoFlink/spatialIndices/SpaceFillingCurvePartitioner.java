@@ -0,0 +1,106 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialIndices;
+
+import org.apache.flink.api.common.functions.Partitioner;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
+
+/*
+Maps contiguous ranges of the grid's space filling curve to the same subtask, so that the neighboring cells are processed together
+
+partition(): to be used with DataStream.partitionCustom, the key is the cell key
+getPartitionKey(): keyBy cannot use a custom partitioner, hence the cell key is replaced with a partition key which Flink's
+key group assignment maps to the subtask of the cell's curve range
+The partition keys only hold for the parallelism and max parallelism they are computed for, hence the keyed operators are pinned
+to them (see setKeyedOperatorParallelism)
+*/
+public class SpaceFillingCurvePartitioner implements Partitioner<Long> {
+
+    private final UniformGrid uGrid;
+    private final int parallelism;
+    private final int maxParallelism;
+    private final long[] partitionKeys; // partitionKeys[i] is assigned to subtask i by keyBy
+
+    //ctor
+    public SpaceFillingCurvePartitioner(UniformGrid uGrid, int parallelism, int maxParallelism)
+    {
+        this.uGrid = uGrid;
+        this.parallelism = parallelism;
+        this.maxParallelism = maxParallelism;
+        this.partitionKeys = new long[parallelism];
+
+        // Searching the smallest key which is assigned to each subtask
+        int numAssignedSubtasks = 0;
+        boolean[] assigned = new boolean[parallelism];
+        for(long key = 0; numAssignedSubtasks < parallelism; key++)
+        {
+            int subtask = KeyGroupRangeAssignment.assignKeyToParallelOperator(key, maxParallelism, parallelism);
+            if(!assigned[subtask]) {
+                assigned[subtask] = true;
+                partitionKeys[subtask] = key;
+                numAssignedSubtasks++;
+            }
+        }
+    }
+
+    // Returns a partitioner for the keyed operators following the given stream, null if the grid does not use a space filling curve
+    // The keyed operators run with the default parallelism of the environment
+    public static SpaceFillingCurvePartitioner getPartitioner(DataStream<?> stream, UniformGrid uGrid)
+    {
+        return getPartitioner(stream, uGrid, stream.getExecutionEnvironment().getParallelism());
+    }
+
+    // Partitioner for keyed operators of the given parallelism
+    public static SpaceFillingCurvePartitioner getPartitioner(DataStream<?> stream, UniformGrid uGrid, int parallelism)
+    {
+        if(!uGrid.hasSpaceFillingCurve()) {
+            return null;
+        }
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism of the keyed operators must be greater than 0");
+        }
+
+        int maxParallelism = stream.getExecutionEnvironment().getMaxParallelism();
+        if(maxParallelism <= 0) {
+            maxParallelism = KeyGroupRangeAssignment.computeDefaultMaxParallelism(parallelism);
+        }
+        return new SpaceFillingCurvePartitioner(uGrid, parallelism, maxParallelism);
+    }
+
+    // Sets the parallelism and the max parallelism of the keyed operator to the ones of the partitioner, such that an operator-level
+    // or submit-time parallelism, or a rescale from a savepoint, cannot silently break the curve range of the subtasks
+    public static <T> SingleOutputStreamOperator<T> setKeyedOperatorParallelism(SingleOutputStreamOperator<T> keyedOperator, SpaceFillingCurvePartitioner curvePartitioner)
+    {
+        if(curvePartitioner == null) {
+            return keyedOperator;
+        }
+        return keyedOperator.setParallelism(curvePartitioner.parallelism).setMaxParallelism(curvePartitioner.maxParallelism);
+    }
+
+    @Override
+    public int partition(Long cellKey, int numPartitions)
+    {
+        return (int) (uGrid.getCurveIndex(cellKey) * numPartitions / uGrid.getCurveLength());
+    }
+
+    public long getPartitionKey(long cellKey)
+    {
+        return partitionKeys[partition(cellKey, parallelism)];
+    }
+}
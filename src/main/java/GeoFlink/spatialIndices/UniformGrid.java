@@ -21,11 +21,10 @@ import GeoFlink.spatialObjects.Polygon;
 import GeoFlink.utils.HelperClass;
 import org.apache.flink.api.common.functions.RichFilterFunction;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.locationtech.jts.geom.Coordinate;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class UniformGrid implements Serializable {
 
@@ -34,11 +33,12 @@ public class UniformGrid implements Serializable {
     double minY;     //Y - North-South latitude
     double maxY;
 
-    final private int CELLINDEXSTRLENGTH = 5;
     double cellLength;
     int numGridPartitions;
     double cellLengthMeters;
-    HashSet<String> girdCellsSet = new HashSet<String>();
+    GridCellsSet girdCellsSet;
+    String spaceFillingCurve = "NONE"; // "NONE", "ZORDER" or "HILBERT"
+    int curveOrder; // the curve covers a 2^curveOrder x 2^curveOrder grid
 
     //TODO: Remove variable cellLengthMeters (Deprecated)
 
@@ -72,20 +72,32 @@ public class UniformGrid implements Serializable {
         System.out.println("cellLength: " + cellLength);
         this.cellLengthMeters = HelperClass.computeHaverSine(minX, minY, minX + cellLength, minY);
 
-        // Populating the girdCellset - contains all the cells in the grid
-        for (int i = 0; i < uniformGridRows; i++) {
-            for (int j = 0; j < uniformGridRows; j++) {
-                String cellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
-                girdCellsSet.add(cellKey);
-            }
+        // The girdCellset contains all the cells in the grid, the cell keys are generated on demand instead of being materialized
+        this.girdCellsSet = new GridCellsSet(uniformGridRows);
+
+        // smallest power of 2 covering the grid rows
+        this.curveOrder = 0;
+        while((1 << curveOrder) < uniformGridRows)
+            curveOrder++;
+    }
+
+    // A space filling curve ("ZORDER" or "HILBERT") assigns each cell a curve index, such that the neighboring cells are likely to have close indices
+    // The operators map contiguous ranges of the curve to the same subtask (see SpaceFillingCurvePartitioner)
+    public UniformGrid(int uniformGridRows, double minX, double maxX, double minY, double maxY, String spaceFillingCurve)
+    {
+        this(uniformGridRows, minX, maxX, minY, maxY);
+
+        if(!spaceFillingCurve.equals("NONE") && !spaceFillingCurve.equals("ZORDER") && !spaceFillingCurve.equals("HILBERT"))
+        {
+            throw new IllegalArgumentException("spaceFillingCurve must be NONE, ZORDER or HILBERT");
         }
+        this.spaceFillingCurve = spaceFillingCurve;
     }
 
     public double getMinX() {return minX;}
     public double getMinY() {return minY;}
     public double getMaxX() {return maxX;}
     public double getMaxY() {return maxY;}
-    public int getCellIndexStrLength() {return CELLINDEXSTRLENGTH;}
 
     public int getNumGridPartitions()
     {
@@ -93,20 +105,119 @@ public class UniformGrid implements Serializable {
     }
     public double getCellLength() {return cellLength;}
     public double getCellLengthInMeters() {return cellLengthMeters;}
-    public HashSet<String> getGirdCellsSet() {return girdCellsSet;}
+    public Set<Long> getGirdCellsSet() {return girdCellsSet;}
+    public String getSpaceFillingCurve() {return spaceFillingCurve;}
+    public boolean hasSpaceFillingCurve() {return !spaceFillingCurve.equals("NONE");}
+
+    // Number of indices of the space filling curve
+    public long getCurveLength() {return 1L << (2 * curveOrder);}
+
+    // Returns the index of the cell along the grid's space filling curve, or the row-major index if the grid has no curve
+    // Cells outside the grid are clamped to the nearest boundary cell
+    public long getCurveIndex(long cellKey)
+    {
+        int x = Math.min(Math.max(HelperClass.getXCellIndex(cellKey), 0), numGridPartitions - 1);
+        int y = Math.min(Math.max(HelperClass.getYCellIndex(cellKey), 0), numGridPartitions - 1);
+
+        if(spaceFillingCurve.equals("ZORDER")) {
+            return getZOrderIndex(x, y);
+        }
+        else if(spaceFillingCurve.equals("HILBERT")) {
+            return getHilbertIndex(x, y);
+        }
+        else {
+            return ((long) x << curveOrder) + y;
+        }
+    }
+
+    // Interleaves the bits of x and y
+    private long getZOrderIndex(int x, int y)
+    {
+        long index = 0;
+        for(int bit = 0; bit < curveOrder; bit++)
+        {
+            index |= ((long) ((x >> bit) & 1)) << (2 * bit + 1);
+            index |= ((long) ((y >> bit) & 1)) << (2 * bit);
+        }
+        return index;
+    }
+
+    // Distance of the cell (x, y) along the Hilbert curve
+    private long getHilbertIndex(int x, int y)
+    {
+        long index = 0;
+        for(int s = (1 << curveOrder) >> 1; s > 0; s >>= 1)
+        {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+
+            // Rotating the quadrant
+            if(ry == 0)
+            {
+                if(rx == 1)
+                {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return index;
+    }
+
+    // assigning grid cell ID
+    public long assignGridCellID(Coordinate coordinate) {
+
+        return assignGridCellID(coordinate.getX(), coordinate.getY());
+    }
+
+    // assigning grid cell ID - using primitive coordinates
+    public long assignGridCellID(double x, double y) {
+
+        // Direct approach to compute the cellIDs (Key)
+        int xCellIndex = (int)(Math.floor((x - minX)/cellLength));
+        int yCellIndex = (int)(Math.floor((y - minY)/cellLength));
+
+        return HelperClass.getCellKey(xCellIndex, yCellIndex);
+    }
+
+    // assigning grid cell ID - BoundingBox
+    public HashSet<Long> assignGridCellID(Tuple2<Coordinate, Coordinate> bBox) {
+
+        HashSet<Long> gridCellIDs = new HashSet<Long>();
+
+        // bottom-left coordinate (min values)
+        int xCellIndex1 = (int) (Math.floor((bBox.f0.getX() - minX) / cellLength));
+        int yCellIndex1 = (int) (Math.floor((bBox.f0.getY() - minY) / cellLength));
+
+        // top-right coordinate (max values)
+        int xCellIndex2 = (int) (Math.floor((bBox.f1.getX() - minX) / cellLength));
+        int yCellIndex2 = (int) (Math.floor((bBox.f1.getY() - minY) / cellLength));
+
+        for(int x = xCellIndex1; x <= xCellIndex2; x++)
+            for(int y = yCellIndex1; y <= yCellIndex2; y++)
+            {
+                gridCellIDs.add(HelperClass.getCellKey(x, y));
+            }
+
+        return gridCellIDs;
+    }
 
     /*
     getGuaranteedNeighboringCells: returns the cells containing the guaranteed r-neighbors
     getCandidateNeighboringCells: returns the cells containing the candidate r-neighbors and require distance computation
     The output set of the above two functions are mutually exclusive
     */
-    public HashSet<String> getGuaranteedNeighboringCells(double queryRadius, String queryGridCellID)
+    public HashSet<Long> getGuaranteedNeighboringCells(double queryRadius, long queryGridCellID)
     {
         //queryRadius = CoordinatesConversion.metersToDD(queryRadius,cellLength,cellLengthMeters); //UNCOMMENT FOR HAVERSINE (METERS)
         //System.out.println("queryRadius in Lat/Lon: "+ queryRadius);
-        //String queryCellID = queryPoint.gridID;
+        //long queryCellID = queryPoint.gridID;
 
-        HashSet<String> guaranteedNeighboringCellsSet = new HashSet<String>();
+        HashSet<Long> guaranteedNeighboringCellsSet = new HashSet<Long>();
         int guaranteedNeighboringLayers = getGuaranteedNeighboringLayers(queryRadius);
 
         // if guaranteedNeighboringLayers == -1, there is no GuaranteedNeighboringCells
@@ -116,14 +227,15 @@ public class UniformGrid implements Serializable {
         }
         else if(guaranteedNeighboringLayers > 0)
         {
-            ArrayList<Integer> queryCellIndices = HelperClass.getIntCellIndices(queryGridCellID);       //converts cellID String->Integer
+            int queryCellXIndex = HelperClass.getXCellIndex(queryGridCellID);       //unpacks the cellID into x and y indices
+            int queryCellYIndex = HelperClass.getYCellIndex(queryGridCellID);
 
-            for(int i = queryCellIndices.get(0) - guaranteedNeighboringLayers; i <= queryCellIndices.get(0) + guaranteedNeighboringLayers; i++)
-                for(int j = queryCellIndices.get(1) - guaranteedNeighboringLayers; j <= queryCellIndices.get(1) + guaranteedNeighboringLayers; j++)
+            for(int i = queryCellXIndex - guaranteedNeighboringLayers; i <= queryCellXIndex + guaranteedNeighboringLayers; i++)
+                for(int j = queryCellYIndex - guaranteedNeighboringLayers; j <= queryCellYIndex + guaranteedNeighboringLayers; j++)
                 {
                     if(validKey(i,j))
                     {
-                        String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                        long neighboringCellKey = HelperClass.getCellKey(i, j);
                         guaranteedNeighboringCellsSet.add(neighboringCellKey);
                     }
                 }
@@ -132,14 +244,14 @@ public class UniformGrid implements Serializable {
     }
 
     // Guaranteed Neighboring Cells of Polygon Query
-    public HashSet<String> getGuaranteedNeighboringCells(double queryRadius, Polygon queryPolygon)
+    public HashSet<Long> getGuaranteedNeighboringCells(double queryRadius, Polygon queryPolygon)
     {
-        HashSet<String> gridIDsSet = queryPolygon.gridIDsSet;
-        HashSet<String> guaranteedNeighboringCellsSet = new HashSet<String>();
+        HashSet<Long> gridIDsSet = queryPolygon.gridIDsSet;
+        HashSet<Long> guaranteedNeighboringCellsSet = new HashSet<Long>();
 
-        for(String cellID:gridIDsSet) {
+        for(Long cellID:gridIDsSet) {
 
-            HashSet<String> guaranteedNeighbors = getGuaranteedNeighboringCells(queryRadius, cellID);
+            HashSet<Long> guaranteedNeighbors = getGuaranteedNeighboringCells(queryRadius, cellID);
             guaranteedNeighboringCellsSet.addAll(guaranteedNeighbors);
         }
 
@@ -155,27 +267,27 @@ public class UniformGrid implements Serializable {
     }
 
     // Return all the neighboring cells up to the given grid layer
-    public HashSet<String> getNeighboringCellsByLayer(Point p, int numNeighboringLayers)
+    public HashSet<Long> getNeighboringCellsByLayer(Point p, int numNeighboringLayers)
     {
         //queryRadius = CoordinatesConversion.metersToDD(queryRadius,cellLength,cellLengthMeters); // UNCOMMENT FOR HAVERSINE (METERS)
-        String givenCellID = p.gridID;
-        HashSet<String> neighboringCellsSet = new HashSet<String>();
+        long givenCellID = p.gridID;
+        HashSet<Long> neighboringCellsSet = new HashSet<Long>();
 
         if(numNeighboringLayers <= 0)
         {
-            System.out.println("candidateNeighboringLayers cannot be 0 or less");
-            System.exit(1); // Unsuccessful termination
+            throw new IllegalArgumentException("candidateNeighboringLayers cannot be 0 or less");
         }
         else //numNeighboringLayers > 0
         {
-            ArrayList<Integer> cellIndices = HelperClass.getIntCellIndices(givenCellID);
+            int cellXIndex = HelperClass.getXCellIndex(givenCellID);
+            int cellYIndex = HelperClass.getYCellIndex(givenCellID);
 
-            for(int i = cellIndices.get(0) - numNeighboringLayers; i <= cellIndices.get(0) + numNeighboringLayers; i++)
-                for(int j = cellIndices.get(1) - numNeighboringLayers; j <= cellIndices.get(1) + numNeighboringLayers; j++)
+            for(int i = cellXIndex - numNeighboringLayers; i <= cellXIndex + numNeighboringLayers; i++)
+                for(int j = cellYIndex - numNeighboringLayers; j <= cellYIndex + numNeighboringLayers; j++)
                 {
                     if(validKey(i,j))
                     {
-                        String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                        long neighboringCellKey = HelperClass.getCellKey(i, j);
                         neighboringCellsSet.add(neighboringCellKey);
                     }
                 }
@@ -185,7 +297,7 @@ public class UniformGrid implements Serializable {
     }
 
     // Return all the neighboring cells including candidate cells and guaranteed cells
-    public HashSet<String> getNeighboringCells(double queryRadius, Point queryPoint)
+    public Set<Long> getNeighboringCells(double queryRadius, Point queryPoint)
     {
         // return all the cells in the set
         if(queryRadius == 0){
@@ -193,25 +305,25 @@ public class UniformGrid implements Serializable {
         }
 
         //queryRadius = CoordinatesConversion.metersToDD(queryRadius,cellLength,cellLengthMeters); // UNCOMMENT FOR HAVERSINE (METERS)
-        String queryCellID = queryPoint.gridID;
-        HashSet<String> neighboringCellsSet = new HashSet<String>();
+        long queryCellID = queryPoint.gridID;
+        HashSet<Long> neighboringCellsSet = new HashSet<Long>();
         int numNeighboringLayers = getCandidateNeighboringLayers(queryRadius);
 
         if(numNeighboringLayers <= 0)
         {
-            System.out.println("candidateNeighboringLayers cannot be 0 or less");
-            System.exit(1); // Unsuccessful termination
+            throw new IllegalArgumentException("candidateNeighboringLayers cannot be 0 or less");
         }
         else //numNeighboringLayers > 0
         {
-            ArrayList<Integer> queryCellIndices = HelperClass.getIntCellIndices(queryCellID);
+            int queryCellXIndex = HelperClass.getXCellIndex(queryCellID);
+            int queryCellYIndex = HelperClass.getYCellIndex(queryCellID);
 
-            for(int i = queryCellIndices.get(0) - numNeighboringLayers; i <= queryCellIndices.get(0) + numNeighboringLayers; i++)
-                for(int j = queryCellIndices.get(1) - numNeighboringLayers; j <= queryCellIndices.get(1) + numNeighboringLayers; j++)
+            for(int i = queryCellXIndex - numNeighboringLayers; i <= queryCellXIndex + numNeighboringLayers; i++)
+                for(int j = queryCellYIndex - numNeighboringLayers; j <= queryCellYIndex + numNeighboringLayers; j++)
                 {
                     if(validKey(i,j))
                     {
-                        String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                        long neighboringCellKey = HelperClass.getCellKey(i, j);
                         neighboringCellsSet.add(neighboringCellKey);
                     }
                 }
@@ -221,23 +333,24 @@ public class UniformGrid implements Serializable {
     }
 
     // Query Point
-    public HashSet<String> getCandidateNeighboringCells(double queryRadius, String queryGridCellID, Set<String> guaranteedNeighboringCellsSet)
+    public HashSet<Long> getCandidateNeighboringCells(double queryRadius, long queryGridCellID, Set<Long> guaranteedNeighboringCellsSet)
     {
         // queryRadius = CoordinatesConversion.metersToDD(queryRadius,cellLength,cellLengthMeters);  //UNCOMMENT FOR HAVERSINE (METERS)
-        //String queryCellID = queryPoint.gridID;
-        HashSet<String> candidateNeighboringCellsSet = new HashSet<String>();
+        //long queryCellID = queryPoint.gridID;
+        HashSet<Long> candidateNeighboringCellsSet = new HashSet<Long>();
         int candidateNeighboringLayers = getCandidateNeighboringLayers(queryRadius);
 
         if(candidateNeighboringLayers > 0)
         {
-            ArrayList<Integer> queryCellIndices = HelperClass.getIntCellIndices(queryGridCellID);
+            int queryCellXIndex = HelperClass.getXCellIndex(queryGridCellID);
+            int queryCellYIndex = HelperClass.getYCellIndex(queryGridCellID);
             //int count = 0;
 
-            for(int i = queryCellIndices.get(0) - candidateNeighboringLayers; i <= queryCellIndices.get(0) + candidateNeighboringLayers; i++)
-                for(int j = queryCellIndices.get(1) - candidateNeighboringLayers; j <= queryCellIndices.get(1) + candidateNeighboringLayers; j++)
+            for(int i = queryCellXIndex - candidateNeighboringLayers; i <= queryCellXIndex + candidateNeighboringLayers; i++)
+                for(int j = queryCellYIndex - candidateNeighboringLayers; j <= queryCellYIndex + candidateNeighboringLayers; j++)
                 {
                     if(validKey(i,j)) {
-                        String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                        long neighboringCellKey = HelperClass.getCellKey(i, j);
                         if (!guaranteedNeighboringCellsSet.contains(neighboringCellKey)) // Add key if and only if it exist in the gridCell and is not included in the guaranteed neighbors
                         {
                             //count++;
@@ -252,13 +365,13 @@ public class UniformGrid implements Serializable {
 
 
     // Query Polygon
-    public HashSet<String> getCandidateNeighboringCells(double queryRadius, Polygon queryPolygon, Set<String> guaranteedNeighboringCellsSet)
+    public HashSet<Long> getCandidateNeighboringCells(double queryRadius, Polygon queryPolygon, Set<Long> guaranteedNeighboringCellsSet)
     {
-        HashSet<String> candidateNeighboringCellsSet = new HashSet<String>();
-        HashSet<String> gridIDsSet = queryPolygon.gridIDsSet;
+        HashSet<Long> candidateNeighboringCellsSet = new HashSet<Long>();
+        HashSet<Long> gridIDsSet = queryPolygon.gridIDsSet;
 
-        for(String cellID:gridIDsSet) {
-            HashSet<String> candidateNeighbors = getCandidateNeighboringCells(queryRadius, cellID, guaranteedNeighboringCellsSet);
+        for(Long cellID:gridIDsSet) {
+            HashSet<Long> candidateNeighbors = getCandidateNeighboringCells(queryRadius, cellID, guaranteedNeighboringCellsSet);
             candidateNeighboringCellsSet.addAll(candidateNeighbors);
         }
 
@@ -285,32 +398,69 @@ public class UniformGrid implements Serializable {
         return numberOfLayers;
     }
 
-    public HashSet<String> getNeighboringLayerCells(Point queryPoint, int layerNumber)
+    // Returns the layer of cellKey w.r.t. queryCellKey, i.e., 0 for the query cell, 1 for its immediate neighbors and so on
+    public int getCellLayer(long queryCellKey, long cellKey)
+    {
+        return HelperClass.getCellLayerWRTQueryCell(queryCellKey, cellKey);
+    }
+
+    // Lower bound of the distance between (x, y) and the points of cellKey, i.e., the distance to the cell boundary, 0 within the cell
+    public double getCellMinDistance(long cellKey, double x, double y)
+    {
+        double cellMinX = minX + HelperClass.getXCellIndex(cellKey) * cellLength;
+        double cellMinY = minY + HelperClass.getYCellIndex(cellKey) * cellLength;
+
+        double dx = Math.max(0, Math.max(cellMinX - x, x - (cellMinX + cellLength)));
+        double dy = Math.max(0, Math.max(cellMinY - y, y - (cellMinY + cellLength)));
+
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Returns a reusable iterator over the guaranteed and candidate neighboring cells of the given radius
+    // The neighboring cell offsets are computed once, hence the iterator can be reset for every query point without any allocation
+    public NeighboringCellsIterator getNeighboringCellsIterator(double queryRadius)
     {
-        String queryCellID = queryPoint.gridID;
-        HashSet<String> neighboringLayerCellsSet = new HashSet<String>();
-        HashSet<String> neighboringLayerCellsToExcludeSet = new HashSet<String>();
-        ArrayList<Integer> queryCellIndices = HelperClass.getIntCellIndices(queryCellID);       //converts cellID String->Integer
+        // queryRadius == 0 iterates over all the cells in the grid, same as getNeighboringCells
+        if(queryRadius == 0){
+            return new NeighboringCellsIterator(numGridPartitions, -1, -1);
+        }
+
+        int numNeighboringLayers = getCandidateNeighboringLayers(queryRadius);
+        if(numNeighboringLayers <= 0)
+        {
+            throw new IllegalArgumentException("candidateNeighboringLayers cannot be 0 or less");
+        }
+
+        return new NeighboringCellsIterator(numGridPartitions, numNeighboringLayers, getGuaranteedNeighboringLayers(queryRadius));
+    }
+
+    public HashSet<Long> getNeighboringLayerCells(Point queryPoint, int layerNumber)
+    {
+        long queryCellID = queryPoint.gridID;
+        HashSet<Long> neighboringLayerCellsSet = new HashSet<Long>();
+        HashSet<Long> neighboringLayerCellsToExcludeSet = new HashSet<Long>();
+        int queryCellXIndex = HelperClass.getXCellIndex(queryCellID);       //unpacks the cellID into x and y indices
+        int queryCellYIndex = HelperClass.getYCellIndex(queryCellID);
 
         //Get the cells to exclude, iff layerNumber is greater than 0
         if(layerNumber > 0)
         {
-            for(int i = queryCellIndices.get(0) - layerNumber + 1; i <= queryCellIndices.get(0) + layerNumber - 1; i++)
-                for(int j = queryCellIndices.get(1) - layerNumber + 1; j <= queryCellIndices.get(1) + layerNumber -1; j++)
+            for(int i = queryCellXIndex - layerNumber + 1; i <= queryCellXIndex + layerNumber - 1; i++)
+                for(int j = queryCellYIndex - layerNumber + 1; j <= queryCellYIndex + layerNumber -1; j++)
                 {
                     if(validKey(i,j)) {
-                        String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                        long neighboringCellKey = HelperClass.getCellKey(i, j);
                         neighboringLayerCellsToExcludeSet.add(neighboringCellKey);
                     }
                 }
         }
 
-        for(int i = queryCellIndices.get(0) - layerNumber; i <= queryCellIndices.get(0) + layerNumber; i++)
-            for(int j = queryCellIndices.get(1) - layerNumber; j <= queryCellIndices.get(1) + layerNumber; j++)
+        for(int i = queryCellXIndex - layerNumber; i <= queryCellXIndex + layerNumber; i++)
+            for(int j = queryCellYIndex - layerNumber; j <= queryCellYIndex + layerNumber; j++)
             {
                 if(validKey(i,j))
                 {
-                    String neighboringCellKey = HelperClass.padLeadingZeroesToInt(i, CELLINDEXSTRLENGTH) + HelperClass.padLeadingZeroesToInt(j, CELLINDEXSTRLENGTH);
+                    long neighboringCellKey = HelperClass.getCellKey(i, j);
                     if (!neighboringLayerCellsToExcludeSet.contains(neighboringCellKey)) // Add key if and only if it exist in the gridCell
                     {
                         neighboringLayerCellsSet.add(neighboringCellKey);
@@ -321,13 +471,13 @@ public class UniformGrid implements Serializable {
     }
 
     // Returns all the neighboring layers of point p, where each layer consists of a number of cells
-    public ArrayList<HashSet<String>> getAllNeighboringLayers(Point p)
+    public ArrayList<HashSet<Long>> getAllNeighboringLayers(Point p)
     {
-        ArrayList<HashSet<String>> listOfSets = new ArrayList<HashSet<String>>();
+        ArrayList<HashSet<Long>> listOfSets = new ArrayList<HashSet<Long>>();
 
         for(int i = 0; i < numGridPartitions; i++)
         {
-            HashSet<String> neighboringLayerCellSet = getNeighboringLayerCells(p, i);
+            HashSet<Long> neighboringLayerCellSet = getNeighboringLayerCells(p, i);
 
             if(neighboringLayerCellSet.size() > 0)
             {
@@ -342,18 +492,188 @@ public class UniformGrid implements Serializable {
     }
 
 
-    public static class getCellsFilteredByLayer extends RichFilterFunction<Tuple2<String, Integer>>
+    // Read-only set of all the cell keys of a numGridPartitions x numGridPartitions grid
+    // Membership is checked arithmetically and the keys are generated while iterating, hence its size is independent of the grid resolution
+    public static class GridCellsSet extends AbstractSet<Long> implements Serializable
+    {
+        private final int numGridPartitions;
+
+        //ctor
+        public GridCellsSet(int numGridPartitions)
+        {
+            this.numGridPartitions = numGridPartitions;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            if(!(o instanceof Long)) {
+                return false;
+            }
+            long cellKey = (Long) o;
+            int x = HelperClass.getXCellIndex(cellKey);
+            int y = HelperClass.getYCellIndex(cellKey);
+            return (x >= 0 && y >= 0 && x < numGridPartitions && y < numGridPartitions);
+        }
+
+        // Number of cells, computed in long as it overflows an int above 46340 rows
+        public long longSize()
+        {
+            return (long) numGridPartitions * numGridPartitions;
+        }
+
+        // Clamped to Integer.MAX_VALUE, as required by Collection.size()
+        @Override
+        public int size()
+        {
+            return (int) Math.min(longSize(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public Iterator<Long> iterator()
+        {
+            return new Iterator<Long>() {
+                private long cursor = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor < longSize();
+                }
+
+                @Override
+                public Long next() {
+                    if(!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    long cellKey = HelperClass.getCellKey((int) (cursor / numGridPartitions), (int) (cursor % numGridPartitions));
+                    cursor++;
+                    return cellKey;
+                }
+            };
+        }
+    }
+
+    // Iterates over the valid neighboring cell keys of a query cell layer by layer, i.e., the guaranteed cells are returned before the candidate cells
+    // With numNeighboringLayers == -1 (queryRadius == 0), all the cells in the grid are returned in row-major order and none of them is guaranteed
+    public static class NeighboringCellsIterator implements Serializable
+    {
+        private final int numGridPartitions;
+        private final int numNeighboringLayers; // -1 for all the cells in the grid
+        private final int guaranteedNeighboringLayers;
+
+        // Offsets of the neighboring cells w.r.t. the query cell, sorted by layer
+        private final int[] xCellOffsets;
+        private final int[] yCellOffsets;
+        private final int[] cellOffsetLayers;
+
+        private int queryCellXIndex;
+        private int queryCellYIndex;
+        private long cursor; // long, as the number of cells overflows an int above 46340 rows
+        private int currentLayer;
+
+        //ctor
+        public NeighboringCellsIterator(int numGridPartitions, int numNeighboringLayers, int guaranteedNeighboringLayers)
+        {
+            this.numGridPartitions = numGridPartitions;
+            // The layers beyond numGridPartitions - 1 lie entirely outside the grid
+            this.numNeighboringLayers = Math.min(numNeighboringLayers, numGridPartitions - 1);
+            this.guaranteedNeighboringLayers = guaranteedNeighboringLayers;
+
+            if(numNeighboringLayers < 0) {
+                this.xCellOffsets = null;
+                this.yCellOffsets = null;
+                this.cellOffsetLayers = null;
+                return;
+            }
+
+            long numCells = (2L * this.numNeighboringLayers + 1) * (2L * this.numNeighboringLayers + 1);
+            if(numCells > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("Too many neighboring cells: " + numCells + ", use a smaller query radius or a coarser grid");
+            }
+            this.xCellOffsets = new int[(int) numCells];
+            this.yCellOffsets = new int[(int) numCells];
+            this.cellOffsetLayers = new int[(int) numCells];
+
+            int index = 0;
+            for(int layer = 0; layer <= this.numNeighboringLayers; layer++)
+                for(int i = -layer; i <= layer; i++)
+                    for(int j = -layer; j <= layer; j++)
+                    {
+                        // Only the cells lying on the boundary of the current layer
+                        if(Math.max(Math.abs(i), Math.abs(j)) == layer) {
+                            xCellOffsets[index] = i;
+                            yCellOffsets[index] = j;
+                            cellOffsetLayers[index] = layer;
+                            index++;
+                        }
+                    }
+        }
+
+        public void reset(long queryCellKey)
+        {
+            this.queryCellXIndex = HelperClass.getXCellIndex(queryCellKey);
+            this.queryCellYIndex = HelperClass.getYCellIndex(queryCellKey);
+            this.cursor = 0;
+            this.currentLayer = -1;
+        }
+
+        public boolean hasNext()
+        {
+            if(numNeighboringLayers < 0) {
+                return cursor < (long) numGridPartitions * numGridPartitions;
+            }
+
+            // Skip the offsets which lie outside the grid
+            while(cursor < xCellOffsets.length)
+            {
+                int i = queryCellXIndex + xCellOffsets[(int) cursor];
+                int j = queryCellYIndex + yCellOffsets[(int) cursor];
+                if(i >= 0 && j >= 0 && i < numGridPartitions && j < numGridPartitions) {
+                    return true;
+                }
+                cursor++;
+            }
+            return false;
+        }
+
+        // Must be preceded by hasNext()
+        public long next()
+        {
+            int i, j;
+            if(numNeighboringLayers < 0) {
+                i = (int) (cursor / numGridPartitions);
+                j = (int) (cursor % numGridPartitions);
+                currentLayer = Math.max(Math.abs(i - queryCellXIndex), Math.abs(j - queryCellYIndex));
+            }
+            else {
+                i = queryCellXIndex + xCellOffsets[(int) cursor];
+                j = queryCellYIndex + yCellOffsets[(int) cursor];
+                currentLayer = cellOffsetLayers[(int) cursor];
+            }
+            cursor++;
+            return HelperClass.getCellKey(i, j);
+        }
+
+        // Layer of the cell last returned by next()
+        public int getCurrentLayer() {return currentLayer;}
+
+        // true if the cell last returned by next() contains the guaranteed neighbors
+        public boolean isGuaranteedNeighbor() {return currentLayer <= guaranteedNeighboringLayers;}
+    }
+
+    public static class getCellsFilteredByLayer extends RichFilterFunction<Tuple2<Long, Integer>>
     {
-        private final HashSet<String> CellIDs; // CellIDs are input parameters
+        private final HashSet<Long> CellIDs; // CellIDs are input parameters
 
         //ctor
-        public getCellsFilteredByLayer(HashSet<String> CellIDs)
+        public getCellsFilteredByLayer(HashSet<Long> CellIDs)
         {
             this.CellIDs = CellIDs;
         }
 
         @Override
-        public boolean filter(Tuple2<String, Integer> cellIDCount) throws Exception
+        public boolean filter(Tuple2<Long, Integer> cellIDCount) throws Exception
         {
             return CellIDs.contains(cellIDCount.f0);
         }
@@ -0,0 +1,126 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package GeoFlink.spatialObjects;
+
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/*
+Serializes LineString and MultiLineString, a leading tag keeps the runtime class
+Wire format: tag, objID (string), timeStampMillisec, gridID, gridIDsSet, boundingBox, lineString coordinates,
+and the coordinates list of a MultiLineString
+*/
+public class LineStringSerializer extends SpatialObjectSerializer<LineString> {
+
+    public static final LineStringSerializer INSTANCE = new LineStringSerializer();
+
+    private static final byte LINE_STRING = 0;
+    private static final byte MULTI_LINE_STRING = 1;
+
+    @Override
+    public LineString createInstance() {
+        return new LineString();
+    }
+
+    @Override
+    public LineString copy(LineString from) {
+        LineString ls;
+        if (from instanceof MultiLineString) {
+            MultiLineString mls = new MultiLineString();
+            mls.setListCoordinate(copyCoordinatesList(((MultiLineString) from).getListCoordinate()));
+            ls = mls;
+        } else {
+            ls = new LineString();
+        }
+        ls.objID = from.objID;
+        ls.timeStampMillisec = from.timeStampMillisec;
+        ls.gridID = from.gridID;
+        ls.gridIDsSet = copyGridIDsSet(from.gridIDsSet);
+        ls.boundingBox = from.boundingBox;
+        ls.lineString = from.lineString;
+        return ls;
+    }
+
+    @Override
+    public void serialize(LineString ls, DataOutputView target) throws IOException {
+        boolean isMultiLineString = ls instanceof MultiLineString;
+        target.writeByte(isMultiLineString ? MULTI_LINE_STRING : LINE_STRING);
+        writeObjID(ls.objID, target);
+        target.writeLong(ls.timeStampMillisec);
+        target.writeLong(ls.gridID);
+        writeGridIDsSet(ls.gridIDsSet, target);
+        writeBoundingBox(ls.boundingBox, target);
+
+        writeCoordinates((ls.lineString == null) ? null : ls.lineString.getCoordinates(), target);
+
+        if (isMultiLineString) {
+            writeCoordinatesList(((MultiLineString) ls).getListCoordinate(), target);
+        }
+    }
+
+    @Override
+    public LineString deserialize(DataInputView source) throws IOException {
+        boolean isMultiLineString = source.readByte() == MULTI_LINE_STRING;
+        LineString ls = isMultiLineString ? new MultiLineString() : new LineString();
+        ls.objID = readObjID(source);
+        ls.timeStampMillisec = source.readLong();
+        ls.gridID = source.readLong();
+        ls.gridIDsSet = readGridIDsSet(source);
+        ls.boundingBox = readBoundingBox(source);
+
+        Coordinate[] coordinates = readCoordinates(source);
+        if (coordinates != null) {
+            ls.lineString = geofact.createLineString(coordinates);
+        }
+
+        if (isMultiLineString) {
+            ((MultiLineString) ls).setListCoordinate(readCoordinatesList(source));
+        }
+        return ls;
+    }
+
+    @Override
+    public TypeSerializerSnapshot<LineString> snapshotConfiguration() {
+        return new LineStringSerializerSnapshot();
+    }
+
+    public static final class LineStringSerializerSnapshot extends SimpleTypeSerializerSnapshot<LineString> {
+        public LineStringSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+
+    // Flink looks up the factory through the class hierarchy, hence it is also used for MultiLineString
+    public static class LineStringTypeInfoFactory extends TypeInfoFactory<LineString> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public TypeInformation<LineString> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            Class<? extends LineString> typeClass = (t == MultiLineString.class) ? MultiLineString.class : LineString.class;
+            return new SpatialObjectTypeInfo<LineString>((Class<LineString>) typeClass, INSTANCE);
+        }
+    }
+}
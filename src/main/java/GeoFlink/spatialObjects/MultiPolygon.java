@@ -15,7 +15,7 @@ public class MultiPolygon extends Polygon implements Serializable {
 
     public MultiPolygon() {}; // required for POJO
 
-    public MultiPolygon(List<Coordinate> coordinates, long objID, HashSet<String> gridIDsSet, String gridID, Tuple2<Coordinate, Coordinate> boundingBox) {
+    public MultiPolygon(List<Coordinate> coordinates, long objID, HashSet<Long> gridIDsSet, long gridID, Tuple2<Coordinate, Coordinate> boundingBox) {
         super(coordinates, objID, gridIDsSet, gridID, boundingBox);
         listCoordinate.add(coordinates);
     }
@@ -35,37 +35,12 @@ public class MultiPolygon extends Polygon implements Serializable {
         this.listCoordinate = listCoordinate;
     }
 
-    // To print the point coordinates
-    @Override
-    public String toString() {
-        try{
-            String str = "{\"geometry\":{\"coordinates\": [";
-            for (List<Coordinate> l: listCoordinate) {
-                str = str + "[[";
-                for(Coordinate coordinate: l)
-                    str = str + "[" + coordinate.getX()  + ", " + coordinate.getY() + "],";
-                if (str.charAt(str.length() - 1) == ',') {
-                    str = str.substring(0, str.length() - 1);
-                }
-                str += "]],";
-            }
-            str = str.substring(0, str.length() - 1);
-            str = str + "], \"type\": \"MultiPolygon\"}}";
-            str = str + ", " + "ObjID: " + this.objID;
-            str = str + ", " + this.timeStampMillisec;
-            //str = str + ", Bounding Box: " + this.boundingBox;
-            //str = str + ", Grid ID: " + this.gridIDsSet;
-            //str = str + ", Obj ID: " + this.objID;
-            return str;
-        }
-        catch(NullPointerException e)
-        {
-            System.out.print("NullPointerException Caught");
-        }
-        return "Invalid Tuple";
-    }
-
     public List<List<Coordinate>> getListCoordinate() {
         return listCoordinate;
     }
+
+    // used by the serializer
+    void setListCoordinate(List<List<Coordinate>> listCoordinate) {
+        this.listCoordinate = listCoordinate;
+    }
 }
@@ -21,6 +21,7 @@ import GeoFlink.utils.HelperClass;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.tuple.Tuple4;
@@ -34,80 +35,81 @@ import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
+@TypeInfo(PointSerializer.PointTypeInfoFactory.class)
 public class Point extends SpatialObject implements Serializable {
-    public String gridID;
-    public org.locationtech.jts.geom.Point point;
-    public Long ingestionTime;
+    public long gridID;
+    // Coordinates are kept as primitives, the JTS point is only created when an operator needs the geometry (see getPoint())
+    public double x;
+    public double y;
+    private transient org.locationtech.jts.geom.Point point;
+    public long ingestionTime;
     //public String eventID;
     //public String deviceID;
     //public String userID;
     //Date date = new Date();
 
+    private static final GeometryFactory geofact = new GeometryFactory();
+
     public Point() {}; // required for POJO
 
-    public Point(double x, double y, String gridID) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        //create geotools point object
-        point = geofact.createPoint(new Coordinate(x, y));
+    public Point(double x, double y, long gridID) {
+        this.x = x;
+        this.y = y;
         this.gridID = gridID;
-        this.ingestionTime = date.getTime();
+        this.ingestionTime = System.currentTimeMillis();
     }
 
     public Point(double x, double y, UniformGrid uGrid) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        point = geofact.createPoint(new Coordinate(x, y));
-        //assignGridID(uGrid);
-        this.gridID = HelperClass.assignGridCellID(point.getCoordinate(), uGrid);
-        this.ingestionTime = date.getTime();
+        this.x = x;
+        this.y = y;
+        this.gridID = HelperClass.assignGridCellID(x, y, uGrid);
+        this.ingestionTime = System.currentTimeMillis();
     }
 
     public Point(double x, double y, long timeStampMillisec, UniformGrid uGrid) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        //create geotools point object
-        point = geofact.createPoint(new Coordinate(x, y));
+        this.x = x;
+        this.y = y;
         this.timeStampMillisec = timeStampMillisec;
-        //assignGridID(uGrid);
-        this.gridID = HelperClass.assignGridCellID(point.getCoordinate(), uGrid);
-        this.ingestionTime = date.getTime();
+        this.gridID = HelperClass.assignGridCellID(x, y, uGrid);
+        this.ingestionTime = System.currentTimeMillis();
     }
 
     public Point(String objID, double x, double y, long timeStampMillisec) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        //create geotools point object
-        point = geofact.createPoint(new Coordinate(x, y));
+        this.x = x;
+        this.y = y;
         this.objID = objID;
         this.timeStampMillisec = timeStampMillisec;
-        this.gridID = "";
-        this.ingestionTime = date.getTime();
+        this.gridID = HelperClass.NULL_CELL_KEY;
+        this.ingestionTime = System.currentTimeMillis();
     }
 
     public Point(String objID, double x, double y, long timeStampMillisec, UniformGrid uGrid) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        //create geotools point object
-        point = geofact.createPoint(new Coordinate(x, y));
+        this.x = x;
+        this.y = y;
         this.objID = objID;
         this.timeStampMillisec = timeStampMillisec;
-        this.gridID = HelperClass.assignGridCellID(point.getCoordinate(), uGrid);
-        this.ingestionTime = date.getTime();
+        this.gridID = HelperClass.assignGridCellID(x, y, uGrid);
+        this.ingestionTime = System.currentTimeMillis();
     }
 
-    public Point(String objID, double x, double y, long timeStampMillisec, String gridID) {
-        Date date = new Date();
-        GeometryFactory geofact = new GeometryFactory();
-        //create geotools point object
-        point = geofact.createPoint(new Coordinate(x, y));
+    public Point(String objID, double x, double y, long timeStampMillisec, long gridID) {
+        this.x = x;
+        this.y = y;
         this.objID = objID;
         this.timeStampMillisec = timeStampMillisec;
         this.gridID = gridID;
-        this.ingestionTime = date.getTime();
+        this.ingestionTime = System.currentTimeMillis();
+    }
+
+    // Returns the JTS point, created on the first call
+    public org.locationtech.jts.geom.Point getPoint() {
+        if (point == null) {
+            //create geotools point object
+            point = geofact.createPoint(new Coordinate(x, y));
+        }
+        return point;
     }
 
     // Point for DEIM App
@@ -121,7 +123,7 @@ public class Point extends SpatialObject implements Serializable {
         this.deviceID = deviceID;
         this.userID = userID;
         this.timeStampMillisec = timeStampMillisec;
-        this.gridID = "";
+        this.gridID = HelperClass.NULL_CELL_KEY;
         this.ingestionTime = date.getTime();;
     }
     */
@@ -129,7 +131,7 @@ public class Point extends SpatialObject implements Serializable {
     // To print the point coordinates
     @Override
     public String toString() {
-        return "[ObjID: " + this.objID + ", " + point.getX() + ", " + point.getY() + ", " + this.gridID + ", " + this.timeStampMillisec  + ", " + this.ingestionTime + "]";
+        return "[ObjID: " + this.objID + ", " + this.x + ", " + this.y + ", " + this.gridID + ", " + this.timeStampMillisec  + ", " + this.ingestionTime + "]";
         // For DEIM App
         // return "[eventID " + this.eventID + ", deviceID: " + this.deviceID + ", userID " + this.userID + ", " + this.timeStampMillisec + "]";
     }
@@ -139,30 +141,30 @@ public class Point extends SpatialObject implements Serializable {
     public static class getX implements MapFunction<Point, Double> {
         @Override
         public Double map(Point p) throws Exception {
-            return p.point.getX();
+            return p.x;
         }
     }
 
     public static class getY implements MapFunction<Point, Double> {
         @Override
         public Double map(Point p) throws Exception {
-            return p.point.getY();
+            return p.y;
         }
     }
 
 
-    public static class getGridID implements MapFunction<Point, String> {
+    public static class getGridID implements MapFunction<Point, Long> {
         @Override
-        public String map(Point p) throws Exception {
+        public Long map(Point p) throws Exception {
             return p.gridID;
 
         }
     }
 
     // rolling grid-wise sum of spatial objects
-    public static class addSummer implements MapFunction<Point, Tuple2<String, Integer>> {
+    public static class addSummer implements MapFunction<Point, Tuple2<Long, Integer>> {
         @Override
-        public Tuple2<String, Integer> map(Point p) throws Exception {
+        public Tuple2<Long, Integer> map(Point p) throws Exception {
             return Tuple2.of(p.gridID, 1);
         }
     }
@@ -171,7 +173,7 @@ public class Point extends SpatialObject implements Serializable {
     public static class maxY implements ReduceFunction<Point> {
         @Override
         public Point reduce(Point p, Point p1) {
-            if (p.point.getY() > p1.point.getY()) {
+            if (p.y > p1.y) {
                 return p;
             } else
                 return p1;
@@ -181,7 +183,7 @@ public class Point extends SpatialObject implements Serializable {
     public static class minY implements ReduceFunction<Point> {
         @Override
         public Point reduce(Point p, Point p1) {
-            if (p.point.getY() < p1.point.getY()) {
+            if (p.y < p1.y) {
                 return p;
             } else
                 return p1;
@@ -191,7 +193,7 @@ public class Point extends SpatialObject implements Serializable {
     public static class maxX implements ReduceFunction<Point> {
         @Override
         public Point reduce(Point p, Point p1) {
-            if (p.point.getX() > p1.point.getX()) {
+            if (p.x > p1.x) {
                 return p;
             } else
                 return p1;
@@ -201,16 +203,16 @@ public class Point extends SpatialObject implements Serializable {
     public static class minX implements ReduceFunction<Point> {
         @Override
         public Point reduce(Point p, Point p1) {
-            if (p.point.getX() < p1.point.getX()) {
+            if (p.x < p1.x) {
                 return p;
             } else
                 return p1;
         }
     }
 
-    public static class gridIDKeySelector implements KeySelector<Point,String> {
+    public static class gridIDKeySelector implements KeySelector<Point,Long> {
         @Override
-        public String getKey(Point p) throws Exception {
+        public Long getKey(Point p) throws Exception {
             return p.gridID;
         }
     }
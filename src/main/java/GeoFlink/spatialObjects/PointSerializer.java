@@ -0,0 +1,104 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package GeoFlink.spatialObjects;
+
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/*
+Wire format: objID (string), timeStampMillisec, gridID, x, y, ingestionTime
+*/
+public class PointSerializer extends SpatialObjectSerializer<Point> {
+
+    public static final PointSerializer INSTANCE = new PointSerializer();
+
+    // Bytes following the objID: timeStampMillisec, gridID, x, y and ingestionTime
+    private static final int FIXED_LENGTH = 5 * 8;
+
+    @Override
+    public Point createInstance() {
+        return new Point();
+    }
+
+    @Override
+    public Point copy(Point from) {
+        Point p = new Point();
+        p.objID = from.objID;
+        p.timeStampMillisec = from.timeStampMillisec;
+        p.gridID = from.gridID;
+        p.x = from.x;
+        p.y = from.y;
+        p.ingestionTime = from.ingestionTime;
+        return p;
+    }
+
+    @Override
+    public void serialize(Point p, DataOutputView target) throws IOException {
+        writeObjID(p.objID, target);
+        target.writeLong(p.timeStampMillisec);
+        target.writeLong(p.gridID);
+        target.writeDouble(p.x);
+        target.writeDouble(p.y);
+        target.writeLong(p.ingestionTime);
+    }
+
+    @Override
+    public Point deserialize(DataInputView source) throws IOException {
+        Point p = new Point();
+        p.objID = readObjID(source);
+        p.timeStampMillisec = source.readLong();
+        p.gridID = source.readLong();
+        p.x = source.readDouble();
+        p.y = source.readDouble();
+        p.ingestionTime = source.readLong();
+        return p;
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        StringValue.copyString(source, target);
+        target.write(source, FIXED_LENGTH);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<Point> snapshotConfiguration() {
+        return new PointSerializerSnapshot();
+    }
+
+    public static final class PointSerializerSnapshot extends SimpleTypeSerializerSnapshot<Point> {
+        public PointSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+
+    public static class PointTypeInfoFactory extends TypeInfoFactory<Point> {
+        @Override
+        public TypeInformation<Point> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return new SpatialObjectTypeInfo<Point>(Point.class, INSTANCE);
+        }
+    }
+}
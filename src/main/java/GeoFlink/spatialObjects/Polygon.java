@@ -2,6 +2,8 @@ package GeoFlink.spatialObjects;
 
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.utils.HelperClass;
+import GeoFlink.utils.SpatialTextWriter;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
@@ -12,17 +14,18 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.List;
 
+@TypeInfo(PolygonSerializer.PolygonTypeInfoFactory.class)
 public class Polygon extends SpatialObject implements Serializable {
 
-    public HashSet<String> gridIDsSet;
-    public String gridID;
+    public HashSet<Long> gridIDsSet;
+    public long gridID;
     public long objID;
     public Tuple2<Coordinate, Coordinate> boundingBox;
     public org.locationtech.jts.geom.Polygon polygon;
 
     public Polygon() {}; // required for POJO
 
-    public Polygon(List<Coordinate> coordinates, long objID, HashSet<String> gridIDsSet, String gridID, Tuple2<Coordinate, Coordinate> boundingBox) {
+    public Polygon(List<Coordinate> coordinates, long objID, HashSet<Long> gridIDsSet, long gridID, Tuple2<Coordinate, Coordinate> boundingBox) {
         GeometryFactory geofact = new GeometryFactory();
         //create geotools point object
         polygon = geofact.createPolygon(coordinates.toArray(new Coordinate[0]));
@@ -38,7 +41,7 @@ public class Polygon extends SpatialObject implements Serializable {
             polygon = geofact.createPolygon(coordinates.toArray(new Coordinate[0]));
             this.boundingBox = HelperClass.getBoundingBox(polygon);
             this.gridIDsSet = HelperClass.assignGridCellID(this.boundingBox, uGrid);
-            this.gridID = "";
+            this.gridID = HelperClass.NULL_CELL_KEY;
             this.objID = -1;
         }
     }
@@ -50,7 +53,7 @@ public class Polygon extends SpatialObject implements Serializable {
             this.boundingBox = HelperClass.getBoundingBox(polygon);
             this.timeStampMillisec = timeStampMillisec;
             this.gridIDsSet = HelperClass.assignGridCellID(this.boundingBox, uGrid);
-            this.gridID = "";
+            this.gridID = HelperClass.NULL_CELL_KEY;
             this.objID = -1;
         }
     }
@@ -62,29 +65,36 @@ public class Polygon extends SpatialObject implements Serializable {
             this.boundingBox = HelperClass.getBoundingBox(polygon);
             this.timeStampMillisec = timeStampMillisec;
             this.gridIDsSet = HelperClass.assignGridCellID(this.boundingBox, uGrid);
-            this.gridID = "";
+            this.gridID = HelperClass.NULL_CELL_KEY;
             this.objID = objID;
         }
     }
 
+    // Returns a replica of the polygon assigned to a single grid cell
+    // The JTS polygon and the bounding box are shared with the original, and the replica carries its own cell key only
+    // (gridIDsSet is not set), so the replication cost does not depend on the polygon size or the number of cells
+    public Polygon getReplica(long objID, long gridID) {
+        Polygon p = new Polygon();
+        p.polygon = this.polygon;
+        p.boundingBox = this.boundingBox;
+        p.gridID = gridID;
+        p.objID = objID;
+        p.timeStampMillisec = this.timeStampMillisec;
+        return p;
+    }
+
 
     //{"geometry": {"coordinates": [[[[-73.817854, 40.81909], [-73.817924, 40.819207], [-73.817791, 40.819253], [-73.817785, 40.819255], [-73.817596, 40.81932], [-73.81752, 40.819194], [-73.817521, 40.819193], [-73.817735, 40.819119], [-73.817755, 40.819113], [-73.817771, 40.819107], [-73.817798, 40.819098], [-73.817848, 40.81908], [-73.817852, 40.819087], [-73.817854, 40.81909]]]], "type": "MultiPolygon"}, "type": "Feature"}
 
-    // To print the point coordinates
+    // To print the polygon coordinates, including the MultiPolygon subclass
     @Override
     public String toString() {
         try{
-            String str = "{\"geometry\":{\"coordinates\": [[";
-            Coordinate[] coordinates = polygon.getCoordinates();
-            for(Coordinate coordinate: coordinates)
-                str = str + "[" + coordinate.getX()  + ", " + coordinate.getY() + "],";
-            str = str + "]], \"type\": \"Polygon\"}}";
-            str = str + ", " + "ObjID: " + this.objID;
-            str = str + ", " + this.timeStampMillisec;
-            //str = str + ", Bounding Box: " + this.boundingBox;
-            //str = str + ", Grid ID: " + this.gridIDsSet;
-            //str = str + ", Obj ID: " + this.objID;
-            return str;
+            SpatialTextWriter writer = new SpatialTextWriter();
+            writer.append("{\"geometry\":").appendGeoJSONGeometry(this).append('}');
+            writer.append(", ObjID: ").append(this.objID);
+            writer.append(", ").append(this.timeStampMillisec);
+            return writer.toString();
         }
         catch(NullPointerException e)
         {
@@ -0,0 +1,144 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package GeoFlink.spatialObjects;
+
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.locationtech.jts.geom.LinearRing;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/*
+Serializes Polygon and MultiPolygon, a leading tag keeps the runtime class
+Wire format: tag, objID (string), timeStampMillisec, objID (long), gridID, gridIDsSet, boundingBox,
+polygon rings (shell followed by the holes), and the coordinates list of a MultiPolygon
+*/
+public class PolygonSerializer extends SpatialObjectSerializer<Polygon> {
+
+    public static final PolygonSerializer INSTANCE = new PolygonSerializer();
+
+    private static final byte POLYGON = 0;
+    private static final byte MULTI_POLYGON = 1;
+
+    @Override
+    public Polygon createInstance() {
+        return new Polygon();
+    }
+
+    @Override
+    public Polygon copy(Polygon from) {
+        Polygon p;
+        if (from instanceof MultiPolygon) {
+            MultiPolygon mp = new MultiPolygon();
+            mp.setListCoordinate(copyCoordinatesList(((MultiPolygon) from).getListCoordinate()));
+            p = mp;
+        } else {
+            p = new Polygon();
+        }
+        ((SpatialObject) p).objID = ((SpatialObject) from).objID;
+        p.timeStampMillisec = from.timeStampMillisec;
+        p.objID = from.objID;
+        p.gridID = from.gridID;
+        p.gridIDsSet = copyGridIDsSet(from.gridIDsSet);
+        p.boundingBox = from.boundingBox;
+        p.polygon = from.polygon;
+        return p;
+    }
+
+    @Override
+    public void serialize(Polygon p, DataOutputView target) throws IOException {
+        boolean isMultiPolygon = p instanceof MultiPolygon;
+        target.writeByte(isMultiPolygon ? MULTI_POLYGON : POLYGON);
+        writeObjID(((SpatialObject) p).objID, target);
+        target.writeLong(p.timeStampMillisec);
+        target.writeLong(p.objID);
+        target.writeLong(p.gridID);
+        writeGridIDsSet(p.gridIDsSet, target);
+        writeBoundingBox(p.boundingBox, target);
+
+        // null polygon is written as -1 rings
+        if (p.polygon == null) {
+            target.writeInt(-1);
+        } else {
+            int numHoles = p.polygon.getNumInteriorRing();
+            target.writeInt(numHoles + 1);
+            writeCoordinates(p.polygon.getExteriorRing().getCoordinates(), target);
+            for (int i = 0; i < numHoles; i++) {
+                writeCoordinates(p.polygon.getInteriorRingN(i).getCoordinates(), target);
+            }
+        }
+
+        if (isMultiPolygon) {
+            writeCoordinatesList(((MultiPolygon) p).getListCoordinate(), target);
+        }
+    }
+
+    @Override
+    public Polygon deserialize(DataInputView source) throws IOException {
+        boolean isMultiPolygon = source.readByte() == MULTI_POLYGON;
+        Polygon p = isMultiPolygon ? new MultiPolygon() : new Polygon();
+        ((SpatialObject) p).objID = readObjID(source);
+        p.timeStampMillisec = source.readLong();
+        p.objID = source.readLong();
+        p.gridID = source.readLong();
+        p.gridIDsSet = readGridIDsSet(source);
+        p.boundingBox = readBoundingBox(source);
+
+        int numRings = source.readInt();
+        if (numRings > 0) {
+            LinearRing shell = geofact.createLinearRing(readCoordinates(source));
+            LinearRing[] holes = new LinearRing[numRings - 1];
+            for (int i = 0; i < holes.length; i++) {
+                holes[i] = geofact.createLinearRing(readCoordinates(source));
+            }
+            p.polygon = geofact.createPolygon(shell, holes);
+        }
+
+        if (isMultiPolygon) {
+            ((MultiPolygon) p).setListCoordinate(readCoordinatesList(source));
+        }
+        return p;
+    }
+
+    @Override
+    public TypeSerializerSnapshot<Polygon> snapshotConfiguration() {
+        return new PolygonSerializerSnapshot();
+    }
+
+    public static final class PolygonSerializerSnapshot extends SimpleTypeSerializerSnapshot<Polygon> {
+        public PolygonSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+
+    // Flink looks up the factory through the class hierarchy, hence it is also used for MultiPolygon
+    public static class PolygonTypeInfoFactory extends TypeInfoFactory<Polygon> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public TypeInformation<Polygon> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            Class<? extends Polygon> typeClass = (t == MultiPolygon.class) ? MultiPolygon.class : Polygon.class;
+            return new SpatialObjectTypeInfo<Polygon>((Class<Polygon>) typeClass, INSTANCE);
+        }
+    }
+}
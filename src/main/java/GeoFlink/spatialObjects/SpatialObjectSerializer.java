@@ -0,0 +1,260 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialObjects;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/*
+Base class of the spatial object serializers, replaces Kryo for the objects in GeoFlink.spatialObjects
+Coordinates are written as raw (x, y) doubles, cell keys as longs and object IDs with Flink's compact string encoding
+The JTS geometries are never mutated by the operators, hence copy() shares them between the original and the copy
+*/
+public abstract class SpatialObjectSerializer<T> extends TypeSerializerSingleton<T> {
+
+    protected static final GeometryFactory geofact = new GeometryFactory();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public T copy(T from, T reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public T deserialize(T reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    //--------------- WRITE/READ HELPERS -----------------//
+    protected static void writeObjID(String objID, DataOutputView target) throws IOException {
+        // StringValue encodes the length as a variable length integer and handles null
+        StringValue.writeString(objID, target);
+    }
+
+    protected static String readObjID(DataInputView source) throws IOException {
+        return StringValue.readString(source);
+    }
+
+    // null array is written as -1
+    protected static void writeCoordinates(Coordinate[] coordinates, DataOutputView target) throws IOException {
+        if (coordinates == null) {
+            target.writeInt(-1);
+            return;
+        }
+        target.writeInt(coordinates.length);
+        for (Coordinate c : coordinates) {
+            target.writeDouble(c.x);
+            target.writeDouble(c.y);
+        }
+    }
+
+    protected static Coordinate[] readCoordinates(DataInputView source) throws IOException {
+        int n = source.readInt();
+        if (n < 0) {
+            return null;
+        }
+        Coordinate[] coordinates = new Coordinate[n];
+        for (int i = 0; i < n; i++) {
+            double x = source.readDouble();
+            coordinates[i] = new Coordinate(x, source.readDouble());
+        }
+        return coordinates;
+    }
+
+    // null list is written as -1
+    protected static void writeCoordinatesList(List<List<Coordinate>> listCoordinate, DataOutputView target) throws IOException {
+        if (listCoordinate == null) {
+            target.writeInt(-1);
+            return;
+        }
+        target.writeInt(listCoordinate.size());
+        for (List<Coordinate> l : listCoordinate) {
+            writeCoordinates(l.toArray(new Coordinate[0]), target);
+        }
+    }
+
+    protected static List<List<Coordinate>> readCoordinatesList(DataInputView source) throws IOException {
+        int n = source.readInt();
+        if (n < 0) {
+            return null;
+        }
+        List<List<Coordinate>> listCoordinate = new ArrayList<List<Coordinate>>(n);
+        for (int i = 0; i < n; i++) {
+            Coordinate[] coordinates = readCoordinates(source);
+            List<Coordinate> l = new ArrayList<Coordinate>(coordinates.length);
+            for (Coordinate c : coordinates) {
+                l.add(c);
+            }
+            listCoordinate.add(l);
+        }
+        return listCoordinate;
+    }
+
+    // null set is written as -1
+    protected static void writeGridIDsSet(HashSet<Long> gridIDsSet, DataOutputView target) throws IOException {
+        if (gridIDsSet == null) {
+            target.writeInt(-1);
+            return;
+        }
+        target.writeInt(gridIDsSet.size());
+        for (Long gridID : gridIDsSet) {
+            target.writeLong(gridID);
+        }
+    }
+
+    protected static HashSet<Long> readGridIDsSet(DataInputView source) throws IOException {
+        int n = source.readInt();
+        if (n < 0) {
+            return null;
+        }
+        HashSet<Long> gridIDsSet = new HashSet<Long>(Math.max(16, (int) (n / .75f) + 1));
+        for (int i = 0; i < n; i++) {
+            gridIDsSet.add(source.readLong());
+        }
+        return gridIDsSet;
+    }
+
+    protected static void writeBoundingBox(Tuple2<Coordinate, Coordinate> boundingBox, DataOutputView target) throws IOException {
+        if (boundingBox == null) {
+            target.writeBoolean(false);
+            return;
+        }
+        target.writeBoolean(true);
+        target.writeDouble(boundingBox.f0.x);
+        target.writeDouble(boundingBox.f0.y);
+        target.writeDouble(boundingBox.f1.x);
+        target.writeDouble(boundingBox.f1.y);
+    }
+
+    protected static Tuple2<Coordinate, Coordinate> readBoundingBox(DataInputView source) throws IOException {
+        if (!source.readBoolean()) {
+            return null;
+        }
+        double minX = source.readDouble();
+        double minY = source.readDouble();
+        double maxX = source.readDouble();
+        double maxY = source.readDouble();
+        return Tuple2.of(new Coordinate(minX, minY), new Coordinate(maxX, maxY));
+    }
+
+    //--------------- COPY HELPERS -----------------//
+    protected static HashSet<Long> copyGridIDsSet(HashSet<Long> gridIDsSet) {
+        return (gridIDsSet == null) ? null : new HashSet<Long>(gridIDsSet);
+    }
+
+    protected static List<List<Coordinate>> copyCoordinatesList(List<List<Coordinate>> listCoordinate) {
+        return (listCoordinate == null) ? null : new ArrayList<List<Coordinate>>(listCoordinate);
+    }
+
+    //--------------- TYPE INFORMATION -----------------//
+    // Type information returning one of the above serializers, the spatial object classes are annotated with @TypeInfo
+    public static class SpatialObjectTypeInfo<T> extends org.apache.flink.api.common.typeinfo.TypeInformation<T> {
+
+        private final Class<T> typeClass;
+        private final TypeSerializer<T> serializer;
+
+        //ctor
+        public SpatialObjectTypeInfo(Class<T> typeClass, TypeSerializer<T> serializer) {
+            this.typeClass = typeClass;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public boolean isBasicType() {
+            return false;
+        }
+
+        @Override
+        public boolean isTupleType() {
+            return false;
+        }
+
+        @Override
+        public int getArity() {
+            return 1;
+        }
+
+        @Override
+        public int getTotalFields() {
+            return 1;
+        }
+
+        @Override
+        public Class<T> getTypeClass() {
+            return typeClass;
+        }
+
+        @Override
+        public boolean isKeyType() {
+            return false;
+        }
+
+        @Override
+        public TypeSerializer<T> createSerializer(org.apache.flink.api.common.ExecutionConfig config) {
+            return serializer;
+        }
+
+        @Override
+        public String toString() {
+            return "SpatialObjectTypeInfo<" + typeClass.getSimpleName() + ">";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof SpatialObjectTypeInfo) {
+                SpatialObjectTypeInfo<?> other = (SpatialObjectTypeInfo<?>) obj;
+                return other.canEqual(this) && typeClass == other.typeClass && serializer.equals(other.serializer);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * typeClass.hashCode() + serializer.hashCode();
+        }
+
+        @Override
+        public boolean canEqual(Object obj) {
+            return obj instanceof SpatialObjectTypeInfo;
+        }
+    }
+}
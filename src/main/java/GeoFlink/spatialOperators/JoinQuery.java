@@ -25,37 +25,44 @@ import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.streaming.api.datastream.DataStream;
-import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
-import org.apache.flink.streaming.api.windowing.time.Time;
 import org.apache.flink.util.Collector;
+import org.locationtech.jts.index.strtree.STRtree;
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 public class JoinQuery implements Serializable {
 
     //--------------- GRID-BASED JOIN QUERY - POINT-POINT -----------------//
-    public static DataStream<Tuple2<String, String>> SpatialJoinQuery(DataStream<Point> ordinaryPointStream, DataStream<Point> queryPointStream, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid){
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Point> ordinaryPointStream, DataStream<Point> queryPointStream, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid){
+        return SpatialJoinQuery(ordinaryPointStream, queryPointStream, queryRadius, windowSize, slideStep, uGrid, false);
+    }
+
+    // Event time windows, watermarks trailing the timestamps of each stream by allowedLateness seconds
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Point> ordinaryPointStream, DataStream<Point> queryPointStream, double queryRadius, int windowSize, int slideStep, int allowedLateness, UniformGrid uGrid){
+        return SpatialJoinQuery(HelperClass.assignTimestampsAndWatermarks(ordinaryPointStream, allowedLateness), HelperClass.assignTimestampsAndWatermarks(queryPointStream, allowedLateness), queryRadius, windowSize, slideStep, uGrid, true);
+    }
+
+    private static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Point> ordinaryPointStream, DataStream<Point> queryPointStream, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid, boolean eventTime){
 
         DataStream<Point> replicatedQueryStream = JoinQuery.getReplicatedQueryStream(queryPointStream, queryRadius, uGrid);
 
-        DataStream<Tuple2<String, String>> joinOutput = ordinaryPointStream.join(replicatedQueryStream)
-                .where(new KeySelector<Point, String>() {
+        DataStream<Tuple2<Long, Long>> joinOutput = ordinaryPointStream.join(replicatedQueryStream)
+                .where(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point p) throws Exception {
+                    public Long getKey(Point p) throws Exception {
                         return p.gridID;
                     }
-                }).equalTo(new KeySelector<Point, String>() {
+                }).equalTo(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point q) throws Exception {
+                    public Long getKey(Point q) throws Exception {
                         return q.gridID;
                     }
-                }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new JoinFunction<Point, Point, Tuple2<String,String>>() {
+                }).window(HelperClass.getSlidingWindows(windowSize, slideStep, eventTime))
+                .apply(new JoinFunction<Point, Point, Tuple2<Long,Long>>() {
                     @Override
-                    public Tuple2<String, String> join(Point p, Point q) {
-                        if (HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()) <= queryRadius) {
+                    public Tuple2<Long, Long> join(Point p, Point q) {
+                        if (HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y) <= queryRadius) {
                             return Tuple2.of(p.gridID, q.gridID);
                         } else {
                             return Tuple2.of(null, null);
@@ -63,9 +70,9 @@ public class JoinQuery implements Serializable {
                     }
                 });
 
-        return joinOutput.filter(new FilterFunction<Tuple2<String, String>>() {
+        return joinOutput.filter(new FilterFunction<Tuple2<Long, Long>>() {
             @Override
-            public boolean filter(Tuple2<String, String> value) throws Exception {
+            public boolean filter(Tuple2<Long, Long> value) throws Exception {
                 return value.f1 != null;
             }
         });
@@ -73,159 +80,124 @@ public class JoinQuery implements Serializable {
 
 
     //--------------- GRID-BASED JOIN QUERY - POINT-POLYGON -----------------//
-    public static DataStream<Tuple2<String, String>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep){
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep){
+        return SpatialJoinQuery(polygonStream, queryPointStream, queryRadius, uGrid, windowSize, slideStep, false);
+    }
+
+    // Event time windows, watermarks trailing the timestamps of each stream by allowedLateness seconds
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, int allowedLateness){
+        return SpatialJoinQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), HelperClass.assignTimestampsAndWatermarks(queryPointStream, allowedLateness), queryRadius, uGrid, windowSize, slideStep, true);
+    }
+
+    private static DataStream<Tuple2<Long, Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, boolean eventTime){
 
         DataStream<Point> replicatedQueryStream = JoinQuery.getReplicatedQueryStream(queryPointStream, queryRadius, uGrid);
         DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
 
-        DataStream<Tuple2<String, String>> joinOutput = replicatedPolygonStream.join(replicatedQueryStream)
-                .where(new KeySelector<Polygon, String>() {
+        // The polygons of a cell are indexed by an STR R-tree once per window, which is probed by the query points of the cell
+        return replicatedPolygonStream.coGroup(replicatedQueryStream)
+                .where(new KeySelector<Polygon, Long>() {
                     @Override
-                    public String getKey(Polygon poly) throws Exception {
+                    public Long getKey(Polygon poly) throws Exception {
                         return poly.gridID;
                     }
-                }).equalTo(new KeySelector<Point, String>() {
+                }).equalTo(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point q) throws Exception {
+                    public Long getKey(Point q) throws Exception {
                         return q.gridID;
                     }
-                }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new JoinFunction<Polygon, Point, Tuple2<String,String>>() {
+                }).window(HelperClass.getSlidingWindows(windowSize, slideStep, eventTime))
+                .apply(new CoGroupFunction<Polygon, Point, Tuple2<Long,Long>>() {
                     @Override
-                    public Tuple2<String, String> join(Polygon poly, Point q) {
-                        if (HelperClass.getPointPolygonMinEuclideanDistance(q, poly) <= queryRadius) {
-                            return Tuple2.of(poly.gridID, q.gridID);
-                        } else {
-                            return Tuple2.of(null, null);
+                    public void coGroup(Iterable<Polygon> polygons, Iterable<Point> queryPoints, Collector<Tuple2<Long, Long>> out) {
+                        if (!queryPoints.iterator().hasNext()) {
+                            return;
+                        }
+
+                        STRtree polygonSTRtree = HelperClass.getPolygonSTRtree(polygons);
+                        for (Point q : queryPoints) {
+                            for (Object candidate : polygonSTRtree.query(HelperClass.getQueryEnvelope(q, queryRadius))) {
+                                Polygon poly = (Polygon) candidate;
+                                if (HelperClass.isPointPolygonWithinDistance(q, poly, queryRadius)) {
+                                    out.collect(Tuple2.of(poly.gridID, q.gridID));
+                                }
+                            }
                         }
                     }
                 });
-
-        return joinOutput.filter(new FilterFunction<Tuple2<String, String>>() {
-            @Override
-            public boolean filter(Tuple2<String, String> value) throws Exception {
-                return value.f1 != null;
-            }
-        });
     }
 
     //--------------- (MODIFIED) GRID-BASED JOIN QUERY - POINT-POLYGON -----------------//
-    public static DataStream<Tuple2<String, String>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep){
+    // The polygon cells are derived from the bounding boxes, hence the guaranteed neighbors need the same refinement as the candidate
+    // ones and the modified query replication has no benefit: kept for compatibility, same as SpatialJoinQuery
+    @Deprecated
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep){
+        return SpatialJoinQuery(polygonStream, queryPointStream, queryRadius, uGrid, windowSize, slideStep);
+    }
 
-        DataStream<Tuple2<Point,Boolean>> replicatedQueryStream = JoinQuery.getReplicatedQueryStreamModified(queryPointStream, queryRadius, uGrid);
-        DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
+    @Deprecated
+    public static DataStream<Tuple2<Long, Long>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Point> queryPointStream, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, int allowedLateness){
+        return SpatialJoinQuery(polygonStream, queryPointStream, queryRadius, uGrid, windowSize, slideStep, allowedLateness);
+    }
 
-        DataStream<Tuple2<String, String>> joinOutput = replicatedPolygonStream.join(replicatedQueryStream)
-                .where(new KeySelector<Polygon, String>() {
-                    @Override
-                    public String getKey(Polygon poly) throws Exception {
-                        return poly.gridID;
-                    }
-                }).equalTo(new KeySelector<Tuple2<Point,Boolean>, String>() {
-                    @Override
-                    public String getKey(Tuple2<Point,Boolean> q) throws Exception {
-                        return q.f0.gridID;
-                    }
-                }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new JoinFunction<Polygon, Tuple2<Point,Boolean>, Tuple2<String,String>>() {
-                    @Override
-                    public Tuple2<String, String> join(Polygon poly, Tuple2<Point,Boolean> q) {
-                        if (q.f1 == true) {  // guaranteed neighbors
-                            return Tuple2.of(poly.gridID, q.f0.gridID);
-                        } else { // candidate neighbors
-                            if (HelperClass.getPointPolygonMinEuclideanDistance(q.f0, poly) <= queryRadius) {
-                                return Tuple2.of(poly.gridID, q.f0.gridID);
-                            } else {
-                                return Tuple2.of(null, null);
-                            }
-                        }
-                    }
-                });
 
-        return joinOutput.filter(new FilterFunction<Tuple2<String, String>>() {
-            @Override
-            public boolean filter(Tuple2<String, String> value) throws Exception {
-                return value.f1 != null;
-            }
-        });
+    //--------------- GRID-BASED JOIN QUERY - POLYGON-POLYGON -----------------//
+    public static DataStream<Tuple2<Long,Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, UniformGrid uGrid){
+        return SpatialJoinQuery(polygonStream, queryPolygonStream, slideStep, windowSize, queryRadius, uGrid, false);
     }
 
+    // Event time windows, watermarks trailing the timestamps of each stream by allowedLateness seconds
+    public static DataStream<Tuple2<Long,Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, int allowedLateness, UniformGrid uGrid){
+        return SpatialJoinQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), HelperClass.assignTimestampsAndWatermarks(queryPolygonStream, allowedLateness), slideStep, windowSize, queryRadius, uGrid, true);
+    }
 
-    //--------------- GRID-BASED JOIN QUERY - POLYGON-POLYGON -----------------//
-    public static DataStream<Tuple2<String,String>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, UniformGrid uGrid){
+    private static DataStream<Tuple2<Long,Long>> SpatialJoinQuery(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, UniformGrid uGrid, boolean eventTime){
         DataStream<Polygon> replicatedQueryStream = JoinQuery.getReplicatedQueryStream(queryPolygonStream, uGrid, queryRadius);
         DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
 
-        DataStream<Tuple2<String, String>> joinOutput = replicatedPolygonStream.join(replicatedQueryStream)
-                .where(new KeySelector<Polygon, String>() {
+        // The polygons of a cell are indexed by an STR R-tree once per window, which is probed by the query polygons of the cell
+        return replicatedPolygonStream.coGroup(replicatedQueryStream)
+                .where(new KeySelector<Polygon, Long>() {
                     @Override
-                    public String getKey(Polygon poly) throws Exception {
+                    public Long getKey(Polygon poly) throws Exception {
                         return poly.gridID;
                     }
-                }).equalTo(new KeySelector<Polygon, String>() {
+                }).equalTo(new KeySelector<Polygon, Long>() {
                     @Override
-                    public String getKey(Polygon query) throws Exception {
+                    public Long getKey(Polygon query) throws Exception {
                         return query.gridID;
                     }
-                }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new JoinFunction<Polygon, Polygon, Tuple2<String,String>>() {
+                }).window(HelperClass.getSlidingWindows(windowSize, slideStep, eventTime))
+                .apply(new CoGroupFunction<Polygon, Polygon, Tuple2<Long,Long>>() {
                     @Override
-                    public Tuple2<String, String> join(Polygon poly, Polygon query) {
-                        if (HelperClass.getPolygonPolygonMinEuclideanDistance(query, poly) <= queryRadius) {
-                            return Tuple2.of(poly.gridID, query.gridID);
-                        } else {
-                            return Tuple2.of(null, null);
+                    public void coGroup(Iterable<Polygon> polygons, Iterable<Polygon> queryPolygons, Collector<Tuple2<Long, Long>> out) {
+                        if (!queryPolygons.iterator().hasNext()) {
+                            return;
                         }
-                    }
-                });
-
-        return joinOutput.filter(new FilterFunction<Tuple2<String, String>>() {
-            @Override
-            public boolean filter(Tuple2<String, String> value) throws Exception {
-                return value.f1 != null;
-            }
-        });
-    }
 
-    //--------------- (MODIFIED) GRID-BASED JOIN QUERY - POLYGON-POLYGON -----------------//
-    public static DataStream<Tuple2<String,String>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, UniformGrid uGrid){
-        DataStream<Tuple2<Polygon,Boolean>> replicatedQueryStream = JoinQuery.getReplicatedQueryStreamModified(queryPolygonStream, uGrid, queryRadius);
-        DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
-
-        DataStream<Tuple2<String, String>> joinOutput = replicatedPolygonStream.join(replicatedQueryStream)
-                .where(new KeySelector<Polygon, String>() {
-                    @Override
-                    public String getKey(Polygon poly) throws Exception {
-                        return poly.gridID;
-                    }
-                }).equalTo(new KeySelector<Tuple2<Polygon,Boolean>, String>() {
-                    @Override
-                    public String getKey(Tuple2<Polygon,Boolean> query) throws Exception {
-                        return query.f0.gridID;
-                    }
-                }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new JoinFunction<Polygon, Tuple2<Polygon,Boolean>, Tuple2<String,String>>() {
-                    @Override
-                    public Tuple2<String, String> join(Polygon poly, Tuple2<Polygon,Boolean> query) {
-                        if (query.f1 == true) {  // guaranteed neighbors
-                            return Tuple2.of(poly.gridID, query.f0.gridID);
-                        } else { // candidate neighbors
-                            if (HelperClass.getPolygonPolygonMinEuclideanDistance(query.f0, poly) <= queryRadius) {
-                                return Tuple2.of(poly.gridID, query.f0.gridID);
-                            } else {
-                                return Tuple2.of(null, null);
+                        STRtree polygonSTRtree = HelperClass.getPolygonSTRtree(polygons);
+                        for (Polygon query : queryPolygons) {
+                            for (Object candidate : polygonSTRtree.query(HelperClass.getQueryEnvelope(query.boundingBox, queryRadius))) {
+                                Polygon poly = (Polygon) candidate;
+                                if (HelperClass.isPolygonPolygonWithinDistance(query, poly, queryRadius)) {
+                                    out.collect(Tuple2.of(poly.gridID, query.gridID));
+                                }
                             }
                         }
                     }
                 });
+    }
 
-        return joinOutput.filter(new FilterFunction<Tuple2<String, String>>() {
-            @Override
-            public boolean filter(Tuple2<String, String> value) throws Exception {
-                return value.f1 != null;
-            }
-        });
+    //--------------- (MODIFIED) GRID-BASED JOIN QUERY - POLYGON-POLYGON -----------------//
+    // Same as SpatialJoinQuery, see the point-polygon variant
+    @Deprecated
+    public static DataStream<Tuple2<Long,Long>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, UniformGrid uGrid){
+        return SpatialJoinQuery(polygonStream, queryPolygonStream, slideStep, windowSize, queryRadius, uGrid);
+    }
 
+    @Deprecated
+    public static DataStream<Tuple2<Long,Long>> SpatialJoinQueryOptimized(DataStream<Polygon> polygonStream, DataStream<Polygon> queryPolygonStream, int slideStep, int windowSize, double queryRadius, int allowedLateness, UniformGrid uGrid){
+        return SpatialJoinQuery(polygonStream, queryPolygonStream, slideStep, windowSize, queryRadius, allowedLateness, uGrid);
     }
 
 
@@ -236,15 +208,19 @@ public class JoinQuery implements Serializable {
     public static DataStream<Point> getReplicatedQueryStream(DataStream<Point> queryPoints, double queryRadius, UniformGrid uGrid){
 
         return queryPoints.flatMap(new FlatMapFunction<Point, Point>() {
+
+            // Neighboring cell offsets are computed once and reused for every query point
+            UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(queryRadius);
+
             @Override
             public void flatMap(Point queryPoint, Collector<Point> out) throws Exception {
 
                 // Neighboring cells contain all the cells including Candidate cells, Guaranteed Cells and the query point cell itself
-                HashSet<String> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
+                neighboringCells.reset(queryPoint.gridID);
 
                 // Create duplicated query points
-                for (String gridID: neighboringCells) {
-                    Point p = new Point(queryPoint.point.getX(), queryPoint.point.getY(), gridID);
+                while (neighboringCells.hasNext()) {
+                    Point p = new Point(queryPoint.x, queryPoint.y, neighboringCells.next());
                     out.collect(p);
                 }
             }
@@ -255,22 +231,19 @@ public class JoinQuery implements Serializable {
     public static DataStream<Tuple2<Point,Boolean>> getReplicatedQueryStreamModified(DataStream<Point> queryPoints, double queryRadius, UniformGrid uGrid){
 
         return queryPoints.flatMap(new FlatMapFunction<Point, Tuple2<Point,Boolean>>() {
+
+            // Neighboring cell offsets are computed once and reused for every query point
+            UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(queryRadius);
+
             @Override
             public void flatMap(Point queryPoint, Collector<Tuple2<Point,Boolean>> out) throws Exception {
 
-                Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
-                Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+                neighboringCells.reset(queryPoint.gridID);
 
-                // Create duplicated query points for Guaranteed Neighbors
-                for (String gridID: guaranteedNeighboringCells) {
-                    Point p = new Point(queryPoint.point.getX(), queryPoint.point.getY(), gridID);
-                    out.collect(Tuple2.of(p,true));
-                }
-
-                // Create duplicated query points for Candidate Neighbors
-                for (String gridID: candidateNeighboringCells) {
-                    Point p = new Point(queryPoint.point.getX(), queryPoint.point.getY(), gridID);
-                    out.collect(Tuple2.of(p,false));
+                // Create duplicated query points for Guaranteed (true) and Candidate (false) Neighbors
+                while (neighboringCells.hasNext()) {
+                    Point p = new Point(queryPoint.x, queryPoint.y, neighboringCells.next());
+                    out.collect(Tuple2.of(p, neighboringCells.isGuaranteedNeighbor()));
                 }
             }
         });
@@ -291,16 +264,16 @@ public class JoinQuery implements Serializable {
 
             @Override
             public void flatMap(Polygon poly, Collector<Polygon> out) throws Exception {
-                Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, poly);
-                Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, poly, guaranteedNeighboringCells);
+                Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, poly);
+                Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, poly, guaranteedNeighboringCells);
 
                 // Create duplicated polygon stream for all neighbouring cells based on GridIDs
-                for (String gridID: guaranteedNeighboringCells) {
-                    Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
+                for (Long gridID: guaranteedNeighboringCells) {
+                    Polygon p = poly.getReplica(uniqueObjID, gridID);
                     out.collect(p);
                 }
-                for (String gridID: candidateNeighboringCells) {
-                    Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
+                for (Long gridID: candidateNeighboringCells) {
+                    Polygon p = poly.getReplica(uniqueObjID, gridID);
                     out.collect(p);
                 }
 
@@ -325,16 +298,16 @@ public class JoinQuery implements Serializable {
 
             @Override
             public void flatMap(Polygon poly, Collector<Tuple2<Polygon,Boolean>> out) throws Exception {
-                Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, poly);
-                Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, poly, guaranteedNeighboringCells);
+                Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, poly);
+                Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, poly, guaranteedNeighboringCells);
 
                 // Create duplicated polygon stream based on GridIDs
-                for (String gridID: guaranteedNeighboringCells) {
-                    Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
+                for (Long gridID: guaranteedNeighboringCells) {
+                    Polygon p = poly.getReplica(uniqueObjID, gridID);
                     out.collect(Tuple2.of(p,true));
                 }
-                for (String gridID: candidateNeighboringCells) {
-                    Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
+                for (Long gridID: candidateNeighboringCells) {
+                    Polygon p = poly.getReplica(uniqueObjID, gridID);
                     out.collect(Tuple2.of(p,false));
                 }
 
@@ -0,0 +1,196 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package GeoFlink.spatialOperators;
+
+import GeoFlink.utils.DistanceHeap;
+import GeoFlink.utils.DistanceHeapSerializer;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.runtime.state.StateInitializationContext;
+import org.apache.flink.runtime.state.StateSnapshotContext;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+Combiner of the partial kNNs of the windowed kNN operators, chained to them: the (subtask index, window end, heap) tuples of a
+subtask are merged per window end without a network shuffle, and a single heap per window is sent to the KNNMergeFunction
+The heap of a window is output:
+- in event time, when the watermark passes the window end (before the watermark is forwarded)
+- in processing time, right after the window timers: all the windows of the upstream operator with the same end fire in one
+  timer callback at the window end - 1, the combiner reports every window end (windows end at windowSize modulo slideStep)
+  in a timer at the window end + 1; a window without objects in this subtask is reported with an empty heap, hence the
+  KNNMergeFunction receives exactly one heap per subtask and window
+The buffered heaps and the next window end to report are kept in the operator state for the checkpoints
+*/
+public class KNNCombineOperator<T> extends AbstractStreamOperator<Tuple3<Integer, Long, DistanceHeap<T>>>
+        implements OneInputStreamOperator<Tuple3<Integer, Long, DistanceHeap<T>>, Tuple3<Integer, Long, DistanceHeap<T>>> {
+
+    private final long windowSize;
+    private final long slideStep;
+    private final boolean eventTime;
+    private final TypeInformation<T> typeInfo;
+
+    private transient HashMap<Long, DistanceHeap<T>> combinedKNNs; // window end -> combined heap
+    private transient ListState<Tuple2<Long, DistanceHeap<T>>> combinedKNNsLState;
+    private transient long nextWindowEnd; // processing time only
+    private transient ListState<Long> nextWindowEndLState;
+
+    //ctor
+    // windowSize and slideStep in milliseconds
+    public KNNCombineOperator(long windowSize, long slideStep, boolean eventTime, Class<T> typeClass) {
+        this(windowSize, slideStep, eventTime, TypeInformation.of(typeClass));
+    }
+
+    // For generic element types, e.g. tuples
+    public KNNCombineOperator(long windowSize, long slideStep, boolean eventTime, TypeInformation<T> typeInfo) {
+        this.windowSize = windowSize;
+        this.slideStep = slideStep;
+        this.eventTime = eventTime;
+        this.typeInfo = typeInfo;
+        this.chainingStrategy = ChainingStrategy.ALWAYS;
+    }
+
+    // Offers the objects of heap to merged, overridden e.g. to skip the replicas of the polygons
+    public void merge(DistanceHeap<T> merged, DistanceHeap<T> heap) {
+        merged.offerAll(heap);
+    }
+
+    @Override
+    public void initializeState(StateInitializationContext context) throws Exception {
+        super.initializeState(context);
+
+        ListStateDescriptor<Tuple2<Long, DistanceHeap<T>>> combinedKNNsDescriptor = new ListStateDescriptor<Tuple2<Long, DistanceHeap<T>>>(
+                "combinedKNNsDescriptor", // state name
+                new TupleTypeInfo<Tuple2<Long, DistanceHeap<T>>>(BasicTypeInfo.LONG_TYPE_INFO, new DistanceHeapSerializer.DistanceHeapTypeInfo<T>(typeInfo)));
+
+        this.combinedKNNsLState = context.getOperatorStateStore().getListState(combinedKNNsDescriptor);
+        this.nextWindowEndLState = context.getOperatorStateStore().getListState(new ListStateDescriptor<Long>(
+                "nextWindowEndDescriptor", // state name
+                BasicTypeInfo.LONG_TYPE_INFO));
+        this.combinedKNNs = new HashMap<Long, DistanceHeap<T>>();
+        this.nextWindowEnd = Long.MAX_VALUE;
+        if (context.isRestored()) {
+            // after a rescaling, the earliest end of the redistributed subtasks and heaps
+            for (Long windowEnd : nextWindowEndLState.get()) {
+                nextWindowEnd = Math.min(nextWindowEnd, windowEnd);
+            }
+            for (Tuple2<Long, DistanceHeap<T>> combinedKNN : combinedKNNsLState.get()) {
+                if (!eventTime) {
+                    nextWindowEnd = Math.min(nextWindowEnd, combinedKNN.f0);
+                }
+                DistanceHeap<T> merged = combinedKNNs.get(combinedKNN.f0);
+                if (merged == null) {
+                    combinedKNNs.put(combinedKNN.f0, combinedKNN.f1);
+                }
+                else { // the state of several subtasks is redistributed to this one
+                    merge(merged, combinedKNN.f1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        if (!eventTime) {
+            if (nextWindowEnd == Long.MAX_VALUE) {
+                // the first window end after the current time, the earlier windows have no element
+                long time = getProcessingTimeService().getCurrentProcessingTime();
+                nextWindowEnd = time - Math.floorMod(time - windowSize, slideStep) + slideStep;
+            }
+            registerReport(nextWindowEnd);
+        }
+    }
+
+    @Override
+    public void processElement(StreamRecord<Tuple3<Integer, Long, DistanceHeap<T>>> element) throws Exception {
+        long windowEnd = element.getValue().f1;
+        DistanceHeap<T> heap = element.getValue().f2;
+
+        DistanceHeap<T> merged = combinedKNNs.get(windowEnd);
+        if (merged == null) {
+            // the input heap may be reused by the window function, its objects are copied into a new heap
+            merged = new DistanceHeap<T>(heap.capacity());
+            if (!eventTime && windowEnd < nextWindowEnd) { // window already reported, dropped by the merge
+                merge(merged, heap);
+                emit(windowEnd, merged);
+                return;
+            }
+            combinedKNNs.put(windowEnd, merged);
+        }
+        merge(merged, heap);
+    }
+
+    @Override
+    public void processWatermark(Watermark mark) throws Exception {
+        if (eventTime) {
+            Iterator<Map.Entry<Long, DistanceHeap<T>>> combinedKNNsIterator = combinedKNNs.entrySet().iterator();
+            while (combinedKNNsIterator.hasNext()) {
+                Map.Entry<Long, DistanceHeap<T>> combinedKNN = combinedKNNsIterator.next();
+                if (combinedKNN.getKey() - 1 <= mark.getTimestamp()) {
+                    emit(combinedKNN.getKey(), combinedKNN.getValue());
+                    combinedKNNsIterator.remove();
+                }
+            }
+        }
+        super.processWatermark(mark);
+    }
+
+    @Override
+    public void snapshotState(StateSnapshotContext context) throws Exception {
+        super.snapshotState(context);
+        combinedKNNsLState.clear();
+        for (Map.Entry<Long, DistanceHeap<T>> combinedKNN : combinedKNNs.entrySet()) {
+            combinedKNNsLState.add(Tuple2.of(combinedKNN.getKey(), combinedKNN.getValue()));
+        }
+        nextWindowEndLState.clear();
+        if (!eventTime) {
+            nextWindowEndLState.add(nextWindowEnd);
+        }
+    }
+
+    // The timer delays are rounded up to the next millisecond, hence the window timers at windowEnd - 1 are triggered before
+    // windowEnd + 1, and this one after
+    private void registerReport(long windowEnd) {
+        getProcessingTimeService().registerTimer(windowEnd + 1, timestamp -> {
+            DistanceHeap<T> merged = combinedKNNs.remove(windowEnd);
+            // the empty heap reports the window, its capacity is not used by the merge
+            emit(windowEnd, merged == null ? new DistanceHeap<T>(1) : merged);
+            nextWindowEnd = windowEnd + slideStep;
+            registerReport(nextWindowEnd);
+        });
+    }
+
+    // Timestamped with the window end - 1, as the output of the windows
+    private void emit(long windowEnd, DistanceHeap<T> merged) {
+        output.collect(new StreamRecord<Tuple3<Integer, Long, DistanceHeap<T>>>(
+                Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), windowEnd, merged), windowEnd - 1));
+    }
+}
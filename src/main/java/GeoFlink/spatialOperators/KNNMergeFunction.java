@@ -0,0 +1,156 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package GeoFlink.spatialOperators;
+
+import GeoFlink.utils.DistanceHeap;
+import GeoFlink.utils.DistanceHeapSerializer;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.util.Collector;
+
+/*
+Merge of the partial kNNs of the windowed kNN operators, replacing the windowAll merge which runs at parallelism 1
+The partial kNNs are (subtask index, window end, heap) tuples, combined per subtask by KNNCombineOperator; keyed by window end,
+the heaps of a window (one per combine subtask) are merged into the integrated kNN, which is output once all of them have arrived:
+- in event time, when the watermark passes the window end (the partial kNNs are timestamped with the window end - 1, and each
+  combine subtask outputs its heaps before forwarding the watermark)
+- in processing time, when numPartialKNNs heaps are merged: each combine subtask reports every window end, with an empty heap
+  if it has no object in the window
+A window without objects is not output. In processing time, a window missing heaps (e.g. of a stalled subtask) is output
+with the heaps received timeout milliseconds after its end, and logged; a heap arriving after the output of its window is
+dropped and logged, the window is never output twice
+*/
+public class KNNMergeFunction<K, T> extends KeyedProcessFunction<K, Tuple3<Integer, Long, DistanceHeap<T>>, Tuple3<Integer, Long, DistanceHeap<T>>> {
+
+    private final int numPartialKNNs;
+    private final long timeout;
+    private final boolean eventTime;
+    private final TypeInformation<T> typeInfo;
+
+    private ValueState<Tuple3<Integer, Long, DistanceHeap<T>>> mergedKNNVState;
+    private ValueState<Integer> numMergedVState; // number of heaps merged, -1 once the window is output (processing time)
+
+    //ctor
+    // numPartialKNNs: parallelism of the combine subtasks, timeout in milliseconds; both are only used in processing time
+    public KNNMergeFunction(int numPartialKNNs, long timeout, boolean eventTime, Class<T> typeClass) {
+        this(numPartialKNNs, timeout, eventTime, TypeInformation.of(typeClass));
+    }
+
+    // For generic element types, e.g. tuples
+    public KNNMergeFunction(int numPartialKNNs, long timeout, boolean eventTime, TypeInformation<T> typeInfo) {
+        if(!eventTime && (numPartialKNNs <= 0 || timeout <= 0))
+        {
+            throw new IllegalArgumentException("numPartialKNNs (the parallelism of the kNN windows) and timeout must be greater than 0");
+        }
+        this.numPartialKNNs = numPartialKNNs;
+        this.timeout = timeout;
+        this.eventTime = eventTime;
+        this.typeInfo = typeInfo;
+    }
+
+    // Offers the objects of heap to merged, overridden e.g. to skip the replicas of the polygons
+    public void merge(DistanceHeap<T> merged, DistanceHeap<T> heap) {
+        merged.offerAll(heap);
+    }
+
+    @Override
+    public void open(Configuration config) {
+
+        ValueStateDescriptor<Tuple3<Integer, Long, DistanceHeap<T>>> mergedKNNDescriptor = new ValueStateDescriptor<Tuple3<Integer, Long, DistanceHeap<T>>>(
+                "mergedKNNDescriptor", // state name
+                new TupleTypeInfo<Tuple3<Integer, Long, DistanceHeap<T>>>(BasicTypeInfo.INT_TYPE_INFO, BasicTypeInfo.LONG_TYPE_INFO, new DistanceHeapSerializer.DistanceHeapTypeInfo<T>(typeInfo)));
+        ValueStateDescriptor<Integer> numMergedDescriptor = new ValueStateDescriptor<Integer>(
+                "numMergedDescriptor", // state name
+                BasicTypeInfo.INT_TYPE_INFO);
+
+        this.mergedKNNVState = getRuntimeContext().getState(mergedKNNDescriptor);
+        this.numMergedVState = getRuntimeContext().getState(numMergedDescriptor);
+    }
+
+    @Override
+    public void processElement(Tuple3<Integer, Long, DistanceHeap<T>> partialKNN, Context ctx, Collector<Tuple3<Integer, Long, DistanceHeap<T>>> out) throws Exception {
+
+        long windowEnd = partialKNN.f1;
+
+        if (eventTime) {
+            // Late heaps, the window is already output
+            if (windowEnd - 1 <= ctx.timerService().currentWatermark()) {
+                return;
+            }
+            if (mergedKNNVState.value() == null) {
+                ctx.timerService().registerEventTimeTimer(windowEnd - 1);
+            }
+            mergeHeap(partialKNN);
+            return;
+        }
+
+        Integer numMerged = numMergedVState.value();
+        if ((numMerged != null && numMerged < 0) || (numMerged == null && windowEnd - 1 + timeout <= ctx.timerService().currentProcessingTime())) {
+            System.out.println("kNN of window " + windowEnd + " already output, partial kNN of subtask " + partialKNN.f0 + " dropped");
+            return;
+        }
+        if (numMerged == null) {
+            numMerged = 0;
+            ctx.timerService().registerProcessingTimeTimer(windowEnd - 1 + timeout);
+        }
+        Tuple3<Integer, Long, DistanceHeap<T>> mergedKNN = mergeHeap(partialKNN);
+
+        if (++numMerged < numPartialKNNs) {
+            numMergedVState.update(numMerged);
+            return;
+        }
+        // All the heaps of the window are merged
+        if (!mergedKNN.f2.isEmpty()) {
+            out.collect(mergedKNN);
+        }
+        mergedKNNVState.clear();
+        numMergedVState.update(-1);
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<Tuple3<Integer, Long, DistanceHeap<T>>> out) throws Exception {
+        Tuple3<Integer, Long, DistanceHeap<T>> mergedKNN = mergedKNNVState.value();
+        if (mergedKNN != null && !mergedKNN.f2.isEmpty()) {
+            if (!eventTime) {
+                System.out.println("kNN of window " + mergedKNN.f1 + " output after the timeout with " + numMergedVState.value() + " of " + numPartialKNNs + " partial kNNs");
+            }
+            out.collect(mergedKNN);
+        }
+        mergedKNNVState.clear();
+        numMergedVState.clear();
+    }
+
+    // Merges the heap into the merged heap of the window; the first non-empty heap of the key is the merged heap
+    private Tuple3<Integer, Long, DistanceHeap<T>> mergeHeap(Tuple3<Integer, Long, DistanceHeap<T>> partialKNN) throws Exception {
+        Tuple3<Integer, Long, DistanceHeap<T>> mergedKNN = mergedKNNVState.value();
+        if (mergedKNN == null || mergedKNN.f2.isEmpty()) {
+            mergedKNN = partialKNN;
+        }
+        else {
+            merge(mergedKNN.f2, partialKNN.f2);
+        }
+        mergedKNNVState.update(mergedKNN);
+        return mergedKNN;
+    }
+}
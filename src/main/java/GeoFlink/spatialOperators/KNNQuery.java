@@ -16,22 +16,27 @@ limitations under the License.
 
 package GeoFlink.spatialOperators;
 
+import GeoFlink.spatialIndices.RangeQueryIndex;
+import GeoFlink.spatialIndices.SpaceFillingCurvePartitioner;
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.spatialObjects.Point;
 import GeoFlink.spatialObjects.Polygon;
 import GeoFlink.utils.Comparators;
+import GeoFlink.utils.DistanceHeap;
 import GeoFlink.utils.HelperClass;
 import GeoFlink.utils.SpatialDistanceComparator;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.functions.KeySelector;
-import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.tuple.Tuple4;
 import org.apache.flink.api.java.tuple.Tuple5;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.IterativeStream;
-import org.apache.flink.streaming.api.functions.windowing.AllWindowFunction;
+import org.apache.flink.streaming.api.functions.windowing.RichWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.time.Time;
@@ -44,6 +49,9 @@ import java.util.*;
 
 public class KNNQuery implements Serializable {
 
+    // Cell key of the control tuple, lies outside any valid grid
+    private static final long CONTROL_CELL_KEY = HelperClass.getCellKey(99999, 99999);
+
     public KNNQuery() {}
 
     //--------------- GRID-BASED kNN QUERY - POINT - Iterative Distributed -----------------//
@@ -55,109 +63,79 @@ public class KNNQuery implements Serializable {
         // Iteration Body
         DataStream<Point> filteredStream = iterativeKeyedStream.filter(new FilterFunction<Point>() {
 
-            int filterationNeighboringLayers = 0;
+            double filterationRadius = 0;
             double queryRadiusMultFactor = 1.5;
-            ArrayList<Integer> queryCellIndices = HelperClass.getIntCellIndices(queryPoint.gridID);
 
             @Override
             public boolean filter(Point p) throws Exception {
 
-                // Recompute filterationCellsSet on the arrival of control tuple
-                if(p.gridID.equals("9999999999")){
-                    filterationNeighboringLayers = uGrid.getCandidateNeighboringLayers(p.point.getX() * queryRadiusMultFactor);
+                // Recompute filterationRadius on the arrival of control tuple
+                if(p.gridID == CONTROL_CELL_KEY){
+                    filterationRadius = p.x * queryRadiusMultFactor;
                     //System.out.println("Received feedback tuple");
                     return false;
                 }
 
                 // Filtering out the kNN out of range tuples
-                if(filterationNeighboringLayers == 0){
+                if(filterationRadius == 0){
                     return true;
                 }
                 else {
-                    ArrayList<Integer> pointCellIndices = HelperClass.getIntCellIndices(p.gridID);
-                    return (HelperClass.pointWithinQueryRange(pointCellIndices, queryCellIndices, filterationNeighboringLayers));
+                    // distance to the cell of p, i.e., to the whole leaf in case of a QuadTreeIndex
+                    return (uGrid.getCellMinDistance(p.gridID, queryPoint.x, queryPoint.y) <= filterationRadius);
                 }
             }
         });
 
-        DataStream<PriorityQueue<Tuple2<Point, Double>>> windowedIterativeStream = filteredStream
-                .keyBy("gridID")
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Point>>> windowedIterativeStream = filteredStream
+                .keyBy(new Point.gridIDKeySelector())
                 .window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize),Time.seconds(windowSlideStep)))
-                .apply(new WindowFunction<Point, PriorityQueue<Tuple2<Point, Double>>, Tuple, TimeWindow>() {
+                .apply(new RichWindowFunction<Point, Tuple3<Integer, Long, DistanceHeap<Point>>, Long, TimeWindow>() {
 
-                    //PriorityQueue<Tuple2<Point, Double>> kNNPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new SpatialDistanceComparator(queryPoint));
-                    PriorityQueue<Tuple2<Point, Double>> kNNPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.inTuplePointDistanceComparator());
+                    DistanceHeap<Point> kNNHeap = new DistanceHeap<Point>(k);
 
                     @Override
-                    public void apply(Tuple tuple, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<PriorityQueue<Tuple2<Point, Double>>> outputStream) throws Exception {
-                        kNNPQ.clear();
+                    public void apply(Long gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Point>>> outputStream) throws Exception {
+                        kNNHeap.clear();
 
                         for (Point p : inputTuples) {
-
-                            if (kNNPQ.size() < k) {
-                                double distance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-                                kNNPQ.offer(new Tuple2<Point, Double>(p, distance));
-                            } else {
-                                double distance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-                                double largestDistInPQ = HelperClass.getPointPointEuclideanDistance(kNNPQ.peek().f0.point.getX(), kNNPQ.peek().f0.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-
-                                if (largestDistInPQ > distance) { // remove element with the largest distance and add the new element
-                                    kNNPQ.poll();
-                                    kNNPQ.offer(new Tuple2<Point, Double>(p, distance));
-                                }
+                            double distance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
+                            // the largest distance is kept at the heap top, it is not recomputed
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(p, distance);
                             }
                         }
 
-                        // Output stream
-                        outputStream.collect(kNNPQ);
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
                     }
                 });
 
-        // windowAll to Generate integrated kNN -
-        DataStream<PriorityQueue<Tuple2<Point, Double>>> windowAllIterativeStream = windowedIterativeStream
-                .windowAll(SlidingProcessingTimeWindows.of(Time.seconds(windowSize),Time.seconds(windowSlideStep)))
-                .apply(new AllWindowFunction<PriorityQueue<Tuple2<Point, Double>>, PriorityQueue<Tuple2<Point, Double>>, TimeWindow>() {
-
-                    //PriorityQueue<Tuple2<Point, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Point, Double>>(k, new SpatialDistanceComparator(queryPoint));
-                    //PriorityQueue<Tuple2<Point, Double>> controlPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new SpatialDistanceComparator(queryPoint));
-
-                    PriorityQueue<Tuple2<Point, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.inTuplePointDistanceComparator());
-                    PriorityQueue<Tuple2<Point, Double>> controlPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.inTuplePointDistanceComparator());
+        // Merge of the per cell kNNs to Generate integrated kNN, see getMergedKNN()
+        DataStream<PriorityQueue<Tuple2<Point, Double>>> windowAllIterativeStream = getMergedKNN(windowedIterativeStream,
+                new KNNCombineOperator<Point>(windowSize * 1000L, windowSlideStep * 1000L, false, Point.class),
+                new KNNMergeFunction<Long, Point>(windowedIterativeStream.getParallelism(), getMergeTimeout(windowSize), false, Point.class))
+                .flatMap(new FlatMapFunction<Tuple3<Integer, Long, DistanceHeap<Point>>, PriorityQueue<Tuple2<Point, Double>>>() {
+                    @Override
+                    public void flatMap(Tuple3<Integer, Long, DistanceHeap<Point>> kNN, Collector<PriorityQueue<Tuple2<Point, Double>>> output) throws Exception {
 
+                        DistanceHeap<Point> kNNHeap = kNN.f2;
 
-                    @Override
-                    public void apply(TimeWindow timeWindow, Iterable<PriorityQueue<Tuple2<Point, Double>>> input, Collector<PriorityQueue<Tuple2<Point, Double>>> output) throws Exception {
-
-                       kNNPQWinAll.clear();
-
-                       // Iterate through all PriorityQueues
-                       for (PriorityQueue<Tuple2<Point, Double>> pq : input) {
-                           for(Tuple2<Point, Double> pqTuple: pq) {
-                               if (kNNPQWinAll.size() < k) {
-                                   kNNPQWinAll.offer(pqTuple);
-                               }
-                               else{
-                                   double largestDistInkNNPQ = kNNPQWinAll.peek().f1;
-                                   if(largestDistInkNNPQ > pqTuple.f1){ // remove element with the largest distance and add the new element
-                                       kNNPQWinAll.poll();
-                                       kNNPQWinAll.offer(pqTuple);
-                                   }
-                               }
-                           }
-                       }
-
-                       // Adding the windowedAll output
-                       output.collect(kNNPQWinAll);
+                        // Adding the integrated kNN output
+                        output.collect(kNNHeap.toPriorityQueue(new Comparators.inTuplePointDistanceComparator()));
 
                         // Adding the control tuple
-                        double largestDistInkNNPQ = kNNPQWinAll.peek().f1;
-                        //Point feedbackTuple = new Point(-99999, largestDistInkNNPQ, largestDistInkNNPQ, "9999999999" );
-                        Point feedbackTuple = new Point(largestDistInkNNPQ, largestDistInkNNPQ, "9999999999" );
-                        controlPQ.offer(new Tuple2<Point, Double>(feedbackTuple, -99999.99999));
-
-                        output.collect(controlPQ);
+                        if (!kNNHeap.isEmpty()) {
+                            double largestDistInkNNPQ = kNNHeap.peekDistance();
+                            //Point feedbackTuple = new Point(-99999, largestDistInkNNPQ, largestDistInkNNPQ, CONTROL_CELL_KEY );
+                            Point feedbackTuple = new Point(largestDistInkNNPQ, largestDistInkNNPQ, CONTROL_CELL_KEY );
+                            PriorityQueue<Tuple2<Point, Double>> controlPQ = new PriorityQueue<Tuple2<Point, Double>>(1, new Comparators.inTuplePointDistanceComparator());
+                            controlPQ.offer(new Tuple2<Point, Double>(feedbackTuple, -99999.99999));
+
+                            output.collect(controlPQ);
+                        }
                     }
-                   });
+                });
 
 
 
@@ -185,9 +163,20 @@ public class KNNQuery implements Serializable {
 
     //--------------- GRID-BASED kNN QUERY - POINT -----------------//
     public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid) throws IOException {
+        return SpatialKNNQuery(pointStream, queryPoint, queryRadius, k, windowSize, windowSlideStep, uGrid, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, int allowedLateness, UniformGrid uGrid) throws IOException {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryPoint, queryRadius, k, windowSize, windowSlideStep, uGrid, true);
+    }
+
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid, boolean eventTime) throws IOException {
 
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(pointStream, uGrid);
 
         DataStream<Point> filteredPoints = pointStream.filter(new FilterFunction<Point>() {
             @Override
@@ -196,218 +185,329 @@ public class KNNQuery implements Serializable {
             }
         });
 
-        DataStream<PriorityQueue<Tuple2<Point, Double>>> windowedKNN = filteredPoints.keyBy(new KeySelector<Point, String>() {
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Point>>> windowedKNN = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPoints.keyBy(new KeySelector<Point, Long>() {
             @Override
-            public String getKey(Point p) throws Exception {
-                return p.gridID;
+            public Long getKey(Point p) throws Exception {
+                return (curvePartitioner == null) ? p.gridID : curvePartitioner.getPartitionKey(p.gridID);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
-                .apply(new WindowFunction<Point, PriorityQueue<Tuple2<Point, Double>>, String, TimeWindow>() {
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new RichWindowFunction<Point, Tuple3<Integer, Long, DistanceHeap<Point>>, Long, TimeWindow>() {
 
-                    //PriorityQueue<Tuple2<Point, Double>> kNNPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new SpatialDistanceComparator(queryPoint));
-                    PriorityQueue<Tuple2<Point, Double>> kNNPQ = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.inTuplePointDistanceComparator());
+                    DistanceHeap<Point> kNNHeap = new DistanceHeap<Point>(k);
 
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<PriorityQueue<Tuple2<Point, Double>>> outputStream) throws Exception {
-                        kNNPQ.clear();
+                    public void apply(Long gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Point>>> outputStream) throws Exception {
+                        kNNHeap.clear();
 
                         for (Point p : inputTuples) {
-
-                            if (kNNPQ.size() < k) {
-                                double distance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-                                kNNPQ.offer(new Tuple2<Point, Double>(p, distance));
-                            } else {
-                                double distance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-                                //double largestDistInPQ = HelperClass.getPointPointEuclideanDistance(kNNPQ.peek().f0.point.getX(), kNNPQ.peek().f0.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-                                // PQ is maintained in descending order with the object with the largest distance from query point at the top/peek
-                                double largestDistInPQ = kNNPQ.peek().f1;
-
-                                if (largestDistInPQ > distance) { // remove element with the largest distance and add the new element
-                                    kNNPQ.poll();
-                                    kNNPQ.offer(new Tuple2<Point, Double>(p, distance));
-                                }
+                            double distance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
+                            // the heap is maintained with the object with the largest distance from query point at the top
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(p, distance);
                             }
                         }
 
-                        // Output stream
-                        outputStream.collect(kNNPQ);
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
                     }
-                }).name("Windowed (Apply) Grid Based");
+                }).name("Windowed (Apply) Grid Based"), curvePartitioner);
 
 
-        // windowAll to Generate integrated kNN -
-        DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> windowAllKNN = windowedKNN
-                .windowAll(SlidingProcessingTimeWindows.of(Time.seconds(windowSize),Time.seconds(windowSlideStep)))
-                .apply(new AllWindowFunction<PriorityQueue<Tuple2<Point, Double>>, Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>, TimeWindow>() {
+        // Merge of the per cell kNNs to Generate integrated kNN
+        return getIntegratedKNN(windowedKNN, windowSize, windowSlideStep, eventTime);
+    }
 
-                    //PriorityQueue<Tuple2<Point, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.SpatialDistanceComparator(queryPoint));
-                    PriorityQueue<Tuple2<Point, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Point, Double>>(k, new Comparators.inTuplePointDistanceComparator());
+    //--------------- GRID-BASED kNN QUERY - POINT - SALTED HOT CELLS -----------------//
+    // The points of the hot cells are spread over numSubKeys sub-keys (see HelperClass.SaltHotCells)
+    // A partial kNN is computed for each sub-key, which are then merged by the top-k merge (see getMergedKNN())
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid, int numSubKeys, long hotCellThreshold) throws IOException {
+        return SpatialKNNQuery(pointStream, queryPoint, queryRadius, k, windowSize, windowSlideStep, uGrid, numSubKeys, hotCellThreshold, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, int allowedLateness, UniformGrid uGrid, int numSubKeys, long hotCellThreshold) throws IOException {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryPoint, queryRadius, k, windowSize, windowSlideStep, uGrid, numSubKeys, hotCellThreshold, true);
+    }
+
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid, int numSubKeys, long hotCellThreshold, boolean eventTime) throws IOException {
+
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+
+        DataStream<Point> filteredPoints = pointStream.filter(new FilterFunction<Point>() {
+            @Override
+            public boolean filter(Point point) throws Exception {
+                return ((candidateNeighboringCells.contains(point.gridID)) || (guaranteedNeighboringCells.contains(point.gridID)));
+            }
+        });
+
+        // Arrival rates are tracked over the window slide step
+        DataStream<Tuple2<Point, Integer>> saltedPoints = filteredPoints.map(new HelperClass.SaltHotCells(numSubKeys, hotCellThreshold, windowSlideStep * 1000L));
+
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Point>>> windowedKNN = saltedPoints.keyBy(new KeySelector<Tuple2<Point, Integer>, Tuple2<Long, Integer>>() {
+            @Override
+            public Tuple2<Long, Integer> getKey(Tuple2<Point, Integer> saltedPoint) throws Exception {
+                return Tuple2.of(saltedPoint.f0.gridID, saltedPoint.f1);
+            }
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new RichWindowFunction<Tuple2<Point, Integer>, Tuple3<Integer, Long, DistanceHeap<Point>>, Tuple2<Long, Integer>, TimeWindow>() {
+
+                    DistanceHeap<Point> kNNHeap = new DistanceHeap<Point>(k);
 
                     @Override
-                    public void apply(TimeWindow timeWindow, Iterable<PriorityQueue<Tuple2<Point, Double>>> input, Collector<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> output) throws Exception {
-                        kNNPQWinAll.clear();
-                        // Iterate through all PriorityQueues
-                        for (PriorityQueue<Tuple2<Point, Double>> pq : input) {
-                            for(Tuple2<Point, Double> pqTuple: pq) {
-                                if (kNNPQWinAll.size() < k) {
-                                    kNNPQWinAll.offer(pqTuple);
-                                }
-                                else{
-                                    double largestDistInkNNPQ = kNNPQWinAll.peek().f1;
-                                    if(largestDistInkNNPQ > pqTuple.f1){ // remove element with the largest distance and add the new element
-                                        kNNPQWinAll.poll();
-                                        kNNPQWinAll.offer(pqTuple);
-                                    }
-                                }
+                    public void apply(Tuple2<Long, Integer> saltedGridID, TimeWindow timeWindow, Iterable<Tuple2<Point, Integer>> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Point>>> outputStream) throws Exception {
+                        kNNHeap.clear();
+
+                        for (Tuple2<Point, Integer> saltedPoint : inputTuples) {
+                            Point p = saltedPoint.f0;
+                            double distance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
+
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(p, distance);
                             }
                         }
 
-                        // Adding the windowedAll output
-                        output.collect(Tuple3.of(timeWindow.getStart(), timeWindow.getEnd(), kNNPQWinAll));
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
                     }
-                });
+                }).name("Windowed (Apply) Grid Based - Salted");
 
-        //Output kNN Stream
-        return windowAllKNN;
+        // Merge of the partial kNNs of all the cells and sub-keys to Generate integrated kNN
+        return getIntegratedKNN(windowedKNN, windowSize, windowSlideStep, eventTime);
     }
 
+    //--------------- GRID-BASED kNN QUERY - POINT - BEST-FIRST (NO QUERY RADIUS) -----------------//
+    // The kNN is selected among all the points, without a queryRadius: the points are spread over numPartitions keys, and the
+    // partial kNN of a key visits the cells of its points in increasing order of their distance to the query point, computing the
+    // point distances cell by cell until the k-th distance is smaller than the lower bound of the next cell
+    // A sparse window thus returns k points however far they are, while a dense window only computes the distances of the nearby cells
+    // The window state is the list of the window points, appended in O(1) by any state backend; the points are grouped by cell
+    // when the window fires, a single pass without distance computation
+    // Without a queryRadius no point can be discarded before its windows end, hence all the points are still shuffled and kept
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid, int numPartitions) throws IOException {
+        return SpatialKNNQuery(pointStream, queryPoint, k, windowSize, windowSlideStep, uGrid, numPartitions, false);
+    }
 
-    //--------------- GRID-BASED kNN QUERY - POINT-POLYGON -----------------//
-    //Outputs a stream of winStartTime, winEndTime and a PQ
-    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep) throws IOException {
-
-        // Generate a replicated polygon stream to know the grid IDs of each polygon
-        DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, Integer k, int windowSize, int windowSlideStep, int allowedLateness, UniformGrid uGrid, int numPartitions) throws IOException {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryPoint, k, windowSize, windowSlideStep, uGrid, numPartitions, true);
+    }
 
-        // Compute the neighboring layers cells for filtering
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, Integer k, int windowSize, int windowSlideStep, UniformGrid uGrid, int numPartitions, boolean eventTime) throws IOException {
 
-        // Filter out the polygons which lie greater than queryRadius of the query point
-        DataStream<Polygon> filteredPolygons = replicatedPolygonStream.filter(new FilterFunction<Polygon>() {
-            @Override
-            public boolean filter(Polygon poly) throws Exception {
-                return ((candidateNeighboringCells.contains(poly.gridID)) || (guaranteedNeighboringCells.contains(poly.gridID)));
-            }
-        });
+        if(numPartitions <= 0)
+        {
+            throw new IllegalArgumentException("numPartitions must be greater than 0");
+        }
 
-        DataStream<PriorityQueue<Tuple2<Polygon, Double>>> windowedKNN = filteredPolygons.keyBy(new KeySelector<Polygon, String>() {
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Point>>> windowedKNN = pointStream.keyBy(new KeySelector<Point, Integer>() {
             @Override
-            public String getKey(Polygon poly) throws Exception {
-                return poly.gridID;
+            public Integer getKey(Point p) throws Exception {
+                // the points of a cell are spread over the partitions, hence every partial kNN starts from the cells near the query point
+                return Math.floorMod(31 * Double.hashCode(p.x) + Double.hashCode(p.y), numPartitions);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
-                .apply(new WindowFunction<Polygon, PriorityQueue<Tuple2<Polygon, Double>>, String, TimeWindow>() {
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new RichWindowFunction<Point, Tuple3<Integer, Long, DistanceHeap<Point>>, Integer, TimeWindow>() {
 
-                    PriorityQueue<Tuple2<Polygon, Double>> kNNPQ = new PriorityQueue<Tuple2<Polygon, Double>>(k, new Comparators.inTuplePolygonDistanceComparator());
+                    DistanceHeap<Point> kNNHeap = new DistanceHeap<Point>(k);
 
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Polygon> inputTuples, Collector<PriorityQueue<Tuple2<Polygon, Double>>> outputStream) throws Exception {
-                        kNNPQ.clear();
+                    public void apply(Integer partition, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Point>>> outputStream) throws Exception {
+                        kNNHeap.clear();
 
-                        for (Polygon poly : inputTuples) {
+                        // Bucketing the points by cell, no distance is computed
+                        HashMap<Long, List<Point>> cellPoints = new HashMap<Long, List<Point>>();
+                        for (Point p : inputTuples) {
+                            cellPoints.computeIfAbsent(p.gridID, c -> new ArrayList<Point>()).add(p);
+                        }
 
-                            if (kNNPQ.size() < k) {
-                                double distance = HelperClass.getPointPolygonMinEuclideanDistance(queryPoint, poly);
-                                kNNPQ.offer(new Tuple2<Polygon, Double>(poly, distance));
-                            } else {
-                                double distance = HelperClass.getPointPolygonMinEuclideanDistance(queryPoint, poly);
-                                //double largestDistInPQ = HelperClass.getPointPolygonMinEuclideanDistance(queryPoint, kNNPQ.peek().f0);
-                                // PQ is maintained in descending order with the object with the largest distance from query point at the top/peek
-                                double largestDistInPQ = kNNPQ.peek().f1;
-
-                                if (largestDistInPQ > distance) { // remove element with the largest distance and add the new element
-                                    kNNPQ.poll();
-                                    kNNPQ.offer(new Tuple2<Polygon, Double>(poly, distance));
+                        // Non-empty cells sorted by their minimum distance to the query point
+                        ArrayList<Tuple2<Long, Double>> cellBounds = new ArrayList<Tuple2<Long, Double>>(cellPoints.size());
+                        for (Long cellID : cellPoints.keySet()) {
+                            cellBounds.add(Tuple2.of(cellID, uGrid.getCellMinDistance(cellID, queryPoint.x, queryPoint.y)));
+                        }
+                        cellBounds.sort(Comparator.comparingDouble(cellBound -> cellBound.f1));
+
+                        for (Tuple2<Long, Double> cellBound : cellBounds) {
+                            // the points of this cell and of the following ones are not closer than the current k-th neighbor
+                            if (cellBound.f1 >= kNNHeap.threshold()) {
+                                break;
+                            }
+                            for (Point p : cellPoints.get(cellBound.f0)) {
+                                double distance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
+                                if (distance < kNNHeap.threshold()) {
+                                    kNNHeap.offer(p, distance);
                                 }
                             }
                         }
 
-                        // Output stream
-                        outputStream.collect(kNNPQ);
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
                     }
-                }).name("Windowed (Apply) Grid Based");
+                }).name("Windowed (Apply) Best-First");
+
+        // Merge of the partial kNNs of all the partitions to Generate integrated kNN
+        return getIntegratedKNN(windowedKNN, windowSize, windowSlideStep, eventTime);
+    }
 
+    //--------------- GRID-BASED kNN QUERY - POINT - DYNAMIC QUERIES -----------------//
+    // Evaluates the kNN queries (k > 0) added, updated and removed at runtime by queryUpdates, see QueryBroadcastFunction
+    // Outputs the queryID, winStartTime, winEndTime and the kNN of each query, selected among the points within its queryRadius
+    // The points are keyed by query and k, an updated k starts new windows while the windows of the previous k expire
+    public static DataStream<Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int windowSlideStep, UniformGrid uGrid) {
+        return SpatialKNNQuery(pointStream, queryUpdates, windowSize, windowSlideStep, uGrid, false);
+    }
 
-        // windowAll to Generate integrated kNN -
-        DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> windowAllKNN = windowedKNN
-                .windowAll(SlidingProcessingTimeWindows.of(Time.seconds(windowSize),Time.seconds(windowSlideStep)))
-                .apply(new AllWindowFunction<PriorityQueue<Tuple2<Polygon, Double>>, Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>, TimeWindow>() {
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int windowSlideStep, int allowedLateness, UniformGrid uGrid) {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryUpdates, windowSize, windowSlideStep, uGrid, true);
+    }
 
-                    PriorityQueue<Tuple2<Polygon, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Polygon, Double>>(k, new Comparators.inTuplePolygonDistanceComparator());
-                    Set<Long> objIDs = new HashSet<Long>();
+    private static DataStream<Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>> SpatialKNNQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int windowSlideStep, UniformGrid uGrid, boolean eventTime) {
 
+        DataStream<Tuple4<String, Integer, Point, Double>> queryNeighbors = pointStream.connect(QueryBroadcastFunction.broadcast(queryUpdates, eventTime))
+                .process(new QueryBroadcastFunction<Point, Tuple4<String, Integer, Point, Double>>(uGrid, true) {
                     @Override
-                    public void apply(TimeWindow timeWindow, Iterable<PriorityQueue<Tuple2<Polygon, Double>>> input, Collector<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> output) throws Exception {
-                        kNNPQWinAll.clear();
-                        objIDs.clear();
-                        // Iterate through all PriorityQueues
-                        for (PriorityQueue<Tuple2<Polygon, Double>> pq : input) {
-                            for(Tuple2<Polygon, Double> candidPQTuple: pq) {
-                                // If there are less than required (k) number of tuples in kNNPQWinAll
-                                if (kNNPQWinAll.size() < k) {
-                                        // Add an object if it is not already there
-                                    if(!objIDs.contains(candidPQTuple.f0.objID)) {
-                                        kNNPQWinAll.offer(candidPQTuple);
-                                        objIDs.add(candidPQTuple.f0.objID);
-                                    }else{
-                                        // (To avoid duplicate addition of an object in kNN) Object is already in PQ, check the existing object's distance compared to current object
-                                        for (Tuple2<Polygon, Double> existingPQTuple : kNNPQWinAll){
-                                            if(existingPQTuple.f0.objID == candidPQTuple.f0.objID && existingPQTuple.f1 > candidPQTuple.f1){
-                                                kNNPQWinAll.remove(existingPQTuple);
-                                                kNNPQWinAll.offer(candidPQTuple);
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-                                // If there are already required (k) number of tuples in kNNPQWinAll
-                                else{
-                                    double largestDistInkNNPQ = kNNPQWinAll.peek().f1;
-                                    if (largestDistInkNNPQ > candidPQTuple.f1) {
-                                        // Add an object if it is not already there
-                                        if(!objIDs.contains(candidPQTuple.f0.objID)) {
-                                            // remove element with the largest distance and add the new element
-                                            kNNPQWinAll.poll();
-                                            objIDs.remove(kNNPQWinAll.peek().f0.objID);
-
-                                            kNNPQWinAll.offer(candidPQTuple);
-                                            objIDs.add(candidPQTuple.f0.objID);
-                                        }
-                                        else {
-                                            // (To avoid duplicate addition of an object in kNN) Object is already in PQ, check the existing object's distance compared to current object
-                                            for (Tuple2<Polygon, Double> existingPQTuple : kNNPQWinAll) {
-                                                if (existingPQTuple.f0.objID == candidPQTuple.f0.objID && existingPQTuple.f1 > candidPQTuple.f1) {
-                                                    kNNPQWinAll.remove(existingPQTuple);
-                                                    kNNPQWinAll.offer(candidPQTuple);
-                                                    break;
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
+                    public void processElement(Point point, RangeQueryIndex queryIndex, Collector<Tuple4<String, Integer, Point, Double>> out) throws Exception {
+                        queryIndex.collectNeighbors(point, out);
+                    }
+                }).name("Dynamic Query Index Matching");
+
+        return queryNeighbors.keyBy(new KeySelector<Tuple4<String, Integer, Point, Double>, Tuple2<String, Integer>>() {
+            @Override
+            public Tuple2<String, Integer> getKey(Tuple4<String, Integer, Point, Double> neighbor) throws Exception {
+                return Tuple2.of(neighbor.f0, neighbor.f1);
+            }
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new WindowFunction<Tuple4<String, Integer, Point, Double>, Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>, Tuple2<String, Integer>, TimeWindow>() {
+                    @Override
+                    public void apply(Tuple2<String, Integer> queryKey, TimeWindow timeWindow, Iterable<Tuple4<String, Integer, Point, Double>> inputTuples, Collector<Tuple4<String, Long, Long, PriorityQueue<Tuple2<Point, Double>>>> outputStream) throws Exception {
+
+                        int k = queryKey.f1;
+                        // k differs between the keys, hence a heap is created per window
+                        DistanceHeap<Point> kNNHeap = new DistanceHeap<Point>(k);
+
+                        for (Tuple4<String, Integer, Point, Double> neighbor : inputTuples) {
+                            double distance = neighbor.f3;
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(neighbor.f2, distance);
                             }
                         }
 
-                        // Adding the windowedAll output
-                        output.collect(Tuple3.of(timeWindow.getStart(), timeWindow.getEnd(), kNNPQWinAll));
+                        outputStream.collect(Tuple4.of(queryKey.f0, timeWindow.getStart(), timeWindow.getEnd(), kNNHeap.toPriorityQueue(new Comparators.inTuplePointDistanceComparator())));
                     }
-                });
+                }).name("Windowed (Apply) Dynamic Queries");
+    }
+
+    //--------------- kNN MERGE -----------------//
+    // Merges the per cell kNNs of each window into the integrated kNN, replacing the windowAll merge (see KNNMergeFunction)
+    // The heaps are first combined per producing subtask by an operator chained to the windows (see KNNCombineOperator), then
+    // merged per window: no operator runs at parallelism 1, and the merge of a window receives one heap of at most k objects per
+    // subtask instead of one per cell
+    // In processing time the merge of a window waits for the heap of every combine subtask, i.e. for the parallelism of the windows
+    private static <T> DataStream<Tuple3<Integer, Long, DistanceHeap<T>>> getMergedKNN(DataStream<Tuple3<Integer, Long, DistanceHeap<T>>> windowedKNN, KNNCombineOperator<T> subtaskCombine, KNNMergeFunction<Long, T> windowMerge) {
+
+        TypeInformation<Tuple3<Integer, Long, DistanceHeap<T>>> kNNTypeInfo = windowedKNN.getType();
+
+        // same parallelism as the windows, hence chained to them
+        return windowedKNN.transform("kNN Combine per Subtask", kNNTypeInfo, subtaskCombine).setParallelism(windowedKNN.getParallelism())
+                .keyBy(new KeySelector<Tuple3<Integer, Long, DistanceHeap<T>>, Long>() {
+                    @Override
+                    public Long getKey(Tuple3<Integer, Long, DistanceHeap<T>> partialKNN) throws Exception {
+                        return partialKNN.f1;
+                    }
+                }).process(windowMerge).returns(kNNTypeInfo).name("kNN Merge per Window");
+    }
 
-        //Output kNN Stream
-        return windowAllKNN;
+    // Fallback of the processing time merge, a window missing the heap of a stalled subtask is output (and logged) one window size
+    // after its end
+    private static long getMergeTimeout(int windowSize) {
+        return windowSize * 1000L;
     }
 
+    // Outputs the winStartTime, winEndTime and the integrated kNN of each window
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> getIntegratedKNN(DataStream<Tuple3<Integer, Long, DistanceHeap<Point>>> windowedKNN, int windowSize, int windowSlideStep, boolean eventTime) {
 
-    //--------------- GRID-BASED kNN QUERY - POLYGON-POLYGON -----------------//
-    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep) throws IOException {
+        return getMergedKNN(windowedKNN, new KNNCombineOperator<Point>(windowSize * 1000L, windowSlideStep * 1000L, eventTime, Point.class),
+                new KNNMergeFunction<Long, Point>(windowedKNN.getParallelism(), getMergeTimeout(windowSize), eventTime, Point.class))
+                .map(new MapFunction<Tuple3<Integer, Long, DistanceHeap<Point>>, Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>>() {
+                    @Override
+                    public Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>> map(Tuple3<Integer, Long, DistanceHeap<Point>> kNN) throws Exception {
+                        // the tuples of the output PQ are only created for the integrated kNN
+                        return Tuple3.of(kNN.f1 - windowSize * 1000L, kNN.f1, kNN.f2.toPriorityQueue(new Comparators.inTuplePointDistanceComparator()));
+                    }
+                }).name("Integrated kNN");
+    }
+
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> getIntegratedPolygonKNN(DataStream<Tuple3<Integer, Long, DistanceHeap<Polygon>>> windowedKNN, int windowSize, int windowSlideStep, boolean eventTime) {
+
+        return getMergedKNN(windowedKNN, new KNNCombineOperator<Polygon>(windowSize * 1000L, windowSlideStep * 1000L, eventTime, Polygon.class) {
+                    @Override
+                    public void merge(DistanceHeap<Polygon> merged, DistanceHeap<Polygon> heap) {
+                        offerDistinctPolygons(merged, heap);
+                    }
+                }, new KNNMergeFunction<Long, Polygon>(windowedKNN.getParallelism(), getMergeTimeout(windowSize), eventTime, Polygon.class) {
+                    @Override
+                    public void merge(DistanceHeap<Polygon> merged, DistanceHeap<Polygon> heap) {
+                        offerDistinctPolygons(merged, heap);
+                    }
+                })
+                .map(new MapFunction<Tuple3<Integer, Long, DistanceHeap<Polygon>>, Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>>() {
+                    @Override
+                    public Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>> map(Tuple3<Integer, Long, DistanceHeap<Polygon>> kNN) throws Exception {
+                        return Tuple3.of(kNN.f1 - windowSize * 1000L, kNN.f1, kNN.f2.toPriorityQueue(new Comparators.inTuplePolygonDistanceComparator()));
+                    }
+                }).name("Integrated kNN");
+    }
+
+    // Offers the polygons of heap to merged; the replicas of a polygon have the same distance, hence the polygons already in merged
+    // are skipped (to avoid duplicate addition of an object in kNN)
+    private static void offerDistinctPolygons(DistanceHeap<Polygon> merged, DistanceHeap<Polygon> heap) {
+
+        Set<Long> objIDs = new HashSet<Long>();
+        for (int i = 0; i < merged.size(); i++) {
+            objIDs.add(merged.get(i).objID);
+        }
+
+        for (int i = 0; i < heap.size(); i++) {
+            offerDistinctPolygon(merged, objIDs, heap.get(i), heap.getDistance(i));
+        }
+    }
+
+    // Offers poly to heap unless a replica of it is already there; objIDs holds the objIDs of the polygons of heap
+    private static void offerDistinctPolygon(DistanceHeap<Polygon> heap, Set<Long> objIDs, Polygon poly, double distance) {
+        if (distance >= heap.threshold() || objIDs.contains(poly.objID)) {
+            return;
+        }
+        if (heap.isFull()) { // the element with the largest distance is removed
+            objIDs.remove(heap.peek().objID);
+        }
+        heap.offer(poly, distance);
+        objIDs.add(poly.objID);
+    }
+
+
+    //--------------- GRID-BASED kNN QUERY - POINT-POLYGON -----------------//
+    //Outputs a stream of winStartTime, winEndTime and a PQ
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep) throws IOException {
+        return SpatialKNNQuery(polygonStream, queryPoint, queryRadius, k, uGrid, windowSize, windowSlideStep, false);
+    }
+
+    // Event time windows, watermarks trailing the polygon timestamps by allowedLateness seconds
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep, int allowedLateness) throws IOException {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), queryPoint, queryRadius, k, uGrid, windowSize, windowSlideStep, true);
+    }
+
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep, boolean eventTime) throws IOException {
 
         // Generate a replicated polygon stream to know the grid IDs of each polygon
         DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
 
         // Compute the neighboring layers cells for filtering
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPolygon);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPolygon, guaranteedNeighboringCells);
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(polygonStream, uGrid);
 
         // Filter out the polygons which lie greater than queryRadius of the query point
         DataStream<Polygon> filteredPolygons = replicatedPolygonStream.filter(new FilterFunction<Polygon>() {
@@ -417,113 +517,112 @@ public class KNNQuery implements Serializable {
             }
         });
 
-        DataStream<PriorityQueue<Tuple2<Polygon, Double>>> windowedKNN = filteredPolygons.keyBy(new KeySelector<Polygon, String>() {
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Polygon>>> windowedKNN = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPolygons.keyBy(new KeySelector<Polygon, Long>() {
             @Override
-            public String getKey(Polygon poly) throws Exception {
-                return poly.gridID;
+            public Long getKey(Polygon poly) throws Exception {
+                return (curvePartitioner == null) ? poly.gridID : curvePartitioner.getPartitionKey(poly.gridID);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
-                .apply(new WindowFunction<Polygon, PriorityQueue<Tuple2<Polygon, Double>>, String, TimeWindow>() {
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new RichWindowFunction<Polygon, Tuple3<Integer, Long, DistanceHeap<Polygon>>, Long, TimeWindow>() {
 
-                    PriorityQueue<Tuple2<Polygon, Double>> kNNPQ = new PriorityQueue<Tuple2<Polygon, Double>>(k, new Comparators.inTuplePolygonDistanceComparator());
+                    DistanceHeap<Polygon> kNNHeap = new DistanceHeap<Polygon>(k);
+                    // objIDs of the polygons in kNNHeap, the replicas of a polygon share a key if the cells are keyed by curve range
+                    Set<Long> kNNObjIDs = new HashSet<Long>();
 
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Polygon> inputTuples, Collector<PriorityQueue<Tuple2<Polygon, Double>>> outputStream) throws Exception {
-                        kNNPQ.clear();
+                    public void apply(Long gridID, TimeWindow timeWindow, Iterable<Polygon> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Polygon>>> outputStream) throws Exception {
+                        kNNHeap.clear();
+                        kNNObjIDs.clear();
 
                         for (Polygon poly : inputTuples) {
-
-                            if (kNNPQ.size() < k) {
-                                double distance = HelperClass.getPolygonPolygonMinEuclideanDistance(queryPolygon, poly);
-                                kNNPQ.offer(new Tuple2<Polygon, Double>(poly, distance));
-                            } else {
-                                double distance = HelperClass.getPolygonPolygonMinEuclideanDistance(queryPolygon, poly);
-                                //double largestDistInPQ = HelperClass.getPointPolygonMinEuclideanDistance(queryPoint, kNNPQ.peek().f0);
-                                // PQ is maintained in descending order with the object with the largest distance from query point at the top/peek
-                                double largestDistInPQ = kNNPQ.peek().f1;
-
-                                if (largestDistInPQ > distance) { // remove element with the largest distance and add the new element
-                                    kNNPQ.poll();
-                                    kNNPQ.offer(new Tuple2<Polygon, Double>(poly, distance));
-                                }
+                            // the replicas of the polygons already in the heap are skipped without distance computation
+                            if (kNNObjIDs.contains(poly.objID)) {
+                                continue;
                             }
+                            // the heap is maintained with the object with the largest distance from query at the top
+                            double largestDistInHeap = kNNHeap.threshold();
+                            // the exact distance is only computed if the bounding box distance does not exceed largestDistInHeap
+                            double distance = HelperClass.getPointPolygonEuclideanDistance(queryPoint, poly, largestDistInHeap);
+                            offerDistinctPolygon(kNNHeap, kNNObjIDs, poly, distance);
                         }
 
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
+                    }
+                }).name("Windowed (Apply) Grid Based"), curvePartitioner);
 
 
-                        // Output stream
-                        outputStream.collect(kNNPQ);
-                    }
-                }).name("Windowed (Apply) Grid Based");
+        // Merge of the per cell kNNs to Generate integrated kNN
+        return getIntegratedPolygonKNN(windowedKNN, windowSize, windowSlideStep, eventTime);
+    }
+
+
+    //--------------- GRID-BASED kNN QUERY - POLYGON-POLYGON -----------------//
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep) throws IOException {
+        return SpatialKNNQuery(polygonStream, queryPolygon, queryRadius, k, uGrid, windowSize, windowSlideStep, false);
+    }
+
+    // Event time windows, watermarks trailing the polygon timestamps by allowedLateness seconds
+    public static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep, int allowedLateness) throws IOException {
+        return SpatialKNNQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), queryPolygon, queryRadius, k, uGrid, windowSize, windowSlideStep, true);
+    }
+
+    private static DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> SpatialKNNQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, Integer k, UniformGrid uGrid, int windowSize, int windowSlideStep, boolean eventTime) throws IOException {
+
+        // Generate a replicated polygon stream to know the grid IDs of each polygon
+        DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
+
+        // Compute the neighboring layers cells for filtering
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPolygon);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPolygon, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(polygonStream, uGrid);
 
+        // Filter out the polygons which lie greater than queryRadius of the query point
+        DataStream<Polygon> filteredPolygons = replicatedPolygonStream.filter(new FilterFunction<Polygon>() {
+            @Override
+            public boolean filter(Polygon poly) throws Exception {
+                return ((candidateNeighboringCells.contains(poly.gridID)) || (guaranteedNeighboringCells.contains(poly.gridID)));
+            }
+        });
 
-        // windowAll to Generate integrated kNN -
-        DataStream<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> windowAllKNN = windowedKNN
-                .windowAll(SlidingProcessingTimeWindows.of(Time.seconds(windowSize),Time.seconds(windowSlideStep)))
-                .apply(new AllWindowFunction<PriorityQueue<Tuple2<Polygon, Double>>, Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>, TimeWindow>() {
+        DataStream<Tuple3<Integer, Long, DistanceHeap<Polygon>>> windowedKNN = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPolygons.keyBy(new KeySelector<Polygon, Long>() {
+            @Override
+            public Long getKey(Polygon poly) throws Exception {
+                return (curvePartitioner == null) ? poly.gridID : curvePartitioner.getPartitionKey(poly.gridID);
+            }
+        }).window(HelperClass.getSlidingWindows(windowSize, windowSlideStep, eventTime))
+                .apply(new RichWindowFunction<Polygon, Tuple3<Integer, Long, DistanceHeap<Polygon>>, Long, TimeWindow>() {
 
-                    PriorityQueue<Tuple2<Polygon, Double>> kNNPQWinAll = new PriorityQueue<Tuple2<Polygon, Double>>(k, new Comparators.inTuplePolygonDistanceComparator());
-                    Set<Long> objIDs = new HashSet<Long>();
+                    DistanceHeap<Polygon> kNNHeap = new DistanceHeap<Polygon>(k);
+                    // objIDs of the polygons in kNNHeap, the replicas of a polygon share a key if the cells are keyed by curve range
+                    Set<Long> kNNObjIDs = new HashSet<Long>();
 
                     @Override
-                    public void apply(TimeWindow timeWindow, Iterable<PriorityQueue<Tuple2<Polygon, Double>>> input, Collector<Tuple3<Long, Long, PriorityQueue<Tuple2<Polygon, Double>>>> output) throws Exception {
-                        kNNPQWinAll.clear();
-                        objIDs.clear();
-                        // Iterate through all PriorityQueues
-                        for (PriorityQueue<Tuple2<Polygon, Double>> pq : input) {
-                            for(Tuple2<Polygon, Double> candidPQTuple: pq) {
-                                // If there are less than required (k) number of tuples in kNNPQWinAll
-                                if (kNNPQWinAll.size() < k) {
-                                    // Add an object if it is not already there
-                                    if(!objIDs.contains(candidPQTuple.f0.objID)) {
-                                        kNNPQWinAll.offer(candidPQTuple);
-                                        objIDs.add(candidPQTuple.f0.objID);
-                                    }else{
-                                        // (To avoid duplicate addition of an object in kNN) Object is already in PQ, check the existing object's distance compared to current object
-                                        for (Tuple2<Polygon, Double> existingPQTuple : kNNPQWinAll){
-                                            if(existingPQTuple.f0.objID == candidPQTuple.f0.objID && existingPQTuple.f1 > candidPQTuple.f1){
-                                                kNNPQWinAll.remove(existingPQTuple);
-                                                kNNPQWinAll.offer(candidPQTuple);
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-                                // If there are already required (k) number of tuples in kNNPQWinAll
-                                else{
-                                    double largestDistInkNNPQ = kNNPQWinAll.peek().f1;
-                                    if (largestDistInkNNPQ > candidPQTuple.f1) {
-                                        // Add an object if it is not already there
-                                        if(!objIDs.contains(candidPQTuple.f0.objID)) {
-                                            // remove element with the largest distance and add the new element
-                                            kNNPQWinAll.poll();
-                                            objIDs.remove(kNNPQWinAll.peek().f0.objID);
-
-                                            kNNPQWinAll.offer(candidPQTuple);
-                                            objIDs.add(candidPQTuple.f0.objID);
-                                        }
-                                        else {
-                                            // (To avoid duplicate addition of an object in kNN) Object is already in PQ, check the existing object's distance compared to current object
-                                            for (Tuple2<Polygon, Double> existingPQTuple : kNNPQWinAll) {
-                                                if (existingPQTuple.f0.objID == candidPQTuple.f0.objID && existingPQTuple.f1 > candidPQTuple.f1) {
-                                                    kNNPQWinAll.remove(existingPQTuple);
-                                                    kNNPQWinAll.offer(candidPQTuple);
-                                                    break;
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
+                    public void apply(Long gridID, TimeWindow timeWindow, Iterable<Polygon> inputTuples, Collector<Tuple3<Integer, Long, DistanceHeap<Polygon>>> outputStream) throws Exception {
+                        kNNHeap.clear();
+                        kNNObjIDs.clear();
+
+                        for (Polygon poly : inputTuples) {
+                            // the replicas of the polygons already in the heap are skipped without distance computation
+                            if (kNNObjIDs.contains(poly.objID)) {
+                                continue;
                             }
+                            // the heap is maintained with the object with the largest distance from query at the top
+                            double largestDistInHeap = kNNHeap.threshold();
+                            // the exact distance is only computed if the bounding box distance does not exceed largestDistInHeap
+                            double distance = HelperClass.getPolygonPolygonEuclideanDistance(queryPolygon, poly, largestDistInHeap);
+                            offerDistinctPolygon(kNNHeap, kNNObjIDs, poly, distance);
                         }
 
-                        // Adding the windowedAll output
-                        output.collect(Tuple3.of(timeWindow.getStart(), timeWindow.getEnd(), kNNPQWinAll));
+                        // Output stream, the heap is tagged with the subtask and the window end for the merge
+                        outputStream.collect(Tuple3.of(getRuntimeContext().getIndexOfThisSubtask(), timeWindow.getEnd(), kNNHeap));
                     }
-                });
+                }).name("Windowed (Apply) Grid Based"), curvePartitioner);
+
 
-        //Output kNN Stream
-        return windowAllKNN;
+        // Merge of the per cell kNNs to Generate integrated kNN
+        return getIntegratedPolygonKNN(windowedKNN, windowSize, windowSlideStep, eventTime);
     }
 
 
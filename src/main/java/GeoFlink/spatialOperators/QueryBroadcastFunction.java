@@ -0,0 +1,125 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialOperators;
+
+import GeoFlink.spatialIndices.RangeQueryIndex;
+import GeoFlink.spatialIndices.UniformGrid;
+import org.apache.flink.api.common.state.BroadcastState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ReadOnlyBroadcastState;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.streaming.api.datastream.BroadcastStream;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.functions.AssignerWithPeriodicWatermarks;
+import org.apache.flink.streaming.api.functions.co.BroadcastProcessFunction;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.util.Collector;
+
+import java.util.Map;
+
+/*
+Evaluation of continuous queries added, updated and removed at runtime by a broadcast stream of QueryUpdate control messages
+The queries are kept in the broadcast state (checkpointed, identical in all the parallel instances) and in a local RangeQueryIndex
+An update only recomputes the guaranteed and candidate cells of its own query, the other queries and the operator state are kept
+The index is not part of the state, it is rebuilt from the broadcast state by the first element after a restore
+The control stream can be any DataStream<QueryUpdate>: a Kafka topic (see SpatialStream.QueryUpdateStream) or a local source
+The updates are applied on arrival, also in event time, where the control stream does not hold back the watermark (see broadcast())
+*/
+public abstract class QueryBroadcastFunction<T, OUT> extends BroadcastProcessFunction<T, QueryUpdate, OUT> {
+
+    public static final MapStateDescriptor<String, QueryUpdate> queriesDescriptor = new MapStateDescriptor<String, QueryUpdate>(
+            "queriesDescriptor", // state name
+            BasicTypeInfo.STRING_TYPE_INFO, TypeInformation.of(QueryUpdate.class));
+
+    private final UniformGrid uGrid;
+    private final boolean kNNQueries; // true: registers the kNN queries (k > 0), false: the range queries (k = 0)
+    private transient RangeQueryIndex queryIndex;
+
+    //ctor
+    public QueryBroadcastFunction(UniformGrid uGrid, boolean kNNQueries) {
+        this.uGrid = uGrid;
+        this.kNNQueries = kNNQueries;
+    }
+
+    // Broadcasts the control stream; in event time, its watermark is kept at Long.MAX_VALUE, hence the watermark of the connected
+    // operator is the one of the element stream, and an idle control stream does not stop the windows
+    public static BroadcastStream<QueryUpdate> broadcast(DataStream<QueryUpdate> queryUpdates, boolean eventTime) {
+        if (!eventTime) {
+            return queryUpdates.broadcast(queriesDescriptor);
+        }
+        return queryUpdates.assignTimestampsAndWatermarks(new AssignerWithPeriodicWatermarks<QueryUpdate>() {
+            @Override
+            public long extractTimestamp(QueryUpdate update, long previousElementTimestamp) {
+                return previousElementTimestamp;
+            }
+
+            @Override
+            public Watermark getCurrentWatermark() {
+                return new Watermark(Long.MAX_VALUE);
+            }
+        }).broadcast(queriesDescriptor);
+    }
+
+    // Evaluates the element against the registered queries
+    public abstract void processElement(T value, RangeQueryIndex queryIndex, Collector<OUT> out) throws Exception;
+
+    @Override
+    public void processElement(T value, ReadOnlyContext ctx, Collector<OUT> out) throws Exception {
+        processElement(value, getQueryIndex(ctx.getBroadcastState(queriesDescriptor)), out);
+    }
+
+    @Override
+    public void processBroadcastElement(QueryUpdate update, Context ctx, Collector<OUT> out) throws Exception {
+
+        BroadcastState<String, QueryUpdate> queries = ctx.getBroadcastState(queriesDescriptor);
+        RangeQueryIndex index = getQueryIndex(queries);
+
+        // An update may also change the query type, the previous definition is always removed
+        queries.remove(update.queryID);
+        index.removeQuery(update.queryID);
+
+        if (update.isRemove() || update.isKNNQuery() != kNNQueries) {
+            return;
+        }
+        if (update.queryPoint == null && update.queryPolygon == null) {
+            System.out.println("Query " + update.queryID + " has no query point or polygon, ignored");
+            return;
+        }
+        queries.put(update.queryID, update);
+        register(index, update);
+    }
+
+    private RangeQueryIndex getQueryIndex(ReadOnlyBroadcastState<String, QueryUpdate> queries) throws Exception {
+        if (queryIndex == null) {
+            queryIndex = new RangeQueryIndex(uGrid);
+            for (Map.Entry<String, QueryUpdate> query : queries.immutableEntries()) {
+                register(queryIndex, query.getValue());
+            }
+        }
+        return queryIndex;
+    }
+
+    private static void register(RangeQueryIndex index, QueryUpdate update) {
+        if (update.queryPoint != null) {
+            index.addQuery(update.queryID, update.queryPoint, update.queryRadius, update.k);
+        }
+        else {
+            index.addQuery(update.queryID, update.queryPolygon, update.queryRadius, update.k);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialOperators;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.utils.SpatialTextWriter;
+
+import java.io.Serializable;
+
+/*
+Control message adding, updating or removing a continuous query at runtime, see QueryBroadcastFunction
+An ADD message replaces the query with the same ID, if any; a REMOVE message only needs the query ID
+k > 0 denotes a kNN query (evaluated by the kNN operators), k = 0 a range query (evaluated by the range operators)
+*/
+public class QueryUpdate implements Serializable {
+
+    public static final String ADD = "ADD";
+    public static final String REMOVE = "REMOVE";
+
+    public String operation;
+    public String queryID;
+    public Point queryPoint; // null for a polygon query
+    public Polygon queryPolygon; // null for a point query
+    public double queryRadius;
+    public int k;
+
+    //ctor
+    public QueryUpdate() {}; // required for POJO
+
+    public QueryUpdate(String operation, String queryID, Point queryPoint, Polygon queryPolygon, double queryRadius, int k) {
+        this.operation = operation;
+        this.queryID = queryID;
+        this.queryPoint = queryPoint;
+        this.queryPolygon = queryPolygon;
+        this.queryRadius = queryRadius;
+        this.k = k;
+    }
+
+    public static QueryUpdate addRangeQuery(String queryID, Point queryPoint, double queryRadius) {
+        return new QueryUpdate(ADD, queryID, queryPoint, null, queryRadius, 0);
+    }
+
+    public static QueryUpdate addRangeQuery(String queryID, Polygon queryPolygon, double queryRadius) {
+        return new QueryUpdate(ADD, queryID, null, queryPolygon, queryRadius, 0);
+    }
+
+    public static QueryUpdate addKNNQuery(String queryID, Point queryPoint, double queryRadius, int k) {
+        return new QueryUpdate(ADD, queryID, queryPoint, null, queryRadius, k);
+    }
+
+    public static QueryUpdate addKNNQuery(String queryID, Polygon queryPolygon, double queryRadius, int k) {
+        return new QueryUpdate(ADD, queryID, null, queryPolygon, queryRadius, k);
+    }
+
+    public static QueryUpdate removeQuery(String queryID) {
+        return new QueryUpdate(REMOVE, queryID, null, null, 0, 0);
+    }
+
+    public boolean isRemove() {
+        return REMOVE.equals(operation);
+    }
+
+    public boolean isKNNQuery() {
+        return k > 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isRemove()) {
+            return REMOVE + " " + queryID;
+        }
+        SpatialTextWriter writer = new SpatialTextWriter().append(operation).append(' ').append(queryID).append(", ");
+        if (queryPoint != null) {
+            writer.appendWKT(queryPoint);
+        }
+        else {
+            writer.appendWKT(queryPolygon);
+        }
+        return writer.append(", radius: ").append(queryRadius).append(", k: ").append(k).toString();
+    }
+}
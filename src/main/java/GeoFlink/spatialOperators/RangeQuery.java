@@ -16,20 +16,22 @@ limitations under the License.
 
 package GeoFlink.spatialOperators;
 
+import GeoFlink.spatialIndices.RangeQueryIndex;
+import GeoFlink.spatialIndices.SpaceFillingCurvePartitioner;
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.spatialObjects.Point;
 import GeoFlink.spatialObjects.Polygon;
 import GeoFlink.utils.HelperClass;
 import org.apache.flink.api.common.functions.*;
+import org.apache.flink.api.common.typeinfo.TypeHint;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.functions.windowing.AllWindowFunction;
-import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
-import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
-import org.apache.flink.streaming.api.windowing.time.Time;
-import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.util.Collector;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.apache.flink.configuration.Configuration;
 
 import java.io.Serializable;
@@ -42,9 +44,20 @@ public class RangeQuery implements Serializable {
 
     //--------------- GRID-BASED RANGE QUERY - POINT -----------------//
     public static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid){
+        return SpatialRangeQuery(pointStream, queryPoint, queryRadius, windowSize, slideStep, uGrid, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, int allowedLateness, UniformGrid uGrid){
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryPoint, queryRadius, windowSize, slideStep, uGrid, true);
+    }
 
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+    private static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid, boolean eventTime){
+
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(pointStream, uGrid);
 
         DataStream<Point> filteredPoints = pointStream.filter(new FilterFunction<Point>() {
             @Override
@@ -53,26 +66,21 @@ public class RangeQuery implements Serializable {
             }
         });
 
-        DataStream<Point> rangeQueryNeighbours = filteredPoints.keyBy(new KeySelector<Point, String>() {
+        DataStream<Point> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPoints.keyBy(new KeySelector<Point, Long>() {
             @Override
-            public String getKey(Point p) throws Exception {
-                return p.gridID;
+            public Long getKey(Point p) throws Exception {
+                return (curvePartitioner == null) ? p.gridID : curvePartitioner.getPartitionKey(p.gridID);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new WindowFunction<Point, Point, String, TimeWindow>() {
+        }).process(new SlidingPaneFunction<Long, Point>(windowSize * 1000L, slideStep * 1000L, Point.class, eventTime) {
+                    // Each point is evaluated once, in the pane of its arrival
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Point> pointIterator, Collector<Point> neighbors) throws Exception {
-                        for (Point point : pointIterator) {
-                            if (guaranteedNeighboringCells.contains(point.gridID))
-                                neighbors.collect(point);
-                            else {
-                                Double distance = HelperClass.getPointPointEuclideanDistance(queryPoint.point.getX(), queryPoint.point.getY(), point.point.getX(),point.point.getY());
-                                if (distance <= queryRadius)
-                                { neighbors.collect(point);}
-                            }
-                        }
+                    public boolean filter(Point point) throws Exception {
+                        if (guaranteedNeighboringCells.contains(point.gridID))
+                            return true;
+                        double distance = HelperClass.getPointPointEuclideanDistance(queryPoint.x, queryPoint.y, point.x,point.y);
+                        return distance <= queryRadius;
                     }
-                }).name("Windowed (Apply) Grid Based");
+                }).name("Sliding Panes Grid Based"), curvePartitioner);
 
 //        DataStream<Point> aggregatedNeighbours = rangeQueryNeighbours.windowAll(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
 //                .apply(new AllWindowFunction<Point, Point, TimeWindow>() {
@@ -86,11 +94,157 @@ public class RangeQuery implements Serializable {
         return rangeQueryNeighbours;
     }
 
+    //--------------- GRID-BASED MULTI-QUERY RANGE QUERY - POINT -----------------//
+    // Evaluates all the queries registered in queryIndex, outputs a (queryID, point) tuple for each query satisfied by a point
+    // A point is only evaluated against the queries registered in its grid cell
+    public static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, RangeQueryIndex queryIndex, int windowSize, int slideStep){
+        return SpatialRangeQuery(pointStream, queryIndex, windowSize, slideStep, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, RangeQueryIndex queryIndex, int windowSize, int slideStep, int allowedLateness){
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryIndex, windowSize, slideStep, true);
+    }
+
+    private static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, RangeQueryIndex queryIndex, int windowSize, int slideStep, boolean eventTime){
+
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(pointStream, queryIndex.getGrid());
+
+        DataStream<Tuple2<String, Point>> matchedPoints = pointStream.flatMap(new FlatMapFunction<Point, Tuple2<String, Point>>() {
+            @Override
+            public void flatMap(Point point, Collector<Tuple2<String, Point>> out) throws Exception {
+                queryIndex.collectMatches(point, out);
+            }
+        }).name("Query Index Matching");
+
+        DataStream<Tuple2<String, Point>> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(matchedPoints.keyBy(new KeySelector<Tuple2<String, Point>, Long>() {
+            @Override
+            public Long getKey(Tuple2<String, Point> match) throws Exception {
+                return (curvePartitioner == null) ? match.f1.gridID : curvePartitioner.getPartitionKey(match.f1.gridID);
+            }
+        }).process(new SlidingPaneFunction<Long, Tuple2<String, Point>>(windowSize * 1000L, slideStep * 1000L, TypeInformation.of(new TypeHint<Tuple2<String, Point>>() {}), eventTime) {
+                    // The matches are evaluated by the query index
+                    @Override
+                    public boolean filter(Tuple2<String, Point> match) throws Exception {
+                        return true;
+                    }
+                }).name("Sliding Panes Multi-Query"), curvePartitioner);
+
+        return rangeQueryNeighbours;
+    }
+
+    //--------------- GRID-BASED RANGE QUERY - POINT - DYNAMIC QUERIES -----------------//
+    // Evaluates the range queries (k = 0) added, updated and removed at runtime by queryUpdates, see QueryBroadcastFunction
+    // Outputs a (queryID, point) tuple for each query satisfied by a point; a query update does not restart the windows of the other queries
+    public static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int slideStep, UniformGrid uGrid){
+        return SpatialRangeQuery(pointStream, queryUpdates, windowSize, slideStep, uGrid, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int slideStep, int allowedLateness, UniformGrid uGrid){
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryUpdates, windowSize, slideStep, uGrid, true);
+    }
+
+    private static DataStream<Tuple2<String, Point>> SpatialRangeQuery(DataStream<Point> pointStream, DataStream<QueryUpdate> queryUpdates, int windowSize, int slideStep, UniformGrid uGrid, boolean eventTime){
+
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(pointStream, uGrid);
+
+        DataStream<Tuple2<String, Point>> matchedPoints = pointStream.connect(QueryBroadcastFunction.broadcast(queryUpdates, eventTime))
+                .process(new QueryBroadcastFunction<Point, Tuple2<String, Point>>(uGrid, false) {
+                    @Override
+                    public void processElement(Point point, RangeQueryIndex queryIndex, Collector<Tuple2<String, Point>> out) throws Exception {
+                        queryIndex.collectMatches(point, out);
+                    }
+                }).name("Dynamic Query Index Matching");
+
+        DataStream<Tuple2<String, Point>> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(matchedPoints.keyBy(new KeySelector<Tuple2<String, Point>, Long>() {
+            @Override
+            public Long getKey(Tuple2<String, Point> match) throws Exception {
+                return (curvePartitioner == null) ? match.f1.gridID : curvePartitioner.getPartitionKey(match.f1.gridID);
+            }
+        }).process(new SlidingPaneFunction<Long, Tuple2<String, Point>>(windowSize * 1000L, slideStep * 1000L, TypeInformation.of(new TypeHint<Tuple2<String, Point>>() {}), eventTime) {
+                    // The matches are evaluated by the query index
+                    @Override
+                    public boolean filter(Tuple2<String, Point> match) throws Exception {
+                        return true;
+                    }
+                }).name("Sliding Panes Dynamic Queries"), curvePartitioner);
+
+        return rangeQueryNeighbours;
+    }
+
+    //--------------- GRID-BASED RANGE QUERY - POINT - SALTED HOT CELLS -----------------//
+    // The points of the hot cells are spread over numSubKeys sub-keys (see HelperClass.SaltHotCells)
+    // Every point is assigned to exactly one sub-key, hence the union of the sub-key outputs is the range query output
+    public static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid, int numSubKeys, long hotCellThreshold){
+        return SpatialRangeQuery(pointStream, queryPoint, queryRadius, windowSize, slideStep, uGrid, numSubKeys, hotCellThreshold, false);
+    }
+
+    // Event time windows, watermarks trailing the point timestamps by allowedLateness seconds
+    public static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, int allowedLateness, UniformGrid uGrid, int numSubKeys, long hotCellThreshold){
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(pointStream, allowedLateness), queryPoint, queryRadius, windowSize, slideStep, uGrid, numSubKeys, hotCellThreshold, true);
+    }
+
+    private static DataStream<Point> SpatialRangeQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, int windowSize, int slideStep, UniformGrid uGrid, int numSubKeys, long hotCellThreshold, boolean eventTime){
+
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+
+        DataStream<Point> filteredPoints = pointStream.filter(new FilterFunction<Point>() {
+            @Override
+            public boolean filter(Point point) throws Exception {
+                return ((candidateNeighboringCells.contains(point.gridID)) || (guaranteedNeighboringCells.contains(point.gridID)));
+            }
+        });
+
+        // Arrival rates are tracked over the window slide step
+        DataStream<Tuple2<Point, Integer>> saltedPoints = filteredPoints.map(new HelperClass.SaltHotCells(numSubKeys, hotCellThreshold, slideStep * 1000L));
+
+        DataStream<Point> rangeQueryNeighbours = saltedPoints.keyBy(new KeySelector<Tuple2<Point, Integer>, Tuple2<Long, Integer>>() {
+            @Override
+            public Tuple2<Long, Integer> getKey(Tuple2<Point, Integer> saltedPoint) throws Exception {
+                return Tuple2.of(saltedPoint.f0.gridID, saltedPoint.f1);
+            }
+        }).process(new SlidingPaneFunction<Tuple2<Long, Integer>, Tuple2<Point, Integer>>(windowSize * 1000L, slideStep * 1000L, TypeInformation.of(new TypeHint<Tuple2<Point, Integer>>() {}), eventTime) {
+                    // Each point is evaluated once, in the pane of its arrival
+                    @Override
+                    public boolean filter(Tuple2<Point, Integer> saltedPoint) throws Exception {
+                        Point point = saltedPoint.f0;
+                        if (guaranteedNeighboringCells.contains(point.gridID))
+                            return true;
+                        double distance = HelperClass.getPointPointEuclideanDistance(queryPoint.x, queryPoint.y, point.x,point.y);
+                        return distance <= queryRadius;
+                    }
+                }).name("Sliding Panes Grid Based - Salted")
+                .map(new MapFunction<Tuple2<Point, Integer>, Point>() {
+                    @Override
+                    public Point map(Tuple2<Point, Integer> saltedPoint) throws Exception {
+                        return saltedPoint.f0;
+                    }
+                }).name("Unsalting");
+
+        return rangeQueryNeighbours;
+    }
+
     //--------------- GRID-BASED RANGE QUERY - POINT - POLYGON -----------------//
     public static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep ) {
+        return SpatialRangeQuery(polygonStream, queryPoint, queryRadius, uGrid, windowSize, slideStep, false);
+    }
 
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+    // Event time windows, watermarks trailing the polygon timestamps by allowedLateness seconds
+    public static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, int allowedLateness) {
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), queryPoint, queryRadius, uGrid, windowSize, slideStep, true);
+    }
+
+    private static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Point queryPoint, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, boolean eventTime) {
+
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPoint.gridID, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(polygonStream, uGrid);
+        Envelope queryEnvelope = HelperClass.getQueryEnvelope(queryPoint, queryRadius);
 
         DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
 
@@ -102,29 +256,22 @@ public class RangeQuery implements Serializable {
             }
         });
 
-        DataStream<Polygon> rangeQueryNeighbours = filteredPolygons.keyBy(new KeySelector<Polygon, String>() {
+        DataStream<Polygon> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPolygons.keyBy(new KeySelector<Polygon, Long>() {
             @Override
-            public String getKey(Polygon poly) throws Exception {
-                return poly.gridID;
+            public Long getKey(Polygon poly) throws Exception {
+                return (curvePartitioner == null) ? poly.gridID : curvePartitioner.getPartitionKey(poly.gridID);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new WindowFunction<Polygon, Polygon, String, TimeWindow>() {
+        }).process(new SlidingPaneFunction<Long, Polygon>(windowSize * 1000L, slideStep * 1000L, Polygon.class, eventTime) {
+                    // Each polygon replica is evaluated once, in the pane of its arrival
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Polygon> pointIterator, Collector<Polygon> neighbors) throws Exception {
-                        for (Polygon poly : pointIterator) {
-                            if (guaranteedNeighboringCells.contains(poly.gridID))
-                                neighbors.collect(poly);
-                            else {
-                                //Double distance = HelperClass.computeEuclideanDistance(queryPoint.point.getX(), queryPoint.point.getY(), poly.point.getX(),poly.point.getY());
-                                Double distance = HelperClass.getPointPolygonMinEuclideanDistance(queryPoint, poly);
-                                //System.out.println("Distance: " + distance);
-                                if (distance <= queryRadius){
-                                    neighbors.collect(poly);
-                                }
-                            }
-                        }
+                    public boolean filter(Polygon poly) throws Exception {
+                        // The cells are derived from the bounding boxes, hence the polygons of the guaranteed cells are refined too
+                        // polygons whose bounding box lies farther than queryRadius are skipped without distance computation
+                        if (!queryEnvelope.intersects(poly.boundingBox.f0, poly.boundingBox.f1))
+                            return false;
+                        return HelperClass.isPointPolygonWithinDistance(queryPoint, poly, queryRadius);
                     }
-                }).name("Windowed (Apply) Grid Based");
+                }).name("Sliding Panes Grid Based"), curvePartitioner);
 
         return rangeQueryNeighbours;
     }
@@ -132,9 +279,21 @@ public class RangeQuery implements Serializable {
 
     //--------------- GRID-BASED RANGE QUERY - POLYGON - POLYGON -----------------//
     public static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep ) {
+        return SpatialRangeQuery(polygonStream, queryPolygon, queryRadius, uGrid, windowSize, slideStep, false);
+    }
 
-        Set<String> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPolygon);
-        Set<String> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPolygon, guaranteedNeighboringCells);
+    // Event time windows, watermarks trailing the polygon timestamps by allowedLateness seconds
+    public static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, int allowedLateness) {
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), queryPolygon, queryRadius, uGrid, windowSize, slideStep, true);
+    }
+
+    private static DataStream<Polygon> SpatialRangeQuery(DataStream<Polygon> polygonStream, Polygon queryPolygon, double queryRadius, UniformGrid uGrid, int windowSize, int slideStep, boolean eventTime) {
+
+        Set<Long> guaranteedNeighboringCells = uGrid.getGuaranteedNeighboringCells(queryRadius, queryPolygon);
+        Set<Long> candidateNeighboringCells = uGrid.getCandidateNeighboringCells(queryRadius, queryPolygon, guaranteedNeighboringCells);
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(polygonStream, uGrid);
+        Envelope queryEnvelope = HelperClass.getQueryEnvelope(queryPolygon.boundingBox, queryRadius);
 
         DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
 
@@ -146,28 +305,66 @@ public class RangeQuery implements Serializable {
             }
         });
 
-        DataStream<Polygon> rangeQueryNeighbours = filteredPolygons.keyBy(new KeySelector<Polygon, String>() {
+        DataStream<Polygon> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(filteredPolygons.keyBy(new KeySelector<Polygon, Long>() {
+            @Override
+            public Long getKey(Polygon poly) throws Exception {
+                return (curvePartitioner == null) ? poly.gridID : curvePartitioner.getPartitionKey(poly.gridID);
+            }
+        }).process(new SlidingPaneFunction<Long, Polygon>(windowSize * 1000L, slideStep * 1000L, Polygon.class, eventTime) {
+                    // Each polygon replica is evaluated once, in the pane of its arrival
+                    @Override
+                    public boolean filter(Polygon poly) throws Exception {
+                        // The cells are derived from the bounding boxes, hence the polygons of the guaranteed cells are refined too
+                        // polygons whose bounding box lies farther than queryRadius are skipped without distance computation
+                        if (!queryEnvelope.intersects(poly.boundingBox.f0, poly.boundingBox.f1))
+                            return false;
+                        return HelperClass.isPolygonPolygonWithinDistance(queryPolygon, poly, queryRadius);
+                    }
+                }).name("Sliding Panes Grid Based"), curvePartitioner);
+
+        return rangeQueryNeighbours;
+    }
+
+
+    //--------------- GRID-BASED RANGE QUERY - POLYGON - DYNAMIC QUERIES -----------------//
+    // Point and polygon range queries (k = 0) added, updated and removed at runtime by queryUpdates, see QueryBroadcastFunction
+    // Outputs a (queryID, polygon) tuple for each query satisfied by a polygon replica
+    public static DataStream<Tuple2<String, Polygon>> SpatialRangeQuery(DataStream<Polygon> polygonStream, DataStream<QueryUpdate> queryUpdates, UniformGrid uGrid, int windowSize, int slideStep) {
+        return SpatialRangeQuery(polygonStream, queryUpdates, uGrid, windowSize, slideStep, false);
+    }
+
+    // Event time windows, watermarks trailing the polygon timestamps by allowedLateness seconds
+    public static DataStream<Tuple2<String, Polygon>> SpatialRangeQuery(DataStream<Polygon> polygonStream, DataStream<QueryUpdate> queryUpdates, UniformGrid uGrid, int windowSize, int slideStep, int allowedLateness) {
+        return SpatialRangeQuery(HelperClass.assignTimestampsAndWatermarks(polygonStream, allowedLateness), queryUpdates, uGrid, windowSize, slideStep, true);
+    }
+
+    private static DataStream<Tuple2<String, Polygon>> SpatialRangeQuery(DataStream<Polygon> polygonStream, DataStream<QueryUpdate> queryUpdates, UniformGrid uGrid, int windowSize, int slideStep, boolean eventTime) {
+
+        // Contiguous curve ranges of cells are keyed together if the grid uses a space filling curve
+        SpaceFillingCurvePartitioner curvePartitioner = SpaceFillingCurvePartitioner.getPartitioner(polygonStream, uGrid);
+
+        DataStream<Polygon> replicatedPolygonStream = polygonStream.flatMap(new HelperClass.ReplicatePolygonStream());
+
+        DataStream<Tuple2<String, Polygon>> matchedPolygons = replicatedPolygonStream.connect(QueryBroadcastFunction.broadcast(queryUpdates, eventTime))
+                .process(new QueryBroadcastFunction<Polygon, Tuple2<String, Polygon>>(uGrid, false) {
+                    @Override
+                    public void processElement(Polygon poly, RangeQueryIndex queryIndex, Collector<Tuple2<String, Polygon>> out) throws Exception {
+                        queryIndex.collectMatches(poly, out);
+                    }
+                }).name("Dynamic Query Index Matching");
+
+        DataStream<Tuple2<String, Polygon>> rangeQueryNeighbours = SpaceFillingCurvePartitioner.setKeyedOperatorParallelism(matchedPolygons.keyBy(new KeySelector<Tuple2<String, Polygon>, Long>() {
             @Override
-            public String getKey(Polygon poly) throws Exception {
-                return poly.gridID;
+            public Long getKey(Tuple2<String, Polygon> match) throws Exception {
+                return (curvePartitioner == null) ? match.f1.gridID : curvePartitioner.getPartitionKey(match.f1.gridID);
             }
-        }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
-                .apply(new WindowFunction<Polygon, Polygon, String, TimeWindow>() {
+        }).process(new SlidingPaneFunction<Long, Tuple2<String, Polygon>>(windowSize * 1000L, slideStep * 1000L, TypeInformation.of(new TypeHint<Tuple2<String, Polygon>>() {}), eventTime) {
+                    // The matches are evaluated by the query index
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Polygon> pointIterator, Collector<Polygon> neighbors) throws Exception {
-                        for (Polygon poly : pointIterator) {
-                            if (guaranteedNeighboringCells.contains(poly.gridID))
-                                neighbors.collect(poly);
-                            else {
-                                Double distance = HelperClass.getPolygonPolygonMinEuclideanDistance(queryPolygon, poly);
-                                //System.out.println("Distance: " + distance);
-                                if (distance <= queryRadius){
-                                    neighbors.collect(poly);
-                                }
-                            }
-                        }
+                    public boolean filter(Tuple2<String, Polygon> match) throws Exception {
+                        return true;
                     }
-                }).name("Windowed (Apply) Grid Based");
+                }).name("Sliding Panes Dynamic Queries"), curvePartitioner);
 
         return rangeQueryNeighbours;
     }
@@ -191,7 +388,7 @@ public class RangeQuery implements Serializable {
         public void flatMap(Polygon poly, Collector<Polygon> out) throws Exception {
 
             // Create duplicated polygon stream based on GridIDs
-            for (String gridID: poly.gridIDsSet) {
+            for (Long gridID: poly.gridIDsSet) {
                 Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
                 out.collect(p);
             }
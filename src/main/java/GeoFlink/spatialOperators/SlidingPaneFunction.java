@@ -0,0 +1,198 @@
+/*
+Copyright 2020 Data Platform Research Team, AIRC, AIST, Japan
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package GeoFlink.spatialOperators;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.TimerService;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.util.Collector;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+Pane-based evaluation of a sliding processing time window filter, replacing
+window(SlidingProcessingTimeWindows.of(windowSize, slideStep)).apply(...) for filters evaluated independently on each element
+The time is split into tumbling panes of gcd(windowSize, slideStep), each element is evaluated once when it arrives and only
+the qualifying elements are kept, in the pane of their arrival time
+At the end of each window, the qualifying elements of its panes are output; the output is the same as the one of the sliding window
+(an element is output once for each window containing it), while the state and the evaluation cost are divided by windowSize/slideStep
+In event time, the panes are defined by the element timestamps and the windows are output when the watermark passes their end;
+as by the event time windows, a late element is only output by its windows which have not been output yet
+In processing time, an element arriving after the timer of its window (e.g. at windowEnd - 1) is likewise only output by
+the following windows
+*/
+public abstract class SlidingPaneFunction<K, T> extends KeyedProcessFunction<K, T, T> {
+
+    private final long windowSize;
+    private final long slideStep;
+    private final long paneSize;
+    private final TypeInformation<T> typeInfo;
+    private final boolean eventTime;
+
+    private MapState<Long, Integer> paneSizesMState; // pane end -> number of qualifying elements
+    private MapState<Tuple2<Long, Integer>, T> paneElementsMState; // (pane end, position) -> qualifying element, appended in O(1)
+    private ValueState<Long> lastWindowEndVState; // end of the last output window
+
+    //ctor
+    // windowSize and slideStep in milliseconds
+    public SlidingPaneFunction(long windowSize, long slideStep, Class<T> typeClass) {
+        this(windowSize, slideStep, TypeInformation.of(typeClass), false);
+    }
+
+    public SlidingPaneFunction(long windowSize, long slideStep, Class<T> typeClass, boolean eventTime) {
+        this(windowSize, slideStep, TypeInformation.of(typeClass), eventTime);
+    }
+
+    // For generic element types, e.g. tuples
+    public SlidingPaneFunction(long windowSize, long slideStep, TypeInformation<T> typeInfo) {
+        this(windowSize, slideStep, typeInfo, false);
+    }
+
+    public SlidingPaneFunction(long windowSize, long slideStep, TypeInformation<T> typeInfo, boolean eventTime) {
+        this.windowSize = windowSize;
+        this.slideStep = slideStep;
+        this.paneSize = gcd(windowSize, slideStep);
+        this.typeInfo = typeInfo;
+        this.eventTime = eventTime;
+    }
+
+    // Returns true if the element is part of the query output
+    public abstract boolean filter(T value) throws Exception;
+
+    @Override
+    public void open(Configuration config) {
+
+        MapStateDescriptor<Long, Integer> paneSizesDescriptor = new MapStateDescriptor<Long, Integer>(
+                "paneSizesDescriptor", // state name
+                BasicTypeInfo.LONG_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO);
+
+        MapStateDescriptor<Tuple2<Long, Integer>, T> paneElementsDescriptor = new MapStateDescriptor<Tuple2<Long, Integer>, T>(
+                "paneElementsDescriptor", // state name
+                new TupleTypeInfo<Tuple2<Long, Integer>>(BasicTypeInfo.LONG_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO), typeInfo);
+
+        ValueStateDescriptor<Long> lastWindowEndDescriptor = new ValueStateDescriptor<Long>(
+                "lastWindowEndDescriptor", // state name
+                BasicTypeInfo.LONG_TYPE_INFO);
+
+        this.paneSizesMState = getRuntimeContext().getMapState(paneSizesDescriptor);
+        this.paneElementsMState = getRuntimeContext().getMapState(paneElementsDescriptor);
+        this.lastWindowEndVState = getRuntimeContext().getState(lastWindowEndDescriptor);
+    }
+
+    @Override
+    public void processElement(T value, Context ctx, Collector<T> out) throws Exception {
+
+        long time = eventTime ? ctx.timestamp() : ctx.timerService().currentProcessingTime();
+        long paneEnd = time - Math.floorMod(time, paneSize) + paneSize;
+
+        // The first window containing the pane, its following windows are triggered by onTimer()
+        // Windows start at multiples of slideStep, hence end at windowSize modulo slideStep
+        long windowEnd = paneEnd + Math.floorMod(windowSize - paneEnd, slideStep);
+
+        // Skipping the windows already output, up to the watermark in event time and to the last timer in processing time
+        long outputEnd;
+        if (eventTime) {
+            outputEnd = ctx.timerService().currentWatermark() + 1;
+        }
+        else {
+            Long lastWindowEnd = lastWindowEndVState.value();
+            outputEnd = lastWindowEnd == null ? Long.MIN_VALUE : lastWindowEnd;
+        }
+        if (windowEnd <= outputEnd) {
+            windowEnd += ((outputEnd - windowEnd) / slideStep + 1) * slideStep;
+        }
+        if (windowEnd - windowSize >= paneEnd) { // all the windows of the element are output
+            return;
+        }
+
+        if (!filter(value)) {
+            return;
+        }
+
+        Integer paneLength = paneSizesMState.get(paneEnd);
+        int position = paneLength == null ? 0 : paneLength;
+        paneElementsMState.put(Tuple2.of(paneEnd, position), value);
+        paneSizesMState.put(paneEnd, position + 1);
+
+        registerTimer(ctx.timerService(), windowEnd - 1);
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<T> out) throws Exception {
+
+        long windowEnd = timestamp + 1;
+
+        Long lastWindowEnd = lastWindowEndVState.value();
+        if (lastWindowEnd != null && lastWindowEnd >= windowEnd) { // window already output
+            return;
+        }
+        lastWindowEndVState.update(windowEnd);
+
+        // Outputting the panes of the window, and removing the ones which are not part of the next window
+        boolean hasNextWindow = false;
+        Iterator<Map.Entry<Long, Integer>> panes = paneSizesMState.iterator();
+        while (panes.hasNext()) {
+            Map.Entry<Long, Integer> pane = panes.next();
+            long paneEnd = pane.getKey();
+            if (paneEnd > windowEnd - windowSize && paneEnd <= windowEnd) {
+                for (int i = 0; i < pane.getValue(); i++) {
+                    out.collect(paneElementsMState.get(Tuple2.of(paneEnd, i)));
+                }
+            }
+            if (paneEnd <= windowEnd + slideStep - windowSize) {
+                for (int i = 0; i < pane.getValue(); i++) {
+                    paneElementsMState.remove(Tuple2.of(paneEnd, i));
+                }
+                panes.remove();
+            }
+            else {
+                hasNextWindow = true;
+            }
+        }
+
+        if (hasNextWindow) {
+            registerTimer(ctx.timerService(), windowEnd + slideStep - 1);
+        }
+    }
+
+    private void registerTimer(TimerService timerService, long timestamp) {
+        if (eventTime) {
+            timerService.registerEventTimeTimer(timestamp);
+        }
+        else {
+            timerService.registerProcessingTimeTimer(timestamp);
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
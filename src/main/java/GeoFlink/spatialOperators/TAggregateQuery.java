@@ -33,13 +33,13 @@ public class TAggregateQuery implements Serializable {
 
     //--------------- TSpatialHeatmapAggregateQuery Windowed -----------------//
     //Outputs only when there is a positive value
-    public static DataStream<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> TSpatialHeatmapAggregateQuery(DataStream<Point> pointStream, String aggregateFunction, String windowType, long windowSize, long windowSlideStep) {
+    public static DataStream<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> TSpatialHeatmapAggregateQuery(DataStream<Point> pointStream, String aggregateFunction, String windowType, long windowSize, long windowSlideStep) {
 
         // Filtering out the cells which do not fall into the grid cells
         DataStream<Point> spatialStreamWithoutNullCellID = pointStream.filter(new FilterFunction<Point>() {
             @Override
             public boolean filter(Point p) throws Exception {
-                return (p.gridID != null);
+                return (p.gridID != HelperClass.NULL_CELL_KEY);
             }
         });
 
@@ -55,7 +55,7 @@ public class TAggregateQuery implements Serializable {
 
         if(windowType.equalsIgnoreCase("COUNT")){
 
-            DataStream<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> cWindowedCellBasedStayTime = spatialStreamWithTsAndWm
+            DataStream<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> cWindowedCellBasedStayTime = spatialStreamWithTsAndWm
                     .keyBy(new gridCellKeySelector())
                     .countWindow(windowSize, windowSlideStep)
                     .process(new CountWindowProcessFunction(aggregateFunction)).name("Count Window");
@@ -65,7 +65,7 @@ public class TAggregateQuery implements Serializable {
         }
         else { // Default TIME Window
 
-            DataStream<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> tWindowedCellBasedStayTime = spatialStreamWithTsAndWm
+            DataStream<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> tWindowedCellBasedStayTime = spatialStreamWithTsAndWm
                     .keyBy(new gridCellKeySelector())
                     //.window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
                     .window(SlidingEventTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
@@ -78,18 +78,18 @@ public class TAggregateQuery implements Serializable {
     //--------------- TSpatialHeatmapAggregateQuery Real-time -----------------//
     // Outputs a tuple containing cellID, number of objects in the cell and its requested aggregate
     //public static DataStream<Tuple3<String, Integer, HashMap<String, Long>>> TSpatialHeatmapAggregateQuery(DataStream<Point> pointStream, String aggregateFunction) {
-    public static DataStream<Tuple4<String, Integer, HashMap<String, Long>, Long>> TSpatialHeatmapAggregateQuery(DataStream<Point> pointStream, String aggregateFunction, Long inactiveTrajDeletionThreshold) {
+    public static DataStream<Tuple4<Long, Integer, HashMap<String, Long>, Long>> TSpatialHeatmapAggregateQuery(DataStream<Point> pointStream, String aggregateFunction, Long inactiveTrajDeletionThreshold) {
 
         // Filtering out the cells which do not fall into the grid cells
         DataStream<Point> spatialStreamWithoutNullCellID = pointStream.filter(new FilterFunction<Point>() {
             @Override
             public boolean filter(Point p) throws Exception {
-                return (p.gridID != null);
+                return (p.gridID != HelperClass.NULL_CELL_KEY);
             }
         });
 
         //DataStream<Tuple3<String, Integer, HashMap<String, Long>>> cWindowedCellBasedStayTime = spatialStreamWithoutNullCellID
-        DataStream<Tuple4<String, Integer, HashMap<String, Long>, Long>> cWindowedCellBasedStayTime = spatialStreamWithoutNullCellID
+        DataStream<Tuple4<Long, Integer, HashMap<String, Long>, Long>> cWindowedCellBasedStayTime = spatialStreamWithoutNullCellID
                 .keyBy(new gridCellKeySelector())
                 .map(new THeatmapAggregateQueryMapFunction(aggregateFunction, inactiveTrajDeletionThreshold));
 
@@ -99,15 +99,15 @@ public class TAggregateQuery implements Serializable {
 
     // User Defined Classes
     // Key selector
-    public static class gridCellKeySelector implements KeySelector<Point,String> {
+    public static class gridCellKeySelector implements KeySelector<Point,Long> {
         @Override
-        public String getKey(Point p) throws Exception {
+        public Long getKey(Point p) throws Exception {
             return p.gridID; // grid-cell id
         }
     }
 
     //public static class THeatmapAggregateQueryMapFunction extends RichMapFunction<Point, Tuple3<String, Integer, HashMap<String, Long>>> {
-    public static class THeatmapAggregateQueryMapFunction extends RichMapFunction<Point, Tuple4<String, Integer, HashMap<String, Long>, Long>> {
+    public static class THeatmapAggregateQueryMapFunction extends RichMapFunction<Point, Tuple4<Long, Integer, HashMap<String, Long>, Long>> {
 
         private MapState<String, Long> minTimestampTrackerIDMapState;
         private MapState<String, Long> maxTimestampTrackerIDMapState;
@@ -139,7 +139,7 @@ public class TAggregateQuery implements Serializable {
         @Override
         // Outputs a tuple containing cellID, number of objects in the cell and its requested aggregate
         //public Tuple3<String, Integer, HashMap<String, Long>> map(Point p) throws Exception {
-        public Tuple4<String, Integer, HashMap<String, Long>, Long> map(Point p) throws Exception {
+        public Tuple4<Long, Integer, HashMap<String, Long>, Long> map(Point p) throws Exception {
 
             // HashMap<TrackerID, timestamp>
             //HashMap<String, Long> minTimestampTrackerID = new HashMap<String, Long>();
@@ -435,7 +435,7 @@ public class TAggregateQuery implements Serializable {
 
     // Count Window Process Function
     //ProcessWindowFunction<IN, OUT, KEY, W extends Window>
-    public static class CountWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<String, Integer, Long, Long, HashMap<String, Long>>, String, GlobalWindow> {
+    public static class CountWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>, Long, GlobalWindow> {
 
         // HashMap<ObjectID, timestamp>
         HashMap<String, Long> minTimestampTrackerID = new HashMap<String, Long>();
@@ -451,7 +451,7 @@ public class TAggregateQuery implements Serializable {
 
         @Override
         // KEY key, Context context, Iterable<IN> elements, Collector<OUT> out
-        public void process(String key, Context context, Iterable<Point> input, Collector<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
+        public void process(Long key, Context context, Iterable<Point> input, Collector<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
 
             minTimestampTrackerID.clear();
             maxTimestampTrackerID.clear();
@@ -511,13 +511,13 @@ public class TAggregateQuery implements Serializable {
 
             // Tuple5<Key/CellID, #ObjectsInCell, windowStartTime, windowEndTime, Map<TrajId, TrajLength>>
             if(this.aggregateFunction.equalsIgnoreCase("ALL")){
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLength));
             }
             else if(this.aggregateFunction.equalsIgnoreCase("SUM")){
                 if(sumTrajLength > 0) {
                     trackerIDTrajLengthOutput.put("", sumTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLengthOutput));
                 }
             }
@@ -525,26 +525,26 @@ public class TAggregateQuery implements Serializable {
                 if(sumTrajLength > 0) {
                     Long avgTrajLength = (Long) Math.round((sumTrajLength * 1.0) / (trackerIDTrajLength.size() * 1.0));
                     trackerIDTrajLengthOutput.put("", avgTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLengthOutput));
                 }
             }
             else if(this.aggregateFunction.equalsIgnoreCase("MIN")){
                 if(minTrajLength != Long.MAX_VALUE) {
                     trackerIDTrajLengthOutput.put(minTrajLengthObjID, minTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLengthOutput));
                 }
             }
             else if(this.aggregateFunction.equalsIgnoreCase("MAX")){
                 if(maxTrajLength != Long.MIN_VALUE) {
                     trackerIDTrajLengthOutput.put(maxTrajLengthObjID, maxTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLengthOutput));
                 }
             }
             else{
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         trackerIDTrajLength.size(), context.window().maxTimestamp(), context.window().maxTimestamp(), trackerIDTrajLength));
             }
         }
@@ -552,7 +552,7 @@ public class TAggregateQuery implements Serializable {
 
     //Time Window Process Function
     //ProcessWindowFunction<IN, OUT, KEY, W extends Window>
-    public static class TimeWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<String, Integer, Long, Long, HashMap<String, Long>>, String, TimeWindow> {
+    public static class TimeWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>, Long, TimeWindow> {
 
         // HashMap<TrackerID, timestamp>
         HashMap<String, Long> minTimestampTrackerID = new HashMap<String, Long>();
@@ -568,7 +568,7 @@ public class TAggregateQuery implements Serializable {
 
         @Override
         // KEY key, Context context, Iterable<IN> elements, Collector<OUT> out
-        public void process(String key, Context context, Iterable<Point> input, Collector<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
+        public void process(Long key, Context context, Iterable<Point> input, Collector<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
 
             minTimestampTrackerID.clear();
             maxTimestampTrackerID.clear();
@@ -631,13 +631,13 @@ public class TAggregateQuery implements Serializable {
 
             // Tuple5<Key/CellID, #ObjectsInCell, windowStartTime, windowEndTime, Map<TrajId, TrajLength>>
             if(this.aggregateFunction.equalsIgnoreCase("ALL")){
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
             else if(this.aggregateFunction.equalsIgnoreCase("SUM")){
                 if(sumTrajLength > 0) {
                     trackerIDTrajLengthOutput.put("", sumTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLengthOutput));
                 }
             }
@@ -645,26 +645,26 @@ public class TAggregateQuery implements Serializable {
                 if(sumTrajLength > 0) {
                     Long avgTrajLength = (Long) Math.round((sumTrajLength * 1.0) / (trackerIDTrajLength.size() * 1.0));
                     trackerIDTrajLengthOutput.put("", avgTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLengthOutput));
                 }
             }
             else if(this.aggregateFunction.equalsIgnoreCase("MIN")){
                 if(minTrajLength != Long.MAX_VALUE) {
                     trackerIDTrajLengthOutput.put(minTrajLengthObjID, minTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLengthOutput));
                 }
             }
             else if(this.aggregateFunction.equalsIgnoreCase("MAX")){
                 if(maxTrajLength != Long.MIN_VALUE) {
                     trackerIDTrajLengthOutput.put(maxTrajLengthObjID, maxTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLengthOutput));
                 }
             }
             else{
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
         }
@@ -675,7 +675,7 @@ public class TAggregateQuery implements Serializable {
     /*
     //Time Window Process Function
     //ProcessWindowFunction<IN, OUT, KEY, W extends Window>
-    public static class TimeWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<String, Integer, Long, Long, HashMap<String, Long>>, String, TimeWindow> {
+    public static class TimeWindowProcessFunction extends ProcessWindowFunction<Point, Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>, Long, TimeWindow> {
 
         // HashMap<TrackerID, timestamp>
         HashMap<String, Long> minTimestampTrackerID = new HashMap<String, Long>();
@@ -702,7 +702,7 @@ public class TAggregateQuery implements Serializable {
 
         @Override
         // KEY key, Context context, Iterable<IN> elements, Collector<OUT> out
-        public void process(String key, Context context, Iterable<Point> input, Collector<Tuple5<String, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
+        public void process(Long key, Context context, Iterable<Point> input, Collector<Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>> output) throws Exception {
 
             minTimestampTrackerID.clear();
             maxTimestampTrackerID.clear();
@@ -745,7 +745,7 @@ public class TAggregateQuery implements Serializable {
 
                     trackerIDTrajLength.put(objID, (currMaxTimestamp-currMinTimestamp));
                 }
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         minTimestampTrackerID.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
             else if(this.aggregateFunction.equalsIgnoreCase("SUM") || this.aggregateFunction.equalsIgnoreCase("AVG")){
@@ -763,14 +763,14 @@ public class TAggregateQuery implements Serializable {
                 if(this.aggregateFunction.equalsIgnoreCase("SUM"))
                 {
                     trackerIDTrajLength.put("", sumTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             minTimestampTrackerID.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
                 }
                 else // AVG
                 {
                     Long avgTrajLength = (Long)Math.round((sumTrajLength * 1.0)/(minTimestampTrackerID.size() * 1.0));
                     trackerIDTrajLength.put("", avgTrajLength);
-                    output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                    output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                             minTimestampTrackerID.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
                 }
             }
@@ -794,7 +794,7 @@ public class TAggregateQuery implements Serializable {
                 }
 
                 trackerIDTrajLength.put(minTrajLengthObjID, minTrajLength);
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         minTimestampTrackerID.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
             else if(this.aggregateFunction.equalsIgnoreCase("MAX")){
@@ -817,7 +817,7 @@ public class TAggregateQuery implements Serializable {
                 }
 
                 trackerIDTrajLength.put(maxTrajLengthObjID, maxTrajLength);
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         minTimestampTrackerID.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
             else{
@@ -829,7 +829,7 @@ public class TAggregateQuery implements Serializable {
 
                     trackerIDTrajLength.put(objID, (currMaxTimestamp-currMinTimestamp));
                 }
-                output.collect(new Tuple5<String, Integer, Long, Long, HashMap<String, Long>>(key,
+                output.collect(new Tuple5<Long, Integer, Long, Long, HashMap<String, Long>>(key,
                         trackerIDTrajLength.size(), context.window().getStart(), context.window().getEnd(), trackerIDTrajLength));
             }
         }
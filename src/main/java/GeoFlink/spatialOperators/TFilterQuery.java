@@ -77,7 +77,7 @@ public class TFilterQuery implements Serializable {
 
                         coordinateList.clear();
                         for (Point p : pointIterator) {
-                            coordinateList.add(new Coordinate(p.point.getX(), p.point.getY()));
+                            coordinateList.add(new Coordinate(p.x, p.y));
                         }
                         LineString ls = new LineString(objID, coordinateList);
                         trajectory.collect(ls);
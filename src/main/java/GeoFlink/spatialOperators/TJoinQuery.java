@@ -54,22 +54,22 @@ public class TJoinQuery implements Serializable {
         DataStream<Point> replicatedQueryStream = getReplicatedQueryStream(queryStreamWithTsAndWm, joinDistance, uGrid);
 
         DataStream<Tuple2<Point, Point>> joinOutput = ordinaryStreamWithTsAndWm.join(replicatedQueryStream)
-                .where(new KeySelector<Point, String>() {
+                .where(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point p) throws Exception {
+                    public Long getKey(Point p) throws Exception {
                         return p.gridID;
                     }
-                }).equalTo(new KeySelector<Point, String>() {
+                }).equalTo(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point q) throws Exception {
+                    public Long getKey(Point q) throws Exception {
                         return q.gridID;
                     }
                 }).window(SlidingProcessingTimeWindows.of(Time.seconds(omegaJoinDurationSeconds), Time.seconds(omegaJoinDurationSeconds)))
                 .apply(new JoinFunction<Point, Point, Tuple2<Point,Point>>() {
                     @Override
                     public Tuple2<Point, Point> join(Point p, Point q) {
-                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()));
-                        if (HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()) <= joinDistance) {
+                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y));
+                        if (HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y) <= joinDistance) {
                             return Tuple2.of(p, q);
                         } else {
                             return Tuple2.of(null, null);
@@ -147,14 +147,14 @@ public class TJoinQuery implements Serializable {
         DataStream<Point> replicatedQueryStream = getReplicatedQueryStream(ordinaryStreamWithTsAndWm, joinDistance, uGrid);
 
         DataStream<Tuple2<Point, Point>> joinOutput = ordinaryStreamWithTsAndWm.join(replicatedQueryStream)
-                .where(new KeySelector<Point, String>() {
+                .where(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point p) throws Exception {
+                    public Long getKey(Point p) throws Exception {
                         return p.gridID;
                     }
-                }).equalTo(new KeySelector<Point, String>() {
+                }).equalTo(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point q) throws Exception {
+                    public Long getKey(Point q) throws Exception {
                         return q.gridID;
                     }
                 }).window(SlidingProcessingTimeWindows.of(Time.seconds(omegaJoinDurationSeconds), Time.seconds(omegaJoinDurationSeconds)))
@@ -162,8 +162,8 @@ public class TJoinQuery implements Serializable {
                     @Override
                     public Tuple2<Point, Point> join(Point p, Point q) {
                         if(p.objID != q.objID) {// No need to join a trajectory with itself
-                            //System.out.println(HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()));
-                            if (HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()) <= joinDistance) {
+                            //System.out.println(HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y));
+                            if (HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y) <= joinDistance) {
                                 return Tuple2.of(p, q);
                             } else {
                                 return Tuple2.of(null, null);
@@ -260,22 +260,22 @@ public class TJoinQuery implements Serializable {
         DataStream<Point> replicatedQueryStream = getReplicatedQueryStream(queryStreamWithTsAndWm, joinDistance, uGrid);
 
         DataStream<Tuple2<Point, Point>> joinOutput = ordinaryStreamWithTsAndWm.join(replicatedQueryStream)
-                .where(new KeySelector<Point, String>() {
+                .where(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point p) throws Exception {
+                    public Long getKey(Point p) throws Exception {
                         return p.gridID;
                     }
-                }).equalTo(new KeySelector<Point, String>() {
+                }).equalTo(new KeySelector<Point, Long>() {
                     @Override
-                    public String getKey(Point q) throws Exception {
+                    public Long getKey(Point q) throws Exception {
                         return q.gridID;
                     }
                 }).window(SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep)))
                 .apply(new JoinFunction<Point, Point, Tuple2<Point,Point>>() {
                     @Override
                     public Tuple2<Point, Point> join(Point p, Point q) {
-                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()));
-                        if (HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()) <= joinDistance) {
+                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y));
+                        if (HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y) <= joinDistance) {
                             return Tuple2.of(p, q);
                         } else {
                             return Tuple2.of(null, null);
@@ -424,8 +424,8 @@ public class TJoinQuery implements Serializable {
                 .apply(new JoinFunction<Point, Point, Tuple2<Point,Point>>() {
                     @Override
                     public Tuple2<Point, Point> join(Point p, Point q) {
-                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()));
-                        if (HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), q.point.getX(), q.point.getY()) <= joinDistance) {
+                        //System.out.println(HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y));
+                        if (HelperClass.getPointPointEuclideanDistance(p.x, p.y, q.x, q.y) <= joinDistance) {
                             return Tuple2.of(p, q);
                         } else {
                             return Tuple2.of(null, null);
@@ -500,13 +500,13 @@ public class TJoinQuery implements Serializable {
         public void apply(String trajID, TimeWindow timeWindow, Iterable<Point> input, Collector<LineString> trajectory) throws Exception {
 
             List<Coordinate> coordinateList = new LinkedList<>();
-            HashSet<String> gridIDsSet = new HashSet<>();
+            HashSet<Long> gridIDsSet = new HashSet<>();
 
             coordinateList.clear();
             gridIDsSet.clear();
 
             for (Point p : input) {
-                coordinateList.add(new Coordinate(p.point.getX(), p.point.getY()));
+                coordinateList.add(new Coordinate(p.x, p.y));
                 gridIDsSet.add(p.gridID);
             }
 
@@ -524,15 +524,19 @@ public class TJoinQuery implements Serializable {
     public static DataStream<Point> getReplicatedQueryStream(DataStream<Point> queryPoints, double queryRadius, UniformGrid uGrid){
 
         return queryPoints.flatMap(new FlatMapFunction<Point, Point>() {
+
+            // Neighboring cell offsets are computed once and reused for every query point
+            UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(queryRadius);
+
             @Override
             public void flatMap(Point queryPoint, Collector<Point> out) throws Exception {
 
                 // Neighboring cells contain all the cells including Candidate cells, Guaranteed Cells and the query point cell itself
-                HashSet<String> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
+                neighboringCells.reset(queryPoint.gridID);
 
                 // Create duplicated query points
-                for (String gridID: neighboringCells) {
-                    Point p = new Point(queryPoint.objID, queryPoint.point.getX(), queryPoint.point.getY(), queryPoint.timeStampMillisec, gridID);
+                while (neighboringCells.hasNext()) {
+                    Point p = new Point(queryPoint.objID, queryPoint.x, queryPoint.y, queryPoint.timeStampMillisec, neighboringCells.next());
                     out.collect(p);
                 }
             }
@@ -5,6 +5,7 @@ import GeoFlink.spatialObjects.LineString;
 import GeoFlink.spatialObjects.Point;
 import GeoFlink.spatialObjects.Polygon;
 import GeoFlink.utils.Comparators;
+import GeoFlink.utils.DistanceHeap;
 import GeoFlink.utils.HelperClass;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.api.common.functions.JoinFunction;
@@ -38,7 +39,7 @@ public class TKNNQuery implements Serializable {
     //--------------- TKNNQuery - Window based -----------------//
     public static DataStream<Tuple2<LineString, Double>> TSpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int windowSize, int windowSlideStep, int allowedLateness, UniformGrid uGrid) {
 
-        Set<String> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
+        Set<Long> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
 
         // Spatial stream with Timestamps and Watermarks
         // Max Allowed Lateness: windowSize
@@ -58,9 +59,9 @@ public class TKNNQuery implements Serializable {
         });
 
         // Output objID and its distance from point p
-        DataStream<Tuple2<String, Double>> windowedKNN = filteredPoints.keyBy(new KeySelector<Point, String>() {
+        DataStream<Tuple2<String, Double>> windowedKNN = filteredPoints.keyBy(new KeySelector<Point, Long>() {
             @Override
-            public String getKey(Point p) throws Exception {
+            public Long getKey(Point p) throws Exception {
                 return p.gridID;
             }
         }).window(SlidingEventTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
@@ -111,7 +112,7 @@ public class TKNNQuery implements Serializable {
                         Boolean setTrajDistFromQ = false;
 
                         for (Tuple2<Point, Double> p : pointIterator) {
-                            coordinateList.add(new Coordinate(p.f0.point.getX(), p.f0.point.getY()));
+                            coordinateList.add(new Coordinate(p.f0.x, p.f0.y));
 
                             // If not already set trajDistFromQ, set it
                             if(!setTrajDistFromQ){
@@ -136,6 +137,8 @@ public class TKNNQuery implements Serializable {
                     Map<String, LineString> trajectories = new HashMap<>();
                     //Map of objID and distFromQueryPoint
                     Map<String, Double> trajDistFromQueryPoint = new HashMap<>();
+                    //Heap of the k nearest objIDs
+                    DistanceHeap<String> kNNHeap = new DistanceHeap<String>(k);
 
                     @Override
                     public void apply(TimeWindow window, Iterable<Tuple2<LineString, Double>> input, Collector<Tuple2<LineString, Double>> output) throws Exception {
@@ -149,20 +152,19 @@ public class TKNNQuery implements Serializable {
                             trajDistFromQueryPoint.put(e.f0.objID, e.f1);
                         }
 
-                        // Sorting the trajDistFromQueryPoint map by value
-                        HashMap<String, Double> sortedTrajDistFromQueryPoint = new LinkedHashMap<>();
-                        List<Map.Entry<String, Double>> list = new LinkedList<>(trajDistFromQueryPoint.entrySet());
-                        Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-                        for (Map.Entry<String, Double> map : list) {
-                            sortedTrajDistFromQueryPoint.put(map.getKey(), map.getValue());
+                        // Selecting the k smallest distances of the trajDistFromQueryPoint map, without sorting the map
+                        kNNHeap.clear();
+                        for (Map.Entry<String, Double> entry : trajDistFromQueryPoint.entrySet()) {
+                            double distance = entry.getValue();
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(entry.getKey(), distance);
+                            }
                         }
 
-                        // Logic to return the kNN (trajectory ID, distance) pairs
-                        int counter = 0;
-                        for (Map.Entry<String, Double> entry: sortedTrajDistFromQueryPoint.entrySet()) {
-                            if (counter == k) break; // to guarantee that only k outputs are generated
-                            output.collect(Tuple2.of(trajectories.get(entry.getKey()), entry.getValue()));
-                            counter++;
+                        // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+                        kNNHeap.sortDescending();
+                        for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                            output.collect(Tuple2.of(trajectories.get(kNNHeap.get(i)), kNNHeap.getDistance(i)));
                         }
                     }
                 });
@@ -192,7 +194,7 @@ public class TKNNQuery implements Serializable {
                             if ((coordinateListIf = trajectories.get(e.f0)) != null) // if trajectory exist
                             {
                                 // Updating trajectory
-                                coordinateListIf.add(new Coordinate(e.f1.point.getX(), e.f1.point.getY()));
+                                coordinateListIf.add(new Coordinate(e.f1.x, e.f1.y));
                                 trajectories.replace(e.f0, coordinateListIf);
 
                                 // Updating the object distance
@@ -203,7 +205,7 @@ public class TKNNQuery implements Serializable {
                             } else // Create a lineString with one point if does not exist already
                             {
                                 List<Coordinate> coordinateListElse = new ArrayList<Coordinate>();
-                                coordinateListElse.add(new Coordinate(e.f1.point.getX(), e.f1.point.getY()));
+                                coordinateListElse.add(new Coordinate(e.f1.x, e.f1.y));
                                 // Inserting trajectory
                                 trajectories.put(e.f0, coordinateListElse);
                                 // Inserting traj distance
@@ -240,7 +242,7 @@ public class TKNNQuery implements Serializable {
     //--------------- TKNNQuery - Real-time -----------------//
     public static DataStream<Tuple2<Point, Double>> TSpatialKNNQuery(DataStream<Point> pointStream, Point queryPoint, double queryRadius, Integer k, int omegaJoinDurationSeconds, int allowedLateness, UniformGrid uGrid) {
 
-        Set<String> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
+        Set<Long> neighboringCells = uGrid.getNeighboringCells(queryRadius, queryPoint);
 
         // Spatial stream with Timestamps and Watermarks
         // Max Allowed Lateness: windowSize
@@ -262,9 +264,9 @@ public class TKNNQuery implements Serializable {
         //filteredPoints.print();
 
         // Output at-most k objIDs and their distances from point p
-        DataStream<Tuple2<Point, Double>> kNNStream = filteredPoints.keyBy(new KeySelector<Point, String>() {
+        DataStream<Tuple2<Point, Double>> kNNStream = filteredPoints.keyBy(new KeySelector<Point, Long>() {
             @Override
-            public String getKey(Point p) throws Exception {
+            public Long getKey(Point p) throws Exception {
                 return p.gridID;
             }
         }).window(TumblingProcessingTimeWindows.of(Time.seconds(omegaJoinDurationSeconds)))
@@ -281,15 +283,14 @@ public class TKNNQuery implements Serializable {
                     Map<String, Point> pointsIDMap = new HashMap<>();
                     //Map of objID and distFromQueryPoint
                     Map<String, Double> pointDistFromQueryPoint = new HashMap<>();
-                    //Map for sorting distFromQueryPoint
-                    HashMap<String, Double> sortedPointDistFromQueryPoint = new LinkedHashMap<>();
+                    //Heap of the k nearest objIDs
+                    DistanceHeap<String> kNNHeap = new DistanceHeap<String>(k);
 
                     @Override
                     public void apply(TimeWindow window, Iterable<Tuple2<Point, Double>> input, Collector<Tuple2<Point, Double>> output) throws Exception {
 
                         pointsIDMap.clear();
                         pointDistFromQueryPoint.clear();
-                        sortedPointDistFromQueryPoint.clear();
 
                         // Collect all the points in two maps
                         for (Tuple2<Point, Double> e : input) {
@@ -307,19 +308,19 @@ public class TKNNQuery implements Serializable {
                             }
                         }
 
-                        // Sorting the pointDistFromQueryPoint map by value
-                        List<Map.Entry<String, Double>> list = new LinkedList<>(pointDistFromQueryPoint.entrySet());
-                        Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-                        for (Map.Entry<String, Double> map : list) {
-                            sortedPointDistFromQueryPoint.put(map.getKey(), map.getValue());
+                        // Selecting the k smallest distances of the pointDistFromQueryPoint map, without sorting the map
+                        kNNHeap.clear();
+                        for (Map.Entry<String, Double> entry : pointDistFromQueryPoint.entrySet()) {
+                            double distance = entry.getValue();
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(entry.getKey(), distance);
+                            }
                         }
 
-                        // Logic to return the kNN (trajectory ID, distance) pairs
-                        int counter = 0;
-                        for (Map.Entry<String, Double> entry: sortedPointDistFromQueryPoint.entrySet()) {
-                            if (counter == k) break; // to guarantee that only k outputs are generated
-                            output.collect(Tuple2.of(pointsIDMap.get(entry.getKey()), entry.getValue()));
-                            counter++;
+                        // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+                        kNNHeap.sortDescending();
+                        for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                            output.collect(Tuple2.of(pointsIDMap.get(kNNHeap.get(i)), kNNHeap.getDistance(i)));
                         }
                     }
                 });
@@ -341,28 +342,27 @@ public class TKNNQuery implements Serializable {
                 });
 
         // Output objID and its distance from point p
-        DataStream<Tuple2<String, Double>> windowedKNN = pointStreamWithTsAndWm.keyBy(new KeySelector<Point, String>() {
+        DataStream<Tuple2<String, Double>> windowedKNN = pointStreamWithTsAndWm.keyBy(new KeySelector<Point, Long>() {
             @Override
-            public String getKey(Point p) throws Exception {
+            public Long getKey(Point p) throws Exception {
                 return p.gridID;
             }
         }).window(SlidingEventTimeWindows.of(Time.seconds(windowSize), Time.seconds(windowSlideStep)))
-                .apply(new WindowFunction<Point, Tuple2<String, Double>, String, TimeWindow>() {
+                .apply(new WindowFunction<Point, Tuple2<String, Double>, Long, TimeWindow>() {
 
 
                     Map<String, Double> objMap = new HashMap<String, Double>();
-                    HashMap<String, Double> sortedObjMap = new LinkedHashMap<>();
+                    DistanceHeap<String> kNNHeap = new DistanceHeap<String>(k);
 
                     @Override
-                    public void apply(String gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<String, Double>> outputStream) throws Exception {
+                    public void apply(Long gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<String, Double>> outputStream) throws Exception {
 
                         objMap.clear();
-                        sortedObjMap.clear();
 
                         // compute the distance of all trajectory points w.r.t. query point and return the kNN (trajectory ID, distance) pairs
                         for (Point p : inputTuples) {
 
-                            Double newDistance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
+                            Double newDistance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
                             Double existingDistance = objMap.get(p.objID);
 
                             if (existingDistance == null) { // if object with the given ObjID does not already exist
@@ -373,20 +373,19 @@ public class TKNNQuery implements Serializable {
                             }
                         }
 
-                        // Sorting the map
-                        List<Map.Entry<String, Double>> list = new LinkedList<>(objMap.entrySet());
-                        Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-
-                        for (Map.Entry<String, Double> map : list) {
-                            sortedObjMap.put(map.getKey(), map.getValue());
+                        // Selecting the k smallest distances of the map, without sorting the map
+                        kNNHeap.clear();
+                        for (Map.Entry<String, Double> entry : objMap.entrySet()) {
+                            double distance = entry.getValue();
+                            if (distance < kNNHeap.threshold()) {
+                                kNNHeap.offer(entry.getKey(), distance);
+                            }
                         }
 
-                        // Logic to return the kNN (trajectory ID, distance) pairs
-                        int counter = 0;
-                        for (Map.Entry<String, Double> entry : sortedObjMap.entrySet()) {
-                            if (counter == k) break;
-                            outputStream.collect(Tuple2.of(entry.getKey(), entry.getValue()));
-                            counter++;
+                        // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+                        kNNHeap.sortDescending();
+                        for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                            outputStream.collect(Tuple2.of(kNNHeap.get(i), kNNHeap.getDistance(i)));
                         }
                     }
                 });
@@ -425,6 +424,7 @@ public class TKNNQuery implements Serializable {
                     //Map of objID and LineString
                     Map<String, List<Coordinate>> trajectories = new HashMap<>();
                     Map<String, Double> objDistFromQueryPoint = new HashMap<>();
+                    DistanceHeap<String> kNNHeap = new DistanceHeap<String>(k);
 
                     @Override
                     public void apply(TimeWindow window, Iterable<Tuple3<String, Point, Double>> input, Collector<Tuple3<String, LineString, Double>> output) throws Exception {
@@ -441,7 +441,7 @@ public class TKNNQuery implements Serializable {
                             if ((coordinateListIf = trajectories.get(e.f0)) != null) // if trajectory exist
                             {
                                 // Updating trajectory
-                                coordinateListIf.add(new Coordinate(e.f1.point.getX(), e.f1.point.getY()));
+                                coordinateListIf.add(new Coordinate(e.f1.x, e.f1.y));
                                 trajectories.replace(e.f0, coordinateListIf);
 
                                 // Updating the object distance
@@ -452,7 +452,7 @@ public class TKNNQuery implements Serializable {
                             } else // Create a lineString with one point if does not exist already
                             {
                                 List<Coordinate> coordinateListElse = new ArrayList<Coordinate>();
-                                coordinateListElse.add(new Coordinate(e.f1.point.getX(), e.f1.point.getY()));
+                                coordinateListElse.add(new Coordinate(e.f1.x, e.f1.y));
                                 // Inserting trajectory
                                 trajectories.put(e.f0, coordinateListElse);
                                 // Inserting traj distance
@@ -460,33 +460,29 @@ public class TKNNQuery implements Serializable {
                             }
                         }
 
-                        // Sorting the objDistFromQueryPoint map by value
-                        HashMap<String, Double> sortedobjDistFromQueryPoint = new LinkedHashMap<>();
-                        List<Map.Entry<String, Double>> list = new LinkedList<>(objDistFromQueryPoint.entrySet());
-                        Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-
-                        for (Map.Entry<String, Double> map : list) {
-                            sortedobjDistFromQueryPoint.put(map.getKey(), map.getValue());
+                        // Selecting the k smallest distances of the objDistFromQueryPoint map, without sorting the map
+                        // for linestring creation, at-least 2 points are required, hence the other trajectories are skipped
+                        kNNHeap.clear();
+                        for (Map.Entry<String, Double> entry : objDistFromQueryPoint.entrySet()) {
+                            double distance = entry.getValue();
+                            if (distance < kNNHeap.threshold() && trajectories.get(entry.getKey()).size() > 1) {
+                                kNNHeap.offer(entry.getKey(), distance);
+                            }
                         }
 
-                        // Logic to return the kNN (trajectory ID, distance) pairs
-                        int counter = 0;
-                        for (Map.Entry<String, Double> entry : sortedobjDistFromQueryPoint.entrySet()) {
-                            if (counter == k) break; // to guarantee that only k outputs are generated
-
-                            List<Coordinate> coordinateList = trajectories.get(entry.getKey());
-                            if(coordinateList.size() > 1) { // for linestring creation, at-least 2 points are required
-                                LineString ls = new LineString(entry.getKey(), coordinateList);
-                                output.collect(Tuple3.of(entry.getKey(), ls, entry.getValue()));
-                                counter++;
-                            }
+                        // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+                        kNNHeap.sortDescending();
+                        for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                            String objID = kNNHeap.get(i);
+                            LineString ls = new LineString(objID, trajectories.get(objID));
+                            output.collect(Tuple3.of(objID, ls, kNNHeap.getDistance(i)));
                         }
                     }
                 });
     }
 
     // Returns Tuple2<String, Double>
-    public static class kNNEvaluationWindowed implements WindowFunction<Point, Tuple2<String, Double>, String, TimeWindow> {
+    public static class kNNEvaluationWindowed implements WindowFunction<Point, Tuple2<String, Double>, Long, TimeWindow> {
 
         //ctor
         public kNNEvaluationWindowed(){}
@@ -494,23 +490,23 @@ public class TKNNQuery implements Serializable {
         public kNNEvaluationWindowed(Point qPoint, Integer k){
             this.queryPoint = qPoint;
             this.k = k;
+            this.kNNHeap = new DistanceHeap<String>(k);
         }
 
         Point queryPoint;
         Integer k;
         Map<String, Double> objMap = new HashMap<String, Double>();
-        HashMap<String, Double> sortedObjMap = new LinkedHashMap<>();
+        DistanceHeap<String> kNNHeap;
 
         @Override
-        public void apply(String gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<String, Double>> outputStream) throws Exception {
+        public void apply(Long gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<String, Double>> outputStream) throws Exception {
 
             objMap.clear();
-            sortedObjMap.clear();
 
             // compute the distance of all trajectory points w.r.t. query point and return the kNN (trajectory ID, distance) pairs
             for (Point p : inputTuples) {
 
-                Double newDistance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
+                Double newDistance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
                 Double existingDistance = objMap.get(p.objID);
 
                 if (existingDistance == null) { // if object with the given ObjID does not already exist
@@ -521,26 +517,25 @@ public class TKNNQuery implements Serializable {
                 }
             }
 
-            // Sorting the map by value
-            List<Map.Entry<String, Double>> list = new LinkedList<>(objMap.entrySet());
-            Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-
-            for (Map.Entry<String, Double> map : list) {
-                sortedObjMap.put(map.getKey(), map.getValue());
+            // Selecting the k smallest distances of the map, without sorting the map
+            kNNHeap.clear();
+            for (Map.Entry<String, Double> entry : objMap.entrySet()) {
+                double distance = entry.getValue();
+                if (distance < kNNHeap.threshold()) {
+                    kNNHeap.offer(entry.getKey(), distance);
+                }
             }
 
-            // Logic to return the kNN (trajectory ID, distance) pairs
-            int counter = 0;
-            for (Map.Entry<String, Double> entry : sortedObjMap.entrySet()) {
-                if (counter == k) break;
-                outputStream.collect(Tuple2.of(entry.getKey(), entry.getValue()));
-                counter++;
+            // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+            kNNHeap.sortDescending();
+            for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                outputStream.collect(Tuple2.of(kNNHeap.get(i), kNNHeap.getDistance(i)));
             }
         }
     }
 
     // Returns Tuple2<Point, Double>
-    public static class kNNEvaluationRealtime implements WindowFunction<Point, Tuple2<Point, Double>, String, TimeWindow> {
+    public static class kNNEvaluationRealtime implements WindowFunction<Point, Tuple2<Point, Double>, Long, TimeWindow> {
 
         //ctor
         public kNNEvaluationRealtime(){}
@@ -548,24 +543,24 @@ public class TKNNQuery implements Serializable {
         public kNNEvaluationRealtime(Point qPoint, Integer k){
             this.queryPoint = qPoint;
             this.k = k;
+            this.kNNHeap = new DistanceHeap<String>(k);
         }
 
         Point queryPoint;
         Integer k;
         Map<String, Double> objIDDistMap = new HashMap<String, Double>();
         Map<String, Point> objIDPointMap = new HashMap<String, Point>();
-        HashMap<String, Double> sortedObjMap = new LinkedHashMap<>();
+        DistanceHeap<String> kNNHeap;
 
         @Override
-        public void apply(String gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<Point, Double>> outputStream) throws Exception {
+        public void apply(Long gridID, TimeWindow timeWindow, Iterable<Point> inputTuples, Collector<Tuple2<Point, Double>> outputStream) throws Exception {
 
             objIDDistMap.clear();
             objIDPointMap.clear();
-            sortedObjMap.clear();
 
             // compute the distance of all trajectory points w.r.t. query point and return the kNN (trajectory ID, distance) pairs
             for (Point p : inputTuples) {
-                Double newDistance = HelperClass.getPointPointEuclideanDistance(p.point.getX(), p.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
+                Double newDistance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
                 Double existingDistance = objIDDistMap.get(p.objID);
 
                 if (existingDistance == null) { // if object with the given ObjID does not already exist
@@ -579,20 +574,19 @@ public class TKNNQuery implements Serializable {
                 }
             }
 
-            // Sorting the map by value
-            List<Map.Entry<String, Double>> list = new LinkedList<>(objIDDistMap.entrySet());
-            Collections.sort(list, Comparator.comparing(o -> o.getValue()));
-
-            for (Map.Entry<String, Double> map : list) {
-                sortedObjMap.put(map.getKey(), map.getValue());
+            // Selecting the k smallest distances of the map, without sorting the map
+            kNNHeap.clear();
+            for (Map.Entry<String, Double> entry : objIDDistMap.entrySet()) {
+                double distance = entry.getValue();
+                if (distance < kNNHeap.threshold()) {
+                    kNNHeap.offer(entry.getKey(), distance);
+                }
             }
 
-            // Logic to return the kNN (trajectory ID, distance) pairs
-            int counter = 0;
-            for (Map.Entry<String, Double> entry : sortedObjMap.entrySet()) {
-                if (counter == k) break;
-                outputStream.collect(Tuple2.of(objIDPointMap.get(entry.getKey()), entry.getValue()));
-                counter++;
+            // Logic to return the kNN (trajectory ID, distance) pairs, by ascending distance
+            kNNHeap.sortDescending();
+            for (int i = kNNHeap.size() - 1; i >= 0; i--) {
+                outputStream.collect(Tuple2.of(objIDPointMap.get(kNNHeap.get(i)), kNNHeap.getDistance(i)));
             }
         }
     }
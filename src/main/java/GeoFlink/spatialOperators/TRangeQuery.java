@@ -6,6 +6,7 @@ import GeoFlink.spatialObjects.Polygon;
 import GeoFlink.utils.HelperClass;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.api.common.functions.JoinFunction;
+import org.apache.flink.api.common.functions.RichFilterFunction;
 import org.apache.flink.api.common.functions.RichFlatMapFunction;
 import org.apache.flink.api.common.functions.RuntimeContext;
 import org.apache.flink.api.java.functions.KeySelector;
@@ -20,6 +21,8 @@ import org.apache.flink.streaming.api.windowing.time.Time;
 import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.util.Collector;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 
 import java.io.Serializable;
 import java.util.*;
@@ -29,7 +32,7 @@ public class TRangeQuery implements Serializable {
     //--------------- TSpatialRangeQuery Naive -----------------//
     public static DataStream<Point> TSpatialRangeQuery(Set<Polygon> polygonSet, DataStream<Point> pointStream){
 
-        HashSet<String> polygonsGridCellIDs = new HashSet<>();
+        HashSet<Long> polygonsGridCellIDs = new HashSet<>();
         // Making an integrated set of all the polygon's grid cell IDs
         for (Polygon poly: polygonSet) {
             polygonsGridCellIDs.addAll(poly.gridIDsSet);
@@ -45,7 +48,7 @@ public class TRangeQuery implements Serializable {
             @Override
             public boolean filter(Point p) throws Exception {
                 for (Polygon poly: polygonSet) {
-                    if (poly.polygon.contains(p.point.getEnvelope())) // Polygon contains the point
+                    if (poly.polygon.contains(p.getPoint())) // Polygon contains the point
                         return true;
                 }
                 return false; // Polygon does not contain the point
@@ -59,7 +62,7 @@ public class TRangeQuery implements Serializable {
     //--------------- TSpatialRangeQuery - Realtime -----------------//
     public static DataStream<Point> TSpatialRangeQuery(DataStream<Point> pointStream, Set<Polygon> polygonSet){
 
-        HashSet<String> polygonsGridCellIDs = new HashSet<>();
+        HashSet<Long> polygonsGridCellIDs = new HashSet<>();
         // Making an integrated set of all the polygon's grid cell IDs
         for (Polygon poly: polygonSet) {
             polygonsGridCellIDs.addAll(poly.gridIDsSet);
@@ -79,16 +82,46 @@ public class TRangeQuery implements Serializable {
             public String getKey(Point p) throws Exception {
                 return p.objID;
             }
-        }).filter(new FilterFunction<Point>() {
-            @Override
-            public boolean filter(Point p) throws Exception {
-                for (Polygon poly: polygonSet) {
-                    if (poly.polygon.contains(p.point.getEnvelope())) // Polygon contains the point
-                        return true;
+        }).filter(new PolygonSetContainsPoint(polygonSet));
+    }
+
+
+    // Checks if any polygon of the polygonSet contains the point
+    // The polygons are prepared (indexed for repeated point-in-polygon tests) once at open and grouped by their grid cells,
+    // so that a point is only tested against the polygons overlapping its cell
+    public static class PolygonSetContainsPoint extends RichFilterFunction<Point> {
+
+        private final Set<Polygon> polygonSet;
+        private transient HashMap<Long, List<PreparedGeometry>> cellPreparedPolygons;
+
+        //ctor
+        public PolygonSetContainsPoint(Set<Polygon> polygonSet) {
+            this.polygonSet = polygonSet;
+        }
+
+        @Override
+        public void open(Configuration parameters) {
+            cellPreparedPolygons = new HashMap<Long, List<PreparedGeometry>>();
+            for (Polygon poly: polygonSet) {
+                PreparedGeometry preparedPolygon = PreparedGeometryFactory.prepare(poly.polygon);
+                for (Long gridID: poly.gridIDsSet) {
+                    cellPreparedPolygons.computeIfAbsent(gridID, cellID -> new ArrayList<PreparedGeometry>()).add(preparedPolygon);
                 }
-                return false; // Polygon does not contain the point
             }
-        });
+        }
+
+        @Override
+        public boolean filter(Point p) throws Exception {
+            List<PreparedGeometry> preparedPolygons = cellPreparedPolygons.get(p.gridID);
+            if (preparedPolygons == null)
+                return false; // No polygon overlaps the point's cell
+
+            for (PreparedGeometry preparedPolygon: preparedPolygons) {
+                if (preparedPolygon.contains(p.getPoint())) // Polygon contains the point
+                    return true;
+            }
+            return false; // Polygon does not contain the point
+        }
     }
 
 
@@ -96,7 +129,7 @@ public class TRangeQuery implements Serializable {
     //--------------- TSpatialRangeQuery - Window-based - outputs a trajectory consisting of only the points which lie within given region -----------------//
     public static DataStream<LineString> TSpatialRangeQuery(DataStream<Point> pointStream, Set<Polygon> polygonSet, int windowSize, int windowSlideStep){
 
-        HashSet<String> polygonsGridCellIDs = new HashSet<>();
+        HashSet<Long> polygonsGridCellIDs = new HashSet<>();
 
         // Making an integrated set of all the polygon's grid cell IDs
         for (Polygon poly: polygonSet) {
@@ -136,8 +169,8 @@ public class TRangeQuery implements Serializable {
                         coordinateList.clear();
                         for (Point p : pointIterator) {
                             for (Polygon poly: polygonSet) {
-                                if (poly.polygon.contains(p.point.getEnvelope())) { // Polygon contains the point
-                                    coordinateList.add(new Coordinate(p.point.getX(), p.point.getY()));
+                                if (poly.polygon.contains(p.getPoint())) { // Polygon contains the point
+                                    coordinateList.add(new Coordinate(p.x, p.y));
                                     break;
                                 }
                             }
@@ -152,7 +185,7 @@ public class TRangeQuery implements Serializable {
     //--------------- TSpatialRangeQuery - Window-based - outputs a trajectory consisting of a complete sub-trajectory if any of its point lie within given region -----------------//
     public static DataStream<LineString> TSpatialRangeQuery(DataStream<Point> pointStream, Set<Polygon> polygonSet, int windowSize, int windowSlideStep){
 
-        HashSet<String> polygonsGridCellIDs = new HashSet<>();
+        HashSet<Long> polygonsGridCellIDs = new HashSet<>();
 
         // Making an integrated set of all the polygon's grid cell IDs
         for (Polygon poly: polygonSet) {
@@ -223,7 +256,7 @@ public class TRangeQuery implements Serializable {
                     public void apply(String objID, TimeWindow timeWindow, Iterable<Point> pointIterator, Collector<LineString> trajectory) throws Exception {
                         coordinateList.clear();
                         for (Point p : pointIterator) {
-                            coordinateList.add(new Coordinate(p.point.getX(), p.point.getY()));
+                            coordinateList.add(new Coordinate(p.x, p.y));
                             }
                         LineString ls = new LineString(objID, coordinateList);
                         trajectory.collect(ls);
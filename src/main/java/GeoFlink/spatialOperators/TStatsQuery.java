@@ -156,8 +156,8 @@ public class TStatsQuery implements Serializable {
             // If this is the first point, i.e., no past value is available
             if (lastTimestamp == null){
                 lastTimestamp = p.timeStampMillisec;
-                lastPointCoordinateX = p.point.getX();
-                lastPointCoordinateY = p.point.getY();
+                lastPointCoordinateX = p.x;
+                lastPointCoordinateY = p.y;
                 temporalLength = 0L;
                 spatialLength = 0.0;
 
@@ -172,16 +172,16 @@ public class TStatsQuery implements Serializable {
                 if (p.timeStampMillisec > lastTimestamp) // Avoiding out-of-order arrival of tuples
                 {
                     Date date = new Date();
-                    //Double currSpatialDist = HelperClass.computeHaverSine(lastPointCoordinateX, lastPointCoordinateY, p.point.getX(), p.point.getY());
-                    Double currSpatialDist = HelperClass.getPointPointEuclideanDistance(lastPointCoordinateX, lastPointCoordinateY, p.point.getX(), p.point.getY());
+                    //Double currSpatialDist = HelperClass.computeHaverSine(lastPointCoordinateX, lastPointCoordinateY, p.x, p.y);
+                    Double currSpatialDist = HelperClass.getPointPointEuclideanDistance(lastPointCoordinateX, lastPointCoordinateY, p.x, p.y);
                     Long currTemporalDist = p.timeStampMillisec - lastTimestamp;
 
                     spatialLength += currSpatialDist;
                     temporalLength += currTemporalDist;
 
                     lastTimestamp = p.timeStampMillisec;
-                    lastPointCoordinateX = p.point.getX();
-                    lastPointCoordinateY = p.point.getY();
+                    lastPointCoordinateX = p.x;
+                    lastPointCoordinateY = p.y;
 
                     // Updating the state variables
                     temporalLengthVState.update(temporalLength);
@@ -218,23 +218,23 @@ public class TStatsQuery implements Serializable {
             for (Point p : input) {
                 if (lastTimestamp.equals(0L)){ // case of first point p in the loop
                     lastTimestamp = p.timeStampMillisec;
-                    lastPointCoordinateX = p.point.getX();
-                    lastPointCoordinateY = p.point.getY();
+                    lastPointCoordinateX = p.x;
+                    lastPointCoordinateY = p.y;
                     spatialLength = 0.0;
                     temporalLength = 0L;
                 }else {
                     if (p.timeStampMillisec > lastTimestamp) // Avoiding out-of-order arrival of tuples
                     {
-                        //Double currSpatialDist = HelperClass.computeHaverSine(lastPointCoordinateX, lastPointCoordinateY, p.point.getX(), p.point.getY());
-                        Double currSpatialDist = HelperClass.getPointPointEuclideanDistance(lastPointCoordinateX, lastPointCoordinateY, p.point.getX(), p.point.getY());
+                        //Double currSpatialDist = HelperClass.computeHaverSine(lastPointCoordinateX, lastPointCoordinateY, p.x, p.y);
+                        Double currSpatialDist = HelperClass.getPointPointEuclideanDistance(lastPointCoordinateX, lastPointCoordinateY, p.x, p.y);
                         Long currTemporalDist = p.timeStampMillisec - lastTimestamp;
 
                         spatialLength += currSpatialDist;
                         temporalLength += currTemporalDist;
 
                         lastTimestamp = p.timeStampMillisec;
-                        lastPointCoordinateX = p.point.getX();
-                        lastPointCoordinateY = p.point.getY();
+                        lastPointCoordinateX = p.x;
+                        lastPointCoordinateY = p.y;
                     }
                 }
             }
@@ -0,0 +1,53 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.streaming.connectors.kafka.KafkaDeserializationSchema;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/*
+Builds spatial objects from the records written by the *ToBinaryOutputSchema classes, see BinaryWireFormat for the record layout
+The grid cells are assigned with the grid of the consuming job
+Corrupt records and records of an unexpected geometry type are skipped (deserialize() returns null)
+*/
+public abstract class BinaryInputSchema<T> implements Serializable, KafkaDeserializationSchema<T> {
+
+    protected UniformGrid uGrid;
+    private transient DataInputDeserializer in;
+
+    //ctor
+    public BinaryInputSchema(UniformGrid uGrid)
+    {
+        this.uGrid = uGrid;
+    }
+
+    // Reads the record after its header byte, null if the geometry type is not the expected one
+    protected abstract T readSpatialObject(DataInputDeserializer in, byte type, int precision) throws IOException;
+
+    @Override
+    public T deserialize(ConsumerRecord<byte[], byte[]> record) throws Exception {
+        if (record.value() == null || record.value().length == 0) {
+            return null;
+        }
+        if (in == null) {
+            in = new DataInputDeserializer();
+        }
+        in.setBuffer(record.value());
+
+        try {
+            int header = BinaryWireFormat.readHeader(in);
+            return readSpatialObject(in, BinaryWireFormat.getType(header), BinaryWireFormat.readPrecision(in, header));
+        }
+        catch (IOException | RuntimeException e) { // truncated or corrupt record
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isEndOfStream(T nextElement) {
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.IOException;
+import java.util.List;
+
+// No grid cells are assigned, as in SerializeStream.GeoJSONToSpatialLineString
+public class BinaryToLineStringInputSchema extends BinaryInputSchema<LineString> {
+
+    //ctor
+    public BinaryToLineStringInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid);
+    }
+
+    @Override
+    protected LineString readSpatialObject(DataInputDeserializer in, byte type, int precision) throws IOException {
+        if (type != BinaryWireFormat.LINE_STRING && type != BinaryWireFormat.MULTI_LINE_STRING) {
+            return null;
+        }
+        String oID = BinaryWireFormat.readObjID(in);
+        long timeStampMillisec = BinaryWireFormat.readVarLong(in);
+        List<List<Coordinate>> sequences = BinaryWireFormat.readSequences(in, precision);
+        if (sequences.size() == 0) {
+            return null;
+        }
+
+        if (type == BinaryWireFormat.MULTI_LINE_STRING) {
+            return new MultiLineString(oID, sequences, timeStampMillisec);
+        }
+        return new LineString(oID, sequences.get(0), timeStampMillisec);
+    }
+
+    @Override
+    public TypeInformation<LineString> getProducedType() {
+        return TypeInformation.of(LineString.class);
+    }
+}
@@ -0,0 +1,34 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.Point;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.IOException;
+
+public class BinaryToPointInputSchema extends BinaryInputSchema<Point> {
+
+    //ctor
+    public BinaryToPointInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid);
+    }
+
+    @Override
+    protected Point readSpatialObject(DataInputDeserializer in, byte type, int precision) throws IOException {
+        if (type != BinaryWireFormat.POINT) {
+            return null;
+        }
+        String oID = BinaryWireFormat.readObjID(in);
+        long timeStampMillisec = BinaryWireFormat.readVarLong(in);
+        Coordinate c = BinaryWireFormat.readCoordinate(in, precision);
+        return new Point(oID, c.x, c.y, timeStampMillisec, uGrid);
+    }
+
+    @Override
+    public TypeInformation<Point> getProducedType() {
+        return TypeInformation.of(Point.class);
+    }
+}
@@ -0,0 +1,63 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.spatialObjects.SpatialObject;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+
+import java.io.IOException;
+import java.util.List;
+
+// Unlike the GeoJSON and CSV input schemas, the holes of a Polygon are kept
+public class BinaryToPolygonInputSchema extends BinaryInputSchema<Polygon> {
+
+    private static final GeometryFactory geofact = new GeometryFactory();
+
+    //ctor
+    public BinaryToPolygonInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid);
+    }
+
+    @Override
+    protected Polygon readSpatialObject(DataInputDeserializer in, byte type, int precision) throws IOException {
+        if (type != BinaryWireFormat.POLYGON && type != BinaryWireFormat.MULTI_POLYGON) {
+            return null;
+        }
+        String oID = BinaryWireFormat.readObjID(in);
+        long objID = BinaryWireFormat.readVarLong(in);
+        long timeStampMillisec = BinaryWireFormat.readVarLong(in);
+        List<List<Coordinate>> sequences = BinaryWireFormat.readSequences(in, precision);
+        if (sequences.size() == 0) {
+            return null;
+        }
+
+        Polygon polygon;
+        if (type == BinaryWireFormat.MULTI_POLYGON) {
+            polygon = new MultiPolygon(sequences, objID, timeStampMillisec, uGrid);
+        }
+        else {
+            polygon = new Polygon(objID, sequences.get(0), timeStampMillisec, uGrid);
+            if (sequences.size() > 1 && polygon.polygon != null) {
+                // the holes do not change the bounding box, hence the grid cells assigned by the ctor stay valid
+                LinearRing[] holes = new LinearRing[sequences.size() - 1];
+                for (int i = 1; i < sequences.size(); i++) {
+                    holes[i - 1] = geofact.createLinearRing(sequences.get(i).toArray(new Coordinate[0]));
+                }
+                polygon.polygon = geofact.createPolygon((LinearRing) polygon.polygon.getExteriorRing(), holes);
+            }
+        }
+        ((SpatialObject) polygon).objID = oID;
+        return polygon;
+    }
+
+    @Override
+    public TypeInformation<Polygon> getProducedType() {
+        return TypeInformation.of(Polygon.class);
+    }
+}
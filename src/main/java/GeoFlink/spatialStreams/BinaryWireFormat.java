@@ -0,0 +1,176 @@
+package GeoFlink.spatialStreams;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Compact binary encoding of the spatial objects, used by the *ToBinaryOutputSchema and BinaryTo*InputSchema classes
+Record layout:
+- header byte: geometry type, DELTA_ENCODED flag
+- precision byte (delta encoded records only)
+- objID: Flink's compact string encoding (null allowed); for polygons, followed by the long objID as a zigzag varint
+- timestamp: zigzag varint
+- coordinates: Point: x, y; other geometries: number of sequences, then the number of coordinates and the coordinates of each sequence
+Coordinates are either raw doubles or, with a precision of p decimal digits, coordinates rounded to 10^-p and written as zigzag varint
+deltas to the previous coordinate of the sequence
+The grid cells are not part of the record, they are assigned by the consuming job with its own grid
+*/
+public class BinaryWireFormat {
+
+    public static final byte POINT = 1;
+    public static final byte POLYGON = 2;
+    public static final byte MULTI_POLYGON = 3;
+    public static final byte LINE_STRING = 4;
+    public static final byte MULTI_LINE_STRING = 5;
+
+    private static final int DELTA_ENCODED = 0x80;
+    private static final int TYPE_MASK = 0x0F;
+
+    public static final int RAW_DOUBLES = -1; // precision of the records with raw double coordinates
+    public static final int MAX_PRECISION = 15;
+
+    //--------------- HEADER -----------------//
+    public static void writeHeader(DataOutputView out, byte type, int precision) throws IOException {
+        if (precision == RAW_DOUBLES) {
+            out.writeByte(type);
+        }
+        else {
+            out.writeByte(type | DELTA_ENCODED);
+            out.writeByte(precision);
+        }
+    }
+
+    public static int readHeader(DataInputView in) throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    public static byte getType(int header) {
+        return (byte) (header & TYPE_MASK);
+    }
+
+    // Reads the precision byte following the header of a delta encoded record
+    public static int readPrecision(DataInputView in, int header) throws IOException {
+        return ((header & DELTA_ENCODED) != 0) ? in.readUnsignedByte() : RAW_DOUBLES;
+    }
+
+    public static void checkPrecision(int precision) {
+        if (precision != RAW_DOUBLES && (precision < 0 || precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("Coordinate precision must be between 0 and " + MAX_PRECISION + ", or RAW_DOUBLES");
+        }
+    }
+
+    //--------------- FIELDS -----------------//
+    public static void writeObjID(DataOutputView out, String objID) throws IOException {
+        StringValue.writeString(objID, out);
+    }
+
+    public static String readObjID(DataInputView in) throws IOException {
+        return StringValue.readString(in);
+    }
+
+    public static void writeVarLong(DataOutputView out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63); // zigzag, small negative values stay short
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    public static long readVarLong(DataInputView in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    //--------------- COORDINATES -----------------//
+    public static void writeCoordinate(DataOutputView out, double x, double y, int precision) throws IOException {
+        if (precision == RAW_DOUBLES) {
+            out.writeDouble(x);
+            out.writeDouble(y);
+        }
+        else {
+            double scale = Math.pow(10, precision);
+            writeVarLong(out, Math.round(x * scale));
+            writeVarLong(out, Math.round(y * scale));
+        }
+    }
+
+    public static Coordinate readCoordinate(DataInputView in, int precision) throws IOException {
+        if (precision == RAW_DOUBLES) {
+            double x = in.readDouble();
+            return new Coordinate(x, in.readDouble());
+        }
+        double scale = Math.pow(10, precision);
+        long x = readVarLong(in);
+        return new Coordinate(x / scale, readVarLong(in) / scale);
+    }
+
+    // Writes the number of sequences, to be followed by writeSequence() for each sequence
+    public static void writeSequenceCount(DataOutputView out, int numSequences) throws IOException {
+        writeVarLong(out, numSequences);
+    }
+
+    public static void writeSequence(DataOutputView out, List<Coordinate> coordinates, int precision) throws IOException {
+        writeSequence(out, coordinates.toArray(new Coordinate[0]), precision);
+    }
+
+    public static void writeSequence(DataOutputView out, Coordinate[] coordinates, int precision) throws IOException {
+        writeVarLong(out, coordinates.length);
+        if (precision == RAW_DOUBLES) {
+            for (Coordinate c : coordinates) {
+                out.writeDouble(c.x);
+                out.writeDouble(c.y);
+            }
+            return;
+        }
+        double scale = Math.pow(10, precision);
+        long prevX = 0;
+        long prevY = 0;
+        for (Coordinate c : coordinates) {
+            long x = Math.round(c.x * scale);
+            long y = Math.round(c.y * scale);
+            writeVarLong(out, x - prevX);
+            writeVarLong(out, y - prevY);
+            prevX = x;
+            prevY = y;
+        }
+    }
+
+    public static List<List<Coordinate>> readSequences(DataInputView in, int precision) throws IOException {
+        int numSequences = (int) readVarLong(in);
+        List<List<Coordinate>> sequences = new ArrayList<List<Coordinate>>(numSequences);
+        double scale = (precision == RAW_DOUBLES) ? 0 : Math.pow(10, precision);
+        for (int s = 0; s < numSequences; s++) {
+            int n = (int) readVarLong(in);
+            List<Coordinate> coordinates = new ArrayList<Coordinate>(n);
+            long x = 0;
+            long y = 0;
+            for (int i = 0; i < n; i++) {
+                if (precision == RAW_DOUBLES) {
+                    double rawX = in.readDouble();
+                    coordinates.add(new Coordinate(rawX, in.readDouble()));
+                }
+                else {
+                    x += readVarLong(in);
+                    y += readVarLong(in);
+                    coordinates.add(new Coordinate(x / scale, y / scale));
+                }
+            }
+            sequences.add(coordinates);
+        }
+        return sequences;
+    }
+}
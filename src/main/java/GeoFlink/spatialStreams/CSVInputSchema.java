@@ -0,0 +1,311 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.utils.TimestampParser;
+import org.apache.flink.streaming.connectors.kafka.KafkaDeserializationSchema;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+Builds spatial objects directly from the CSV/TSV bytes of the Kafka records, replacing JSONKeyValueDeserializationSchema followed by
+the CSVTo*, TSVTo* map functions of SerializeStream
+A record contains an optional object ID (1st field), a WKT geometry and optional fields, the timestamp is the last field which can be
+parsed with dateFormat, e.g. 1, POINT (116.69171 39.85184), 2008-02-02 20:12:32
+The record may be a JSON string (surrounded by quotes, tabs escaped as \t), delimiters within the WKT parentheses do not split fields
+Fields are scanned in place, only the object ID, the timestamp candidates and the spatial object itself are allocated
+*/
+public abstract class CSVInputSchema<T> implements Serializable, KafkaDeserializationSchema<T> {
+
+    protected static final String POINT = "POINT";
+    protected static final String LINESTRING = "LINESTRING";
+    protected static final String POLYGON = "POLYGON";
+    protected static final String MULTIPOINT = "MULTIPOINT";
+    protected static final String MULTILINESTRING = "MULTILINESTRING";
+    protected static final String MULTIPOLYGON = "MULTIPOLYGON";
+    private static final String[] WKT_TYPES = {MULTIPOLYGON, MULTILINESTRING, MULTIPOINT, POLYGON, LINESTRING, POINT};
+
+    // POW10[i] = 10^i, exact in double for i <= 22
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    protected UniformGrid uGrid;
+    protected DateFormat dateFormat; // null: timestamps are not parsed
+    private transient TimestampParser timestampParser;
+    private final byte delimiter;
+
+    // Scanned record, valid until the next call of scan()
+    private transient byte[] record;
+    private transient int[] fieldStart;
+    private transient int[] fieldEnd;
+    private transient int numFields;
+    private transient int geometryField; // -1 if the record contains no WKT geometry
+    protected transient String geometryType; // one of the WKT type constants
+    protected transient List<List<Coordinate>> coordinatesLists; // innermost coordinate sequences of the geometry, in order
+    protected transient String oID;
+    protected transient long timeStampMillisec;
+
+    //ctor
+    public CSVInputSchema(UniformGrid uGrid, DateFormat dateFormat, char delimiter)
+    {
+        this.uGrid = uGrid;
+        this.dateFormat = dateFormat;
+        this.delimiter = (byte) delimiter;
+    }
+
+    // Creates the spatial object from the scanned record, null if the record is not of the expected geometry type
+    protected abstract T createSpatialObject();
+
+    @Override
+    public T deserialize(ConsumerRecord<byte[], byte[]> record) throws Exception {
+        if (record.value() == null || !scan(record.value())) {
+            return null;
+        }
+        return createSpatialObject();
+    }
+
+    @Override
+    public boolean isEndOfStream(T nextElement) {
+        return false;
+    }
+
+    private TimestampParser getTimestampParser() {
+        if (timestampParser == null) {
+            timestampParser = new TimestampParser(dateFormat);
+        }
+        return timestampParser;
+    }
+
+    //--------------- SCANNER -----------------//
+    protected boolean scan(byte[] b) {
+        if (fieldStart == null) {
+            fieldStart = new int[8];
+            fieldEnd = new int[8];
+        }
+        record = b;
+        numFields = 0;
+        geometryField = -1;
+        geometryType = null;
+        coordinatesLists = null;
+        oID = null;
+        timeStampMillisec = 0;
+
+        int start = 0;
+        int end = b.length;
+        while (start < end && isWhitespace(b[start])) start++;
+        while (end > start && isWhitespace(b[end - 1])) end--;
+        if (end - start >= 2 && b[start] == '"' && b[end - 1] == '"') {
+            start++;
+            end--;
+        }
+
+        // Splitting the fields, delimiters within parentheses belong to the WKT geometry
+        int depth = 0;
+        int fieldBegin = start;
+        for (int i = start; i < end; i++) {
+            byte c = b[i];
+            if (c == '(') {
+                depth++;
+            }
+            else if (c == ')') {
+                depth--;
+            }
+            else if (depth == 0) {
+                if (c == delimiter) {
+                    addField(fieldBegin, i);
+                    fieldBegin = i + 1;
+                }
+                else if (delimiter == '\t' && c == '\\' && i + 1 < end && b[i + 1] == 't') {
+                    addField(fieldBegin, i);
+                    fieldBegin = i + 2;
+                    i++;
+                }
+            }
+        }
+        addField(fieldBegin, end);
+
+        for (int f = 0; f < numFields && geometryField < 0; f++) {
+            geometryType = getWKTType(fieldStart[f], fieldEnd[f]);
+            if (geometryType != null) {
+                geometryField = f;
+            }
+        }
+        if (geometryField < 0) {
+            return false;
+        }
+
+        try {
+            coordinatesLists = parseWKTCoordinates(fieldStart[geometryField] + geometryType.length(), fieldEnd[geometryField]);
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        if (coordinatesLists.size() == 0) {
+            return false;
+        }
+
+        if (geometryField != 0) {
+            oID = new String(b, fieldStart[0], fieldEnd[0] - fieldStart[0], StandardCharsets.UTF_8);
+        }
+
+        // The timestamp is the last field which can be parsed
+        if (dateFormat != null) {
+            for (int f = numFields - 1; f >= 0; f--) {
+                if (f == geometryField || fieldEnd[f] == fieldStart[f]) {
+                    continue;
+                }
+                try {
+                    timeStampMillisec = getTimestampParser().parseFormatted(new String(b, fieldStart[f], fieldEnd[f] - fieldStart[f], StandardCharsets.UTF_8));
+                    break;
+                }
+                catch (ParseException e) {}
+            }
+        }
+        return true;
+    }
+
+    // Adds the field [from, to) without the surrounding whitespaces
+    private void addField(int from, int to) {
+        while (from < to && isWhitespace(record[from])) from++;
+        while (to > from && isWhitespace(record[to - 1])) to--;
+        if (numFields == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, numFields * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, numFields * 2);
+        }
+        fieldStart[numFields] = from;
+        fieldEnd[numFields] = to;
+        numFields++;
+    }
+
+    // Returns the WKT type the field starts with, null if none
+    private String getWKTType(int from, int to) {
+        for (String type : WKT_TYPES) {
+            int n = type.length();
+            if (to - from < n) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < n && matches; i++) {
+                matches = (record[from + i] | 0x20) == (type.charAt(i) | 0x20);
+            }
+            // the keyword must be followed by a parenthesis or a whitespace, e.g. POINT (1 2), POINT Z (1 2 3)
+            if (matches && (from + n == to || record[from + n] == '(' || isWhitespace(record[from + n]))) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Parses the coordinates of a WKT geometry body, e.g. ((1 2, 3 4, 5 6, 1 2), (7 8, 9 10, 11 12, 7 8))
+    private List<List<Coordinate>> parseWKTCoordinates(int from, int to) {
+        List<List<Coordinate>> lists = new ArrayList<List<Coordinate>>();
+        List<Coordinate> sequence = null;
+        int i = from;
+        while (i < to) {
+            byte c = record[i];
+            if (c == '(') {
+                sequence = null;
+                i++;
+            }
+            else if (c == ')') {
+                if (sequence != null) {
+                    lists.add(sequence);
+                    sequence = null;
+                }
+                i++;
+            }
+            else if (isNumberStart(c)) {
+                int j = skipNumber(i, to);
+                double x = parseDouble(record, i, j);
+                i = j;
+                while (i < to && isWhitespace(record[i])) i++;
+                j = skipNumber(i, to);
+                double y = parseDouble(record, i, j);
+                i = j;
+                // skipping the optional Z and M values
+                while (i < to && record[i] != ',' && record[i] != ')') i++;
+                if (sequence == null) {
+                    sequence = new ArrayList<Coordinate>();
+                }
+                sequence.add(new Coordinate(x, y));
+            }
+            else {
+                i++;
+            }
+        }
+        if (sequence != null) {
+            lists.add(sequence);
+        }
+        return lists;
+    }
+
+    private int skipNumber(int i, int to) {
+        while (i < to && (isNumberStart(record[i]) || record[i] == 'e' || record[i] == 'E')) i++;
+        return i;
+    }
+
+    private static boolean isNumberStart(byte c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    // Parses a decimal number without creating a String
+    // Exact when the digits fit into 53 bits and there are at most 22 fraction digits, otherwise Double.parseDouble is used
+    protected static double parseDouble(byte[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;
+        int numFractionDigits = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                if (numDigits == 18) {
+                    return parseDoubleSlow(b, from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                numDigits++;
+                if (fraction) {
+                    numFractionDigits++;
+                }
+            }
+            else if (c == '.' && !fraction) {
+                fraction = true;
+            }
+            else { // exponent or invalid number
+                return parseDoubleSlow(b, from, to);
+            }
+        }
+
+        if (numDigits == 0 || mantissa >= (1L << 53) || numFractionDigits >= POW10.length) {
+            return parseDoubleSlow(b, from, to);
+        }
+        double d = mantissa / POW10[numFractionDigits];
+        return negative ? -d : d;
+    }
+
+    private static double parseDoubleSlow(byte[] b, int from, int to) {
+        return Double.parseDouble(new String(b, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,40 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+
+import java.text.DateFormat;
+
+// As in SerializeStream.CSVToTSpatialLineString, no grid cells are assigned to the line strings
+public class CSVToLineStringInputSchema extends CSVInputSchema<LineString> {
+
+    //ctor
+    public CSVToLineStringInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        super(uGrid, dateFormat, ',');
+    }
+
+    // TSV: delimiter '\t'
+    public CSVToLineStringInputSchema(UniformGrid uGrid, DateFormat dateFormat, char delimiter)
+    {
+        super(uGrid, dateFormat, delimiter);
+    }
+
+    @Override
+    protected LineString createSpatialObject() {
+        if (geometryType == MULTILINESTRING) {
+            return new MultiLineString(oID, coordinatesLists, timeStampMillisec);
+        }
+        else if (geometryType == LINESTRING) {
+            return new LineString(oID, coordinatesLists.get(0), timeStampMillisec);
+        }
+        return null;
+    }
+
+    @Override
+    public TypeInformation<LineString> getProducedType() {
+        return TypeInformation.of(LineString.class);
+    }
+}
@@ -0,0 +1,37 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.Point;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.text.DateFormat;
+
+public class CSVToPointInputSchema extends CSVInputSchema<Point> {
+
+    //ctor
+    public CSVToPointInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        super(uGrid, dateFormat, ',');
+    }
+
+    // TSV: delimiter '\t'
+    public CSVToPointInputSchema(UniformGrid uGrid, DateFormat dateFormat, char delimiter)
+    {
+        super(uGrid, dateFormat, delimiter);
+    }
+
+    @Override
+    protected Point createSpatialObject() {
+        if (geometryType != POINT) {
+            return null;
+        }
+        Coordinate coordinate = coordinatesLists.get(0).get(0);
+        return new Point(oID, coordinate.x, coordinate.y, timeStampMillisec, uGrid);
+    }
+
+    @Override
+    public TypeInformation<Point> getProducedType() {
+        return TypeInformation.of(Point.class);
+    }
+}
@@ -0,0 +1,176 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.utils.TimestampParser;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.core.JsonFactory;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.core.JsonParser;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.core.JsonToken;
+import org.apache.flink.streaming.connectors.kafka.KafkaDeserializationSchema;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Builds spatial objects directly from the GeoJSON bytes of the Kafka records, replacing JSONKeyValueDeserializationSchema followed by
+the GeoJSONToSpatial* map functions
+The record value is read with Jackson's token stream, no JSON tree is materialized
+Accepts a Feature ({"geometry": {...}, "properties": {"oID": ..., "timestamp": ...}}) or a bare geometry, in any key order
+Malformed records and records of an unexpected geometry type are skipped (deserialize() returns null)
+*/
+public abstract class GeoJSONInputSchema<T> implements Serializable, KafkaDeserializationSchema<T> {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    protected UniformGrid uGrid;
+    protected DateFormat dateFormat; // null: the timestamp is expected in milliseconds
+    private transient TimestampParser timestampParser;
+
+    // Parsed record, valid until the next call of parse()
+    protected String geometryType;
+    protected Coordinate coordinate; // Point geometry
+    protected List<List<Coordinate>> coordinatesLists; // innermost coordinate arrays of the other geometries, in order
+    protected String oID;
+    protected long timeStampMillisec;
+
+    //ctor
+    public GeoJSONInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        this.uGrid = uGrid;
+        this.dateFormat = dateFormat;
+    }
+
+    // Creates the spatial object from the parsed record, null if the record is not of the expected geometry type
+    protected abstract T createSpatialObject();
+
+    @Override
+    public T deserialize(ConsumerRecord<byte[], byte[]> record) throws Exception {
+        if (record.value() == null || !parse(record.value())) {
+            return null;
+        }
+        return createSpatialObject();
+    }
+
+    @Override
+    public boolean isEndOfStream(T nextElement) {
+        return false;
+    }
+
+    private TimestampParser getTimestampParser() {
+        if (timestampParser == null) {
+            timestampParser = new TimestampParser(dateFormat);
+        }
+        return timestampParser;
+    }
+
+    //--------------- PARSER -----------------//
+    protected boolean parse(byte[] json) {
+        geometryType = null;
+        coordinate = null;
+        coordinatesLists = new ArrayList<List<Coordinate>>();
+        oID = null;
+        timeStampMillisec = 0;
+
+        try (JsonParser jp = jsonFactory.createParser(json)) {
+            if (jp.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            parseObject(jp);
+        }
+        catch (IOException | RuntimeException e) {
+            return false;
+        }
+        return geometryType != null && (coordinate != null || coordinatesLists.size() > 0);
+    }
+
+    // Feature or geometry object, the current token is START_OBJECT
+    private void parseObject(JsonParser jp) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            if (field.equals("geometry") && token == JsonToken.START_OBJECT) {
+                parseObject(jp);
+            }
+            else if (field.equals("properties") && token == JsonToken.START_OBJECT) {
+                parseProperties(jp);
+            }
+            else if (field.equals("coordinates") && token == JsonToken.START_ARRAY) {
+                coordinate = parseCoordinates(jp);
+            }
+            else if (field.equals("type") && token == JsonToken.VALUE_STRING) {
+                String type = jp.getText();
+                if (!type.equals("Feature")) {
+                    geometryType = type;
+                }
+            }
+            else {
+                jp.skipChildren();
+            }
+        }
+    }
+
+    // Returns the coordinate if the array is a position, otherwise adds the innermost arrays to coordinatesLists
+    private Coordinate parseCoordinates(JsonParser jp) throws IOException {
+        JsonToken token = jp.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            double x = jp.getDoubleValue();
+            jp.nextToken();
+            double y = jp.getDoubleValue();
+            // skipping the optional altitude
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                jp.skipChildren();
+            }
+            return new Coordinate(x, y);
+        }
+
+        List<Coordinate> positions = null;
+        for (; token == JsonToken.START_ARRAY; token = jp.nextToken()) {
+            Coordinate c = parseCoordinates(jp);
+            if (c != null) {
+                if (positions == null) {
+                    positions = new ArrayList<Coordinate>();
+                }
+                positions.add(c);
+            }
+        }
+        if (positions != null) {
+            coordinatesLists.add(positions);
+        }
+        return null;
+    }
+
+    private void parseProperties(JsonParser jp) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            if (field.equals("oID") && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                oID = jp.getText();
+            }
+            else if (field.equals("timestamp") && token == JsonToken.VALUE_STRING) {
+                if (dateFormat != null) {
+                    try {
+                        timeStampMillisec = getTimestampParser().parse(jp.getText());
+                    }
+                    catch (ParseException e) {}
+                }
+                else {
+                    try {
+                        timeStampMillisec = Long.parseLong(jp.getText());
+                    }
+                    catch (NumberFormatException e) {}
+                }
+            }
+            else if (field.equals("timestamp") && token == JsonToken.VALUE_NUMBER_INT) {
+                timeStampMillisec = jp.getLongValue();
+            }
+            else {
+                jp.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+
+import java.text.DateFormat;
+
+// As in SerializeStream.GeoJSONToTSpatialLineString, no grid cells are assigned to the line strings
+public class GeoJSONToLineStringInputSchema extends GeoJSONInputSchema<LineString> {
+
+    //ctor
+    public GeoJSONToLineStringInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid, null);
+    }
+
+    public GeoJSONToLineStringInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        super(uGrid, dateFormat);
+    }
+
+    @Override
+    protected LineString createSpatialObject() {
+        if (coordinatesLists.size() == 0) {
+            return null;
+        }
+
+        if (geometryType.equalsIgnoreCase("MultiLineString")) {
+            return new MultiLineString(oID, coordinatesLists, timeStampMillisec);
+        }
+        else if (geometryType.equalsIgnoreCase("LineString")) {
+            return new LineString(oID, coordinatesLists.get(0), timeStampMillisec);
+        }
+        return null;
+    }
+
+    @Override
+    public TypeInformation<LineString> getProducedType() {
+        return TypeInformation.of(LineString.class);
+    }
+}
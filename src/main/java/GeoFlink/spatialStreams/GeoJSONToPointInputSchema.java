@@ -0,0 +1,34 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.Point;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+
+import java.text.DateFormat;
+
+public class GeoJSONToPointInputSchema extends GeoJSONInputSchema<Point> {
+
+    //ctor
+    public GeoJSONToPointInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid, null);
+    }
+
+    public GeoJSONToPointInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        super(uGrid, dateFormat);
+    }
+
+    @Override
+    protected Point createSpatialObject() {
+        if (!geometryType.equalsIgnoreCase("Point") || coordinate == null) {
+            return null;
+        }
+        return new Point(oID, coordinate.x, coordinate.y, timeStampMillisec, uGrid);
+    }
+
+    @Override
+    public TypeInformation<Point> getProducedType() {
+        return TypeInformation.of(Point.class);
+    }
+}
@@ -0,0 +1,64 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Polygon;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.text.DateFormat;
+import java.util.List;
+
+// Polygon holes are ignored, as in SerializeStream.GeoJSONToSpatialPolygon
+public class GeoJSONToPolygonInputSchema extends GeoJSONInputSchema<Polygon> {
+
+    //ctor
+    public GeoJSONToPolygonInputSchema(UniformGrid uGrid)
+    {
+        super(uGrid, null);
+    }
+
+    public GeoJSONToPolygonInputSchema(UniformGrid uGrid, DateFormat dateFormat)
+    {
+        super(uGrid, dateFormat);
+    }
+
+    @Override
+    protected Polygon createSpatialObject() {
+        if (coordinatesLists.size() == 0) {
+            return null;
+        }
+
+        long objID = -1;
+        if (oID != null) {
+            try {
+                objID = Long.parseLong(oID);
+            }
+            catch (NumberFormatException e) {}
+        }
+
+        if (geometryType.equalsIgnoreCase("MultiPolygon")) {
+            for (List<Coordinate> coordinates : coordinatesLists) {
+                closeRing(coordinates);
+            }
+            return new MultiPolygon(coordinatesLists, objID, timeStampMillisec, uGrid);
+        }
+        else if (geometryType.equalsIgnoreCase("Polygon")) {
+            return new Polygon(objID, closeRing(coordinatesLists.get(0)), timeStampMillisec, uGrid);
+        }
+        return null;
+    }
+
+    // Adding the first coordinate at the end if the ring is not closed
+    private static List<Coordinate> closeRing(List<Coordinate> coordinates) {
+        if (!coordinates.get(0).equals2D(coordinates.get(coordinates.size() - 1))) {
+            coordinates.add(new Coordinate(coordinates.get(0).x, coordinates.get(0).y));
+        }
+        return coordinates;
+    }
+
+    @Override
+    public TypeInformation<Polygon> getProducedType() {
+        return TypeInformation.of(Polygon.class);
+    }
+}
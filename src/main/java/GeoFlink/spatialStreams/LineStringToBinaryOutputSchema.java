@@ -0,0 +1,67 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.locationtech.jts.geom.Coordinate;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+
+// See BinaryWireFormat for the record layout
+public class LineStringToBinaryOutputSchema implements Serializable, KafkaSerializationSchema<LineString> {
+
+    private String outputTopic;
+    private int precision;
+    private transient DataOutputSerializer buf;
+
+    public LineStringToBinaryOutputSchema(String outputTopicName)
+    {
+        this(outputTopicName, BinaryWireFormat.RAW_DOUBLES);
+    }
+
+    // precision: number of decimal digits of the delta encoded coordinates, BinaryWireFormat.RAW_DOUBLES for raw doubles
+    public LineStringToBinaryOutputSchema(String outputTopicName, int precision)
+    {
+        BinaryWireFormat.checkPrecision(precision);
+        this.outputTopic = outputTopicName;
+        this.precision = precision;
+    }
+
+    @Override
+    public ProducerRecord<byte[], byte[]> serialize(LineString lineString, @Nullable Long timestamp) {
+
+        if (buf == null) {
+            buf = new DataOutputSerializer(256);
+        }
+        buf.clear();
+
+        try {
+            boolean isMultiLineString = lineString instanceof MultiLineString;
+            BinaryWireFormat.writeHeader(buf, isMultiLineString ? BinaryWireFormat.MULTI_LINE_STRING : BinaryWireFormat.LINE_STRING, precision);
+            BinaryWireFormat.writeObjID(buf, lineString.objID);
+            BinaryWireFormat.writeVarLong(buf, lineString.timeStampMillisec);
+
+            if (isMultiLineString) {
+                List<List<Coordinate>> listCoordinate = ((MultiLineString) lineString).getListCoordinate();
+                BinaryWireFormat.writeSequenceCount(buf, listCoordinate.size());
+                for (List<Coordinate> coordinates : listCoordinate) {
+                    BinaryWireFormat.writeSequence(buf, coordinates, precision);
+                }
+            }
+            else {
+                BinaryWireFormat.writeSequenceCount(buf, 1);
+                BinaryWireFormat.writeSequence(buf, lineString.lineString.getCoordinates(), precision);
+            }
+        }
+        catch (IOException e) { // not thrown by DataOutputSerializer, which grows as needed
+            throw new RuntimeException(e);
+        }
+
+        return new ProducerRecord<byte[], byte[]>(outputTopic, buf.getCopyOfBuffer());
+    }
+}
@@ -1,23 +1,18 @@
 package GeoFlink.spatialStreams;
 
 import GeoFlink.spatialObjects.LineString;
-import GeoFlink.spatialObjects.MultiLineString;
+import GeoFlink.utils.SpatialTextWriter;
 import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.json.JSONObject;
-import org.locationtech.jts.geom.Coordinate;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
 
-public class LineStringToGeoJSONOutputSchema  implements Serializable, KafkaSerializationSchema<LineString> {
+
+public class LineStringToGeoJSONOutputSchema implements Serializable, KafkaSerializationSchema<LineString> {
 
     private String outputTopic;
+    private transient SpatialTextWriter writer;
 
     public LineStringToGeoJSONOutputSchema(String outputTopicName)
     {
@@ -27,49 +22,25 @@ public class LineStringToGeoJSONOutputSchema  implements Serializable, KafkaSeri
     @Override
     public ProducerRecord<byte[], byte[]> serialize(LineString lineString, @Nullable Long timestamp) {
 
-        JSONObject jsonObj = new JSONObject();
+        if (writer == null) {
+            writer = new SpatialTextWriter();
+        }
+        writer.reset();
+
+        writer.append("{\"geometry\":").appendGeoJSONGeometry(lineString).append(",\"type\":\"Feature\"");
 
-        JSONObject jsonGeometry = new JSONObject();
-        if (lineString instanceof MultiLineString) {
-            List<List<Coordinate>> listCoordinate = ((MultiLineString)lineString).getListCoordinate();
-            List<List<double[]>> jsonCoordinate = new ArrayList<List<double[]>>();
-            for (List<Coordinate> l : listCoordinate) {
-                List<double[]> arrCoordinate = new ArrayList<double[]>();
-                for (Coordinate c : l) {
-                    double[] coordinate = {c.x, c.y};
-                    arrCoordinate.add(coordinate);
-                }
-                jsonCoordinate.add(arrCoordinate);
+        if (lineString.objID != null || lineString.timeStampMillisec != 0) {
+            writer.append(",\"properties\":{");
+            if (lineString.objID != null) {
+                writer.append("\"oID\":").appendJSONString(lineString.objID);
             }
-            jsonGeometry.put("type", "MultiLineString");
-            jsonGeometry.put("coordinates", jsonCoordinate);
-        }
-        else {
-            Coordinate[] lineStringCoordinates = lineString.lineString.getCoordinates();
-            List<double[]> jsonCoordinate = new ArrayList<double[]>();
-            for (Coordinate c : lineStringCoordinates) {
-                double[] coordinate = {c.x, c.y};
-                jsonCoordinate.add(coordinate);
+            if (lineString.timeStampMillisec != 0) {
+                writer.append(lineString.objID != null ? ",\"timestamp\":\"" : "\"timestamp\":\"").appendTimestamp(lineString.timeStampMillisec).append('"');
             }
-            jsonGeometry.put("type", "LineString");
-            jsonGeometry.put("coordinates", jsonCoordinate);
+            writer.append('}');
         }
-        jsonObj.put("geometry", jsonGeometry);
-
-        JSONObject jsonpProperties = new JSONObject();
-        if (lineString.objID != null) {
-            jsonpProperties.put("oID", lineString.objID);
-        }
-        if (lineString.timeStampMillisec != 0) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            jsonpProperties.put("timestamp", sdf.format(new Date(lineString.timeStampMillisec)));
-        }
-        if (jsonpProperties.length() > 0) {
-            jsonObj.put("properties", jsonpProperties);
-        }
-
-        jsonObj.put("type", "Feature");
+        writer.append('}');
 
-        return new ProducerRecord<byte[], byte[]>(outputTopic, jsonObj.toString().getBytes(StandardCharsets.UTF_8));
+        return new ProducerRecord<byte[], byte[]>(outputTopic, writer.toBytes());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialObjects.Point;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Serializable;
+
+// See BinaryWireFormat for the record layout
+public class PointToBinaryOutputSchema implements Serializable, KafkaSerializationSchema<Point> {
+
+    private String outputTopic;
+    private int precision;
+    private transient DataOutputSerializer buf;
+
+    public PointToBinaryOutputSchema(String outputTopicName)
+    {
+        this(outputTopicName, BinaryWireFormat.RAW_DOUBLES);
+    }
+
+    // precision: number of decimal digits of the delta encoded coordinates, BinaryWireFormat.RAW_DOUBLES for raw doubles
+    public PointToBinaryOutputSchema(String outputTopicName, int precision)
+    {
+        BinaryWireFormat.checkPrecision(precision);
+        this.outputTopic = outputTopicName;
+        this.precision = precision;
+    }
+
+    @Override
+    public ProducerRecord<byte[], byte[]> serialize(Point point, @Nullable Long timestamp) {
+
+        if (buf == null) {
+            buf = new DataOutputSerializer(64);
+        }
+        buf.clear();
+
+        try {
+            BinaryWireFormat.writeHeader(buf, BinaryWireFormat.POINT, precision);
+            BinaryWireFormat.writeObjID(buf, point.objID);
+            BinaryWireFormat.writeVarLong(buf, point.timeStampMillisec);
+            BinaryWireFormat.writeCoordinate(buf, point.x, point.y, precision);
+        }
+        catch (IOException e) { // not thrown by DataOutputSerializer, which grows as needed
+            throw new RuntimeException(e);
+        }
+
+        return new ProducerRecord<byte[], byte[]>(outputTopic, buf.getCopyOfBuffer());
+    }
+}
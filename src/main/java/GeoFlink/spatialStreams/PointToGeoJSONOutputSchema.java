@@ -1,21 +1,18 @@
 package GeoFlink.spatialStreams;
 
 import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.SpatialTextWriter;
 import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
 import org.apache.kafka.clients.producer.ProducerRecord;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.*;
-
-import org.json.*;
 
 
 public class PointToGeoJSONOutputSchema implements Serializable, KafkaSerializationSchema<Point> {
 
     private String outputTopic;
+    private transient SpatialTextWriter writer;
 
     public PointToGeoJSONOutputSchema(String outputTopicName)
     {
@@ -25,26 +22,25 @@ public class PointToGeoJSONOutputSchema implements Serializable, KafkaSerializat
     @Override
     public ProducerRecord<byte[], byte[]> serialize(Point point, @Nullable Long timestamp) {
 
-        JSONObject jsonObj = new JSONObject();
-
-        JSONObject jsonGeometry = new JSONObject();
-        double[] coordinate = {point.point.getX(), point.point.getY()};
-        jsonGeometry.put("coordinates", coordinate);
-        jsonGeometry.put("type", "Point");
-        jsonObj.put("geometry", jsonGeometry);
-
-        JSONObject jsonpProperties = new JSONObject();
-        jsonpProperties.put("oID", point.objID);
-        if (point.timeStampMillisec != 0) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            jsonpProperties.put("timestamp", sdf.format(new Date(point.timeStampMillisec)));
+        if (writer == null) {
+            writer = new SpatialTextWriter();
         }
-        if (jsonpProperties.length() > 0) {
-            jsonObj.put("properties", jsonpProperties);
+        writer.reset();
+
+        writer.append("{\"geometry\":").appendGeoJSONGeometry(point).append(",\"type\":\"Feature\"");
+
+        if (point.objID != null || point.timeStampMillisec != 0) {
+            writer.append(",\"properties\":{");
+            if (point.objID != null) {
+                writer.append("\"oID\":").appendJSONString(point.objID);
+            }
+            if (point.timeStampMillisec != 0) {
+                writer.append(point.objID != null ? ",\"timestamp\":\"" : "\"timestamp\":\"").appendTimestamp(point.timeStampMillisec).append('"');
+            }
+            writer.append('}');
         }
+        writer.append('}');
 
-        jsonObj.put("type", "Feature");
-
-        return new ProducerRecord<byte[], byte[]>(outputTopic, jsonObj.toString().getBytes(StandardCharsets.UTF_8));
+        return new ProducerRecord<byte[], byte[]>(outputTopic, writer.toBytes());
     }
 }
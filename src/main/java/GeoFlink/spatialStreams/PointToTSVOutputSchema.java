@@ -1,19 +1,20 @@
 package GeoFlink.spatialStreams;
 
 import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.SpatialTextWriter;
 import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
 import org.apache.kafka.clients.producer.ProducerRecord;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 
 public class PointToTSVOutputSchema implements Serializable, KafkaSerializationSchema<Point> {
 
+    private static final String SEPARATION = "\\t";
+
     private String outputTopic;
+    private transient SpatialTextWriter writer;
 
     public PointToTSVOutputSchema(String outputTopicName)
     {
@@ -23,27 +24,21 @@ public class PointToTSVOutputSchema implements Serializable, KafkaSerializationS
     @Override
     public ProducerRecord<byte[], byte[]> serialize(Point point, @Nullable Long timestamp) {
 
-        final String SEPARATION = "\\t";
-        StringBuffer buf = new StringBuffer();
+        if (writer == null) {
+            writer = new SpatialTextWriter();
+        }
+        writer.reset();
 
-        buf.append("\"");
+        writer.append('"');
         if (point.objID != null) {
-            buf.append(point.objID);
-            buf.append(SEPARATION + " ");
+            writer.append(point.objID).append(SEPARATION).append(' ');
         }
-        buf.append("POINT(");
-        buf.append(point.point.getX());
-        buf.append(" ");
-        buf.append(point.point.getY());
-        buf.append(")");
+        writer.appendWKT(point);
         if (point.timeStampMillisec != 0) {
-            buf.append(SEPARATION + " ");
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            buf.append(sdf.format(new Date(point.timeStampMillisec)));
+            writer.append(SEPARATION).append(' ').appendTimestamp(point.timeStampMillisec);
         }
-        buf.append("\"");
-        buf.append(SEPARATION);
+        writer.append('"').append(SEPARATION);
 
-        return new ProducerRecord<byte[], byte[]>(outputTopic, buf.toString().getBytes(StandardCharsets.UTF_8));
+        return new ProducerRecord<byte[], byte[]>(outputTopic, writer.toBytes());
     }
 }
@@ -0,0 +1,73 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.spatialObjects.SpatialObject;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.locationtech.jts.geom.Coordinate;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+
+// See BinaryWireFormat for the record layout; the sequences of a Polygon are its shell followed by its holes
+public class PolygonToBinaryOutputSchema implements Serializable, KafkaSerializationSchema<Polygon> {
+
+    private String outputTopic;
+    private int precision;
+    private transient DataOutputSerializer buf;
+
+    public PolygonToBinaryOutputSchema(String outputTopicName)
+    {
+        this(outputTopicName, BinaryWireFormat.RAW_DOUBLES);
+    }
+
+    // precision: number of decimal digits of the delta encoded coordinates, BinaryWireFormat.RAW_DOUBLES for raw doubles
+    public PolygonToBinaryOutputSchema(String outputTopicName, int precision)
+    {
+        BinaryWireFormat.checkPrecision(precision);
+        this.outputTopic = outputTopicName;
+        this.precision = precision;
+    }
+
+    @Override
+    public ProducerRecord<byte[], byte[]> serialize(Polygon polygon, @Nullable Long timestamp) {
+
+        if (buf == null) {
+            buf = new DataOutputSerializer(256);
+        }
+        buf.clear();
+
+        try {
+            boolean isMultiPolygon = polygon instanceof MultiPolygon;
+            BinaryWireFormat.writeHeader(buf, isMultiPolygon ? BinaryWireFormat.MULTI_POLYGON : BinaryWireFormat.POLYGON, precision);
+            BinaryWireFormat.writeObjID(buf, ((SpatialObject) polygon).objID);
+            BinaryWireFormat.writeVarLong(buf, polygon.objID);
+            BinaryWireFormat.writeVarLong(buf, polygon.timeStampMillisec);
+
+            if (isMultiPolygon) {
+                List<List<Coordinate>> listCoordinate = ((MultiPolygon) polygon).getListCoordinate();
+                BinaryWireFormat.writeSequenceCount(buf, listCoordinate.size());
+                for (List<Coordinate> coordinates : listCoordinate) {
+                    BinaryWireFormat.writeSequence(buf, coordinates, precision);
+                }
+            }
+            else {
+                int numHoles = polygon.polygon.getNumInteriorRing();
+                BinaryWireFormat.writeSequenceCount(buf, numHoles + 1);
+                BinaryWireFormat.writeSequence(buf, polygon.polygon.getExteriorRing().getCoordinates(), precision);
+                for (int i = 0; i < numHoles; i++) {
+                    BinaryWireFormat.writeSequence(buf, polygon.polygon.getInteriorRingN(i).getCoordinates(), precision);
+                }
+            }
+        }
+        catch (IOException e) { // not thrown by DataOutputSerializer, which grows as needed
+            throw new RuntimeException(e);
+        }
+
+        return new ProducerRecord<byte[], byte[]>(outputTopic, buf.getCopyOfBuffer());
+    }
+}
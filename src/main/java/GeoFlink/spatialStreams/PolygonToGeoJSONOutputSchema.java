@@ -1,23 +1,18 @@
 package GeoFlink.spatialStreams;
 
-import GeoFlink.spatialObjects.MultiPolygon;
 import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.utils.SpatialTextWriter;
 import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.json.JSONObject;
-import org.locationtech.jts.geom.Coordinate;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+
 
 public class PolygonToGeoJSONOutputSchema implements Serializable, KafkaSerializationSchema<Polygon> {
 
     private String outputTopic;
+    private transient SpatialTextWriter writer;
 
     public PolygonToGeoJSONOutputSchema(String outputTopicName)
     {
@@ -27,53 +22,25 @@ public class PolygonToGeoJSONOutputSchema implements Serializable, KafkaSerializ
     @Override
     public ProducerRecord<byte[], byte[]> serialize(Polygon polygon, @Nullable Long timestamp) {
 
-        JSONObject jsonObj = new JSONObject();
+        if (writer == null) {
+            writer = new SpatialTextWriter();
+        }
+        writer.reset();
+
+        writer.append("{\"geometry\":").appendGeoJSONGeometry(polygon).append(",\"type\":\"Feature\"");
 
-        JSONObject jsonGeometry = new JSONObject();
-        if (polygon instanceof MultiPolygon) {
-            List<List<Coordinate>> listCoordinate = ((MultiPolygon)polygon).getListCoordinate();
-            List<List<List<double[]>>> jsonCoordinate = new ArrayList<List<List<double[]>>>();
-            for (List<Coordinate> l : listCoordinate) {
-                List<double[]> arrCoordinate = new ArrayList<double[]>();
-                for (Coordinate c : l) {
-                    double[] coordinate = {c.x, c.y};
-                    arrCoordinate.add(coordinate);
-                }
-                List<List<double[]>> coordinates = new ArrayList<List<double[]>>();
-                coordinates.add(arrCoordinate);
-                jsonCoordinate.add(coordinates);
+        if (polygon.objID != -1 || polygon.timeStampMillisec != 0) {
+            writer.append(",\"properties\":{");
+            if (polygon.objID != -1) {
+                writer.append("\"oID\":\"").append(polygon.objID).append('"');
             }
-            jsonGeometry.put("type", "MultiPolygon");
-            jsonGeometry.put("coordinates", jsonCoordinate);
-        }
-        else {
-            Coordinate[] polygonCoordinates = polygon.polygon.getCoordinates();
-            List<double[]> coordinates = new ArrayList<double[]>();
-            for (Coordinate c : polygonCoordinates) {
-                double[] coordinate = {c.x, c.y};
-                coordinates.add(coordinate);
+            if (polygon.timeStampMillisec != 0) {
+                writer.append(polygon.objID != -1 ? ",\"timestamp\":\"" : "\"timestamp\":\"").appendTimestamp(polygon.timeStampMillisec).append('"');
             }
-            jsonGeometry.put("type", "Polygon");
-            List<List<double[]>> jsonCoordinate = new ArrayList<List<double[]>>();
-            jsonCoordinate.add(coordinates);
-            jsonGeometry.put("coordinates", jsonCoordinate);
+            writer.append('}');
         }
-        jsonObj.put("geometry", jsonGeometry);
-
-        JSONObject jsonpProperties = new JSONObject();
-        if (polygon.objID != -1) {
-            jsonpProperties.put("oID", String.valueOf(polygon.objID));
-        }
-        if (polygon.timeStampMillisec != 0) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            jsonpProperties.put("timestamp", sdf.format(new Date(polygon.timeStampMillisec)));
-        }
-        if (jsonpProperties.length() > 0) {
-            jsonObj.put("properties", jsonpProperties);
-        }
-
-        jsonObj.put("type", "Feature");
+        writer.append('}');
 
-        return new ProducerRecord<byte[], byte[]>(outputTopic, jsonObj.toString().getBytes(StandardCharsets.UTF_8));
+        return new ProducerRecord<byte[], byte[]>(outputTopic, writer.toBytes());
     }
-}
\ No newline at end of file
+}
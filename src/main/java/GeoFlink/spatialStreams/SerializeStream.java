@@ -18,6 +18,7 @@ package GeoFlink.spatialStreams;
 
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.spatialObjects.*;
+import GeoFlink.utils.TimestampParser;
 import com.vividsolutions.jts.geom.Geometry;
 import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.JsonNode;
@@ -112,6 +113,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  GeoJSONToTSpatial() {};
@@ -120,6 +122,7 @@ public class SerializeStream implements Serializable {
 
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -142,7 +145,7 @@ public class SerializeStream implements Serializable {
                 JsonNode nodeTime = jsonObj.get("value").get("properties").get("timestamp");
                 try {
                     if (nodeTime != null && dateFormat != null) {
-                        time = dateFormat.parse(nodeTime.textValue()).getTime();
+                        time = timestampParser.parse(nodeTime.textValue());
                     }
                 }
                 catch (ParseException e) {}
@@ -187,6 +190,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  CSVToTSpatial() {};
@@ -194,6 +198,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -215,7 +220,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -256,6 +261,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  TSVToTSpatial() {};
@@ -263,6 +269,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -284,7 +291,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -389,6 +396,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  GeoJSONToTSpatialPolygon() {};
@@ -396,6 +404,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -419,7 +428,7 @@ public class SerializeStream implements Serializable {
                 JsonNode nodeTime = jsonObj.get("value").get("properties").get("timestamp");
                 try {
                     if (nodeTime != null && dateFormat != null) {
-                        time = dateFormat.parse(nodeTime.textValue()).getTime();
+                        time = timestampParser.parse(nodeTime.textValue());
                     }
                 }
                 catch (ParseException e) {}
@@ -510,6 +519,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  CSVToTSpatialPolygon() {};
@@ -517,6 +527,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -538,7 +549,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -628,6 +639,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  TSVToTSpatialPolygon() {};
@@ -635,6 +647,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -656,7 +669,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -780,6 +793,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  GeoJSONToTSpatialLineString() {};
@@ -787,6 +801,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -810,7 +825,7 @@ public class SerializeStream implements Serializable {
                 JsonNode nodeTime = jsonObj.get("value").get("properties").get("timestamp");
                 try {
                     if (nodeTime != null && dateFormat != null) {
-                        time = dateFormat.parse(nodeTime.textValue()).getTime();
+                        time = timestampParser.parse(nodeTime.textValue());
                     }
                 }
                 catch (ParseException e) {}
@@ -879,6 +894,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  CSVToTSpatialLineString() {};
@@ -886,6 +902,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -902,7 +919,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -967,6 +984,7 @@ public class SerializeStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  TSVToTSpatialLineString() {};
@@ -974,6 +992,7 @@ public class SerializeStream implements Serializable {
         {
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -990,7 +1009,7 @@ public class SerializeStream implements Serializable {
                 Collections.reverse(strArrayList);
                 for (String str : strArrayList){
                     try {
-                        time = dateFormat.parse(str.trim()).getTime();
+                        time = timestampParser.parseFormatted(str.trim());
                         break;
                     }
                     catch(ParseException e) {}
@@ -19,7 +19,10 @@ package GeoFlink.spatialStreams;
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.spatialObjects.Point;
 import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.spatialOperators.QueryUpdate;
+import GeoFlink.utils.TimestampParser;
 import com.typesafe.config.ConfigException;
+import org.apache.flink.api.common.functions.RichFlatMapFunction;
 import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.JsonNode;
@@ -27,6 +30,7 @@ import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.node.Obje
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.apache.flink.util.Collector;
 import org.locationtech.jts.geom.Coordinate;
 import java.io.Serializable;
 import java.text.DateFormat;
@@ -93,6 +97,7 @@ public class SpatialStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  GeoJSONToTSpatial() {};
@@ -101,6 +106,7 @@ public class SpatialStream implements Serializable {
 
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -115,8 +121,7 @@ public class SpatialStream implements Serializable {
                 //spatialPoint = new Point(jsonObj.get("value").get("properties").get("oID").asText(), jsonObj.get("value").get("geometry").get("coordinates").get(0).asDouble(), jsonObj.get("value").get("geometry").get("coordinates").get(1).asDouble(), date.getTime(), uGrid);
             }
             else {
-                Date dateTime = this.dateFormat.parse(jsonObj.get("value").get("properties").get("timestamp").asText());
-                long timeStampMillisec = dateTime.getTime();
+                long timeStampMillisec = this.timestampParser.parse(jsonObj.get("value").get("properties").get("timestamp").asText());
                 spatialPoint = new Point(jsonObj.get("value").get("properties").get("oID").asText(), jsonObj.get("value").get("geometry").get("coordinates").get(0).asDouble(), jsonObj.get("value").get("geometry").get("coordinates").get(1).asDouble(), timeStampMillisec, uGrid);
             }
 
@@ -152,6 +157,7 @@ public class SpatialStream implements Serializable {
 
         UniformGrid uGrid;
         DateFormat dateFormat;
+        TimestampParser timestampParser;
 
         //ctor
         public  CSVToTSpatial() {};
@@ -160,6 +166,7 @@ public class SpatialStream implements Serializable {
 
             this.uGrid = uGrid;
             this.dateFormat = dateFormat;
+            this.timestampParser = (dateFormat == null) ? null : new TimestampParser(dateFormat);
         };
 
         @Override
@@ -179,8 +186,7 @@ public class SpatialStream implements Serializable {
                 spatialPoint = new Point(strArrayList.get(1), Double.parseDouble(strArrayList.get(2)), Double.parseDouble(strArrayList.get(3)), timeStampMillisec, uGrid);
             }
             else {
-                Date dateTime = this.dateFormat.parse(strArrayList.get(0));
-                long timeStampMillisec = dateTime.getTime();
+                long timeStampMillisec = this.timestampParser.parse(strArrayList.get(0));
                 spatialPoint = new Point(strArrayList.get(1), Double.parseDouble(strArrayList.get(2)), Double.parseDouble(strArrayList.get(3)), timeStampMillisec, uGrid);
             }
 
@@ -309,4 +315,97 @@ public class SpatialStream implements Serializable {
         }
     }
 
-}
\ No newline at end of file
+
+    // Control stream of the dynamic queries, see QueryBroadcastFunction
+    public static DataStream<QueryUpdate> QueryUpdateStream(DataStream<ObjectNode> inputStream, UniformGrid uGrid){
+
+        DataStream<QueryUpdate> queryUpdateStream = inputStream.flatMap(new JSONToQueryUpdate(uGrid)).name("Query Updates");
+        return queryUpdateStream;
+    }
+
+    // {"queryID": "q1", "operation": "ADD", "geometry": {"type": "Point", "coordinates": [116.4, 39.9]}, "radius": 0.005, "k": 10}
+    // {"queryID": "q1", "operation": "REMOVE"}
+    // operation defaults to ADD and k to 0 (range query); polygon queries are defined by the exterior ring of a Polygon geometry
+    // Malformed messages are skipped
+    public static class JSONToQueryUpdate extends RichFlatMapFunction<ObjectNode, QueryUpdate> {
+
+        UniformGrid uGrid;
+
+        //ctor
+        public  JSONToQueryUpdate() {};
+        public  JSONToQueryUpdate(UniformGrid uGrid)
+        {
+            this.uGrid = uGrid;
+        };
+
+        @Override
+        public void flatMap(ObjectNode jsonObj, Collector<QueryUpdate> out) throws Exception {
+
+            JsonNode value = jsonObj.get("value");
+            if (value == null || !value.hasNonNull("queryID")) {
+                System.out.println("Query update without queryID skipped: " + jsonObj);
+                return;
+            }
+            String queryID = value.get("queryID").asText();
+            String operation = value.hasNonNull("operation") ? value.get("operation").asText().toUpperCase() : QueryUpdate.ADD;
+
+            if (operation.equals(QueryUpdate.REMOVE)) {
+                out.collect(QueryUpdate.removeQuery(queryID));
+                return;
+            }
+
+            JsonNode geometry = value.get("geometry");
+            JsonNode radius = value.get("radius");
+            if (!operation.equals(QueryUpdate.ADD) || geometry == null || !geometry.hasNonNull("type") || radius == null || !radius.isNumber()) {
+                System.out.println("Malformed query update skipped: " + jsonObj);
+                return;
+            }
+            double queryRadius = radius.asDouble();
+            int k = value.hasNonNull("k") ? value.get("k").asInt() : 0;
+
+            String geometryType = geometry.get("type").asText();
+            JsonNode JSONCoordinates = geometry.get("coordinates");
+            if (geometryType.equalsIgnoreCase("Point")) {
+                if (!isJSONCoordinate(JSONCoordinates)) {
+                    System.out.println("Malformed query update skipped: " + jsonObj);
+                    return;
+                }
+                Point queryPoint = new Point(JSONCoordinates.get(0).asDouble(), JSONCoordinates.get(1).asDouble(), uGrid);
+                out.collect(new QueryUpdate(QueryUpdate.ADD, queryID, queryPoint, null, queryRadius, k));
+            }
+            else if (geometryType.equalsIgnoreCase("Polygon")) {
+                // exterior ring
+                JsonNode JSONRing = (JSONCoordinates == null) ? null : JSONCoordinates.get(0);
+                if (JSONRing == null || !JSONRing.isArray()) {
+                    System.out.println("Malformed query update skipped: " + jsonObj);
+                    return;
+                }
+                List<Coordinate> coordinates = new ArrayList<>();
+                for (JsonNode JSONCoordinate : JSONRing) {
+                    if (!isJSONCoordinate(JSONCoordinate)) {
+                        System.out.println("Malformed query update skipped: " + jsonObj);
+                        return;
+                    }
+                    coordinates.add(new Coordinate(JSONCoordinate.get(0).asDouble(), JSONCoordinate.get(1).asDouble()));
+                }
+                Polygon queryPolygon;
+                try {
+                    queryPolygon = new Polygon(coordinates, uGrid);
+                }
+                catch (IllegalArgumentException e) { // e.g. a ring which is not closed or has less than 4 coordinates
+                    System.out.println("Malformed query update skipped: " + jsonObj + " (" + e.getMessage() + ")");
+                    return;
+                }
+                out.collect(new QueryUpdate(QueryUpdate.ADD, queryID, null, queryPolygon, queryRadius, k));
+            }
+            else {
+                System.out.println("Unsupported query geometry skipped: " + geometryType);
+            }
+        }
+
+        // [x, y, ...] with numeric x and y
+        private static boolean isJSONCoordinate(JsonNode JSONCoordinate) {
+            return JSONCoordinate != null && JSONCoordinate.isArray() && JSONCoordinate.size() >= 2 && JSONCoordinate.get(0).isNumber() && JSONCoordinate.get(1).isNumber();
+        }
+    }
+}
@@ -16,8 +16,8 @@ public class Comparators {
         public inTuplePointDistanceComparator() {}
 
         public int compare(Tuple2<Point, Double> t1, Tuple2<Point, Double> t2) {
-            //double distance1 = HelperClass.getPointPointEuclideanDistance(t1.f0.point.getX(), t1.f0.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
-            //double distance2 = HelperClass.getPointPointEuclideanDistance(t2.f0.point.getX(), t2.f0.point.getY(), queryPoint.point.getX(), queryPoint.point.getY());
+            //double distance1 = HelperClass.getPointPointEuclideanDistance(t1.f0.x, t1.f0.y, queryPoint.x, queryPoint.y);
+            //double distance2 = HelperClass.getPointPointEuclideanDistance(t2.f0.x, t2.f0.y, queryPoint.x, queryPoint.y);
             double distance1 = t1.f1;
             double distance2 = t2.f1;
 
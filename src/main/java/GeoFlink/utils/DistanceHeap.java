@@ -0,0 +1,159 @@
+package GeoFlink.utils;
+
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+import org.apache.flink.api.java.tuple.Tuple2;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/*
+Fixed-capacity max-heap of objects keyed on primitive double distances, used for the top-k selection of the kNN operators
+The object with the largest distance is at the top, hence threshold() gives in O(1) the distance an object must beat to be added
+once the heap is full; objects and distances are kept in parallel arrays, an offer does not allocate
+An object is only added to a full heap if its distance is smaller than the largest one, as by the previous PriorityQueue based kNNs
+Not thread-safe, a heap is reused across the windows of a window function after clear()
+Serialized by DistanceHeapSerializer, with the serializer of the element type
+*/
+@TypeInfo(DistanceHeapSerializer.DistanceHeapTypeInfoFactory.class)
+public class DistanceHeap<T> implements Serializable {
+
+    private Object[] objects;
+    private double[] distances;
+    private int size;
+
+    //ctor
+    public DistanceHeap() {} // required for serialization
+
+    public DistanceHeap(int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Heap capacity must be at least 1");
+        }
+        this.objects = new Object[capacity];
+        this.distances = new double[capacity];
+    }
+
+    public int size() {return size;}
+    public int capacity() {return objects.length;}
+    public boolean isEmpty() {return size == 0;}
+    public boolean isFull() {return size == objects.length;}
+
+    public void clear() {
+        // releasing the objects of the previous window
+        for (int i = 0; i < size; i++) {
+            objects[i] = null;
+        }
+        size = 0;
+    }
+
+    // Distance an object must be smaller than to be added: the largest distance if the heap is full, infinity otherwise
+    public double threshold() {
+        return (size == objects.length) ? distances[0] : Double.POSITIVE_INFINITY;
+    }
+
+    // Object with the largest distance, null if the heap is empty
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return (size == 0) ? null : (T) objects[0];
+    }
+
+    public double peekDistance() {
+        return (size == 0) ? Double.NaN : distances[0];
+    }
+
+    // Objects and distances in heap order, i.e. the index 0 holds the largest distance
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        return (T) objects[i];
+    }
+
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    // Returns true if the object is added, replacing the object with the largest distance if the heap is full
+    public boolean offer(T object, double distance) {
+        if (size < objects.length) {
+            siftUp(size++, object, distance);
+            return true;
+        }
+        if (distance >= distances[0]) {
+            return false;
+        }
+        siftDown(0, object, distance);
+        return true;
+    }
+
+    // Offers all the objects of another heap, e.g. to merge the partial kNNs
+    public void offerAll(DistanceHeap<T> heap) {
+        for (int i = 0; i < heap.size; i++) {
+            if (heap.distances[i] < threshold()) {
+                offer(heap.get(i), heap.distances[i]);
+            }
+        }
+    }
+
+    // Sorts the objects by descending distance, which is still a valid max-heap; get(size() - 1) is the nearest object
+    public void sortDescending() {
+        // heap sort, the largest distances are moved to the end, then the order is reversed
+        int n = size;
+        while (size > 1) {
+            Object object = objects[--size];
+            double distance = distances[size];
+            objects[size] = objects[0];
+            distances[size] = distances[0];
+            siftDown(0, object, distance);
+        }
+        size = n;
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            Object object = objects[i];
+            objects[i] = objects[j];
+            objects[j] = object;
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+
+    // Output of the kNN operators, ordered by the given comparator (e.g. Comparators.inTuplePointDistanceComparator)
+    public PriorityQueue<Tuple2<T, Double>> toPriorityQueue(Comparator<Tuple2<T, Double>> comparator) {
+        PriorityQueue<Tuple2<T, Double>> pq = new PriorityQueue<Tuple2<T, Double>>(Math.max(size, 1), comparator);
+        for (int i = 0; i < size; i++) {
+            pq.offer(Tuple2.of(get(i), distances[i]));
+        }
+        return pq;
+    }
+
+    private void siftUp(int i, Object object, double distance) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] >= distance) {
+                break;
+            }
+            objects[i] = objects[parent];
+            distances[i] = distances[parent];
+            i = parent;
+        }
+        objects[i] = object;
+        distances[i] = distance;
+    }
+
+    private void siftDown(int i, Object object, double distance) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distance >= distances[child]) {
+                break;
+            }
+            objects[i] = objects[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        objects[i] = object;
+        distances[i] = distance;
+    }
+}
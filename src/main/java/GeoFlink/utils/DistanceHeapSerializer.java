@@ -0,0 +1,242 @@
+package GeoFlink.utils;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.CompositeTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.java.typeutils.GenericTypeInfo;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+
+/*
+Serializer of the kNN heaps, replaces Kryo for the partial kNNs shipped to the merge operators and kept in their state
+Wire format: capacity, size, then (distance, object) for each object in heap order; the objects are written by the serializer of
+the element type, e.g. the spatial object serializers
+The objects are read back in heap order, hence offer() rebuilds the same arrays without moving any object
+*/
+public class DistanceHeapSerializer<T> extends TypeSerializer<DistanceHeap<T>> {
+
+    private final TypeSerializer<T> elementSerializer;
+
+    //ctor
+    public DistanceHeapSerializer(TypeSerializer<T> elementSerializer) {
+        this.elementSerializer = elementSerializer;
+    }
+
+    public TypeSerializer<T> getElementSerializer() {return elementSerializer;}
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public TypeSerializer<DistanceHeap<T>> duplicate() {
+        TypeSerializer<T> duplicateElementSerializer = elementSerializer.duplicate();
+        return (duplicateElementSerializer == elementSerializer) ? this : new DistanceHeapSerializer<T>(duplicateElementSerializer);
+    }
+
+    @Override
+    public DistanceHeap<T> createInstance() {
+        return new DistanceHeap<T>();
+    }
+
+    @Override
+    public DistanceHeap<T> copy(DistanceHeap<T> from) {
+        DistanceHeap<T> heap = new DistanceHeap<T>(from.capacity());
+        for (int i = 0; i < from.size(); i++) {
+            heap.offer(elementSerializer.copy(from.get(i)), from.getDistance(i));
+        }
+        return heap;
+    }
+
+    @Override
+    public DistanceHeap<T> copy(DistanceHeap<T> from, DistanceHeap<T> reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(DistanceHeap<T> heap, DataOutputView target) throws IOException {
+        target.writeInt(heap.capacity());
+        target.writeInt(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            target.writeDouble(heap.getDistance(i));
+            elementSerializer.serialize(heap.get(i), target);
+        }
+    }
+
+    @Override
+    public DistanceHeap<T> deserialize(DataInputView source) throws IOException {
+        DistanceHeap<T> heap = new DistanceHeap<T>(source.readInt());
+        int size = source.readInt();
+        for (int i = 0; i < size; i++) {
+            double distance = source.readDouble();
+            heap.offer(elementSerializer.deserialize(source), distance);
+        }
+        return heap;
+    }
+
+    @Override
+    public DistanceHeap<T> deserialize(DistanceHeap<T> reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        target.writeInt(source.readInt());
+        int size = source.readInt();
+        target.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            target.writeDouble(source.readDouble());
+            elementSerializer.copy(source, target);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof DistanceHeapSerializer && elementSerializer.equals(((DistanceHeapSerializer<?>) obj).elementSerializer);
+    }
+
+    @Override
+    public int hashCode() {
+        return elementSerializer.hashCode();
+    }
+
+    @Override
+    public TypeSerializerSnapshot<DistanceHeap<T>> snapshotConfiguration() {
+        return new DistanceHeapSerializerSnapshot<T>(this);
+    }
+
+    public static final class DistanceHeapSerializerSnapshot<T> extends CompositeTypeSerializerSnapshot<DistanceHeap<T>, DistanceHeapSerializer<T>> {
+
+        private static final int VERSION = 1;
+
+        public DistanceHeapSerializerSnapshot() {
+            super(DistanceHeapSerializer.class);
+        }
+
+        public DistanceHeapSerializerSnapshot(DistanceHeapSerializer<T> serializer) {
+            super(serializer);
+        }
+
+        @Override
+        protected int getCurrentOuterSnapshotVersion() {
+            return VERSION;
+        }
+
+        @Override
+        protected TypeSerializer<?>[] getNestedSerializers(DistanceHeapSerializer<T> outerSerializer) {
+            return new TypeSerializer<?>[] {outerSerializer.getElementSerializer()};
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected DistanceHeapSerializer<T> createOuterSerializerWithNestedSerializers(TypeSerializer<?>[] nestedSerializers) {
+            return new DistanceHeapSerializer<T>((TypeSerializer<T>) nestedSerializers[0]);
+        }
+    }
+
+    //--------------- TYPE INFORMATION -----------------//
+    // Type information of DistanceHeap<T>, given the type information of T
+    public static class DistanceHeapTypeInfo<T> extends TypeInformation<DistanceHeap<T>> {
+
+        private final TypeInformation<T> elementTypeInfo;
+
+        //ctor
+        public DistanceHeapTypeInfo(TypeInformation<T> elementTypeInfo) {
+            this.elementTypeInfo = elementTypeInfo;
+        }
+
+        public TypeInformation<T> getElementTypeInfo() {return elementTypeInfo;}
+
+        @Override
+        public boolean isBasicType() {
+            return false;
+        }
+
+        @Override
+        public boolean isTupleType() {
+            return false;
+        }
+
+        @Override
+        public int getArity() {
+            return 1;
+        }
+
+        @Override
+        public int getTotalFields() {
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<DistanceHeap<T>> getTypeClass() {
+            return (Class<DistanceHeap<T>>) (Class<?>) DistanceHeap.class;
+        }
+
+        @Override
+        public Map<String, TypeInformation<?>> getGenericParameters() {
+            return Collections.<String, TypeInformation<?>>singletonMap("T", elementTypeInfo);
+        }
+
+        @Override
+        public boolean isKeyType() {
+            return false;
+        }
+
+        @Override
+        public TypeSerializer<DistanceHeap<T>> createSerializer(ExecutionConfig config) {
+            return new DistanceHeapSerializer<T>(elementTypeInfo.createSerializer(config));
+        }
+
+        @Override
+        public String toString() {
+            return "DistanceHeap<" + elementTypeInfo + ">";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof DistanceHeapTypeInfo) {
+                DistanceHeapTypeInfo<?> other = (DistanceHeapTypeInfo<?>) obj;
+                return other.canEqual(this) && elementTypeInfo.equals(other.elementTypeInfo);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * DistanceHeap.class.hashCode() + elementTypeInfo.hashCode();
+        }
+
+        @Override
+        public boolean canEqual(Object obj) {
+            return obj instanceof DistanceHeapTypeInfo;
+        }
+    }
+
+    // The element type falls back to Kryo if it cannot be extracted, e.g. for a heap of an unbound type variable
+    public static class DistanceHeapTypeInfoFactory<T> extends TypeInfoFactory<DistanceHeap<T>> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public TypeInformation<DistanceHeap<T>> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            TypeInformation<?> elementTypeInfo = genericParameters.get("T");
+            if (elementTypeInfo == null) {
+                elementTypeInfo = new GenericTypeInfo<Object>(Object.class);
+            }
+            return new DistanceHeapTypeInfo<T>((TypeInformation<T>) elementTypeInfo);
+        }
+    }
+}
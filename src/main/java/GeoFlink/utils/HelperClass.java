@@ -19,18 +19,30 @@ package GeoFlink.utils;
 import GeoFlink.spatialIndices.UniformGrid;
 import GeoFlink.spatialObjects.Point;
 import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.spatialObjects.SpatialObject;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.api.common.functions.RichFlatMapFunction;
+import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.api.common.functions.RuntimeContext;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.tuple.Tuple4;
 import org.apache.flink.api.java.tuple.Tuple5;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.functions.timestamps.BoundedOutOfOrdernessTimestampExtractor;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.streaming.connectors.kafka.KafkaSerializationSchema;
 import org.apache.flink.util.Collector;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -42,26 +54,28 @@ public class HelperClass {
 
     private static final double mEarthRadius = 6371008.7714;
 
-    // return a string padded with zeroes to make the string equivalent to desiredStringLength
-    public static String padLeadingZeroesToInt(int cellIndex, int desiredStringLength)
+    // cell key assigned to the objects which are not mapped to any grid cell
+    public static final long NULL_CELL_KEY = Long.MIN_VALUE;
+
+    // return a cell key by packing the x index in the upper 32 bits and the y index in the lower 32 bits
+    public static long getCellKey(int xCellIndex, int yCellIndex)
     {
-        return String.format("%0"+ Integer.toString(desiredStringLength) +"d", cellIndex);
+        return ((long) xCellIndex << 32) | (yCellIndex & 0xFFFFFFFFL);
     }
 
-    // return an integer by removing the leading zeroes from the string
-    public static int removeLeadingZeroesFromString(String str)
+    public static int getXCellIndex(long cellKey)
     {
-        return Integer.parseInt(str.replaceFirst("^0+(?!$)", ""));
+        return (int) (cellKey >> 32);
     }
 
-    public static boolean pointWithinQueryRange(ArrayList<Integer> pointCellIndices, ArrayList<Integer> queryCellIndices, int neighboringLayers){
+    public static int getYCellIndex(long cellKey)
+    {
+        return (int) cellKey;
+    }
 
-        if((pointCellIndices.get(0) >= queryCellIndices.get(0) - neighboringLayers) && (pointCellIndices.get(0) <= queryCellIndices.get(0) + neighboringLayers) && (pointCellIndices.get(1) >= queryCellIndices.get(1) - neighboringLayers) && (pointCellIndices.get(1) <= queryCellIndices.get(1) + neighboringLayers)){
-            return true;
-        }
-        else{
-            return false;
-        }
+    public static boolean pointWithinQueryRange(long pointCellKey, long queryCellKey, int neighboringLayers){
+
+        return (Math.abs(getXCellIndex(pointCellKey) - getXCellIndex(queryCellKey)) <= neighboringLayers) && (Math.abs(getYCellIndex(pointCellKey) - getYCellIndex(queryCellKey)) <= neighboringLayers);
     }
 
     // Compute the Bounding Box of a polygon
@@ -78,95 +92,84 @@ public class HelperClass {
         return Tuple2.of(new Coordinate(lineString.getEnvelopeInternal().getMinX(), lineString.getEnvelopeInternal().getMinY(), 0), new Coordinate(lineString.getEnvelopeInternal().getMaxX(), lineString.getEnvelopeInternal().getMaxY(), 0));
     }
 
-    // assigning grid cell ID
-    public static String assignGridCellID(Coordinate coordinate, UniformGrid uGrid) {
-
-        // Direct approach to compute the cellIDs (Key)
-        // int xCellIndex = (int)(Math.floor((point.getX() - uGrid.getMinX())/uGrid.getCellLength()));
-        // int yCellIndex = (int)(Math.floor((point.getY() - uGrid.getMinY())/uGrid.getCellLength()));
-        int xCellIndex = (int)(Math.floor((coordinate.getX() - uGrid.getMinX())/uGrid.getCellLength()));
-        int yCellIndex = (int)(Math.floor((coordinate.getY() - uGrid.getMinY())/uGrid.getCellLength()));
-
-        String gridIDStr = HelperClass.padLeadingZeroesToInt(xCellIndex, uGrid.getCellIndexStrLength()) + HelperClass.padLeadingZeroesToInt(yCellIndex, uGrid.getCellIndexStrLength());
-
-        return gridIDStr;
+    // Returns the envelope of a bounding box, expanded by queryRadius on every side
+    public static Envelope getQueryEnvelope(Tuple2<Coordinate, Coordinate> bBox, double queryRadius)
+    {
+        return new Envelope(bBox.f0.getX() - queryRadius, bBox.f1.getX() + queryRadius, bBox.f0.getY() - queryRadius, bBox.f1.getY() + queryRadius);
     }
 
-    // assigning grid cell ID - BoundingBox
-    public static HashSet<String> assignGridCellID(Tuple2<Coordinate, Coordinate> bBox, UniformGrid uGrid) {
-
-        HashSet<String> gridCellIDs = new HashSet<String>();
-
-        // bottom-left coordinate (min values)
-        int xCellIndex1 = (int) (Math.floor((bBox.f0.getX() - uGrid.getMinX()) / uGrid.getCellLength()));
-        int yCellIndex1 = (int) (Math.floor((bBox.f0.getY() - uGrid.getMinY()) / uGrid.getCellLength()));
-
-        // top-right coordinate (max values)
-        int xCellIndex2 = (int) (Math.floor((bBox.f1.getX() - uGrid.getMinX()) / uGrid.getCellLength()));
-        int yCellIndex2 = (int) (Math.floor((bBox.f1.getY() - uGrid.getMinY()) / uGrid.getCellLength()));
+    // Returns the envelope of a point, expanded by queryRadius on every side
+    public static Envelope getQueryEnvelope(Point p, double queryRadius)
+    {
+        return new Envelope(p.x - queryRadius, p.x + queryRadius, p.y - queryRadius, p.y + queryRadius);
+    }
 
-        for(int x = xCellIndex1; x <= xCellIndex2; x++)
-            for(int y = yCellIndex1; y <= yCellIndex2; y++)
-            {
-                String gridIDStr = HelperClass.padLeadingZeroesToInt(x, uGrid.getCellIndexStrLength()) + HelperClass.padLeadingZeroesToInt(y, uGrid.getCellIndexStrLength());
-                gridCellIDs.add(gridIDStr);
+    // Assigns the timestamps of the spatial objects (timeStampMillisec) and watermarks trailing the largest timestamp by allowedLateness seconds
+    // The periodic watermarks require a non-zero auto watermark interval, e.g. env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime)
+    public static <T extends SpatialObject> DataStream<T> assignTimestampsAndWatermarks(DataStream<T> spatialStream, int allowedLateness)
+    {
+        return spatialStream.assignTimestampsAndWatermarks(new BoundedOutOfOrdernessTimestampExtractor<T>(Time.seconds(allowedLateness)) {
+            @Override
+            public long extractTimestamp(T obj) {
+                return obj.timeStampMillisec;
             }
+        });
+    }
 
-        return gridCellIDs;
+    // Sliding windows of the non-trajectory operators, in processing time or in event time
+    public static WindowAssigner<Object, TimeWindow> getSlidingWindows(int windowSize, int slideStep, boolean eventTime)
+    {
+        if (eventTime) {
+            return SlidingEventTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep));
+        }
+        return SlidingProcessingTimeWindows.of(Time.seconds(windowSize), Time.seconds(slideStep));
     }
 
-    // assigning grid cell ID - using coordinates
-    /*
-    public static List<String> assignGridCellID(Coordinate[] coordinates, UniformGrid uGrid) {
+    // Builds an STR-packed R-tree over the bounding boxes of the given polygons
+    public static STRtree getPolygonSTRtree(Iterable<Polygon> polygons)
+    {
+        STRtree polygonSTRtree = new STRtree();
+        for (Polygon poly : polygons) {
+            polygonSTRtree.insert(new Envelope(poly.boundingBox.f0, poly.boundingBox.f1), poly);
+        }
+        // Packing the tree once, before it is probed
+        polygonSTRtree.build();
+        return polygonSTRtree;
+    }
 
-        List<String> gridCellIDs = new ArrayList<String>();
+    // assigning grid cell ID
+    public static long assignGridCellID(Coordinate coordinate, UniformGrid uGrid) {
 
-        for(Coordinate coordinate: coordinates) {
+        // The cell assignment is delegated to the index, so that any UniformGrid specialization (e.g., QuadTreeIndex) can be used
+        return uGrid.assignGridCellID(coordinate);
+    }
 
-            // Direct approach to compute the cellIDs (Key)
-            int xCellIndex = (int) (Math.floor((coordinate.getX() - uGrid.getMinX()) / uGrid.getCellLength()));
-            int yCellIndex = (int) (Math.floor((coordinate.getY() - uGrid.getMinY()) / uGrid.getCellLength()));
+    // assigning grid cell ID - using primitive coordinates
+    public static long assignGridCellID(double x, double y, UniformGrid uGrid) {
 
-            String gridIDStr = HelperClass.padLeadingZeroesToInt(xCellIndex, uGrid.getCellIndexStrLength()) + HelperClass.padLeadingZeroesToInt(yCellIndex, uGrid.getCellIndexStrLength());
-            gridCellIDs.add(gridIDStr);
-        }
+        return uGrid.assignGridCellID(x, y);
+    }
 
-        return gridCellIDs;
+    // assigning grid cell ID - BoundingBox
+    public static HashSet<Long> assignGridCellID(Tuple2<Coordinate, Coordinate> bBox, UniformGrid uGrid) {
+
+        return uGrid.assignGridCellID(bBox);
     }
-     */
 
-    public static ArrayList<Integer> getIntCellIndices(String cellID)
+    public static ArrayList<Integer> getIntCellIndices(long cellID)
     {
         ArrayList<Integer> cellIndices = new ArrayList<Integer>();
 
-        //substring(int startIndex, int endIndex): endIndex is excluded
-        String cellIDX = cellID.substring(0,5);
-        String cellIDY = cellID.substring(5);
-
-        cellIndices.add(HelperClass.removeLeadingZeroesFromString(cellIDX));
-        cellIndices.add(HelperClass.removeLeadingZeroesFromString(cellIDY));
+        cellIndices.add(getXCellIndex(cellID));
+        cellIndices.add(getYCellIndex(cellID));
 
         return cellIndices;
     }
 
-    public static Integer getCellLayerWRTQueryCell(String queryCellID, String cellID)
+    public static int getCellLayerWRTQueryCell(long queryCellID, long cellID)
     {
-        ArrayList<Integer> queryCellIndices = getIntCellIndices(queryCellID);
-        ArrayList<Integer> cellIndices = getIntCellIndices(cellID);
-        Integer cellLayer;
-
-        if((queryCellIndices.get(0) == cellIndices.get(0)) && (queryCellIndices.get(1) == cellIndices.get(1))) {
-            return 0; // cell layer is 0
-        }
-        else if ( Math.abs(queryCellIndices.get(0) - cellIndices.get(0)) == 0){
-            return Math.abs(queryCellIndices.get(1) - cellIndices.get(1));
-        }
-        else if ( Math.abs(queryCellIndices.get(1) - cellIndices.get(1)) == 0){
-            return Math.abs(queryCellIndices.get(0) - cellIndices.get(0));
-        }
-        else{
-            return Math.max(Math.abs(queryCellIndices.get(0) - cellIndices.get(0)), Math.abs(queryCellIndices.get(1) - cellIndices.get(1)));
-        }
+        // cell layer is 0 for the query cell, otherwise the larger of the x and y index offsets
+        return Math.max(Math.abs(getXCellIndex(queryCellID) - getXCellIndex(cellID)), Math.abs(getYCellIndex(queryCellID) - getYCellIndex(cellID)));
     }
 
     public static double getPointPointEuclideanDistance(Coordinate c1, Coordinate c2) {
@@ -174,7 +177,7 @@ public class HelperClass {
         return getPointPointEuclideanDistance(c1.getX(), c1.getY(), c2.getX(), c2.getY());
     }
 
-    public static double getPointPointEuclideanDistance(Double lon, Double lat, Double lon1, Double lat1) {
+    public static double getPointPointEuclideanDistance(double lon, double lat, double lon1, double lat1) {
 
         return Math.sqrt( Math.pow((lat1 - lat),2) + Math.pow((lon1 - lon),2));
     }
@@ -241,12 +244,12 @@ public class HelperClass {
     }
 
 
-    // Get min distance between Point and Polygon bounding box
+    // Get min distance between Point and Polygon bounding box, a lower bound of the exact distance (see TWO-PHASE DISTANCE REFINEMENT)
     public static double getPointPolygonMinEuclideanDistance(Point p, Polygon poly) {
 
         // Point coordinates
-        double x = p.point.getX();
-        double y = p.point.getY();
+        double x = p.x;
+        double y = p.y;
 
         // Line coordinate 1
         double x1 = poly.boundingBox.f0.getX();
@@ -311,7 +314,7 @@ public class HelperClass {
     }
 
 
-    // Get min distance between Polygon and Polygon
+    // Get min distance between the bounding boxes of Polygon and Polygon, a lower bound of the exact distance
     public static double getPolygonPolygonMinEuclideanDistance(Polygon poly1, Polygon poly2) {
 
         // Polygon coordinate 1
@@ -435,6 +438,109 @@ public class HelperClass {
     }
 
 
+    //--------------- TWO-PHASE DISTANCE REFINEMENT -----------------//
+    // The bounding box distances above are lower bounds of the exact distances: candidates are filtered by their bounding box,
+    // and the exact distance is only computed for the ones the bounding box cannot decide
+    // The exact distances are computed on the JTS polygon, i.e. the first polygon of a MultiPolygon, as its bounding box and grid cells
+
+    // Upper bound of the min distance between a point and a polygon, from the polygon bounding box (MINMAXDIST)
+    // Every side of the bounding box touches the polygon, hence the polygon has a point on the nearer side in each dimension
+    public static double getPointPolygonMinMaxEuclideanDistance(Point p, Polygon poly) {
+
+        double x1 = poly.boundingBox.f0.getX();
+        double y1 = poly.boundingBox.f0.getY();
+        double x2 = poly.boundingBox.f1.getX();
+        double y2 = poly.boundingBox.f1.getY();
+
+        // nearer and farther sides in each dimension
+        double dxNear = (p.x <= (x1 + x2) / 2) ? p.x - x1 : x2 - p.x;
+        double dyNear = (p.y <= (y1 + y2) / 2) ? p.y - y1 : y2 - p.y;
+        double dxFar = Math.max(Math.abs(p.x - x1), Math.abs(p.x - x2));
+        double dyFar = Math.max(Math.abs(p.y - y1), Math.abs(p.y - y2));
+
+        return Math.sqrt(Math.min(dxNear * dxNear + dyFar * dyFar, dyNear * dyNear + dxFar * dxFar));
+    }
+
+    // Exact min distance between a point and a polygon, 0 if the point lies within the polygon (outside of its holes)
+    public static double getPointPolygonExactEuclideanDistance(Point p, Polygon poly) {
+
+        org.locationtech.jts.geom.Polygon polygon = poly.polygon;
+        boolean inside = false;
+        double minSquaredDistance = Double.MAX_VALUE;
+
+        // exterior ring (-1) and interior rings
+        for (int r = -1; r < polygon.getNumInteriorRing(); r++) {
+            CoordinateSequence ring = ((r < 0) ? polygon.getExteriorRing() : polygon.getInteriorRingN(r)).getCoordinateSequence();
+            for (int i = 1; i < ring.size(); i++) {
+                double x1 = ring.getX(i - 1);
+                double y1 = ring.getY(i - 1);
+                double x2 = ring.getX(i);
+                double y2 = ring.getY(i);
+                // ray casting, the holes are excluded by the even-odd rule
+                if (((y1 > p.y) != (y2 > p.y)) && (p.x < x1 + (p.y - y1) * (x2 - x1) / (y2 - y1))) {
+                    inside = !inside;
+                }
+                minSquaredDistance = Math.min(minSquaredDistance, getPointSegmentSquaredEuclideanDistance(p.x, p.y, x1, y1, x2, y2));
+            }
+        }
+
+        return inside ? 0.0 : Math.sqrt(minSquaredDistance);
+    }
+
+    // Exact min distance between 2 polygons, 0 if they intersect
+    public static double getPolygonPolygonExactEuclideanDistance(Polygon poly1, Polygon poly2) {
+        return poly1.polygon.distance(poly2.polygon);
+    }
+
+    private static double getPointSegmentSquaredEuclideanDistance(double x, double y, double x1, double y1, double x2, double y2) {
+
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        // projection of the point on the segment, clamped to its end points
+        double t = (lengthSquared == 0) ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSquared));
+        double px = x1 + t * dx - x;
+        double py = y1 + t * dy - y;
+        return px * px + py * py;
+    }
+
+    // Returns true if the exact distance between the point and the polygon does not exceed distance
+    public static boolean isPointPolygonWithinDistance(Point p, Polygon poly, double distance) {
+
+        if (getPointPolygonMinEuclideanDistance(p, poly) > distance) {
+            return false;
+        }
+        if (getPointPolygonMinMaxEuclideanDistance(p, poly) <= distance) {
+            return true;
+        }
+        return getPointPolygonExactEuclideanDistance(p, poly) <= distance;
+    }
+
+    // Returns true if the exact distance between the 2 polygons does not exceed distance
+    public static boolean isPolygonPolygonWithinDistance(Polygon poly1, Polygon poly2, double distance) {
+
+        if (getPolygonPolygonMinEuclideanDistance(poly1, poly2) > distance) {
+            return false;
+        }
+        // JTS stops the distance computation as soon as a pair of segments is within distance
+        return poly1.polygon.isWithinDistance(poly2.polygon, distance);
+    }
+
+    // Returns the exact distance if the bounding box distance does not exceed threshold, otherwise the bounding box distance
+    // (larger than threshold), e.g. for a kNN, threshold being the distance of the current kth neighbor
+    public static double getPointPolygonEuclideanDistance(Point p, Polygon poly, double threshold) {
+
+        double minDistance = getPointPolygonMinEuclideanDistance(p, poly);
+        return (minDistance > threshold) ? minDistance : getPointPolygonExactEuclideanDistance(p, poly);
+    }
+
+    public static double getPolygonPolygonEuclideanDistance(Polygon poly1, Polygon poly2, double threshold) {
+
+        double minDistance = getPolygonPolygonMinEuclideanDistance(poly1, poly2);
+        return (minDistance > threshold) ? minDistance : getPolygonPolygonExactEuclideanDistance(poly1, poly2);
+    }
+
+
     // Generation of replicated polygon stream corresponding to each grid cell a polygon belongs
     public static class ReplicatePolygonStream extends RichFlatMapFunction<Polygon, Polygon> {
 
@@ -452,8 +558,8 @@ public class HelperClass {
         public void flatMap(Polygon poly, Collector<Polygon> out) throws Exception {
 
             // Create duplicated polygon stream based on GridIDs
-            for (String gridID: poly.gridIDsSet) {
-                Polygon p = new Polygon(Arrays.asList(poly.polygon.getCoordinates()), uniqueObjID, poly.gridIDsSet, gridID, poly.boundingBox);
+            for (Long gridID: poly.gridIDsSet) {
+                Polygon p = poly.getReplica(uniqueObjID, gridID);
                 out.collect(p);
             }
 
@@ -462,6 +568,66 @@ public class HelperClass {
         }
     }
 
+    // Assigns a salt (sub-key) to each point, so that a hot grid cell can be spread over numSubKeys keys
+    // Arrival rates are tracked per cell over intervals of rateIntervalMillis (processing time); a cell which received more than
+    // hotCellThreshold points in the last interval is hot, and its points are assigned the sub-keys 0 .. numSubKeys - 1 in round-robin
+    // Points of the cold cells are always assigned the sub-key 0
+    public static class SaltHotCells extends RichMapFunction<Point, Tuple2<Point, Integer>> {
+
+        private final int numSubKeys;
+        private final long hotCellThreshold;
+        private final long rateIntervalMillis;
+
+        private HashMap<Long, Long> cellArrivalCounts;
+        private HashSet<Long> hotCells;
+        private long intervalStartTime;
+        private int roundRobinSalt;
+
+        //ctor
+        public SaltHotCells(int numSubKeys, long hotCellThreshold, long rateIntervalMillis) {
+            if(numSubKeys <= 0 || rateIntervalMillis <= 0)
+            {
+                throw new IllegalArgumentException("numSubKeys and rateIntervalMillis must be greater than 0");
+            }
+            this.numSubKeys = numSubKeys;
+            this.hotCellThreshold = hotCellThreshold;
+            this.rateIntervalMillis = rateIntervalMillis;
+        }
+
+        @Override
+        public void open(Configuration parameters) {
+            cellArrivalCounts = new HashMap<Long, Long>();
+            hotCells = new HashSet<Long>();
+            intervalStartTime = System.currentTimeMillis();
+            roundRobinSalt = 0;
+        }
+
+        @Override
+        public Tuple2<Point, Integer> map(Point p) throws Exception {
+
+            // At the end of an interval, the hot cells are recomputed from the arrival counts of the interval
+            long currentTime = System.currentTimeMillis();
+            if (currentTime - intervalStartTime >= rateIntervalMillis) {
+                hotCells.clear();
+                for (Map.Entry<Long, Long> cellCount : cellArrivalCounts.entrySet()) {
+                    if (cellCount.getValue() > hotCellThreshold) {
+                        hotCells.add(cellCount.getKey());
+                    }
+                }
+                cellArrivalCounts.clear();
+                intervalStartTime = currentTime;
+            }
+            cellArrivalCounts.merge(p.gridID, 1L, Long::sum);
+
+            if (!hotCells.contains(p.gridID)) {
+                return Tuple2.of(p, 0);
+            }
+
+            roundRobinSalt = (roundRobinSalt + 1) % numSubKeys;
+            return Tuple2.of(p, roundRobinSalt);
+        }
+    }
+
 
     public static double computeHaverSine(Double lon, Double lat, Double lon1, Double lat1) {
         Double rLat1 = Math.toRadians(lat);
@@ -526,7 +692,7 @@ public class HelperClass {
         }
     }
 
-    public static class LatencySinkTuple4 implements Serializable, KafkaSerializationSchema<Tuple4<String, Integer, HashMap<String, Long>, Long>> {
+    public static class LatencySinkTuple4 implements Serializable, KafkaSerializationSchema<Tuple4<Long, Integer, HashMap<String, Long>, Long>> {
 
         String outputTopic;
         Integer queryID;
@@ -538,7 +704,7 @@ public class HelperClass {
         }
 
         @Override
-        public ProducerRecord<byte[], byte[]> serialize(Tuple4<String, Integer, HashMap<String, Long>, Long> element, @Nullable Long timestamp) {
+        public ProducerRecord<byte[], byte[]> serialize(Tuple4<Long, Integer, HashMap<String, Long>, Long> element, @Nullable Long timestamp) {
             //String outputStr = queryID.toString() + ", " + element.f3.toString();
             String outputStr = element.f3.toString();
             return new ProducerRecord<byte[], byte[]>(outputTopic, outputStr.getBytes(StandardCharsets.UTF_8));
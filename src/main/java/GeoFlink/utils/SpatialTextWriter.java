@@ -0,0 +1,323 @@
+package GeoFlink.utils;
+
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+Reusable text buffer writing the spatial objects as GeoJSON and WKT, used by the GeoJSON/CSV/TSV output schemas and by toString()
+Coordinates are appended once to a single buffer, without intermediate JSON objects or strings; reset() clears it for the next record
+JSON strings and numbers are written as org.json writes them, so that the output of the schemas is unchanged
+Not thread-safe
+*/
+public class SpatialTextWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder buf = new StringBuilder(256);
+    private final String timestampPattern;
+    private TimestampFormatter timestampFormatter; // created on first use, toString() does not format timestamps
+
+    //ctor
+    public SpatialTextWriter()
+    {
+        this("yyyy-MM-dd HH:mm:ss");
+    }
+
+    public SpatialTextWriter(String timestampPattern)
+    {
+        this.timestampPattern = timestampPattern;
+    }
+
+    public SpatialTextWriter reset() {
+        buf.setLength(0);
+        return this;
+    }
+
+    public int length() {
+        return buf.length();
+    }
+
+    public SpatialTextWriter append(String str) {
+        buf.append(str);
+        return this;
+    }
+
+    public SpatialTextWriter append(char c) {
+        buf.append(c);
+        return this;
+    }
+
+    public SpatialTextWriter append(long value) {
+        buf.append(value);
+        return this;
+    }
+
+    // Same text as Double.toString()
+    public SpatialTextWriter append(double value) {
+        buf.append(value);
+        return this;
+    }
+
+    public SpatialTextWriter appendTimestamp(long millis) {
+        if (timestampFormatter == null) {
+            timestampFormatter = new TimestampFormatter(timestampPattern);
+        }
+        timestampFormatter.format(millis, buf);
+        return this;
+    }
+
+    //--------------- JSON -----------------//
+    // Quoted and escaped as by org.json.JSONObject.quote()
+    public SpatialTextWriter appendJSONString(String str) {
+        buf.append('"');
+        char prev = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    buf.append('\\').append(c);
+                    break;
+                case '/':
+                    if (prev == '<') {
+                        buf.append('\\');
+                    }
+                    buf.append(c);
+                    break;
+                case '\b':
+                    buf.append("\\b");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\f':
+                    buf.append("\\f");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= 0x80 && c < 0xA0) || (c >= 0x2000 && c < 0x2100)) {
+                        buf.append("\\u").append(HEX_DIGITS[(c >> 12) & 0xF]).append(HEX_DIGITS[(c >> 8) & 0xF])
+                                .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+                    }
+                    else {
+                        buf.append(c);
+                    }
+            }
+            prev = c;
+        }
+        buf.append('"');
+        return this;
+    }
+
+    // Formatted as by org.json.JSONObject.numberToString(), i.e. Double.toString() without the trailing zeros: 116.0 -> 116
+    public SpatialTextWriter appendJSONNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON does not allow non-finite numbers");
+        }
+        int start = buf.length();
+        buf.append(value);
+        int end = buf.length();
+        for (int i = start; i < end; i++) {
+            if (buf.charAt(i) == 'E') {
+                return this;
+            }
+        }
+        while (buf.charAt(end - 1) == '0') end--;
+        if (buf.charAt(end - 1) == '.') end--;
+        buf.setLength(end);
+        return this;
+    }
+
+    // [x,y]
+    public SpatialTextWriter appendGeoJSONCoordinate(double x, double y) {
+        buf.append('[');
+        appendJSONNumber(x);
+        buf.append(',');
+        appendJSONNumber(y);
+        buf.append(']');
+        return this;
+    }
+
+    // [[x,y],[x,y],...]
+    public SpatialTextWriter appendGeoJSONCoordinates(Coordinate[] coordinates) {
+        buf.append('[');
+        for (int i = 0; i < coordinates.length; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            appendGeoJSONCoordinate(coordinates[i].x, coordinates[i].y);
+        }
+        buf.append(']');
+        return this;
+    }
+
+    public SpatialTextWriter appendGeoJSONCoordinates(List<Coordinate> coordinates) {
+        buf.append('[');
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            Coordinate c = coordinates.get(i);
+            appendGeoJSONCoordinate(c.x, c.y);
+        }
+        buf.append(']');
+        return this;
+    }
+
+    //--------------- WKT -----------------//
+    // x y, x y, ... (without the parentheses)
+    public SpatialTextWriter appendWKTCoordinates(Coordinate[] coordinates) {
+        for (int i = 0; i < coordinates.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(coordinates[i].x).append(' ').append(coordinates[i].y);
+        }
+        return this;
+    }
+
+    public SpatialTextWriter appendWKTCoordinates(List<Coordinate> coordinates) {
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            Coordinate c = coordinates.get(i);
+            buf.append(c.x).append(' ').append(c.y);
+        }
+        return this;
+    }
+
+    //--------------- GEOMETRIES -----------------//
+    // {"coordinates":[x,y],"type":"Point"}
+    public SpatialTextWriter appendGeoJSONGeometry(Point point) {
+        buf.append("{\"coordinates\":");
+        appendGeoJSONCoordinate(point.x, point.y);
+        buf.append(",\"type\":\"Point\"}");
+        return this;
+    }
+
+    // Polygon: the exterior ring followed by the interior rings; MultiPolygon: one polygon per coordinate list
+    public SpatialTextWriter appendGeoJSONGeometry(Polygon polygon) {
+        buf.append("{\"coordinates\":[");
+        if (polygon instanceof MultiPolygon) {
+            List<List<Coordinate>> listCoordinate = ((MultiPolygon) polygon).getListCoordinate();
+            for (int i = 0; i < listCoordinate.size(); i++) {
+                buf.append(i > 0 ? ",[" : "[");
+                appendGeoJSONCoordinates(listCoordinate.get(i));
+                buf.append(']');
+            }
+            buf.append("],\"type\":\"MultiPolygon\"}");
+        }
+        else {
+            appendGeoJSONCoordinates(polygon.polygon.getExteriorRing().getCoordinates());
+            for (int i = 0; i < polygon.polygon.getNumInteriorRing(); i++) {
+                buf.append(',');
+                appendGeoJSONCoordinates(polygon.polygon.getInteriorRingN(i).getCoordinates());
+            }
+            buf.append("],\"type\":\"Polygon\"}");
+        }
+        return this;
+    }
+
+    public SpatialTextWriter appendGeoJSONGeometry(LineString lineString) {
+        buf.append("{\"coordinates\":");
+        if (lineString instanceof MultiLineString) {
+            List<List<Coordinate>> listCoordinate = ((MultiLineString) lineString).getListCoordinate();
+            buf.append('[');
+            for (int i = 0; i < listCoordinate.size(); i++) {
+                if (i > 0) {
+                    buf.append(',');
+                }
+                appendGeoJSONCoordinates(listCoordinate.get(i));
+            }
+            buf.append("],\"type\":\"MultiLineString\"}");
+        }
+        else {
+            appendGeoJSONCoordinates(lineString.lineString.getCoordinates());
+            buf.append(",\"type\":\"LineString\"}");
+        }
+        return this;
+    }
+
+    // POINT(x y)
+    public SpatialTextWriter appendWKT(Point point) {
+        buf.append("POINT(").append(point.x).append(' ').append(point.y).append(')');
+        return this;
+    }
+
+    // POLYGON((x y, ...),(x y, ...)) or MULTIPOLYGON(((x y, ...)),((x y, ...)))
+    public SpatialTextWriter appendWKT(Polygon polygon) {
+        if (polygon instanceof MultiPolygon) {
+            buf.append("MULTIPOLYGON(");
+            List<List<Coordinate>> listCoordinate = ((MultiPolygon) polygon).getListCoordinate();
+            for (int i = 0; i < listCoordinate.size(); i++) {
+                buf.append(i > 0 ? ",((" : "((");
+                appendWKTCoordinates(listCoordinate.get(i));
+                buf.append("))");
+            }
+            buf.append(')');
+        }
+        else {
+            buf.append("POLYGON((");
+            appendWKTCoordinates(polygon.polygon.getExteriorRing().getCoordinates());
+            for (int i = 0; i < polygon.polygon.getNumInteriorRing(); i++) {
+                buf.append("),(");
+                appendWKTCoordinates(polygon.polygon.getInteriorRingN(i).getCoordinates());
+            }
+            buf.append("))");
+        }
+        return this;
+    }
+
+    // LINESTRING(x y, ...) or MULTILINESTRING((x y, ...),(x y, ...))
+    public SpatialTextWriter appendWKT(LineString lineString) {
+        if (lineString instanceof MultiLineString) {
+            buf.append("MULTILINESTRING(");
+            List<List<Coordinate>> listCoordinate = ((MultiLineString) lineString).getListCoordinate();
+            for (int i = 0; i < listCoordinate.size(); i++) {
+                buf.append(i > 0 ? ",(" : "(");
+                appendWKTCoordinates(listCoordinate.get(i));
+                buf.append(')');
+            }
+            buf.append(')');
+        }
+        else {
+            buf.append("LINESTRING(");
+            appendWKTCoordinates(lineString.lineString.getCoordinates());
+            buf.append(')');
+        }
+        return this;
+    }
+
+    //--------------- OUTPUT -----------------//
+    // UTF-8 bytes of the buffer; ASCII text, the common case, is copied without an intermediate String
+    public byte[] toBytes() {
+        int n = buf.length();
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            char c = buf.charAt(i);
+            if (c >= 0x80) {
+                return buf.toString().getBytes(StandardCharsets.UTF_8);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return buf.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package GeoFlink.utils;
+
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/*
+Formats millisecond timestamps with a date pattern, the counterpart of TimestampParser for the output schemas
+For patterns ending with the seconds (e.g. yyyy-MM-dd HH:mm:ss), the text before the seconds is cached per minute; consecutive
+timestamps of the same minute only append the seconds digits
+Not thread-safe, each output schema instance uses its own formatter
+*/
+public class TimestampFormatter implements Serializable {
+
+    private final SimpleDateFormat dateFormat;
+    private final boolean endsWithSeconds;
+
+    // Cached minute [minuteStart, minuteEnd) and its text up to the seconds
+    private transient String cachedPrefix;
+    private transient long minuteStart;
+    private transient long minuteEnd;
+
+    //ctor
+    public TimestampFormatter(String pattern)
+    {
+        this.dateFormat = new SimpleDateFormat(pattern);
+        // the seconds are always formatted with 2 digits, hence the prefix is the formatted text minus its last 2 characters
+        this.endsWithSeconds = pattern.endsWith("ss") && !pattern.endsWith("sss");
+    }
+
+    public String format(long millis) {
+        StringBuilder sb = new StringBuilder(24);
+        format(millis, sb);
+        return sb.toString();
+    }
+
+    public void format(long millis, StringBuilder sb) {
+
+        if (cachedPrefix != null && millis >= minuteStart && millis < minuteEnd) {
+            int seconds = (int) ((millis - minuteStart) / 1000);
+            sb.append(cachedPrefix).append((char) ('0' + seconds / 10)).append((char) ('0' + seconds % 10));
+            return;
+        }
+
+        String text = dateFormat.format(new Date(millis));
+        sb.append(text);
+        if (!endsWithSeconds) {
+            return;
+        }
+
+        // Caching the minute, unless the time zone offset changes within it
+        int n = text.length();
+        int seconds = (text.charAt(n - 2) - '0') * 10 + (text.charAt(n - 1) - '0');
+        long start = millis - seconds * 1000L - Math.floorMod(millis, 1000L);
+        TimeZone timeZone = dateFormat.getTimeZone();
+        if (timeZone.getOffset(start) == timeZone.getOffset(start + 59999)) {
+            cachedPrefix = text.substring(0, n - 2);
+            minuteStart = start;
+            minuteEnd = start + 60000;
+        }
+    }
+}
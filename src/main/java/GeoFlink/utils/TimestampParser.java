@@ -0,0 +1,192 @@
+package GeoFlink.utils;
+
+import java.io.Serializable;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/*
+Parses the timestamps of the input streams into milliseconds, driven by the dateFormat parameter
+- Numeric epoch seconds (e.g. 1351039728 or 1351039728.980) and milliseconds are converted directly, as long as the pattern is not
+  purely numeric itself (e.g. yyyyMMddHHmmss)
+- For fixed-width patterns ending with the seconds (e.g. yyyy-MM-dd HH:mm:ss or yyyy-MM-dd HH:mm:ss.SSS), the text before the seconds
+  and its milliseconds are cached; consecutive timestamps sharing the prefix only parse the seconds digits
+- Other timestamps are parsed by a private copy of the DateFormat
+Thread-safe: the DateFormat copy is used under a lock and the cached prefix is replaced atomically
+*/
+public class TimestampParser implements Serializable {
+
+    // Immutable, so that the prefix and its milliseconds are always read together
+    private static final class CachedPrefix {
+        final String prefix;
+        final long millis;
+
+        CachedPrefix(String prefix, long millis) {
+            this.prefix = prefix;
+            this.millis = millis;
+        }
+    }
+
+    private final DateFormat dateFormat;
+    private final boolean numericFastPath;
+    private final int patternLength;
+    private final int secondsPos; // position of ss in the pattern, -1 if the prefix cache is not applicable
+    private final boolean hasMillis; // the pattern ends with ss.SSS
+    private transient volatile CachedPrefix cachedPrefix;
+
+    //ctor
+    public TimestampParser(DateFormat dateFormat)
+    {
+        this.dateFormat = (DateFormat) dateFormat.clone();
+
+        String pattern = (dateFormat instanceof SimpleDateFormat) ? ((SimpleDateFormat) dateFormat).toPattern() : null;
+        if (pattern == null) {
+            numericFastPath = false;
+            patternLength = -1;
+            secondsPos = -1;
+            hasMillis = false;
+            return;
+        }
+
+        // A formatted timestamp contains a separator, hence a numeric text is an epoch value
+        boolean hasSeparator = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (!Character.isLetter(pattern.charAt(i))) {
+                hasSeparator = true;
+            }
+        }
+        numericFastPath = hasSeparator;
+        patternLength = pattern.length();
+
+        boolean millis = pattern.endsWith("ss.SSS");
+        int pos = millis ? pattern.length() - 6 : (pattern.endsWith("ss") ? pattern.length() - 2 : -1);
+        if (pos < 0 || !isFixedWidth(pattern.substring(0, pos))) {
+            pos = -1;
+        }
+        secondsPos = pos;
+        hasMillis = millis;
+    }
+
+    public TimestampParser(String pattern)
+    {
+        this(new SimpleDateFormat(pattern));
+    }
+
+    // Returns the timestamp in milliseconds
+    public long parse(String text) throws ParseException {
+
+        if (numericFastPath) {
+            long millis = parseEpoch(text);
+            if (millis >= 0) {
+                return millis;
+            }
+        }
+        return parseFormatted(text);
+    }
+
+    // Same as parse(), without the epoch fast path; to be used when the text may also be another numeric field
+    public long parseFormatted(String text) throws ParseException {
+
+        if (secondsPos < 0 || text.length() != patternLength) {
+            return parseFully(text);
+        }
+
+        // The seconds (and milliseconds) are parsed directly if the text shares the cached prefix
+        int seconds = parseDigits(text, secondsPos, secondsPos + 2);
+        int millis = hasMillis ? parseDigits(text, secondsPos + 3, secondsPos + 6) : 0;
+        if (seconds < 0 || millis < 0 || (hasMillis && text.charAt(secondsPos + 2) != '.')) {
+            return parseFully(text);
+        }
+
+        CachedPrefix cached = cachedPrefix;
+        if (cached != null && text.regionMatches(0, cached.prefix, 0, secondsPos)) {
+            return cached.millis + seconds * 1000L + millis;
+        }
+
+        long time = parseFully(text);
+        cachedPrefix = new CachedPrefix(text.substring(0, secondsPos), time - seconds * 1000L - millis);
+        return time;
+    }
+
+    private long parseFully(String text) throws ParseException {
+        synchronized (dateFormat) {
+            return dateFormat.parse(text).getTime();
+        }
+    }
+
+    // Epoch seconds (at most 10 integer digits, optional fraction) or milliseconds, -1 if the text is not numeric
+    private static long parseEpoch(String text) {
+        int n = text.length();
+        if (n == 0) {
+            return -1;
+        }
+        long integerPart = 0;
+        int i = 0;
+        for (; i < n && text.charAt(i) != '.'; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || i == 18) {
+                return -1;
+            }
+            integerPart = integerPart * 10 + (c - '0');
+        }
+        if (i == 0) {
+            return -1;
+        }
+        int numIntegerDigits = i;
+
+        // Fraction of seconds, converted to milliseconds
+        long fractionMillis = 0;
+        if (i < n) {
+            if (numIntegerDigits > 10 || i == n - 1) {
+                return -1;
+            }
+            long scale = 100;
+            for (i++; i < n; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                fractionMillis += (c - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return (numIntegerDigits <= 10) ? integerPart * 1000 + fractionMillis : integerPart;
+    }
+
+    // Value of the decimal digits in [from, to), -1 if a character is not a digit
+    private static int parseDigits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // True if each field of the pattern is formatted with a fixed number of digits
+    private static boolean isFixedWidth(String pattern) {
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                return false;
+            }
+            if (!Character.isLetter(c)) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < pattern.length() && pattern.charAt(j) == c) j++;
+            int count = j - i;
+            boolean fixed = (c == 'y' && count == 4) || ("MdHhmkK".indexOf(c) >= 0 && count == 2);
+            if (!fixed) {
+                return false;
+            }
+            i = j;
+        }
+        return true;
+    }
+}
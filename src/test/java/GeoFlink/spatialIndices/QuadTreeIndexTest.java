@@ -0,0 +1,105 @@
+package GeoFlink.spatialIndices;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.HelperClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuadTreeIndexTest {
+
+    // Dense cluster in [1, 2] x [1, 2], hence leaves of different sizes
+    private static QuadTreeIndex getQuadTree() {
+        Random random = new Random(3);
+        List<Coordinate> samplePoints = new ArrayList<Coordinate>();
+        for (int i = 0; i < 1000; i++) {
+            samplePoints.add(new Coordinate(1 + random.nextDouble(), 1 + random.nextDouble()));
+        }
+        for (int i = 0; i < 100; i++) {
+            samplePoints.add(new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10));
+        }
+        return new QuadTreeIndex(samplePoints, 20, 6, 0, 10, 0, 10);
+    }
+
+    @Test
+    public void cellMinDistanceIsALowerBoundOfTheLeafPoints() {
+        QuadTreeIndex quadTree = getQuadTree();
+        Random random = new Random(4);
+        double queryX = 1.5, queryY = 1.5;
+
+        // the bound of a large leaf computed with the finest cell would exceed the distance of its points
+        boolean tightBound = false;
+        for (int i = 0; i < 10000; i++) {
+            double x = random.nextDouble() * 10, y = random.nextDouble() * 10;
+            long leafKey = quadTree.assignGridCellID(x, y);
+            double bound = quadTree.getCellMinDistance(leafKey, queryX, queryY);
+            double distance = HelperClass.getPointPointEuclideanDistance(x, y, queryX, queryY);
+            assertTrue(bound <= distance);
+            tightBound |= distance - bound < 0.05;
+        }
+        assertTrue(tightBound);
+    }
+
+    @Test
+    public void cellMinDistanceIsZeroWithinTheLeaf() {
+        QuadTreeIndex quadTree = getQuadTree();
+
+        assertEquals(0, quadTree.getCellMinDistance(quadTree.assignGridCellID(8.9, 8.9), 8.1, 8.1), 0);
+        assertEquals(0, quadTree.getCellMinDistance(quadTree.assignGridCellID(1.5, 1.5), 1.5, 1.5), 0);
+    }
+
+    @Test
+    public void neighboringLayersAreMeasuredBetweenLeaves() {
+        QuadTreeIndex quadTree = getQuadTree();
+        // in a large leaf far from the cluster
+        Point p = new Point(8.5, 8.5, quadTree);
+
+        List<HashSet<Long>> layers = quadTree.getAllNeighboringLayers(p);
+        HashSet<Long> allLeaves = new HashSet<Long>();
+        int previousLayer = -1;
+        for (HashSet<Long> layerCells : layers) {
+            assertFalse(layerCells.isEmpty());
+            int layer = quadTree.getCellLayer(p.gridID, layerCells.iterator().next());
+            assertTrue(layer > previousLayer);
+            for (long cellKey : layerCells) {
+                assertEquals(layer, quadTree.getCellLayer(p.gridID, cellKey));
+                assertTrue(allLeaves.add(cellKey));
+            }
+            assertEquals(layerCells, quadTree.getNeighboringLayerCells(p, layer));
+            previousLayer = layer;
+        }
+        assertEquals(quadTree.getGirdCellsSet(), allLeaves);
+        assertEquals(1, layers.get(0).size());
+        assertTrue(layers.get(0).contains(p.gridID));
+
+        // the leaves up to a layer are the union of the layers
+        int maxLayer = quadTree.getCellLayer(p.gridID, quadTree.assignGridCellID(1.5, 1.5));
+        HashSet<Long> expected = new HashSet<Long>();
+        for (long cellKey : quadTree.getGirdCellsSet()) {
+            if (quadTree.getCellLayer(p.gridID, cellKey) <= maxLayer) {
+                expected.add(cellKey);
+            }
+        }
+        HashSet<Long> neighboringCells = quadTree.getNeighboringCellsByLayer(p, maxLayer);
+        assertEquals(expected, neighboringCells);
+        assertTrue(neighboringCells.contains(quadTree.assignGridCellID(1.5, 1.5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooLargeMaxDepth() {
+        new QuadTreeIndex(new ArrayList<Coordinate>(), 20, 31, 0, 10, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxPointsPerLeaf() {
+        new QuadTreeIndex(new ArrayList<Coordinate>(), 0, 6, 0, 10, 0, 10);
+    }
+}
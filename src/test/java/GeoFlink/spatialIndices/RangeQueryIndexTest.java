@@ -0,0 +1,69 @@
+package GeoFlink.spatialIndices;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import org.apache.flink.api.common.functions.util.ListCollector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RangeQueryIndexTest {
+
+    private final UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+
+    private Polygon square(double minX, double minY, double maxX, double maxY) {
+        return new Polygon(Arrays.asList(new Coordinate(minX, minY), new Coordinate(maxX, minY), new Coordinate(maxX, maxY),
+                new Coordinate(minX, maxY), new Coordinate(minX, minY)), uGrid);
+    }
+
+    // Matches of all the replicas of the polygon, as output by the replicated polygon stream
+    private List<Tuple2<String, Polygon>> collectMatches(RangeQueryIndex queryIndex, Polygon poly) {
+        List<Tuple2<String, Polygon>> matches = new ArrayList<Tuple2<String, Polygon>>();
+        for (Long gridID : poly.gridIDsSet) {
+            queryIndex.collectMatches(poly.getReplica(0, gridID), new ListCollector<Tuple2<String, Polygon>>(matches));
+        }
+        return matches;
+    }
+
+    @Test
+    public void polygonPairOutputOnce() {
+        RangeQueryIndex queryIndex = new RangeQueryIndex(uGrid);
+        queryIndex.addQuery("point", new Point(4.5, 4.5, uGrid), 1.5);
+        queryIndex.addQuery("polygon", square(6.2, 6.2, 6.8, 6.8), 0.5);
+
+        // bounding box over 9 cells, within range of both queries
+        List<Tuple2<String, Polygon>> matches = collectMatches(queryIndex, square(5.5, 5.5, 7.5, 7.5));
+
+        assertEquals(2, matches.size());
+        assertEquals(1, matches.stream().filter(match -> match.f0.equals("point")).count());
+        assertEquals(1, matches.stream().filter(match -> match.f0.equals("polygon")).count());
+    }
+
+    @Test
+    public void polygonOutOfRangeNotOutput() {
+        RangeQueryIndex queryIndex = new RangeQueryIndex(uGrid);
+        queryIndex.addQuery("point", new Point(1.5, 1.5, uGrid), 1);
+
+        assertEquals(0, collectMatches(queryIndex, square(2.8, 2.8, 4.5, 4.5)).size());
+    }
+
+    @Test
+    public void polygonStraddlingTheGridEdgeOutputOnce() {
+        RangeQueryIndex queryIndex = new RangeQueryIndex(uGrid);
+        // the query envelope and the polygon both extend below minX and minY
+        queryIndex.addQuery("point", new Point(0.2, 0.2, uGrid), 1);
+        queryIndex.addQuery("polygon", square(0.1, -0.5, 0.4, 0.3), 0.5);
+
+        List<Tuple2<String, Polygon>> matches = collectMatches(queryIndex, square(-1, -1, 0.5, 0.5));
+
+        assertEquals(2, matches.size());
+        assertEquals(1, matches.stream().filter(match -> match.f0.equals("point")).count());
+        assertEquals(1, matches.stream().filter(match -> match.f0.equals("polygon")).count());
+    }
+}
@@ -0,0 +1,66 @@
+package GeoFlink.spatialIndices;
+
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.HelperClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UniformGridTest {
+
+    @Test
+    public void neighboringCellsIteratorReturnsTheCellsByLayer() {
+        UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+        double queryRadius = 2.5;
+        Point queryPoint = new Point(1.5, 1.5, uGrid);
+        UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(queryRadius);
+        neighboringCells.reset(queryPoint.gridID);
+
+        HashSet<Long> cells = new HashSet<Long>();
+        int previousLayer = 0;
+        while (neighboringCells.hasNext()) {
+            long cellKey = neighboringCells.next();
+            assertTrue(cells.add(cellKey));
+            assertTrue(neighboringCells.getCurrentLayer() >= previousLayer);
+            assertEquals(uGrid.getCellLayer(queryPoint.gridID, cellKey), neighboringCells.getCurrentLayer());
+            assertEquals(uGrid.getGuaranteedNeighboringCells(queryRadius, queryPoint.gridID).contains(cellKey), neighboringCells.isGuaranteedNeighbor());
+            previousLayer = neighboringCells.getCurrentLayer();
+        }
+        assertEquals(uGrid.getNeighboringCells(queryRadius, queryPoint), cells);
+    }
+
+    @Test
+    public void neighboringCellsIteratorClampsTheLayersToTheGrid() {
+        UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+        // 10^6 layers, beyond the grid
+        UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(1e6);
+        neighboringCells.reset(HelperClass.getCellKey(9, 0));
+
+        int numCells = 0;
+        while (neighboringCells.hasNext()) {
+            neighboringCells.next();
+            assertTrue(neighboringCells.isGuaranteedNeighbor());
+            numCells++;
+        }
+        assertEquals(100, numCells);
+    }
+
+    @Test
+    public void neighboringCellsIteratorReturnsAllTheCellsOfALargeGrid() {
+        // 50000^2 cells overflow an int
+        UniformGrid uGrid = new UniformGrid(50000, 0, 10, 0, 10);
+        UniformGrid.NeighboringCellsIterator neighboringCells = uGrid.getNeighboringCellsIterator(0);
+        neighboringCells.reset(HelperClass.getCellKey(0, 1));
+
+        assertTrue(neighboringCells.hasNext());
+        assertEquals(HelperClass.getCellKey(0, 0), neighboringCells.next());
+        assertEquals(1, neighboringCells.getCurrentLayer());
+        assertFalse(neighboringCells.isGuaranteedNeighbor());
+        assertEquals(HelperClass.getCellKey(0, 1), neighboringCells.next());
+        assertEquals(0, neighboringCells.getCurrentLayer());
+    }
+}
@@ -0,0 +1,151 @@
+package GeoFlink.spatialObjects;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialObjectSerializerTest {
+
+    private final UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+
+    private static List<Coordinate> square(double minX, double minY, double maxX, double maxY) {
+        return Arrays.asList(new Coordinate(minX, minY), new Coordinate(maxX, minY), new Coordinate(maxX, maxY),
+                new Coordinate(minX, maxY), new Coordinate(minX, minY));
+    }
+
+    // Serializes and deserializes the object with the serializer of its type information, the serialized bytes are also copied
+    private static <T> T roundTrip(Class<T> typeClass, T object) throws Exception {
+        TypeSerializer<T> serializer = TypeInformation.of(typeClass).createSerializer(new ExecutionConfig());
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(object, out);
+        byte[] bytes = out.getCopyOfBuffer();
+
+        DataOutputSerializer copiedOut = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(bytes), copiedOut);
+        assertArrayEquals(bytes, copiedOut.getCopyOfBuffer());
+
+        DataInputDeserializer in = new DataInputDeserializer(bytes);
+        T copy = serializer.deserialize(in);
+        assertEquals(0, in.available());
+        return copy;
+    }
+
+    @Test
+    public void typeInformationUsesTheSpatialObjectSerializers() {
+        assertTrue(TypeInformation.of(Point.class) instanceof SpatialObjectSerializer.SpatialObjectTypeInfo);
+        assertSame(PointSerializer.INSTANCE, TypeInformation.of(Point.class).createSerializer(new ExecutionConfig()));
+        assertSame(PolygonSerializer.INSTANCE, TypeInformation.of(MultiPolygon.class).createSerializer(new ExecutionConfig()));
+        assertSame(LineStringSerializer.INSTANCE, TypeInformation.of(MultiLineString.class).createSerializer(new ExecutionConfig()));
+    }
+
+    @Test
+    public void pointRoundTrip() throws Exception {
+        Point p = new Point("p1", 1.25, 2.5, 1000L, uGrid);
+        Point copy = roundTrip(Point.class, p);
+
+        assertEquals(p.objID, copy.objID);
+        assertEquals(p.x, copy.x, 0);
+        assertEquals(p.y, copy.y, 0);
+        assertEquals(p.timeStampMillisec, copy.timeStampMillisec);
+        assertEquals(p.gridID, copy.gridID);
+        assertEquals(p.ingestionTime, copy.ingestionTime);
+
+        // null objID
+        assertNull(roundTrip(Point.class, new Point(3, 4, uGrid)).objID);
+    }
+
+    @Test
+    public void polygonRoundTrip() throws Exception {
+        GeometryFactory geofact = new GeometryFactory();
+        Polygon poly = new Polygon(7L, square(1, 1, 4, 4), 2000L, uGrid);
+        // polygon with a hole
+        LinearRing hole = geofact.createLinearRing(square(2, 2, 3, 3).toArray(new Coordinate[0]));
+        poly.polygon = geofact.createPolygon(geofact.createLinearRing(poly.polygon.getExteriorRing().getCoordinates()), new LinearRing[] {hole});
+        Polygon copy = roundTrip(Polygon.class, poly);
+
+        assertEquals(Polygon.class, copy.getClass());
+        assertEquals(poly.objID, copy.objID);
+        assertEquals(poly.timeStampMillisec, copy.timeStampMillisec);
+        assertEquals(poly.gridID, copy.gridID);
+        assertEquals(poly.gridIDsSet, copy.gridIDsSet);
+        assertEquals(poly.boundingBox, copy.boundingBox);
+        assertTrue(poly.polygon.equalsExact(copy.polygon));
+        assertEquals(1, copy.polygon.getNumInteriorRing());
+    }
+
+    @Test
+    public void polygonReplicaRoundTrip() throws Exception {
+        Polygon replica = new Polygon(7L, square(1, 1, 4, 4), 2000L, uGrid).getReplica(3L, 12L);
+        Polygon copy = roundTrip(Polygon.class, replica);
+
+        assertNull(copy.gridIDsSet);
+        assertEquals(3L, copy.objID);
+        assertEquals(12L, copy.gridID);
+        assertTrue(replica.polygon.equalsExact(copy.polygon));
+    }
+
+    @Test
+    public void multiPolygonRoundTrip() throws Exception {
+        MultiPolygon mp = new MultiPolygon(Arrays.asList(square(1, 1, 2, 2), square(5, 5, 6, 6)), 9L, 3000L, uGrid);
+        Polygon copy = roundTrip(Polygon.class, mp);
+
+        assertEquals(MultiPolygon.class, copy.getClass());
+        assertEquals(mp.getListCoordinate(), ((MultiPolygon) copy).getListCoordinate());
+        assertEquals(mp.gridIDsSet, copy.gridIDsSet);
+        assertTrue(mp.polygon.equalsExact(copy.polygon));
+    }
+
+    @Test
+    public void lineStringRoundTrip() throws Exception {
+        LineString ls = new LineString("l1", Arrays.asList(new Coordinate(1, 1), new Coordinate(3, 2), new Coordinate(6, 6)), uGrid);
+        ls.timeStampMillisec = 4000L;
+        LineString copy = roundTrip(LineString.class, ls);
+
+        assertEquals(LineString.class, copy.getClass());
+        assertEquals(ls.objID, copy.objID);
+        assertEquals(ls.timeStampMillisec, copy.timeStampMillisec);
+        assertEquals(ls.gridIDsSet, copy.gridIDsSet);
+        assertEquals(ls.boundingBox, copy.boundingBox);
+        assertTrue(ls.lineString.equalsExact(copy.lineString));
+    }
+
+    @Test
+    public void multiLineStringRoundTrip() throws Exception {
+        MultiLineString mls = new MultiLineString("m1", Arrays.asList(Arrays.asList(new Coordinate(1, 1), new Coordinate(2, 2)),
+                Arrays.asList(new Coordinate(4, 4), new Coordinate(5, 6))), 5000L);
+        LineString copy = roundTrip(LineString.class, mls);
+
+        assertEquals(MultiLineString.class, copy.getClass());
+        assertEquals(mls.getListCoordinate(), ((MultiLineString) copy).getListCoordinate());
+        assertTrue(mls.lineString.equalsExact(copy.lineString));
+    }
+
+    @Test
+    public void copySharesTheGeometryOnly() {
+        Polygon poly = new Polygon(7L, square(1, 1, 4, 4), 2000L, uGrid);
+        Polygon copy = PolygonSerializer.INSTANCE.copy(poly);
+
+        assertSame(poly.polygon, copy.polygon);
+        assertEquals(poly.gridIDsSet, copy.gridIDsSet);
+        copy.gridIDsSet.add(-1L);
+        assertFalse(poly.gridIDsSet.contains(-1L));
+    }
+}
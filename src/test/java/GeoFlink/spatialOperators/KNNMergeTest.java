@@ -0,0 +1,196 @@
+package GeoFlink.spatialOperators;
+
+import GeoFlink.utils.DistanceHeap;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.AbstractStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class KNNMergeTest {
+
+    private static final int K = 2;
+    private static final long WINDOW_SIZE = 2000;
+    private static final long SLIDE_STEP = 1000;
+    private static final int NUM_PARTIAL_KNNS = 3;
+    private static final long TIMEOUT = 5000;
+
+    private static Tuple3<Integer, Long, DistanceHeap<String>> partialKNN(long windowEnd, double... distances) {
+        DistanceHeap<String> heap = new DistanceHeap<String>(K);
+        for (double distance : distances) {
+            heap.offer("d" + distance, distance);
+        }
+        return Tuple3.of(0, windowEnd, heap);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Tuple3<Integer, Long, DistanceHeap<String>>> outputKNNs(AbstractStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>> harness) {
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = new ArrayList<Tuple3<Integer, Long, DistanceHeap<String>>>();
+        for (Object record : harness.getOutput()) {
+            if (record instanceof StreamRecord) {
+                kNNs.add(((StreamRecord<Tuple3<Integer, Long, DistanceHeap<String>>>) record).getValue());
+            }
+        }
+        return kNNs;
+    }
+
+    private static void assertKNN(Tuple3<Integer, Long, DistanceHeap<String>> kNN, long windowEnd, double... distances) {
+        assertEquals(windowEnd, (long) kNN.f1);
+        DistanceHeap<String> heap = kNN.f2;
+        heap.sortDescending();
+        assertEquals(distances.length, heap.size());
+        for (int i = 0; i < distances.length; i++) {
+            assertEquals(distances[i], heap.getDistance(i), 0);
+        }
+    }
+
+    private static OneInputStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> createCombineHarness(boolean eventTime) throws Exception {
+        OneInputStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness =
+                new OneInputStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>>(
+                        new KNNCombineOperator<String>(WINDOW_SIZE, SLIDE_STEP, eventTime, String.class));
+        harness.open();
+        return harness;
+    }
+
+    private static KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> createMergeHarness(boolean eventTime) throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness =
+                new KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>>(
+                        new KeyedProcessOperator<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>>(
+                                new KNNMergeFunction<Long, String>(NUM_PARTIAL_KNNS, TIMEOUT, eventTime, String.class)),
+                        new KeySelector<Tuple3<Integer, Long, DistanceHeap<String>>, Long>() {
+                            @Override
+                            public Long getKey(Tuple3<Integer, Long, DistanceHeap<String>> partialKNN) {
+                                return partialKNN.f1;
+                            }
+                        }, BasicTypeInfo.LONG_TYPE_INFO);
+        harness.open();
+        return harness;
+    }
+
+    @Test
+    public void combineOutputsOneHeapPerWindowAtTheWatermark() throws Exception {
+        OneInputStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness = createCombineHarness(true);
+
+        harness.processElement(partialKNN(1000, 5, 3), 999);
+        harness.processElement(partialKNN(1000, 4, 1), 999);
+        harness.processElement(partialKNN(2000, 2), 1999);
+        harness.processWatermark(999);
+
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = outputKNNs(harness);
+        assertEquals(1, kNNs.size());
+        assertKNN(kNNs.get(0), 1000, 3, 1);
+        // the heaps are output before the watermark
+        assertEquals(new Watermark(999), harness.getOutput().toArray()[1]);
+
+        harness.processWatermark(1999);
+        kNNs = outputKNNs(harness);
+        assertEquals(2, kNNs.size());
+        assertKNN(kNNs.get(1), 2000, 2);
+        harness.close();
+    }
+
+    @Test
+    public void combineReportsEveryWindowAfterTheWindowTimers() throws Exception {
+        OneInputStreamOperatorTestHarness<Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness = createCombineHarness(false);
+
+        harness.setProcessingTime(999);
+        harness.processElement(partialKNN(1000, 5, 3), 999);
+        harness.processElement(partialKNN(1000, 4, 1), 999);
+        harness.setProcessingTime(1000);
+        assertEquals(0, outputKNNs(harness).size());
+
+        harness.setProcessingTime(1001);
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = outputKNNs(harness);
+        assertEquals(1, kNNs.size());
+        assertKNN(kNNs.get(0), 1000, 3, 1);
+
+        // a heap arriving after the report of its window is output at once
+        harness.processElement(partialKNN(1000, 0.5), 999);
+        assertEquals(2, outputKNNs(harness).size());
+
+        // a window without heap is reported with an empty heap
+        harness.setProcessingTime(2001);
+        kNNs = outputKNNs(harness);
+        assertEquals(3, kNNs.size());
+        assertKNN(kNNs.get(2), 2000);
+        harness.close();
+    }
+
+    @Test
+    public void mergeOutputsOnceAllTheSubtasksReported() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness = createMergeHarness(false);
+
+        harness.setProcessingTime(1001);
+        // the first heap is empty, its capacity is not used
+        harness.processElement(Tuple3.of(0, 1000L, new DistanceHeap<String>(1)), 999);
+        harness.processElement(partialKNN(1000, 5, 3), 999);
+        assertEquals(0, outputKNNs(harness).size());
+
+        harness.processElement(partialKNN(1000, 4, 1), 999);
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = outputKNNs(harness);
+        assertEquals(1, kNNs.size());
+        assertKNN(kNNs.get(0), 1000, 3, 1);
+
+        // a heap arriving after the output of its window is dropped, also after the timeout
+        harness.processElement(partialKNN(1000, 0.5), 999);
+        harness.setProcessingTime(1000 + TIMEOUT);
+        harness.processElement(partialKNN(1000, 0.5), 999);
+        harness.setProcessingTime(3 * TIMEOUT);
+
+        // a window without objects is not output
+        for (int i = 0; i < NUM_PARTIAL_KNNS; i++) {
+            harness.processElement(Tuple3.of(i, 3 * TIMEOUT, new DistanceHeap<String>(1)), 3 * TIMEOUT - 1);
+        }
+        harness.setProcessingTime(5 * TIMEOUT);
+        assertEquals(1, outputKNNs(harness).size());
+        harness.close();
+    }
+
+    @Test
+    public void mergeOutputsAnIncompleteWindowAfterTheTimeout() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness = createMergeHarness(false);
+
+        harness.setProcessingTime(1001);
+        harness.processElement(partialKNN(1000, 5, 3), 999);
+        harness.processElement(partialKNN(1000, 4), 999);
+        harness.setProcessingTime(1000 - 1 + TIMEOUT - 1);
+        assertEquals(0, outputKNNs(harness).size());
+
+        harness.setProcessingTime(1000 - 1 + TIMEOUT);
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = outputKNNs(harness);
+        assertEquals(1, kNNs.size());
+        assertKNN(kNNs.get(0), 1000, 4, 3);
+        harness.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsUnknownParallelismInProcessingTime() {
+        new KNNMergeFunction<Long, String>(-1, TIMEOUT, false, String.class);
+    }
+
+    @Test
+    public void mergeDropsLateHeapsInEventTime() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Tuple3<Integer, Long, DistanceHeap<String>>, Tuple3<Integer, Long, DistanceHeap<String>>> harness = createMergeHarness(true);
+
+        harness.processElement(partialKNN(1000, 5, 3), 999);
+        harness.processElement(partialKNN(1000, 4), 999);
+        harness.processWatermark(999);
+        harness.processElement(partialKNN(1000, 0.5), 999);
+        harness.processWatermark(Long.MAX_VALUE);
+
+        List<Tuple3<Integer, Long, DistanceHeap<String>>> kNNs = outputKNNs(harness);
+        assertEquals(1, kNNs.size());
+        assertKNN(kNNs.get(0), 1000, 4, 3);
+        harness.close();
+    }
+}
@@ -0,0 +1,130 @@
+package GeoFlink.spatialOperators;
+
+import GeoFlink.spatialIndices.QuadTreeIndex;
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.utils.HelperClass;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.streaming.api.TimeCharacteristic;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class KNNQueryTest {
+
+    private static final int K = 5;
+    private static final int WINDOW_SIZE = 4;
+    private static final int SLIDE_STEP = 2;
+    private static final long BASE_TIME = 1_600_000_000_000L;
+
+    // window end -> kNN distances, written by the parallel sinks
+    private static final Map<Long, List<Double>> outputKNNs = new ConcurrentHashMap<Long, List<Double>>();
+
+    private static class KNNSink implements SinkFunction<Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>>> {
+        @Override
+        public void invoke(Tuple3<Long, Long, PriorityQueue<Tuple2<Point, Double>>> kNN, Context context) {
+            List<Double> distances = new ArrayList<Double>();
+            for (Tuple2<Point, Double> neighbor : kNN.f2) {
+                distances.add(neighbor.f1);
+            }
+            Collections.sort(distances);
+            outputKNNs.put(kNN.f1, distances);
+        }
+    }
+
+    // Clustered points, in timestamp order
+    private static List<Point> getPoints(UniformGrid uGrid) {
+        Random random = new Random(7);
+        List<Point> points = new ArrayList<Point>();
+        for (int i = 0; i < 2000; i++) {
+            double x = (i % 3 == 0) ? 1 + random.nextDouble() : random.nextDouble() * 10;
+            double y = (i % 3 == 0) ? 1 + random.nextDouble() : random.nextDouble() * 10;
+            points.add(new Point("p" + i, x, y, BASE_TIME + i * 5L, uGrid));
+        }
+        return points;
+    }
+
+    // kNN distances of every sliding window of the points
+    private static Map<Long, List<Double>> getBruteForceKNNs(List<Point> points, Point queryPoint) {
+        Map<Long, List<Double>> windowDistances = new TreeMap<Long, List<Double>>();
+        for (Point p : points) {
+            double distance = HelperClass.getPointPointEuclideanDistance(p.x, p.y, queryPoint.x, queryPoint.y);
+            long firstEnd = p.timeStampMillisec - Math.floorMod(p.timeStampMillisec, SLIDE_STEP * 1000L) + SLIDE_STEP * 1000L;
+            for (long windowEnd = firstEnd; windowEnd <= p.timeStampMillisec + WINDOW_SIZE * 1000L; windowEnd += SLIDE_STEP * 1000L) {
+                windowDistances.computeIfAbsent(windowEnd, w -> new ArrayList<Double>()).add(distance);
+            }
+        }
+        for (List<Double> distances : windowDistances.values()) {
+            Collections.sort(distances);
+            distances.subList(Math.min(K, distances.size()), distances.size()).clear();
+        }
+        return windowDistances;
+    }
+
+    private static void assertBestFirstMatchesBruteForce(UniformGrid uGrid, Point queryPoint) throws Exception {
+        outputKNNs.clear();
+        List<Point> points = getPoints(uGrid);
+
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(2);
+        env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime);
+        KNNQuery.SpatialKNNQuery(env.fromCollection(points), queryPoint, K, WINDOW_SIZE, SLIDE_STEP, 1, uGrid, 3).addSink(new KNNSink());
+        env.execute();
+
+        assertEquals(getBruteForceKNNs(points, queryPoint), new TreeMap<Long, List<Double>>(outputKNNs));
+    }
+
+    @Test
+    public void bestFirstMatchesBruteForce() throws Exception {
+        UniformGrid uGrid = new UniformGrid(20, 0, 10, 0, 10);
+        assertBestFirstMatchesBruteForce(uGrid, new Point(5, 5, uGrid));
+        assertBestFirstMatchesBruteForce(uGrid, new Point(9.5, 0.5, uGrid));
+    }
+
+    @Test
+    public void bestFirstMatchesBruteForceOnQuadTree() throws Exception {
+        List<Coordinate> samplePoints = new ArrayList<Coordinate>();
+        for (Point p : getPoints(new UniformGrid(20, 0, 10, 0, 10))) {
+            samplePoints.add(new Coordinate(p.x, p.y));
+        }
+        // small leaves in the cluster, large ones elsewhere
+        QuadTreeIndex quadTree = new QuadTreeIndex(samplePoints, 50, 6, 0, 10, 0, 10);
+        assertBestFirstMatchesBruteForce(quadTree, new Point(1.5, 1.5, quadTree));
+        assertBestFirstMatchesBruteForce(quadTree, new Point(6, 7, quadTree));
+    }
+
+    @Test
+    public void saltedMatchesBruteForceInEventTime() throws Exception {
+        UniformGrid uGrid = new UniformGrid(20, 0, 10, 0, 10);
+        Point queryPoint = new Point(1.5, 1.5, uGrid);
+        outputKNNs.clear();
+        List<Point> points = getPoints(uGrid);
+
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(2);
+        env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime);
+        // the query radius covers the grid
+        KNNQuery.SpatialKNNQuery(env.fromCollection(points), queryPoint, 20, K, WINDOW_SIZE, SLIDE_STEP, 1, uGrid, 4, 10).addSink(new KNNSink());
+        env.execute();
+
+        assertEquals(getBruteForceKNNs(points, queryPoint), new TreeMap<Long, List<Double>>(outputKNNs));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveNumPartitions() throws Exception {
+        UniformGrid uGrid = new UniformGrid(20, 0, 10, 0, 10);
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(1);
+        KNNQuery.SpatialKNNQuery(env.fromElements(new Point(1, 1, uGrid)), new Point(5, 5, uGrid), K, WINDOW_SIZE, SLIDE_STEP, 1, uGrid, 0);
+    }
+}
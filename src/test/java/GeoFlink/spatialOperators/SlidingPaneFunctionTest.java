@@ -0,0 +1,142 @@
+package GeoFlink.spatialOperators;
+
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlidingPaneFunctionTest {
+
+    private static final long WINDOW_SIZE = 3000;
+    private static final long SLIDE_STEP = 1000;
+
+    // Keeps the values which are not multiples of 3, keyed by parity
+    private static KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> createHarness(boolean eventTime) throws Exception {
+        SlidingPaneFunction<Long, Long> function = new SlidingPaneFunction<Long, Long>(WINDOW_SIZE, SLIDE_STEP, Long.class, eventTime) {
+            @Override
+            public boolean filter(Long value) {
+                return value % 3 != 0;
+            }
+        };
+        KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness = new KeyedOneInputStreamOperatorTestHarness<Long, Long, Long>(
+                new KeyedProcessOperator<Long, Long, Long>(function), new KeySelector<Long, Long>() {
+                    @Override
+                    public Long getKey(Long value) {
+                        return value % 2;
+                    }
+                }, BasicTypeInfo.LONG_TYPE_INFO);
+        harness.open();
+        return harness;
+    }
+
+    // Number of sliding windows containing the timestamp whose end is after the watermark, i.e. not output yet
+    private static int countWindows(long timestamp, long watermark) {
+        int count = 0;
+        long firstStart = timestamp - Math.floorMod(timestamp, SLIDE_STEP) - WINDOW_SIZE + SLIDE_STEP;
+        for (long start = firstStart; start <= timestamp; start += SLIDE_STEP) {
+            if (start + WINDOW_SIZE - 1 > watermark) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> outputValues(KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness) {
+        List<Long> values = new ArrayList<Long>();
+        for (Object record : harness.getOutput()) {
+            if (record instanceof StreamRecord) {
+                values.add(((StreamRecord<Long>) record).getValue());
+            }
+        }
+        return values;
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> sortedValues = new ArrayList<Long>(values);
+        Collections.sort(sortedValues);
+        return sortedValues;
+    }
+
+    @Test
+    public void eventTimeOutputMatchesSlidingWindows() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness = createHarness(true);
+
+        // value, timestamp; out of order, with watermarks in between
+        long[][] elements = {{1, 100}, {2, 2500}, {3, 1200}, {4, 900}, {5, 4100}, {7, 3999}, {8, 1500}, {10, 6200}, {11, 2999}, {13, 5000}};
+        long[] watermarks = {-1, -1, -1, 999, 999, 999, 1999, 1999, 3998, 3998};
+
+        List<Long> expected = new ArrayList<Long>();
+        long watermark = Long.MIN_VALUE;
+        for (int i = 0; i < elements.length; i++) {
+            if (watermarks[i] > watermark) {
+                watermark = watermarks[i];
+                harness.processWatermark(watermark);
+            }
+            harness.processElement(elements[i][0], elements[i][1]);
+            if (elements[i][0] % 3 != 0) {
+                expected.addAll(Collections.nCopies(countWindows(elements[i][1], watermark), elements[i][0]));
+            }
+        }
+        harness.processWatermark(Long.MAX_VALUE);
+
+        assertEquals(sorted(expected), sorted(outputValues(harness)));
+        harness.close();
+    }
+
+    @Test
+    public void lateElementsOnlyOutputByPendingWindows() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness = createHarness(true);
+
+        harness.processElement(1L, 500);
+        harness.processWatermark(1999); // windows ending at 1000 and 2000 are output
+        assertEquals(Arrays.asList(1L, 1L), outputValues(harness));
+
+        harness.processElement(5L, 700); // late, only its window ending at 3000 is pending
+        harness.processElement(7L, 1999); // late, its windows ending at 3000 and 4000 are pending
+        harness.processWatermark(Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList(1L, 1L, 1L, 5L, 7L, 7L), sorted(outputValues(harness)));
+        harness.close();
+    }
+
+    @Test
+    public void processingTimeWindowIsNotOutputTwice() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness = createHarness(false);
+
+        harness.setProcessingTime(500);
+        harness.processElement(1L, 0);
+        harness.setProcessingTime(999); // window ending at 1000
+        assertEquals(Arrays.asList(1L), outputValues(harness));
+
+        // arrives at windowEnd - 1 after the timer of the window, hence only output by the following windows
+        harness.processElement(5L, 0);
+        harness.setProcessingTime(1000);
+        assertEquals(Arrays.asList(1L), outputValues(harness));
+
+        harness.setProcessingTime(5000);
+        assertEquals(Arrays.asList(1L, 1L, 1L, 5L, 5L), sorted(outputValues(harness)));
+        harness.close();
+    }
+
+    @Test
+    public void filteredElementsAreNotOutput() throws Exception {
+        KeyedOneInputStreamOperatorTestHarness<Long, Long, Long> harness = createHarness(true);
+
+        harness.processElement(3L, 100);
+        harness.processElement(6L, 200);
+        harness.processWatermark(Long.MAX_VALUE);
+
+        assertEquals(0, outputValues(harness).size());
+        harness.close();
+    }
+}
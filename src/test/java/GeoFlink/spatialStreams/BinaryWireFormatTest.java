@@ -0,0 +1,195 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import GeoFlink.spatialObjects.SpatialObject;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryWireFormatTest {
+
+    private final UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+
+    private static ConsumerRecord<byte[], byte[]> record(byte[] value) {
+        return new ConsumerRecord<byte[], byte[]>("topic", 0, 0, null, value);
+    }
+
+    private static List<Coordinate> square(double minX, double minY, double maxX, double maxY) {
+        return new ArrayList<Coordinate>(Arrays.asList(new Coordinate(minX, minY), new Coordinate(maxX, minY),
+                new Coordinate(maxX, maxY), new Coordinate(minX, maxY), new Coordinate(minX, minY)));
+    }
+
+    private static void assertCoordinatesEqual(Coordinate[] expected, Coordinate[] actual, double delta) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].x, actual[i].x, delta);
+            assertEquals(expected[i].y, actual[i].y, delta);
+        }
+    }
+
+    //--------------- FIELDS -----------------//
+    @Test
+    public void varLongRoundTrip() throws Exception {
+        List<Long> values = new ArrayList<Long>(Arrays.asList(0L, 1L, -1L, 63L, -64L, 64L, 1600000000000L, -1600000000000L,
+                (long) Integer.MAX_VALUE, (long) Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE));
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            values.add(random.nextLong() >> random.nextInt(64));
+        }
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        for (long value : values) {
+            BinaryWireFormat.writeVarLong(out, value);
+        }
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        for (long value : values) {
+            assertEquals(value, BinaryWireFormat.readVarLong(in));
+        }
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void smallVarLongsAreShort() throws Exception {
+        long[] values = {0, -1, 63, -64, 64, -65, 8191, 8192, Long.MIN_VALUE};
+        int[] lengths = {1, 1, 1, 1, 2, 2, 2, 3, 10};
+        for (int i = 0; i < values.length; i++) {
+            DataOutputSerializer out = new DataOutputSerializer(16);
+            BinaryWireFormat.writeVarLong(out, values[i]);
+            assertEquals(Long.toString(values[i]), lengths[i], out.length());
+        }
+    }
+
+    @Test
+    public void deltaEncodedSequenceRoundTrip() throws Exception {
+        Random random = new Random(2);
+        Coordinate[] coordinates = new Coordinate[1000];
+        double x = 116.3, y = 39.9;
+        for (int i = 0; i < coordinates.length; i++) {
+            x += (random.nextDouble() - 0.5) * 0.01;
+            y += (random.nextDouble() - 0.5) * 0.01;
+            coordinates[i] = new Coordinate(x, y);
+        }
+
+        DataOutputSerializer raw = new DataOutputSerializer(64);
+        BinaryWireFormat.writeSequenceCount(raw, 1);
+        BinaryWireFormat.writeSequence(raw, coordinates, BinaryWireFormat.RAW_DOUBLES);
+        List<List<Coordinate>> sequences = BinaryWireFormat.readSequences(new DataInputDeserializer(raw.getCopyOfBuffer()), BinaryWireFormat.RAW_DOUBLES);
+        assertCoordinatesEqual(coordinates, sequences.get(0).toArray(new Coordinate[0]), 0);
+
+        for (int precision : new int[] {0, 3, 6, 9}) {
+            DataOutputSerializer delta = new DataOutputSerializer(64);
+            BinaryWireFormat.writeSequenceCount(delta, 1);
+            BinaryWireFormat.writeSequence(delta, coordinates, precision);
+            sequences = BinaryWireFormat.readSequences(new DataInputDeserializer(delta.getCopyOfBuffer()), precision);
+            assertCoordinatesEqual(coordinates, sequences.get(0).toArray(new Coordinate[0]), 0.5 / Math.pow(10, precision) + 1e-12);
+            assertTrue(delta.length() < raw.length());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidPrecision() {
+        new PointToBinaryOutputSchema("topic", BinaryWireFormat.MAX_PRECISION + 1);
+    }
+
+    //--------------- SCHEMAS -----------------//
+    @Test
+    public void pointRoundTrip() throws Exception {
+        Point p = new Point("p1", 1.234567891, 2.5, 1600000000000L, uGrid);
+
+        Point copy = new BinaryToPointInputSchema(uGrid).deserialize(record(new PointToBinaryOutputSchema("topic").serialize(p, null).value()));
+        assertEquals("p1", copy.objID);
+        assertEquals(p.x, copy.x, 0);
+        assertEquals(p.y, copy.y, 0);
+        assertEquals(p.timeStampMillisec, copy.timeStampMillisec);
+        assertEquals(p.gridID, copy.gridID);
+
+        // delta encoded, null objID
+        p = new Point(null, 1.234567891, 2.5, 1600000000000L, uGrid);
+        copy = new BinaryToPointInputSchema(uGrid).deserialize(record(new PointToBinaryOutputSchema("topic", 6).serialize(p, null).value()));
+        assertNull(copy.objID);
+        assertEquals(1.234568, copy.x, 1e-12);
+        assertEquals(2.5, copy.y, 0);
+    }
+
+    @Test
+    public void polygonWithHoleRoundTrip() throws Exception {
+        GeometryFactory geofact = new GeometryFactory();
+        Polygon poly = new Polygon(7L, square(1, 1, 4, 4), 2000L, uGrid);
+        LinearRing hole = geofact.createLinearRing(square(2, 2, 3, 3).toArray(new Coordinate[0]));
+        poly.polygon = geofact.createPolygon(geofact.createLinearRing(poly.polygon.getExteriorRing().getCoordinates()), new LinearRing[] {hole});
+        ((SpatialObject) poly).objID = "poly7";
+
+        for (int precision : new int[] {BinaryWireFormat.RAW_DOUBLES, 4}) {
+            byte[] bytes = new PolygonToBinaryOutputSchema("topic", precision).serialize(poly, null).value();
+            Polygon copy = new BinaryToPolygonInputSchema(uGrid).deserialize(record(bytes));
+
+            assertEquals(Polygon.class, copy.getClass());
+            assertEquals(7L, copy.objID);
+            assertEquals("poly7", ((SpatialObject) copy).objID);
+            assertEquals(2000L, copy.timeStampMillisec);
+            assertEquals(poly.gridIDsSet, copy.gridIDsSet);
+            assertTrue(poly.polygon.equalsExact(copy.polygon));
+        }
+    }
+
+    @Test
+    public void multiPolygonRoundTrip() throws Exception {
+        MultiPolygon mp = new MultiPolygon(Arrays.asList(square(1, 1, 2, 2), square(5, 5, 6, 6)), 9L, 3000L, uGrid);
+        Polygon copy = new BinaryToPolygonInputSchema(uGrid).deserialize(record(new PolygonToBinaryOutputSchema("topic", 2).serialize(mp, null).value()));
+
+        assertEquals(MultiPolygon.class, copy.getClass());
+        assertEquals(9L, copy.objID);
+        assertEquals(mp.getListCoordinate(), ((MultiPolygon) copy).getListCoordinate());
+        assertEquals(mp.gridIDsSet, copy.gridIDsSet);
+    }
+
+    @Test
+    public void lineStringRoundTrip() throws Exception {
+        LineString ls = new LineString("l1", Arrays.asList(new Coordinate(1, 1), new Coordinate(3, 2), new Coordinate(6, 6)), 4000L);
+        LineString copy = new BinaryToLineStringInputSchema(uGrid).deserialize(record(new LineStringToBinaryOutputSchema("topic").serialize(ls, null).value()));
+
+        assertEquals(LineString.class, copy.getClass());
+        assertEquals("l1", copy.objID);
+        assertEquals(4000L, copy.timeStampMillisec);
+        assertTrue(ls.lineString.equalsExact(copy.lineString));
+
+        MultiLineString mls = new MultiLineString("m1", Arrays.asList(Arrays.asList(new Coordinate(1, 1), new Coordinate(2, 2)),
+                Arrays.asList(new Coordinate(4, 4), new Coordinate(5, 6))), 5000L);
+        copy = new BinaryToLineStringInputSchema(uGrid).deserialize(record(new LineStringToBinaryOutputSchema("topic", 3).serialize(mls, null).value()));
+        assertEquals(MultiLineString.class, copy.getClass());
+        assertEquals(mls.getListCoordinate(), ((MultiLineString) copy).getListCoordinate());
+    }
+
+    @Test
+    public void skipsCorruptRecordsAndUnexpectedTypes() throws Exception {
+        Point p = new Point("p1", 1.5, 2.5, 1600000000000L, uGrid);
+        byte[] bytes = new PointToBinaryOutputSchema("topic", 6).serialize(p, null).value();
+        BinaryToPointInputSchema schema = new BinaryToPointInputSchema(uGrid);
+
+        assertNull(schema.deserialize(record(null)));
+        assertNull(schema.deserialize(record(new byte[0])));
+        assertNull(schema.deserialize(record(Arrays.copyOf(bytes, bytes.length - 1))));
+        assertNull(new BinaryToPolygonInputSchema(uGrid).deserialize(record(bytes)));
+        assertNull(new BinaryToLineStringInputSchema(uGrid).deserialize(record(bytes)));
+        // the schema is reused after a corrupt record
+        assertEquals(1.5, schema.deserialize(record(bytes)).x, 0);
+    }
+}
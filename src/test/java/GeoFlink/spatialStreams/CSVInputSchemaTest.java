@@ -0,0 +1,154 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CSVInputSchemaTest {
+
+    private final UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+
+    private static ConsumerRecord<byte[], byte[]> record(String value) {
+        return new ConsumerRecord<byte[], byte[]>("topic", 0, 0, null, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DateFormat getDateFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
+
+    // Parses s surrounded by other bytes
+    private static double parseDouble(String s) {
+        byte[] b = ("x" + s + "x").getBytes(StandardCharsets.ISO_8859_1);
+        return CSVInputSchema.parseDouble(b, 1, b.length - 1);
+    }
+
+    @Test
+    public void parsesCSVPoint() throws Exception {
+        CSVToPointInputSchema schema = new CSVToPointInputSchema(uGrid, getDateFormat());
+        Point p = schema.deserialize(record("1, POINT (1.69171 3.85184), 2020-09-13 12:26:40"));
+
+        assertEquals("1", p.objID);
+        assertEquals(1.69171, p.x, 0);
+        assertEquals(3.85184, p.y, 0);
+        assertEquals(1600000000000L, p.timeStampMillisec);
+        assertEquals(new Point(1.69171, 3.85184, uGrid).gridID, p.gridID);
+    }
+
+    @Test
+    public void parsesQuotedTSVPoint() throws Exception {
+        CSVToPointInputSchema schema = new CSVToPointInputSchema(uGrid, getDateFormat(), '\t');
+        // JSON string with escaped tabs, Z value and an extra field after the timestamp
+        Point p = schema.deserialize(record("\"o2\\tpoint z (2 3 10)\\t2020-09-13 12:26:40\\tabc\""));
+
+        assertEquals("o2", p.objID);
+        assertEquals(2, p.x, 0);
+        assertEquals(3, p.y, 0);
+        assertEquals(1600000000000L, p.timeStampMillisec);
+
+        // real tabs, no object ID and no timestamp
+        p = schema.deserialize(record("POINT(4 5)\tabc"));
+        assertNull(p.objID);
+        assertEquals(4, p.x, 0);
+        assertEquals(0, p.timeStampMillisec);
+    }
+
+    @Test
+    public void skipsMalformedRecords() throws Exception {
+        CSVToPointInputSchema schema = new CSVToPointInputSchema(uGrid, getDateFormat());
+
+        assertNull(schema.deserialize(record(null)));
+        assertNull(schema.deserialize(record("")));
+        assertNull(schema.deserialize(record("1, 2, 3")));
+        assertNull(schema.deserialize(record("1, POINT (a b)")));
+        assertNull(schema.deserialize(record("1, POINT EMPTY")));
+        // POINTS is not a WKT type
+        assertNull(schema.deserialize(record("1, POINTS (1 2)")));
+        // unexpected geometry type
+        assertNull(schema.deserialize(record("1, LINESTRING (1 1, 2 2)")));
+        assertNull(new CSVToPolygonInputSchema(uGrid, null).deserialize(record("1, POINT (1 1)")));
+        assertNull(new CSVToLineStringInputSchema(uGrid, null).deserialize(record("1, POLYGON ((1 1, 2 1, 2 2, 1 1))")));
+    }
+
+    @Test
+    public void parsesPolygonWithDelimitersInTheGeometry() throws Exception {
+        CSVToPolygonInputSchema schema = new CSVToPolygonInputSchema(uGrid, getDateFormat());
+        Polygon poly = schema.deserialize(record("12, POLYGON ((1 1, 4 1, 4 4, 1 4)), 2020-09-13 12:26:40"));
+
+        assertEquals(Polygon.class, poly.getClass());
+        assertEquals(12L, poly.objID);
+        assertEquals(1600000000000L, poly.timeStampMillisec);
+        // the ring is closed
+        assertEquals(5, poly.polygon.getExteriorRing().getNumPoints());
+        assertEquals(9, poly.polygon.getArea(), 0);
+
+        // holes are ignored
+        poly = schema.deserialize(record("a, POLYGON ((1 1, 4 1, 4 4, 1 4, 1 1), (2 2, 3 2, 3 3, 2 2))"));
+        assertEquals(-1L, poly.objID);
+        assertEquals(0, poly.polygon.getNumInteriorRing());
+    }
+
+    @Test
+    public void parsesMultiPolygon() throws Exception {
+        CSVToPolygonInputSchema schema = new CSVToPolygonInputSchema(uGrid, null);
+        Polygon poly = schema.deserialize(record("3, MULTIPOLYGON (((1 1, 2 1, 2 2, 1 1)), ((5 5, 6 5, 6 6)))"));
+
+        assertEquals(MultiPolygon.class, poly.getClass());
+        assertEquals(3L, poly.objID);
+        assertEquals(2, ((MultiPolygon) poly).getListCoordinate().size());
+        assertEquals(4, ((MultiPolygon) poly).getListCoordinate().get(1).size());
+    }
+
+    @Test
+    public void parsesLineStrings() throws Exception {
+        CSVToLineStringInputSchema schema = new CSVToLineStringInputSchema(uGrid, getDateFormat(), '\t');
+        LineString ls = schema.deserialize(record("l1\tLINESTRING (1 1, 3 2, 6 6)\t2020-09-13 12:26:40"));
+
+        assertEquals(LineString.class, ls.getClass());
+        assertEquals("l1", ls.objID);
+        assertEquals(1600000000000L, ls.timeStampMillisec);
+        assertEquals(3, ls.lineString.getNumPoints());
+
+        ls = schema.deserialize(record("m1\tMULTILINESTRING ((1 1, 2 2), (4 4, 5 6))"));
+        assertEquals(MultiLineString.class, ls.getClass());
+        assertEquals(2, ((MultiLineString) ls).getListCoordinate().size());
+    }
+
+    @Test
+    public void parseDoubleMatchesDoubleParseDouble() {
+        String[] values = {"0", "-0", "+1", "1.", ".5", "-116.69171", "39.85184", "0.1", "0.3", "123456789012345678",
+                "1234567890123456789", "9007199254740993", "0.0000000000000000000000001", "1e3", "-2.5E-3", "1.7976931348623157E308"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), parseDouble(value), 0);
+        }
+
+        Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            String value = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+            assertEquals(value, Double.parseDouble(value), parseDouble(value), 0);
+            value = String.format(Locale.ROOT, "%.6f", random.nextDouble() * 360 - 180);
+            assertEquals(value, Double.parseDouble(value), parseDouble(value), 0);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseDoubleRejectsInvalidNumbers() {
+        parseDouble("1.2.3");
+    }
+}
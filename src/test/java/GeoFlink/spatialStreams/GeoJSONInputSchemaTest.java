@@ -0,0 +1,131 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialObjects.LineString;
+import GeoFlink.spatialObjects.MultiLineString;
+import GeoFlink.spatialObjects.MultiPolygon;
+import GeoFlink.spatialObjects.Point;
+import GeoFlink.spatialObjects.Polygon;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GeoJSONInputSchemaTest {
+
+    private final UniformGrid uGrid = new UniformGrid(10, 0, 10, 0, 10);
+
+    private static ConsumerRecord<byte[], byte[]> record(String value) {
+        return new ConsumerRecord<byte[], byte[]>("topic", 0, 0, null, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parsesPointFeature() throws Exception {
+        GeoJSONToPointInputSchema schema = new GeoJSONToPointInputSchema(uGrid);
+        Point p = schema.deserialize(record("{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1.5, 2.5]}, " +
+                "\"properties\": {\"oID\": \"o1\", \"timestamp\": 1600000000000}}"));
+
+        assertEquals("o1", p.objID);
+        assertEquals(1.5, p.x, 0);
+        assertEquals(2.5, p.y, 0);
+        assertEquals(1600000000000L, p.timeStampMillisec);
+        assertEquals(new Point(1.5, 2.5, uGrid).gridID, p.gridID);
+    }
+
+    @Test
+    public void parsesPointInAnyKeyOrder() throws Exception {
+        GeoJSONToPointInputSchema schema = new GeoJSONToPointInputSchema(uGrid);
+        // properties first, numeric oID, altitude and unknown fields
+        Point p = schema.deserialize(record("{\"properties\": {\"name\": {\"a\": [1]}, \"timestamp\": \"1600000000000\", \"oID\": 7}, " +
+                "\"geometry\": {\"coordinates\": [3, 4, 100], \"type\": \"Point\"}, \"type\": \"Feature\"}"));
+
+        assertEquals("7", p.objID);
+        assertEquals(3, p.x, 0);
+        assertEquals(4, p.y, 0);
+        assertEquals(1600000000000L, p.timeStampMillisec);
+
+        // bare geometry
+        p = schema.deserialize(record("{\"type\": \"Point\", \"coordinates\": [5.5, 6.5]}"));
+        assertNull(p.objID);
+        assertEquals(5.5, p.x, 0);
+    }
+
+    @Test
+    public void parsesTimestampWithTheDateFormat() throws Exception {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        GeoJSONToPointInputSchema schema = new GeoJSONToPointInputSchema(uGrid, dateFormat);
+        Point p = schema.deserialize(record("{\"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 1]}, " +
+                "\"properties\": {\"timestamp\": \"2020-09-13 12:26:40\"}}"));
+
+        assertEquals(1600000000000L, p.timeStampMillisec);
+    }
+
+    @Test
+    public void skipsMalformedRecords() throws Exception {
+        GeoJSONToPointInputSchema schema = new GeoJSONToPointInputSchema(uGrid);
+
+        assertNull(schema.deserialize(record(null)));
+        assertNull(schema.deserialize(record("")));
+        assertNull(schema.deserialize(record("[1, 2]")));
+        assertNull(schema.deserialize(record("{\"geometry\": {\"type\": \"Point\", \"coordinates\": [1, ")));
+        assertNull(schema.deserialize(record("{\"geometry\": {\"type\": \"Point\"}}")));
+        // unexpected geometry type
+        assertNull(schema.deserialize(record("{\"geometry\": {\"type\": \"LineString\", \"coordinates\": [[1, 1], [2, 2]]}}")));
+        assertNull(new GeoJSONToPolygonInputSchema(uGrid).deserialize(record("{\"type\": \"Point\", \"coordinates\": [1, 1]}")));
+        assertNull(new GeoJSONToLineStringInputSchema(uGrid).deserialize(record("{\"type\": \"Polygon\", \"coordinates\": [[[1, 1], [2, 1], [2, 2], [1, 1]]]}")));
+    }
+
+    @Test
+    public void parsesPolygonAndClosesTheRing() throws Exception {
+        GeoJSONToPolygonInputSchema schema = new GeoJSONToPolygonInputSchema(uGrid);
+        Polygon poly = schema.deserialize(record("{\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[1, 1], [4, 1], [4, 4], [1, 4]]]}, " +
+                "\"properties\": {\"oID\": \"12\", \"timestamp\": 1000}}"));
+
+        assertEquals(Polygon.class, poly.getClass());
+        assertEquals(12L, poly.objID);
+        assertEquals(1000L, poly.timeStampMillisec);
+        assertEquals(5, poly.polygon.getExteriorRing().getNumPoints());
+        assertEquals(9, poly.polygon.getArea(), 0);
+        assertTrue(poly.gridIDsSet.size() > 1);
+
+        // non-numeric oID
+        poly = schema.deserialize(record("{\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[1, 1], [4, 1], [4, 4], [1, 1]]]}, " +
+                "\"properties\": {\"oID\": \"a\"}}"));
+        assertEquals(-1L, poly.objID);
+        assertEquals(4, poly.polygon.getExteriorRing().getNumPoints());
+    }
+
+    @Test
+    public void parsesMultiPolygon() throws Exception {
+        GeoJSONToPolygonInputSchema schema = new GeoJSONToPolygonInputSchema(uGrid);
+        Polygon poly = schema.deserialize(record("{\"geometry\": {\"type\": \"MultiPolygon\", \"coordinates\": " +
+                "[[[[1, 1], [2, 1], [2, 2], [1, 1]]], [[[5, 5], [6, 5], [6, 6]]]]}}"));
+
+        assertEquals(MultiPolygon.class, poly.getClass());
+        assertEquals(2, ((MultiPolygon) poly).getListCoordinate().size());
+        assertEquals(4, ((MultiPolygon) poly).getListCoordinate().get(1).size());
+    }
+
+    @Test
+    public void parsesLineStrings() throws Exception {
+        GeoJSONToLineStringInputSchema schema = new GeoJSONToLineStringInputSchema(uGrid);
+        LineString ls = schema.deserialize(record("{\"geometry\": {\"type\": \"LineString\", \"coordinates\": [[1, 1], [3, 2], [6, 6]]}, " +
+                "\"properties\": {\"oID\": \"l1\", \"timestamp\": 2000}}"));
+
+        assertEquals(LineString.class, ls.getClass());
+        assertEquals("l1", ls.objID);
+        assertEquals(2000L, ls.timeStampMillisec);
+        assertEquals(3, ls.lineString.getNumPoints());
+
+        ls = schema.deserialize(record("{\"geometry\": {\"type\": \"MultiLineString\", \"coordinates\": [[[1, 1], [2, 2]], [[4, 4], [5, 6]]]}}"));
+        assertEquals(MultiLineString.class, ls.getClass());
+        assertEquals(2, ((MultiLineString) ls).getListCoordinate().size());
+    }
+}
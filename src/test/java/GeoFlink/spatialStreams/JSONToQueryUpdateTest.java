@@ -0,0 +1,95 @@
+package GeoFlink.spatialStreams;
+
+import GeoFlink.spatialIndices.UniformGrid;
+import GeoFlink.spatialOperators.QueryUpdate;
+import org.apache.flink.api.common.functions.util.ListCollector;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JSONToQueryUpdateTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private final SpatialStream.JSONToQueryUpdate jsonToQueryUpdate = new SpatialStream.JSONToQueryUpdate(new UniformGrid(10, 0, 10, 0, 10));
+
+    // Query updates of a Kafka record with the given value, as read by JSONKeyValueDeserializationSchema
+    private List<QueryUpdate> parse(String value) throws Exception {
+        ObjectNode record = mapper.createObjectNode();
+        record.set("value", mapper.readTree(value));
+        List<QueryUpdate> updates = new ArrayList<QueryUpdate>();
+        jsonToQueryUpdate.flatMap(record, new ListCollector<QueryUpdate>(updates));
+        return updates;
+    }
+
+    @Test
+    public void parsesPointQuery() throws Exception {
+        List<QueryUpdate> updates = parse("{\"queryID\": \"q1\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1.5, 2.5]}, \"radius\": 0.5, \"k\": 3}");
+
+        assertEquals(1, updates.size());
+        QueryUpdate update = updates.get(0);
+        assertEquals(QueryUpdate.ADD, update.operation);
+        assertEquals("q1", update.queryID);
+        assertEquals(1.5, update.queryPoint.x, 0);
+        assertEquals(2.5, update.queryPoint.y, 0);
+        assertNull(update.queryPolygon);
+        assertEquals(0.5, update.queryRadius, 0);
+        assertEquals(3, update.k);
+    }
+
+    @Test
+    public void parsesPolygonQuery() throws Exception {
+        List<QueryUpdate> updates = parse("{\"queryID\": \"q2\", \"operation\": \"add\", \"geometry\": {\"type\": \"Polygon\", "
+                + "\"coordinates\": [[[1, 1], [2, 1], [2, 2], [1, 2], [1, 1]]]}, \"radius\": 1}");
+
+        assertEquals(1, updates.size());
+        assertNotNull(updates.get(0).queryPolygon);
+        assertNull(updates.get(0).queryPoint);
+        assertEquals(0, updates.get(0).k);
+    }
+
+    @Test
+    public void parsesRemove() throws Exception {
+        List<QueryUpdate> updates = parse("{\"queryID\": \"q1\", \"operation\": \"REMOVE\"}");
+
+        assertEquals(1, updates.size());
+        assertEquals(QueryUpdate.REMOVE, updates.get(0).operation);
+        assertEquals("q1", updates.get(0).queryID);
+    }
+
+    @Test
+    public void skipsMalformedUpdates() throws Exception {
+        String[] malformed = {
+                "{\"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}, \"radius\": 1}", // no queryID
+                "{\"queryID\": \"q\", \"operation\": \"UPDATE\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}}", // no radius
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}, \"radius\": \"far\"}",
+                "{\"queryID\": \"q\", \"geometry\": {\"coordinates\": [1, 2]}, \"radius\": 1}", // no type
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Point\"}, \"radius\": 1}", // no coordinates
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [1]}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [\"a\", \"b\"]}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Polygon\"}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [1, 2]}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[1, 1], [2]]]}, \"radius\": 1}",
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[1, 1], [2, 1], [2, 2]]]}, \"radius\": 1}", // not closed
+                "{\"queryID\": \"q\", \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[1, 1], [2, 2]]}, \"radius\": 1}"
+        };
+        for (String value : malformed) {
+            assertTrue(value, parse(value).isEmpty());
+        }
+    }
+
+    @Test
+    public void skipsRecordWithoutValue() throws Exception {
+        List<QueryUpdate> updates = new ArrayList<QueryUpdate>();
+        jsonToQueryUpdate.flatMap(mapper.createObjectNode(), new ListCollector<QueryUpdate>(updates));
+        assertTrue(updates.isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+package GeoFlink.utils;
+
+import GeoFlink.spatialObjects.Point;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeHint;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class DistanceHeapTest {
+
+    private static DistanceHeap<String> heapOf(int capacity, double... distances) {
+        DistanceHeap<String> heap = new DistanceHeap<String>(capacity);
+        for (double distance : distances) {
+            heap.offer("d" + distance, distance);
+        }
+        return heap;
+    }
+
+    @Test
+    public void keepsTheSmallestDistances() {
+        DistanceHeap<String> heap = heapOf(3, 5, 1, 4, 2, 3, 6);
+
+        assertEquals(3, heap.size());
+        assertTrue(heap.isFull());
+        assertEquals(3, heap.threshold(), 0);
+        assertEquals("d3.0", heap.peek());
+        assertFalse(heap.offer("d3.0", 3)); // not smaller than the largest distance
+    }
+
+    @Test
+    public void thresholdIsInfiniteUntilFull() {
+        DistanceHeap<String> heap = heapOf(3, 1, 2);
+
+        assertEquals(Double.POSITIVE_INFINITY, heap.threshold(), 0);
+        assertEquals(2, heap.peekDistance(), 0);
+
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertEquals(Double.NaN, heap.peekDistance(), 0);
+    }
+
+    @Test
+    public void sortDescending() {
+        DistanceHeap<String> heap = heapOf(5, 3, 5, 1, 4, 2);
+        heap.sortDescending();
+
+        for (int i = 0; i < heap.size(); i++) {
+            assertEquals(5 - i, heap.getDistance(i), 0);
+            assertEquals("d" + (5.0 - i), heap.get(i));
+        }
+        // still a valid max-heap
+        assertTrue(heap.offer("d0.5", 0.5));
+        assertEquals(4, heap.peekDistance(), 0);
+    }
+
+    @Test
+    public void offerAllMergesTheSmallestDistances() {
+        DistanceHeap<String> merged = heapOf(3, 7, 2, 9);
+        merged.offerAll(heapOf(3, 1, 8, 3));
+
+        merged.sortDescending();
+        assertEquals(3, merged.getDistance(0), 0);
+        assertEquals(2, merged.getDistance(1), 0);
+        assertEquals(1, merged.getDistance(2), 0);
+    }
+
+    @Test
+    public void toPriorityQueue() {
+        PriorityQueue<Tuple2<String, Double>> pq = heapOf(4, 2, 4, 1, 3).toPriorityQueue((a, b) -> Double.compare(b.f1, a.f1));
+
+        assertEquals(4, pq.size());
+        for (double distance = 4; distance >= 1; distance--) {
+            Tuple2<String, Double> t = pq.poll();
+            assertEquals(distance, t.f1, 0);
+            assertEquals("d" + distance, t.f0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new DistanceHeap<String>(0);
+    }
+
+    @Test
+    public void typeInfoUsesTheElementSerializer() {
+        TypeInformation<DistanceHeap<Point>> typeInfo = TypeInformation.of(new TypeHint<DistanceHeap<Point>>() {});
+
+        assertTrue(typeInfo instanceof DistanceHeapSerializer.DistanceHeapTypeInfo);
+        assertEquals(TypeInformation.of(Point.class), ((DistanceHeapSerializer.DistanceHeapTypeInfo<Point>) typeInfo).getElementTypeInfo());
+    }
+
+    @Test
+    public void serializerRoundTrip() throws Exception {
+        TypeSerializer<DistanceHeap<Point>> serializer = TypeInformation.of(new TypeHint<DistanceHeap<Point>>() {}).createSerializer(new ExecutionConfig());
+
+        DistanceHeap<Point> heap = new DistanceHeap<Point>(4);
+        for (int i = 0; i < 3; i++) {
+            heap.offer(new Point("p" + i, i, 2 * i, 1000L + i, 7L), 10 - i);
+        }
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(heap, out);
+        DistanceHeap<Point> copy = serializer.deserialize(new DataInputDeserializer(out.getSharedBuffer(), 0, out.length()));
+
+        assertEquals(heap.capacity(), copy.capacity());
+        assertEquals(heap.size(), copy.size());
+        for (int i = 0; i < heap.size(); i++) {
+            assertEquals(heap.getDistance(i), copy.getDistance(i), 0);
+            assertEquals(heap.get(i).objID, copy.get(i).objID);
+            assertEquals(heap.get(i).x, copy.get(i).x, 0);
+            assertEquals(heap.get(i).y, copy.get(i).y, 0);
+            assertEquals(heap.get(i).timeStampMillisec, copy.get(i).timeStampMillisec);
+        }
+
+        // the copy does not share the objects
+        DistanceHeap<Point> copied = serializer.copy(heap);
+        assertNotSame(heap.get(0), copied.get(0));
+        assertEquals(heap.peekDistance(), copied.peekDistance(), 0);
+    }
+
+    @Test
+    public void serializerSnapshotRestoresTheSerializer() throws Exception {
+        TypeSerializer<DistanceHeap<Point>> serializer = TypeInformation.of(new TypeHint<DistanceHeap<Point>>() {}).createSerializer(new ExecutionConfig());
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        TypeSerializerSnapshot.writeVersionedSnapshot(out, serializer.snapshotConfiguration());
+        TypeSerializerSnapshot<DistanceHeap<Point>> snapshot = TypeSerializerSnapshot.readVersionedSnapshot(
+                new DataInputDeserializer(out.getSharedBuffer(), 0, out.length()), getClass().getClassLoader());
+
+        assertEquals(serializer, snapshot.restoreSerializer());
+        assertTrue(snapshot.resolveSchemaCompatibility(serializer).isCompatibleAsIs());
+    }
+}
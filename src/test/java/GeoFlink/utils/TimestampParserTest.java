@@ -0,0 +1,134 @@
+package GeoFlink.utils;
+
+import org.apache.flink.util.InstantiationUtil;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimestampParserTest {
+
+    private static SimpleDateFormat getDateFormat(String pattern, String timeZone) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
+        return dateFormat;
+    }
+
+    // Consecutive timestamps every 700 ms, crossing minute, hour and day boundaries
+    private static List<String> getTimestamps(SimpleDateFormat dateFormat, long from, int count) {
+        List<String> timestamps = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            timestamps.add(dateFormat.format(new Date(from + i * 700L)));
+        }
+        return timestamps;
+    }
+
+    private static void assertParsesLikeTheDateFormat(String pattern, String timeZone, long from) throws Exception {
+        SimpleDateFormat dateFormat = getDateFormat(pattern, timeZone);
+        TimestampParser parser = new TimestampParser(dateFormat);
+        for (String timestamp : getTimestamps(dateFormat, from, 20000)) {
+            assertEquals(timestamp, dateFormat.parse(timestamp).getTime(), parser.parse(timestamp));
+            assertEquals(timestamp, dateFormat.parse(timestamp).getTime(), parser.parseFormatted(timestamp));
+        }
+    }
+
+    @Test
+    public void cachedPrefixParsesLikeTheDateFormat() throws Exception {
+        assertParsesLikeTheDateFormat("yyyy-MM-dd HH:mm:ss", "UTC", 1577836000000L); // new year
+        assertParsesLikeTheDateFormat("yyyy-MM-dd HH:mm:ss.SSS", "UTC", 1600000000123L);
+        // daylight saving time changes
+        assertParsesLikeTheDateFormat("yyyy-MM-dd HH:mm:ss", "America/New_York", 1583643000000L);
+        assertParsesLikeTheDateFormat("yyyy/MM/dd HH:mm:ss", "America/New_York", 1604208000000L);
+        // not cached
+        assertParsesLikeTheDateFormat("EEE, d MMM yyyy HH:mm:ss", "UTC", 1600000000000L);
+    }
+
+    @Test
+    public void nonFixedWidthTimestampsAreParsedFully() throws Exception {
+        TimestampParser parser = new TimestampParser(getDateFormat("yyyy-MM-dd HH:mm:ss", "UTC"));
+
+        assertEquals(1600000000000L, parser.parse("2020-09-13 12:26:40"));
+        // not zero-padded, hence shorter than the pattern
+        assertEquals(1600000001000L, parser.parse("2020-9-13 12:26:41"));
+        assertEquals(1599960401000L, parser.parse("2020-09-13 1:26:41"));
+        assertEquals(1600000002000L, parser.parse("2020-09-13 12:26:42"));
+    }
+
+    @Test
+    public void epochFastPath() throws Exception {
+        TimestampParser parser = new TimestampParser(getDateFormat("yyyy-MM-dd HH:mm:ss", "UTC"));
+
+        assertEquals(1351039728000L, parser.parse("1351039728"));
+        assertEquals(1351039728980L, parser.parse("1351039728.98"));
+        assertEquals(1351039728987L, parser.parse("1351039728.9876"));
+        assertEquals(1351039728980L, parser.parse("1351039728980"));
+        assertEquals(0L, parser.parse("0"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void parseFormattedHasNoEpochFastPath() throws Exception {
+        new TimestampParser(getDateFormat("yyyy-MM-dd HH:mm:ss", "UTC")).parseFormatted("1351039728");
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsInvalidEpochs() throws Exception {
+        new TimestampParser(getDateFormat("yyyy-MM-dd HH:mm:ss", "UTC")).parse("1351039728.");
+    }
+
+    @Test
+    public void numericPatternHasNoEpochFastPath() throws Exception {
+        TimestampParser parser = new TimestampParser(getDateFormat("yyyyMMddHHmmss", "UTC"));
+
+        assertEquals(1600000000000L, parser.parse("20200913122640"));
+    }
+
+    @Test
+    public void serializedParserParsesLikeTheOriginal() throws Exception {
+        TimestampParser parser = new TimestampParser(getDateFormat("yyyy-MM-dd HH:mm:ss", "UTC"));
+        parser.parse("2020-09-13 12:26:40");
+        TimestampParser copy = InstantiationUtil.clone(parser);
+
+        assertEquals(1600000001000L, copy.parse("2020-09-13 12:26:41"));
+        assertEquals(1600000060000L, copy.parse("2020-09-13 12:27:40"));
+    }
+
+    @Test
+    public void sharedParserIsThreadSafe() throws Exception {
+        SimpleDateFormat dateFormat = getDateFormat("yyyy-MM-dd HH:mm:ss.SSS", "UTC");
+        TimestampParser parser = new TimestampParser(dateFormat);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                // each thread parses timestamps of a different day, so that the cached prefix keeps changing
+                long from = 1600000000000L + t * 86400000L;
+                List<String> timestamps = getTimestamps(dateFormat, from, 20000);
+                futures.add(executor.submit(() -> {
+                    Random random = new Random();
+                    for (int i = 0; i < 100000; i++) {
+                        int j = random.nextInt(timestamps.size());
+                        assertEquals(from + j * 700L, parser.parse(timestamps.get(j)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}